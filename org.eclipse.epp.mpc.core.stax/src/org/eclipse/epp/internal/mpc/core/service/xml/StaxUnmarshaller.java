@@ -0,0 +1,273 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service.xml;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.stream.StreamSource;
+
+import org.eclipse.epp.internal.mpc.core.service.NodeListener;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * XML unmarshaller that pulls events from a StAX {@link XMLStreamReader} instead of having them pushed by a SAX
+ * parser. The events are delivered to the content handlers of an {@link Unmarshaller}, so that both produce the same
+ * models. {@link Unmarshaller#getSkippedElements() Skipped elements} are passed over by the stream reader without
+ * delivering any of their events. Instances are not thread-safe. Use {@link #parse(InputSource, NodeListener, Set)}
+ * to unmarshal with an instance from a bounded pool.
+ * <p>
+ * StAX is not part of J2SE 1.5, the execution environment of the host bundle, so this class is contributed by a
+ * fragment that requires JavaSE-1.6. Classes of the host must look it up reflectively, since it is not available
+ * when the fragment is not resolved.
+ * </p>
+ *
+ * @see Unmarshaller
+ */
+public class StaxUnmarshaller {
+
+	private static final BlockingQueue<StaxUnmarshaller> pool = new ArrayBlockingQueue<StaxUnmarshaller>(Math.max(1,
+			Unmarshaller.POOL_SIZE));
+
+	private static XMLInputFactory inputFactory;
+
+	/**
+	 * Unmarshal an object from the given input source, notifying the given listener of each node of a listing as soon
+	 * as it has been read, and skipping the content of the given elements
+	 *
+	 * @param nodeListener
+	 *            the listener to notify, or null
+	 * @param skippedElements
+	 *            the names of the elements to skip, or null
+	 * @see Unmarshaller#parse(InputSource, NodeListener, Set)
+	 */
+	public static Object parse(InputSource input, NodeListener nodeListener, Set<String> skippedElements)
+			throws IOException, SAXException {
+		StaxUnmarshaller unmarshaller = pool.poll();
+		if (unmarshaller == null) {
+			unmarshaller = new StaxUnmarshaller();
+		}
+		boolean reusable = false;
+		try {
+			unmarshaller.getUnmarshaller().setNodeListener(nodeListener);
+			unmarshaller.getUnmarshaller().setSkippedElements(skippedElements);
+			Object model = unmarshaller.unmarshal(input);
+			reusable = true;
+			return model;
+		} finally {
+			// a failed parse may leave the content handlers in an arbitrary state, so only reuse after success
+			if (reusable && Unmarshaller.POOL_SIZE > 0) {
+				unmarshaller.getUnmarshaller().reset();
+				pool.offer(unmarshaller);
+			}
+		}
+	}
+
+	private static XMLStreamReader createXMLStreamReader(InputSource input) throws XMLStreamException {
+		// the factory lookup is expensive, the factory itself is not guaranteed to be thread-safe
+		synchronized (StaxUnmarshaller.class) {
+			if (inputFactory == null) {
+				inputFactory = XMLInputFactory.newInstance();
+				inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+			}
+			if (input.getCharacterStream() != null) {
+				return inputFactory.createXMLStreamReader(input.getCharacterStream());
+			} else if (input.getByteStream() != null) {
+				if (input.getEncoding() != null) {
+					return inputFactory.createXMLStreamReader(input.getByteStream(), input.getEncoding());
+				}
+				return inputFactory.createXMLStreamReader(input.getByteStream());
+			}
+			return inputFactory.createXMLStreamReader(new StreamSource(input.getSystemId()));
+		}
+	}
+
+	private final Unmarshaller unmarshaller = new Unmarshaller();
+
+	private final StreamAttributes attributes = new StreamAttributes();
+
+	/**
+	 * Unmarshal an object from the given input source. The input source is not closed.
+	 */
+	public Object unmarshal(InputSource input) throws IOException, SAXException {
+		XMLStreamReader reader;
+		try {
+			reader = createXMLStreamReader(input);
+		} catch (XMLStreamException e) {
+			throw createException(e, input);
+		}
+		try {
+			unmarshal(reader);
+		} catch (XMLStreamException e) {
+			throw createException(e, input);
+		} finally {
+			attributes.reader = null;
+			try {
+				reader.close();
+			} catch (XMLStreamException e) {
+				// ignore
+			}
+		}
+		return unmarshaller.getModel();
+	}
+
+	private void unmarshal(XMLStreamReader reader) throws XMLStreamException, SAXException {
+		attributes.reader = reader;
+		unmarshaller.startDocument();
+		int depth = 0;
+		while (reader.hasNext()) {
+			switch (reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				String localName = reader.getLocalName();
+				if (depth > 0 && unmarshaller.isSkipped(localName)) {
+					skipElement(reader);
+				} else {
+					++depth;
+					unmarshaller.startElement(toString(reader.getNamespaceURI()), localName, null, attributes);
+				}
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				--depth;
+				unmarshaller.endElement(toString(reader.getNamespaceURI()), reader.getLocalName(), null);
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				// unlike SAX, StAX reports empty CDATA sections, which must not set a value
+				if (depth > 0 && reader.getTextLength() > 0) {
+					unmarshaller.characters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+				}
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Advance the reader to the end of the current element without delivering its content.
+	 */
+	private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				++depth;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				--depth;
+			}
+		}
+	}
+
+	private static String toString(String value) {
+		return value == null ? "" : value; //$NON-NLS-1$
+	}
+
+	private static SAXException createException(XMLStreamException e, InputSource input) throws IOException {
+		if (e.getNestedException() instanceof IOException) {
+			throw (IOException) e.getNestedException();
+		}
+		Location location = e.getLocation();
+		if (location == null) {
+			return new SAXParseException(e.getMessage(), input.getPublicId(), input.getSystemId(), -1, -1, e);
+		}
+		return new SAXParseException(e.getMessage(), location.getPublicId(), location.getSystemId(),
+				location.getLineNumber(), location.getColumnNumber(), e);
+	}
+
+	/**
+	 * The unmarshaller that receives the events of the stream reader, which holds the state of the content handlers
+	 */
+	public Unmarshaller getUnmarshaller() {
+		return unmarshaller;
+	}
+
+	/**
+	 * SAX attributes that are read from the current element of a stream reader, so that the content handlers can be
+	 * shared with SAX parsing without copying the attributes.
+	 */
+	private static class StreamAttributes implements Attributes {
+
+		private XMLStreamReader reader;
+
+		public int getLength() {
+			return reader.getAttributeCount();
+		}
+
+		public String getURI(int index) {
+			return StaxUnmarshaller.toString(reader.getAttributeNamespace(index));
+		}
+
+		public String getLocalName(int index) {
+			return reader.getAttributeLocalName(index);
+		}
+
+		public String getQName(int index) {
+			String prefix = reader.getAttributePrefix(index);
+			String localName = reader.getAttributeLocalName(index);
+			return prefix == null || prefix.length() == 0 ? localName : prefix + ':' + localName;
+		}
+
+		public String getType(int index) {
+			return reader.getAttributeType(index);
+		}
+
+		public String getValue(int index) {
+			return reader.getAttributeValue(index);
+		}
+
+		public int getIndex(String uri, String localName) {
+			for (int x = 0; x < reader.getAttributeCount(); ++x) {
+				if (getURI(x).equals(uri) && reader.getAttributeLocalName(x).equals(localName)) {
+					return x;
+				}
+			}
+			return -1;
+		}
+
+		public int getIndex(String qName) {
+			for (int x = 0; x < reader.getAttributeCount(); ++x) {
+				if (getQName(x).equals(qName)) {
+					return x;
+				}
+			}
+			return -1;
+		}
+
+		public String getType(String uri, String localName) {
+			int index = getIndex(uri, localName);
+			return index == -1 ? null : getType(index);
+		}
+
+		public String getType(String qName) {
+			int index = getIndex(qName);
+			return index == -1 ? null : getType(index);
+		}
+
+		public String getValue(String uri, String localName) {
+			int index = getIndex(uri, localName);
+			return index == -1 ? null : getValue(index);
+		}
+
+		public String getValue(String qName) {
+			int index = getIndex(qName);
+			return index == -1 ? null : getValue(index);
+		}
+	}
+}
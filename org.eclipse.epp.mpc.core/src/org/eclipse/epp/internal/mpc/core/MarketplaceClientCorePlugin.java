@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core;
+
+import org.eclipse.epp.internal.mpc.core.service.CachingMarketplaceServiceRegistry;
+import org.eclipse.epp.internal.mpc.core.util.MetricsRegistry;
+import org.osgi.framework.BundleActivator;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+
+/**
+ * The activator of the core bundle, which registers the shared {@link MetricsRegistry} as an OSGi service so that
+ * telemetry can take snapshots of it, and closes the shared {@link CachingMarketplaceServiceRegistry caching services}
+ * when the bundle stops.
+ */
+public class MarketplaceClientCorePlugin implements BundleActivator {
+
+	private ServiceRegistration metricsRegistration;
+
+	public void start(BundleContext context) throws Exception {
+		metricsRegistration = context.registerService(MetricsRegistry.class.getName(), MetricsRegistry.getInstance(),
+				null);
+	}
+
+	public void stop(BundleContext context) throws Exception {
+		CachingMarketplaceServiceRegistry.getInstance().clear();
+		if (metricsRegistration != null) {
+			metricsRegistration.unregister();
+			metricsRegistration = null;
+		}
+	}
+}
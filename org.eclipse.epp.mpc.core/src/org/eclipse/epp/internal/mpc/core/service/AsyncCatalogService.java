@@ -0,0 +1,26 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service;
+
+import java.util.List;
+
+/**
+ * An asynchronous companion to {@link CatalogService}.
+ *
+ * @see CatalogService
+ */
+public interface AsyncCatalogService {
+
+	/**
+	 * @see CatalogService#listCatalogs(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	public ServiceFuture<List<Catalog>> listCatalogsAsync();
+}
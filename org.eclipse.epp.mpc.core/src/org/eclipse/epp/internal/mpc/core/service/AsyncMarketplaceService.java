@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service;
+
+import java.util.List;
+
+/**
+ * An asynchronous companion to {@link MarketplaceService}. Each method returns immediately with a {@link ServiceFuture}
+ * for the result; canceling the future cancels the request.
+ *
+ * @see MarketplaceService
+ */
+public interface AsyncMarketplaceService {
+
+	/**
+	 * @see MarketplaceService#listMarkets(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	public ServiceFuture<List<Market>> listMarketsAsync();
+
+	/**
+	 * @see MarketplaceService#getMarket(Market, org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	public ServiceFuture<Market> getMarketAsync(Market market);
+
+	/**
+	 * @see MarketplaceService#getCategory(Category, org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	public ServiceFuture<Category> getCategoryAsync(Category category);
+
+	/**
+	 * @see MarketplaceService#getNode(Node, org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	public ServiceFuture<Node> getNodeAsync(Node node);
+
+	/**
+	 * @see MarketplaceService#search(Market, Category, String, org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	public ServiceFuture<SearchResult> searchAsync(Market market, Category category, String queryText);
+
+	/**
+	 * @see MarketplaceService#search(Market, Category, String, int, org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	public ServiceFuture<SearchResult> searchAsync(Market market, Category category, String queryText, int page);
+
+	/**
+	 * @see MarketplaceService#featured(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	public ServiceFuture<SearchResult> featuredAsync();
+
+	/**
+	 * @see MarketplaceService#featured(org.eclipse.core.runtime.IProgressMonitor, Market, Category)
+	 */
+	public ServiceFuture<SearchResult> featuredAsync(Market market, Category category);
+
+	/**
+	 * @see MarketplaceService#recent(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	public ServiceFuture<SearchResult> recentAsync();
+
+	/**
+	 * @see MarketplaceService#favorites(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	public ServiceFuture<SearchResult> favoritesAsync();
+
+	/**
+	 * @see MarketplaceService#popular(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	public ServiceFuture<SearchResult> popularAsync();
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service;
+
+import java.util.List;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Implements {@link AsyncMarketplaceService} by running the blocking methods of a {@link MarketplaceService} on the
+ * {@link AsyncServiceExecutor}.
+ */
+class AsyncMarketplaceServiceAdapter implements AsyncMarketplaceService {
+
+	private final MarketplaceService service;
+
+	public AsyncMarketplaceServiceAdapter(MarketplaceService service) {
+		this.service = service;
+	}
+
+	public ServiceFuture<List<Market>> listMarketsAsync() {
+		return AsyncServiceExecutor.submit(new AsyncServiceExecutor.Operation<List<Market>>() {
+			public List<Market> run(IProgressMonitor monitor) throws CoreException {
+				return service.listMarkets(monitor);
+			}
+		});
+	}
+
+	public ServiceFuture<Market> getMarketAsync(final Market market) {
+		return AsyncServiceExecutor.submit(new AsyncServiceExecutor.Operation<Market>() {
+			public Market run(IProgressMonitor monitor) throws CoreException {
+				return service.getMarket(market, monitor);
+			}
+		});
+	}
+
+	public ServiceFuture<Category> getCategoryAsync(final Category category) {
+		return AsyncServiceExecutor.submit(new AsyncServiceExecutor.Operation<Category>() {
+			public Category run(IProgressMonitor monitor) throws CoreException {
+				return service.getCategory(category, monitor);
+			}
+		});
+	}
+
+	public ServiceFuture<Node> getNodeAsync(final Node node) {
+		return AsyncServiceExecutor.submit(new AsyncServiceExecutor.Operation<Node>() {
+			public Node run(IProgressMonitor monitor) throws CoreException {
+				return service.getNode(node, monitor);
+			}
+		});
+	}
+
+	public ServiceFuture<SearchResult> searchAsync(final Market market, final Category category,
+			final String queryText) {
+		return AsyncServiceExecutor.submit(new AsyncServiceExecutor.Operation<SearchResult>() {
+			public SearchResult run(IProgressMonitor monitor) throws CoreException {
+				return service.search(market, category, queryText, monitor);
+			}
+		});
+	}
+
+	public ServiceFuture<SearchResult> searchAsync(final Market market, final Category category,
+			final String queryText, final int page) {
+		return AsyncServiceExecutor.submit(new AsyncServiceExecutor.Operation<SearchResult>() {
+			public SearchResult run(IProgressMonitor monitor) throws CoreException {
+				return service.search(market, category, queryText, page, monitor);
+			}
+		});
+	}
+
+	public ServiceFuture<SearchResult> featuredAsync() {
+		return AsyncServiceExecutor.submit(new AsyncServiceExecutor.Operation<SearchResult>() {
+			public SearchResult run(IProgressMonitor monitor) throws CoreException {
+				return service.featured(monitor);
+			}
+		});
+	}
+
+	public ServiceFuture<SearchResult> featuredAsync(final Market market, final Category category) {
+		return AsyncServiceExecutor.submit(new AsyncServiceExecutor.Operation<SearchResult>() {
+			public SearchResult run(IProgressMonitor monitor) throws CoreException {
+				return service.featured(monitor, market, category);
+			}
+		});
+	}
+
+	public ServiceFuture<SearchResult> recentAsync() {
+		return AsyncServiceExecutor.submit(new AsyncServiceExecutor.Operation<SearchResult>() {
+			public SearchResult run(IProgressMonitor monitor) throws CoreException {
+				return service.recent(monitor);
+			}
+		});
+	}
+
+	public ServiceFuture<SearchResult> favoritesAsync() {
+		return AsyncServiceExecutor.submit(new AsyncServiceExecutor.Operation<SearchResult>() {
+			public SearchResult run(IProgressMonitor monitor) throws CoreException {
+				return service.favorites(monitor);
+			}
+		});
+	}
+
+	public ServiceFuture<SearchResult> popularAsync() {
+		return AsyncServiceExecutor.submit(new AsyncServiceExecutor.Operation<SearchResult>() {
+			public SearchResult run(IProgressMonitor monitor) throws CoreException {
+				return service.popular(monitor);
+			}
+		});
+	}
+}
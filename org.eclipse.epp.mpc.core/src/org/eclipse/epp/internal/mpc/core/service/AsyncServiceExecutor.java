@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.epp.internal.mpc.core.MarketplaceClientCore;
+import org.eclipse.epp.internal.mpc.core.util.MetricsRegistry;
+
+/**
+ * Runs asynchronous service requests on a shared, bounded pool of daemon threads. The size of the pool can be
+ * configured with the system property
+ * <code>org.eclipse.epp.internal.mpc.core.service.AsyncServiceExecutor.poolSize</code>. The number of queued and
+ * running requests is published as the <code>executor.queued</code> and <code>executor.active</code> gauges of the
+ * {@link MetricsRegistry}.
+ */
+public class AsyncServiceExecutor {
+
+	/**
+	 * An operation to be performed asynchronously.
+	 */
+	public interface Operation<V> {
+
+		public V run(IProgressMonitor monitor) throws CoreException;
+	}
+
+	/**
+	 * the default number of threads performing requests
+	 */
+	public static final int DEFAULT_POOL_SIZE = 6;
+
+	/**
+	 * the number of threads performing requests
+	 */
+	public static final int POOL_SIZE = Integer.getInteger(AsyncServiceExecutor.class.getName() + ".poolSize", //$NON-NLS-1$
+			DEFAULT_POOL_SIZE);
+
+	private static final long POLL_INTERVAL = 100L;
+
+	private static ThreadPoolExecutor executor;
+
+	static {
+		MetricsRegistry.getInstance().gauge("executor.queued", new MetricsRegistry.Gauge() { //$NON-NLS-1$
+			public long getValue() {
+				ThreadPoolExecutor executor = peekExecutor();
+				return executor == null ? 0 : executor.getQueue().size();
+			}
+		});
+		MetricsRegistry.getInstance().gauge("executor.active", new MetricsRegistry.Gauge() { //$NON-NLS-1$
+			public long getValue() {
+				ThreadPoolExecutor executor = peekExecutor();
+				return executor == null ? 0 : executor.getActiveCount();
+			}
+		});
+	}
+
+	private AsyncServiceExecutor() {
+	}
+
+	/**
+	 * Submit an operation for asynchronous execution.
+	 *
+	 * @return a future for the result of the operation
+	 */
+	public static <V> ServiceFuture<V> submit(Operation<V> operation) {
+		Task<V> task = new Task<V>(operation);
+		getExecutor().execute(task);
+		return task;
+	}
+
+	/**
+	 * Create a future that has already completed with the given value.
+	 */
+	public static <V> ServiceFuture<V> completed(final V value) {
+		Task<V> task = new Task<V>(new Operation<V>() {
+			public V run(IProgressMonitor monitor) {
+				return value;
+			}
+		});
+		task.run();
+		return task;
+	}
+
+	private static synchronized ThreadPoolExecutor peekExecutor() {
+		return executor;
+	}
+
+	private static synchronized ThreadPoolExecutor getExecutor() {
+		if (executor == null) {
+			final int poolSize = Math.max(1, POOL_SIZE);
+			executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						private final AtomicInteger count = new AtomicInteger();
+
+						public Thread newThread(Runnable r) {
+							Thread thread = new Thread(r, AsyncServiceExecutor.class.getSimpleName() + '-'
+									+ count.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		}
+		return executor;
+	}
+
+	private static class Task<V> extends FutureTask<V> implements ServiceFuture<V> {
+
+		private final IProgressMonitor monitor;
+
+		private List<Listener<V>> listeners = new ArrayList<Listener<V>>(2);
+
+		public Task(final Operation<V> operation) {
+			this(operation, new NullProgressMonitor());
+		}
+
+		private Task(final Operation<V> operation, final IProgressMonitor monitor) {
+			super(new Callable<V>() {
+				public V call() throws Exception {
+					if (monitor.isCanceled()) {
+						throw new CoreException(Status.CANCEL_STATUS);
+					}
+					return operation.run(monitor);
+				}
+			});
+			this.monitor = monitor;
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			monitor.setCanceled(true);
+			return super.cancel(mayInterruptIfRunning);
+		}
+
+		@Override
+		protected void done() {
+			List<Listener<V>> toNotify;
+			synchronized (this) {
+				toNotify = listeners;
+				listeners = null;
+			}
+			for (Listener<V> listener : toNotify) {
+				notifyListener(listener);
+			}
+		}
+
+		public void addListener(Listener<V> listener) {
+			synchronized (this) {
+				if (listeners != null) {
+					listeners.add(listener);
+					return;
+				}
+			}
+			notifyListener(listener);
+		}
+
+		private void notifyListener(Listener<V> listener) {
+			try {
+				listener.done(this);
+			} catch (RuntimeException e) {
+				MarketplaceClientCore.error(e);
+			}
+		}
+
+		public V getResult(IProgressMonitor monitor) throws CoreException {
+			try {
+				for (;;) {
+					if (monitor != null && monitor.isCanceled()) {
+						cancel(false);
+						throw new CoreException(Status.CANCEL_STATUS);
+					}
+					try {
+						return get(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+					} catch (TimeoutException e) {
+						// check for cancellation and continue waiting
+					}
+				}
+			} catch (CancellationException e) {
+				throw new CoreException(Status.CANCEL_STATUS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new CoreException(Status.CANCEL_STATUS);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof CoreException) {
+					throw (CoreException) cause;
+				} else if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new CoreException(new Status(IStatus.ERROR, MarketplaceClientCore.BUNDLE_ID, cause.getMessage(),
+						cause));
+			}
+		}
+
+		public <R> ServiceFuture<R> then(final Continuation<? super V, R> continuation) {
+			final Task<R> next = new Task<R>(new Operation<R>() {
+				public R run(IProgressMonitor monitor) throws CoreException {
+					return continuation.apply(getResult(null), monitor);
+				}
+			});
+			addListener(new Listener<V>() {
+				public void done(ServiceFuture<V> future) {
+					if (!next.isDone()) {
+						getExecutor().execute(next);
+					}
+				}
+			});
+			return next;
+		}
+	}
+}
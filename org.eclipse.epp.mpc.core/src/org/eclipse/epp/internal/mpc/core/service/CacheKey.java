@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service;
+
+/**
+ * Identifies a cached result of the {@link CachingMarketplaceService}. Keys are immutable and compare by value.
+ */
+final class CacheKey {
+
+	/**
+	 * The kind of request whose result is cached.
+	 */
+	enum Type {
+		NODE, LISTED_NODE, MISSING_NODE, SEARCH, FEATURED, RECENT, FAVORITES, POPULAR, MARKETS, MARKET, CATEGORY
+	}
+
+	private final Type type;
+
+	private final String id;
+
+	private final String marketId;
+
+	private final String categoryId;
+
+	private final String queryText;
+
+	private final int page;
+
+	private final int hashCode;
+
+	private CacheKey(Type type, String id, String marketId, String categoryId, String queryText, int page) {
+		this.type = type;
+		this.id = id;
+		this.marketId = marketId;
+		this.categoryId = categoryId;
+		this.queryText = queryText;
+		this.page = page;
+		int hash = type.hashCode();
+		hash = 31 * hash + hashCode(id);
+		hash = 31 * hash + hashCode(marketId);
+		hash = 31 * hash + hashCode(categoryId);
+		hash = 31 * hash + hashCode(queryText);
+		hash = 31 * hash + page;
+		hashCode = hash;
+	}
+
+	/**
+	 * @return the key for the given node, or null if the node has no id
+	 */
+	public static CacheKey node(Node node) {
+		return node.getId() == null ? null : new CacheKey(Type.NODE, node.getId(), null, null, null, 0);
+	}
+
+	/**
+	 * @return the key for the given node as it appeared in a search or listing result, or null if the node has no id
+	 */
+	public static CacheKey listedNode(Node node) {
+		return node.getId() == null ? null : new CacheKey(Type.LISTED_NODE, node.getId(), null, null, null, 0);
+	}
+
+	/**
+	 * @return the key for recording that the given node could not be found, or null if the node has no id
+	 */
+	public static CacheKey missingNode(Node node) {
+		return node.getId() == null ? null : new CacheKey(Type.MISSING_NODE, node.getId(), null, null, null, 0);
+	}
+
+	public static CacheKey search(Market market, Category category, String queryText, int page) {
+		return new CacheKey(Type.SEARCH, null, idOf(market), idOf(category), queryText == null ? null
+				: queryText.trim(), page);
+	}
+
+	/**
+	 * @param type
+	 *            the type of listing, one of {@link Type#FEATURED}, {@link Type#RECENT}, {@link Type#FAVORITES} or
+	 *            {@link Type#POPULAR}
+	 */
+	public static CacheKey listing(Type type, Market market, Category category) {
+		return new CacheKey(type, null, idOf(market), idOf(category), null, 0);
+	}
+
+	public static CacheKey markets() {
+		return new CacheKey(Type.MARKETS, null, null, null, null, 0);
+	}
+
+	/**
+	 * @return the key for the given market, or null if the market has no url
+	 */
+	public static CacheKey market(Market market) {
+		return market.getUrl() == null ? null : new CacheKey(Type.MARKET, market.getUrl(), null, null, null, 0);
+	}
+
+	/**
+	 * @return the key for the given category, or null if the category has no url
+	 */
+	public static CacheKey category(Category category) {
+		return category.getUrl() == null ? null : new CacheKey(Type.CATEGORY, category.getUrl(), null, null, null, 0);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * the id of a node, or the url of a market or category
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * Indicate if the result for this key is kept in the {@link MarketplaceStore} across sessions. Only the listings
+	 * shown when the wizard opens are, as opposed to arbitrary searches.
+	 */
+	public boolean isPersistent() {
+		switch (type) {
+		case FEATURED:
+		case RECENT:
+		case FAVORITES:
+		case POPULAR:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private static String idOf(Market market) {
+		return market == null ? null : market.getId();
+	}
+
+	private static String idOf(Category category) {
+		return category == null ? null : category.getId();
+	}
+
+	private static int hashCode(Object o) {
+		return o == null ? 0 : o.hashCode();
+	}
+
+	private static boolean equals(Object o1, Object o2) {
+		return o1 == null ? o2 == null : o1.equals(o2);
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof CacheKey)) {
+			return false;
+		}
+		CacheKey other = (CacheKey) obj;
+		return hashCode == other.hashCode && type == other.type && page == other.page && equals(id, other.id)
+				&& equals(marketId, other.marketId) && equals(categoryId, other.categoryId)
+				&& equals(queryText, other.queryText);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buf = new StringBuilder();
+		buf.append(type);
+		buf.append(':').append(id == null ? "" : id); //$NON-NLS-1$
+		buf.append(':').append(marketId == null ? "" : marketId); //$NON-NLS-1$
+		buf.append(':').append(categoryId == null ? "" : categoryId); //$NON-NLS-1$
+		buf.append(':').append(queryText == null ? "" : queryText); //$NON-NLS-1$
+		buf.append(':').append(page);
+		return buf.toString();
+	}
+}
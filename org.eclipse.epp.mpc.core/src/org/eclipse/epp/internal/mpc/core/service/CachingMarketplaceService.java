@@ -10,177 +10,734 @@
  *******************************************************************************/
 package org.eclipse.epp.internal.mpc.core.service;
 
-import java.lang.ref.Reference;
-import java.lang.ref.SoftReference;
-import java.util.LinkedHashMap;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.epp.internal.mpc.core.util.ConcurrentCache;
+import org.eclipse.epp.internal.mpc.core.util.MetricsRegistry;
+
+/**
+ * A {@link MarketplaceService} that caches nodes and search results of a delegate. The cache is safe for concurrent
+ * use and evicts the least-recently-used entries once it reaches its {@link #getMaxCacheSize() capacity} or its
+ * {@link #getMaxCacheBytes() memory budget}, which is measured by the estimated size of the cached nodes.
+ * <p>
+ * Search and listing results expire after a time to live that depends on the kind of query, and can be configured
+ * with system properties named after this class, e.g. <code>...CachingMarketplaceService.timeToLive.featured</code>
+ * (in seconds). Expired results are still served immediately while a fresh result is retrieved in the background.
+ * </p>
+ * <p>
+ * Nodes of search and listing results that are {@link #isComplete(Node) complete} are also served by
+ * {@link #getNode(Node, IProgressMonitor)} for a while, so that a node the user has just seen is not retrieved again.
+ * </p>
+ * <p>
+ * Nodes that could not be found are remembered for a short while, and after the service reports that it is
+ * unavailable (HTTP 5xx) requests that cannot be served from the cache fail fast for a period that grows with each
+ * consecutive failure.
+ * </p>
+ * <p>
+ * Markets and categories rarely change and are cached separately for a much longer time, until they are
+ * {@link #invalidateTaxonomy() invalidated}.
+ * </p>
+ * <p>
+ * Lookups are counted in the {@link MetricsRegistry} as <code>cache.&lt;name&gt;.hit</code> and
+ * <code>cache.&lt;name&gt;.miss</code>, where the name is one of <code>listing</code>, <code>search</code>,
+ * <code>node</code> or <code>taxonomy</code>, along with stale results served, results read from the store, and
+ * evicted and reclaimed entries.
+ * </p>
+ * <p>
+ * If a {@link #setStore(MarketplaceStore) store} is set, retrieved nodes, markets, categories and the listings shown
+ * when the wizard opens are also written to it, and are read back on a cache miss. This way the last known results
+ * are served immediately in a new session, and refreshed in the background like any other stale result.
+ * </p>
+ */
+public class CachingMarketplaceService implements MarketplaceService, AsyncMarketplaceService {
+
+	/**
+	 * the default maximum number of cached nodes and search results
+	 */
+	public static final int DEFAULT_MAX_CACHE_SIZE = 500;
+
+	/**
+	 * the maximum number of cached nodes and search results
+	 */
+	public static final int MAX_CACHE_SIZE = Integer.getInteger(CachingMarketplaceService.class.getName()
+			+ ".maxCacheSize", DEFAULT_MAX_CACHE_SIZE); //$NON-NLS-1$
+
+	/**
+	 * the default estimated memory that cached nodes and search results may retain, in bytes
+	 */
+	public static final long DEFAULT_MAX_CACHE_BYTES = 16 * 1024 * 1024;
+
+	/**
+	 * the estimated memory that cached nodes and search results may retain, in bytes
+	 */
+	public static final long MAX_CACHE_BYTES = Long.getLong(CachingMarketplaceService.class.getName()
+			+ ".maxCacheBytes", DEFAULT_MAX_CACHE_BYTES); //$NON-NLS-1$
+
+	/**
+	 * the default time to live of cached featured results, in seconds
+	 */
+	public static final long DEFAULT_FEATURED_TIME_TO_LIVE = 30 * 60;
+
+	/**
+	 * the default time to live of cached recent results, in seconds
+	 */
+	public static final long DEFAULT_RECENT_TIME_TO_LIVE = 10 * 60;
+
+	/**
+	 * the default time to live of cached favorites and popular results, in seconds
+	 */
+	public static final long DEFAULT_TOP_TIME_TO_LIVE = 60 * 60;
+
+	/**
+	 * the default time to live of cached search results, in seconds
+	 */
+	public static final long DEFAULT_SEARCH_TIME_TO_LIVE = 15 * 60;
+
+	/**
+	 * the default time during which a node that appeared in a search or listing result is served by
+	 * {@link #getNode(Node, IProgressMonitor)}, in seconds
+	 */
+	public static final long DEFAULT_LISTED_NODE_TIME_TO_LIVE = 15 * 60;
+
+	/**
+	 * the default time during which a node that could not be found is reported as missing without asking the
+	 * delegate again, in seconds
+	 */
+	public static final long DEFAULT_MISSING_NODE_TIME_TO_LIVE = 5 * 60;
+
+	/**
+	 * the default time during which a node read back from the {@link #getStore() store} is served without asking the
+	 * delegate, in seconds
+	 */
+	public static final long DEFAULT_STORED_NODE_TIME_TO_LIVE = 24 * 60 * 60;
+
+	/**
+	 * the default time to fail fast after the service first reports that it is unavailable, in seconds
+	 */
+	public static final long DEFAULT_BACKOFF = 30;
+
+	/**
+	 * the default maximum time to fail fast after the service reports that it is unavailable, in seconds
+	 */
+	public static final long DEFAULT_MAX_BACKOFF = 10 * 60;
+
+	/**
+	 * the time to fail fast after the service first reports that it is unavailable, in milliseconds; doubled with each
+	 * consecutive failure
+	 */
+	public static final long BACKOFF = getSeconds("backoff", DEFAULT_BACKOFF); //$NON-NLS-1$
+
+	/**
+	 * the maximum time to fail fast after the service reports that it is unavailable, in milliseconds
+	 */
+	public static final long MAX_BACKOFF = getSeconds("maxBackoff", DEFAULT_MAX_BACKOFF); //$NON-NLS-1$
+
+	/**
+	 * the default time past its time to live during which a cached result is still served while it is refreshed, in
+	 * seconds
+	 */
+	public static final long DEFAULT_MAX_STALE = 24 * 60 * 60;
+
+	/**
+	 * the time past its time to live during which a cached result is still served while it is refreshed, in
+	 * milliseconds
+	 */
+	public static final long MAX_STALE = getSeconds("maxStale", DEFAULT_MAX_STALE); //$NON-NLS-1$
+
+	/**
+	 * the default time to live of the cached markets and categories, in seconds
+	 */
+	public static final long DEFAULT_TAXONOMY_TIME_TO_LIVE = 24 * 60 * 60;
+
+	/**
+	 * the time to live of the cached markets and categories, in milliseconds
+	 */
+	public static final long TAXONOMY_TIME_TO_LIVE = getSeconds("timeToLive.taxonomy", DEFAULT_TAXONOMY_TIME_TO_LIVE); //$NON-NLS-1$
+
+	/**
+	 * the maximum number of cached markets and categories
+	 */
+	private static final int MAX_TAXONOMY_CACHE_SIZE = 100;
+
+	private static final Map<CacheKey.Type, Long> TIME_TO_LIVE = new EnumMap<CacheKey.Type, Long>(CacheKey.Type.class);
+	static {
+		TIME_TO_LIVE.put(CacheKey.Type.FEATURED, getSeconds("timeToLive.featured", DEFAULT_FEATURED_TIME_TO_LIVE)); //$NON-NLS-1$
+		TIME_TO_LIVE.put(CacheKey.Type.RECENT, getSeconds("timeToLive.recent", DEFAULT_RECENT_TIME_TO_LIVE)); //$NON-NLS-1$
+		TIME_TO_LIVE.put(CacheKey.Type.FAVORITES, getSeconds("timeToLive.favorites", DEFAULT_TOP_TIME_TO_LIVE)); //$NON-NLS-1$
+		TIME_TO_LIVE.put(CacheKey.Type.POPULAR, getSeconds("timeToLive.popular", DEFAULT_TOP_TIME_TO_LIVE)); //$NON-NLS-1$
+		TIME_TO_LIVE.put(CacheKey.Type.SEARCH, getSeconds("timeToLive.search", DEFAULT_SEARCH_TIME_TO_LIVE)); //$NON-NLS-1$
+		TIME_TO_LIVE.put(CacheKey.Type.LISTED_NODE, getSeconds("timeToLive.listedNode", //$NON-NLS-1$
+				DEFAULT_LISTED_NODE_TIME_TO_LIVE));
+		TIME_TO_LIVE.put(CacheKey.Type.MISSING_NODE, getSeconds("timeToLive.missingNode", //$NON-NLS-1$
+				DEFAULT_MISSING_NODE_TIME_TO_LIVE));
+		TIME_TO_LIVE.put(CacheKey.Type.NODE, getSeconds("timeToLive.storedNode", //$NON-NLS-1$
+				DEFAULT_STORED_NODE_TIME_TO_LIVE));
+	}
+
+	private static final MetricsRegistry.Counter EVICTIONS = MetricsRegistry.getInstance().counter(
+			"cache.evicted"); //$NON-NLS-1$
+
+	private static final MetricsRegistry.Counter RECLAIMS = MetricsRegistry.getInstance().counter(
+			"cache.reclaimed"); //$NON-NLS-1$
+
+	private static final MetricsRegistry.Counter REJECTIONS = MetricsRegistry.getInstance().counter(
+			"cache.rejected"); //$NON-NLS-1$
+
+	private static final MetricsRegistry.Counter STALE_HITS = MetricsRegistry.getInstance().counter(
+			"cache.stale"); //$NON-NLS-1$
 
-public class CachingMarketplaceService implements MarketplaceService {
+	private static final MetricsRegistry.Counter STORE_HITS = MetricsRegistry.getInstance().counter(
+			"cache.store.hit"); //$NON-NLS-1$
+
+	private static long getSeconds(String property, long defaultSeconds) {
+		return Long.getLong(CachingMarketplaceService.class.getName() + '.' + property, defaultSeconds) * 1000L;
+	}
 
 	private final MarketplaceService delegate;
 
-	private int maxCacheSize = 30;
+	private final ServiceBackoff backoff = new ServiceBackoff(BACKOFF, MAX_BACKOFF);
 
-	private final Map<String, Reference<Object>> cache = new LinkedHashMap<String, Reference<Object>>() {
-		private static final long serialVersionUID = 1L;
+	private final ConcurrentMap<CacheKey, Boolean> refreshing = new ConcurrentHashMap<CacheKey, Boolean>();
 
-		@Override
-		protected boolean removeEldestEntry(Map.Entry<String, Reference<Object>> eldest) {
-			return size() > maxCacheSize || eldest.getValue().get() == null;
-		}
-	};
+	private final AsyncMarketplaceService asyncService = new AsyncMarketplaceServiceAdapter(this);
+
+	private final ConcurrentCache<CacheKey, Object> cache = new ConcurrentCache<CacheKey, Object>(Math.max(1,
+			MAX_CACHE_SIZE), Math.max(1, MAX_CACHE_BYTES), new PayloadWeigher());
+
+	private final ConcurrentCache<CacheKey, Object> taxonomyCache = new ConcurrentCache<CacheKey, Object>(
+			MAX_TAXONOMY_CACHE_SIZE);
+
+	private volatile MarketplaceStore store;
 
 	public CachingMarketplaceService(MarketplaceService delegate) {
 		if (delegate == null) {
 			throw new IllegalArgumentException();
 		}
 		this.delegate = delegate;
+		cache.setCounters(EVICTIONS, RECLAIMS, REJECTIONS);
+		taxonomyCache.setCounters(EVICTIONS, RECLAIMS, REJECTIONS);
+	}
+
+	/**
+	 * the store that keeps results across sessions, or null if results are only cached in memory
+	 */
+	public MarketplaceStore getStore() {
+		return store;
+	}
+
+	public void setStore(MarketplaceStore store) {
+		this.store = store;
 	}
 
 	public int getMaxCacheSize() {
-		return maxCacheSize;
+		return cache.getCapacity();
 	}
 
 	public void setMaxCacheSize(int maxCacheSize) {
-		this.maxCacheSize = maxCacheSize;
+		cache.setCapacity(maxCacheSize);
+	}
+
+	public long getMaxCacheBytes() {
+		return cache.getMaxWeight();
+	}
+
+	/**
+	 * Set the estimated memory that cached nodes and search results may retain. The budget is split among the
+	 * segments of the cache, and a search result that is too large for its segment is not cached.
+	 */
+	public void setMaxCacheBytes(long maxCacheBytes) {
+		cache.setMaxWeight(maxCacheBytes);
+	}
+
+	/**
+	 * @return the estimated memory retained by cached nodes and search results, in bytes
+	 */
+	public long getCacheBytes() {
+		return cache.getWeight();
+	}
+
+	/**
+	 * @return the number of cached nodes and search results, not counting markets and categories
+	 */
+	public int getCacheSize() {
+		return cache.size();
 	}
 
 	public List<Market> listMarkets(IProgressMonitor monitor) throws CoreException {
-		return delegate.listMarkets(monitor);
+		return getTaxonomy(monitor).getMarkets();
+	}
+
+	/**
+	 * Get the markets and categories of the marketplace. The taxonomy is cached for {@link #TAXONOMY_TIME_TO_LIVE}
+	 * or until it is {@link #invalidateTaxonomy() invalidated}.
+	 */
+	public Taxonomy getTaxonomy(IProgressMonitor monitor) throws CoreException {
+		CacheKey key = CacheKey.markets();
+		Taxonomy taxonomy = (Taxonomy) getCachedTaxonomy(key);
+		if (taxonomy == null) {
+			checkAvailable();
+			try {
+				taxonomy = new Taxonomy(delegate.listMarkets(monitor));
+			} catch (CoreException e) {
+				throw failed(e);
+			}
+			backoff.succeeded();
+			long timestamp = currentTimeMillis();
+			taxonomyCache.put(key, taxonomy, timestamp);
+			MarketplaceStore store = this.store;
+			if (store != null) {
+				store.putMarkets(taxonomy.getMarkets(), timestamp);
+			}
+		}
+		return taxonomy;
 	}
 
 	public Market getMarket(Market market, IProgressMonitor monitor) throws CoreException {
-		return delegate.getMarket(market, monitor);
+		CacheKey key = CacheKey.market(market);
+		Market result = key == null ? null : (Market) getCachedTaxonomy(key);
+		if (result == null) {
+			checkAvailable();
+			try {
+				result = delegate.getMarket(market, monitor);
+			} catch (CoreException e) {
+				throw failed(e);
+			}
+			backoff.succeeded();
+			if (result != null && key != null) {
+				long timestamp = currentTimeMillis();
+				taxonomyCache.put(key, result, timestamp);
+				MarketplaceStore store = this.store;
+				if (store != null) {
+					store.putMarket(result, timestamp);
+				}
+			}
+		}
+		return result;
 	}
 
 	public Category getCategory(Category category, IProgressMonitor monitor) throws CoreException {
-		return delegate.getCategory(category, monitor);
+		CacheKey key = CacheKey.category(category);
+		Category result = key == null ? null : (Category) getCachedTaxonomy(key);
+		if (result == null) {
+			checkAvailable();
+			try {
+				result = delegate.getCategory(category, monitor);
+			} catch (CoreException e) {
+				throw failed(e);
+			}
+			backoff.succeeded();
+			if (result != null && key != null) {
+				long timestamp = currentTimeMillis();
+				taxonomyCache.put(key, result, timestamp);
+				MarketplaceStore store = this.store;
+				if (store != null) {
+					store.putCategory(result, timestamp);
+				}
+			}
+		}
+		return result;
 	}
 
-	public Node getNode(Node node, IProgressMonitor monitor) throws CoreException {
-		String nodeKey = computeNodeKey(node);
-		Node nodeResult = null;
-		if (nodeKey != null) {
-			synchronized (cache) {
-				Reference<Object> reference = cache.get(nodeKey);
-				if (reference != null) {
-					nodeResult = (Node) reference.get();
+	/**
+	 * Discard the cached markets and categories, so that they are retrieved again when next requested.
+	 */
+	public void invalidateTaxonomy() {
+		taxonomyCache.clear();
+		MarketplaceStore store = this.store;
+		if (store != null) {
+			store.removeTaxonomy();
+		}
+	}
+
+	/**
+	 * Get a cached market, category or taxonomy, falling back to the {@link #getStore() store}.
+	 */
+	private Object getCachedTaxonomy(CacheKey key) {
+		Object value;
+		long timestamp;
+		ConcurrentCache.Entry<Object> entry = taxonomyCache.getEntry(key);
+		value = entry == null ? null : entry.getValue();
+		if (value != null) {
+			timestamp = entry.getTimestamp();
+		} else {
+			MarketplaceStore store = this.store;
+			MarketplaceStore.Stored<?> stored = null;
+			if (store != null) {
+				switch (key.getType()) {
+				case MARKETS:
+					stored = store.getMarkets();
+					break;
+				case MARKET:
+					stored = store.getMarket(key.getId());
+					break;
+				case CATEGORY:
+					stored = store.getCategory(key.getId());
+					break;
 				}
 			}
+			if (stored == null) {
+				recordLookup("taxonomy", false); //$NON-NLS-1$
+				return null;
+			}
+			STORE_HITS.increment();
+			value = stored.getValue();
+			if (key.getType() == CacheKey.Type.MARKETS) {
+				@SuppressWarnings("unchecked")
+				List<Market> markets = (List<Market>) value;
+				value = new Taxonomy(markets);
+			}
+			timestamp = stored.getTimestamp();
+			taxonomyCache.put(key, value, timestamp);
+		}
+		if (currentTimeMillis() - timestamp > TAXONOMY_TIME_TO_LIVE) {
+			value = null;
 		}
+		recordLookup("taxonomy", value != null); //$NON-NLS-1$
+		return value;
+	}
+
+	public Node getNode(Node node, IProgressMonitor monitor) throws CoreException {
+		Node nodeResult = getCachedNode(node);
 		if (nodeResult == null) {
-			nodeResult = delegate.getNode(node, monitor);
+			CacheKey missingKey = CacheKey.missingNode(node);
+			if (missingKey != null) {
+				ConcurrentCache.Entry<Object> missing = cache.getEntry(missingKey);
+				if (missing != null
+						&& currentTimeMillis() - missing.getTimestamp() <= getTimeToLive(CacheKey.Type.MISSING_NODE)) {
+					IStatus status = (IStatus) missing.getValue();
+					if (status != null) {
+						throw new CoreException(status);
+					}
+				}
+			}
+			checkAvailable();
+			try {
+				nodeResult = delegate.getNode(node, monitor);
+			} catch (CoreException e) {
+				if (missingKey != null && ServiceBackoff.isNotFound(e)) {
+					cache.put(missingKey, e.getStatus(), currentTimeMillis());
+				}
+				throw failed(e);
+			}
+			backoff.succeeded();
 			if (nodeResult != null) {
-				synchronized (cache) {
-					cache.put(computeNodeKey(nodeResult), new SoftReference<Object>(nodeResult));
+				CacheKey resultKey = CacheKey.node(nodeResult);
+				if (resultKey != null) {
+					long timestamp = currentTimeMillis();
+					cache.put(resultKey, nodeResult, timestamp);
+					MarketplaceStore store = this.store;
+					if (store != null) {
+						store.putNode(nodeResult, timestamp);
+					}
 				}
 			}
 		}
 		return nodeResult;
 	}
 
-	private String computeNodeKey(Node node) {
-		if (node.getId() != null) {
-			return "Node:" + node.getId(); //$NON-NLS-1$
+	/**
+	 * Get a cached node, preferring a node retrieved by {@link #getNode(Node, IProgressMonitor)} to a node that
+	 * recently appeared in a search or listing result.
+	 *
+	 * @return the cached node, or null if there is none
+	 */
+	private Node getCachedNode(Node node) {
+		CacheKey nodeKey = CacheKey.node(node);
+		if (nodeKey == null) {
+			return null;
+		}
+		Node nodeResult = (Node) cache.get(nodeKey);
+		if (nodeResult == null) {
+			ConcurrentCache.Entry<Object> entry = cache.getEntry(CacheKey.listedNode(node));
+			if (entry != null
+					&& currentTimeMillis() - entry.getTimestamp() <= getTimeToLive(CacheKey.Type.LISTED_NODE)) {
+				nodeResult = (Node) entry.getValue();
+			}
+		}
+		MarketplaceStore store = this.store;
+		if (nodeResult == null && store != null) {
+			MarketplaceStore.Stored<Node> stored = store.getNode(nodeKey.getId());
+			if (stored != null
+					&& currentTimeMillis() - stored.getTimestamp() <= getTimeToLive(CacheKey.Type.NODE)) {
+				STORE_HITS.increment();
+				nodeResult = stored.getValue();
+				cache.put(nodeKey, nodeResult, stored.getTimestamp());
+			}
+		}
+		recordLookup("node", nodeResult != null); //$NON-NLS-1$
+		return nodeResult;
+	}
+
+	/**
+	 * Indicate if a node of a search or listing result has all the details needed to install it, and can therefore
+	 * be served in place of the node itself.
+	 */
+	protected boolean isComplete(Node node) {
+		return node.getId() != null && node.getUpdateurl() != null && node.getIus() != null
+				&& !node.getIus().getIu().isEmpty();
+	}
+
+	/**
+	 * Cache the complete nodes of a search or listing result, so that they are served by
+	 * {@link #getNode(Node, IProgressMonitor)}.
+	 */
+	private void cacheNodes(SearchResult result, long timestamp) {
+		if (result.getNodes() != null) {
+			for (Node node : result.getNodes()) {
+				if (isComplete(node)) {
+					cache.put(CacheKey.listedNode(node), node, timestamp);
+				}
+			}
 		}
-		return null;
+	}
+
+	/**
+	 * Retrieves nodes through this service, so that cached nodes are served immediately and retrieved nodes are
+	 * cached.
+	 */
+	public NodeBatchResult getNodes(Collection<Node> nodes, IProgressMonitor monitor) throws CoreException {
+		return new NodeBatchRetriever(this, nodes).retrieve(monitor);
 	}
 
 	private interface SearchOperation {
-		public SearchResult doSearch(IProgressMonitor monitor) throws CoreException;
+		public SearchResult doSearch(NodeListener nodeListener, IProgressMonitor monitor) throws CoreException;
+	}
+
+	public SearchResult search(Market market, Category category, String queryText, IProgressMonitor monitor)
+			throws CoreException {
+		return search(market, category, queryText, 0, null, monitor);
 	}
 
-	public SearchResult search(final Market market, final Category category, final String queryText,
+	public SearchResult search(Market market, Category category, String queryText, int page,
 			IProgressMonitor monitor) throws CoreException {
-		String key = computeSearchKey("search", market, category, queryText); //$NON-NLS-1$
-		return performSearch(monitor, key, new SearchOperation() {
+		return search(market, category, queryText, page, null, monitor);
+	}
+
+	public SearchResult search(Market market, Category category, String queryText, int page,
+			NodeListener nodeListener, IProgressMonitor monitor) throws CoreException {
+		return performSearch(monitor, CacheKey.search(market, category, queryText, page), nodeListener,
+				createSearchOperation(market, category, queryText, page));
+	}
 
-			public SearchResult doSearch(IProgressMonitor monitor) throws CoreException {
-				return delegate.search(market, category, queryText, monitor);
+	/**
+	 * Perform a search unless its result is cached. The nodes of a cached result are delivered to the given listener
+	 * before returning; otherwise the listener is passed on to the search operation.
+	 */
+	private SearchResult performSearch(IProgressMonitor monitor, CacheKey key, NodeListener nodeListener,
+			SearchOperation searchOperation) throws CoreException {
+		SearchResult result = getCached(key, searchOperation);
+		if (result == null) {
+			result = doSearch(searchOperation, nodeListener, monitor);
+			if (result != null) {
+				cacheResult(key, result, currentTimeMillis());
 			}
-		});
+		} else if (nodeListener != null && result.getNodes() != null) {
+			for (Node node : result.getNodes()) {
+				nodeListener.nodeReceived(node);
+			}
+		}
+		return result;
 	}
 
-	private SearchResult performSearch(IProgressMonitor monitor, String key, SearchOperation searchOperation)
-			throws CoreException {
-		SearchResult result = null;
-		synchronized (cache) {
-			Reference<Object> reference = cache.get(key);
-			if (reference != null) {
-				result = (SearchResult) reference.get();
+	/**
+	 * Get a cached search result. A result that has outlived its {@link #getTimeToLive(CacheKey.Type) time to live}
+	 * is still returned unless it is more than {@link #MAX_STALE} past it, and is replaced in the background
+	 * (stale-while-revalidate).
+	 * 
+	 * @return the cached result, or null if there is none or it is too stale to be used
+	 */
+	private SearchResult getCached(CacheKey key, SearchOperation refreshOperation) {
+		ConcurrentCache.Entry<Object> entry = cache.getEntry(key);
+		SearchResult result = entry == null ? null : (SearchResult) entry.getValue();
+		long timestamp = result == null ? 0 : entry.getTimestamp();
+		MarketplaceStore store = this.store;
+		if (result == null && store != null && key.isPersistent()) {
+			MarketplaceStore.Stored<SearchResult> stored = store.getListing(key.toString());
+			if (stored != null) {
+				STORE_HITS.increment();
+				result = stored.getValue();
+				timestamp = stored.getTimestamp();
+				cache.put(key, result, timestamp);
+				cacheNodes(result, timestamp);
 			}
 		}
-		if (result == null) {
-			result = searchOperation.doSearch(monitor);
-			if (result != null) {
-				synchronized (cache) {
-					cache.put(key, new SoftReference<Object>(result));
+		if (result != null) {
+			long age = currentTimeMillis() - timestamp;
+			long timeToLive = getTimeToLive(key.getType());
+			if (age > timeToLive) {
+				if (age - timeToLive > MAX_STALE) {
+					result = null;
+				} else {
+					STALE_HITS.increment();
+					refresh(key, refreshOperation);
 				}
 			}
 		}
+		String name = key.getType() == CacheKey.Type.SEARCH ? "search" : "listing"; //$NON-NLS-1$ //$NON-NLS-2$
+		recordLookup(name, result != null);
 		return result;
 	}
 
-	private String computeSearchKey(String prefix, Market market, Category category, String queryText) {
-		return prefix
-				+ ":" + (market == null ? "" : market.getId()) + ":" + (category == null ? "" : category.getId()) + ":" + (queryText == null ? "" : queryText.trim()); //$NON-NLS-1$ //$NON-NLS-2$//$NON-NLS-3$//$NON-NLS-4$//$NON-NLS-5$ //$NON-NLS-6$ 
+	private static void recordLookup(String name, boolean hit) {
+		MetricsRegistry.getInstance().counter("cache." + name + (hit ? ".hit" : ".miss")).increment(); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 	}
 
-	public SearchResult featured(IProgressMonitor monitor) throws CoreException {
-		String key = computeSearchKey("featured", null, null, null); //$NON-NLS-1$
-		return performSearch(monitor, key, new SearchOperation() {
-
-			public SearchResult doSearch(IProgressMonitor monitor) throws CoreException {
-				return delegate.featured(monitor);
+	/**
+	 * Replace the cached result for the given key in the background, unless a refresh is already under way. A failed
+	 * refresh leaves the stale result in place, so that the next access tries again.
+	 */
+	private void refresh(final CacheKey key, final SearchOperation refreshOperation) {
+		if (refreshing.putIfAbsent(key, Boolean.TRUE) != null) {
+			return;
+		}
+		AsyncServiceExecutor.submit(new AsyncServiceExecutor.Operation<SearchResult>() {
+			public SearchResult run(IProgressMonitor monitor) throws CoreException {
+				try {
+					SearchResult result = doSearch(refreshOperation, null, monitor);
+					if (result != null) {
+						cacheResult(key, result, currentTimeMillis());
+					}
+					return result;
+				} finally {
+					refreshing.remove(key);
+				}
 			}
 		});
 	}
 
-	public SearchResult featured(IProgressMonitor monitor, final Market market, final Category category)
-			throws CoreException {
-		String key = computeSearchKey("featured", market, category, null); //$NON-NLS-1$
-		return performSearch(monitor, key, new SearchOperation() {
+	private void cacheResult(CacheKey key, SearchResult result, long timestamp) {
+		cache.put(key, result, timestamp);
+		cacheNodes(result, timestamp);
+		MarketplaceStore store = this.store;
+		if (store != null && key.isPersistent()) {
+			store.putListing(key.toString(), result, timestamp);
+		}
+	}
+
+	private SearchResult doSearch(SearchOperation searchOperation, NodeListener nodeListener,
+			IProgressMonitor monitor) throws CoreException {
+		checkAvailable();
+		SearchResult result;
+		try {
+			result = searchOperation.doSearch(nodeListener, monitor);
+		} catch (CoreException e) {
+			throw failed(e);
+		}
+		backoff.succeeded();
+		return result;
+	}
+
+	/**
+	 * Fail fast if the delegate has recently failed in a way that indicates that the service is unavailable.
+	 */
+	private void checkAvailable() throws CoreException {
+		backoff.check(currentTimeMillis());
+	}
+
+	/**
+	 * Record a failure of the delegate.
+	 *
+	 * @return the given exception
+	 */
+	private CoreException failed(CoreException e) {
+		backoff.failed(e, currentTimeMillis());
+		return e;
+	}
 
-			public SearchResult doSearch(IProgressMonitor monitor) throws CoreException {
-				return delegate.featured(monitor, market, category);
+	/**
+	 * The time in milliseconds after which a cached result of the given type should be refreshed.
+	 */
+	private long getTimeToLive(CacheKey.Type type) {
+		Long timeToLive = TIME_TO_LIVE.get(type);
+		return timeToLive == null ? Long.MAX_VALUE : timeToLive;
+	}
+
+	/**
+	 * The current time in milliseconds, against which the age of cached results is measured.
+	 */
+	protected long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	private SearchOperation createSearchOperation(final Market market, final Category category,
+			final String queryText, final int page) {
+		return new SearchOperation() {
+			public SearchResult doSearch(NodeListener nodeListener, IProgressMonitor monitor) throws CoreException {
+				return delegate.search(market, category, queryText, page, nodeListener, monitor);
 			}
-		});
+		};
+	}
+
+	private SearchOperation createListingOperation(final CacheKey.Type type, final Market market,
+			final Category category) {
+		return new SearchOperation() {
+			public SearchResult doSearch(NodeListener nodeListener, IProgressMonitor monitor) throws CoreException {
+				switch (type) {
+				case FEATURED:
+					return delegate.featured(monitor, market, category, nodeListener);
+				case RECENT:
+					return delegate.recent(monitor, nodeListener);
+				case FAVORITES:
+					return delegate.favorites(monitor, nodeListener);
+				case POPULAR:
+					return delegate.popular(monitor, nodeListener);
+				default:
+					throw new IllegalArgumentException(type.name());
+				}
+			}
+		};
+	}
+
+	private SearchResult performListing(IProgressMonitor monitor, CacheKey.Type type, Market market,
+			Category category, NodeListener nodeListener) throws CoreException {
+		return performSearch(monitor, CacheKey.listing(type, market, category), nodeListener, createListingOperation(
+				type, market, category));
+	}
+
+	public SearchResult featured(IProgressMonitor monitor) throws CoreException {
+		return featured(monitor, null, null, null);
+	}
+
+	public SearchResult featured(IProgressMonitor monitor, Market market, Category category) throws CoreException {
+		return featured(monitor, market, category, null);
+	}
+
+	public SearchResult featured(IProgressMonitor monitor, Market market, Category category,
+			NodeListener nodeListener) throws CoreException {
+		return performListing(monitor, CacheKey.Type.FEATURED, market, category, nodeListener);
 	}
 
 	public SearchResult recent(IProgressMonitor monitor) throws CoreException {
-		String key = computeSearchKey("recent", null, null, null); //$NON-NLS-1$
-		return performSearch(monitor, key, new SearchOperation() {
+		return recent(monitor, null);
+	}
 
-			public SearchResult doSearch(IProgressMonitor monitor) throws CoreException {
-				return delegate.recent(monitor);
-			}
-		});
+	public SearchResult recent(IProgressMonitor monitor, NodeListener nodeListener) throws CoreException {
+		return performListing(monitor, CacheKey.Type.RECENT, null, null, nodeListener);
 	}
 
 	public SearchResult favorites(IProgressMonitor monitor) throws CoreException {
-		String key = computeSearchKey("favorites", null, null, null); //$NON-NLS-1$
-		return performSearch(monitor, key, new SearchOperation() {
+		return favorites(monitor, null);
+	}
 
-			public SearchResult doSearch(IProgressMonitor monitor) throws CoreException {
-				return delegate.favorites(monitor);
-			}
-		});
+	public SearchResult favorites(IProgressMonitor monitor, NodeListener nodeListener) throws CoreException {
+		return performListing(monitor, CacheKey.Type.FAVORITES, null, null, nodeListener);
 	}
 
 	public SearchResult popular(IProgressMonitor monitor) throws CoreException {
-		String key = computeSearchKey("popular", null, null, null); //$NON-NLS-1$
-		return performSearch(monitor, key, new SearchOperation() {
-			public SearchResult doSearch(IProgressMonitor monitor) throws CoreException {
-				return delegate.popular(monitor);
-			}
-		});
+		return popular(monitor, null);
+	}
 
+	public SearchResult popular(IProgressMonitor monitor, NodeListener nodeListener) throws CoreException {
+		return performListing(monitor, CacheKey.Type.POPULAR, null, null, nodeListener);
 	}
 
 	public void reportInstallError(IProgressMonitor monitor, IStatus result, Set<Node> nodes,
@@ -188,4 +745,91 @@ public class CachingMarketplaceService implements MarketplaceService {
 		delegate.reportInstallError(monitor, result, nodes, iuIdsAndVersions, resolutionDetails);
 	}
 
+	public ServiceFuture<List<Market>> listMarketsAsync() {
+		Taxonomy taxonomy = (Taxonomy) getCachedTaxonomy(CacheKey.markets());
+		if (taxonomy != null) {
+			return AsyncServiceExecutor.completed(taxonomy.getMarkets());
+		}
+		return asyncService.listMarketsAsync();
+	}
+
+	public ServiceFuture<Market> getMarketAsync(Market market) {
+		CacheKey key = CacheKey.market(market);
+		Market result = key == null ? null : (Market) getCachedTaxonomy(key);
+		if (result != null) {
+			return AsyncServiceExecutor.completed(result);
+		}
+		return asyncService.getMarketAsync(market);
+	}
+
+	public ServiceFuture<Category> getCategoryAsync(Category category) {
+		CacheKey key = CacheKey.category(category);
+		Category result = key == null ? null : (Category) getCachedTaxonomy(key);
+		if (result != null) {
+			return AsyncServiceExecutor.completed(result);
+		}
+		return asyncService.getCategoryAsync(category);
+	}
+
+	public ServiceFuture<Node> getNodeAsync(Node node) {
+		Node nodeResult = getCachedNode(node);
+		if (nodeResult != null) {
+			return AsyncServiceExecutor.completed(nodeResult);
+		}
+		return asyncService.getNodeAsync(node);
+	}
+
+	public ServiceFuture<SearchResult> searchAsync(Market market, Category category, String queryText) {
+		return searchAsync(market, category, queryText, 0);
+	}
+
+	public ServiceFuture<SearchResult> searchAsync(Market market, Category category, String queryText, int page) {
+		SearchResult result = getCached(CacheKey.search(market, category, queryText, page), createSearchOperation(
+				market, category, queryText, page));
+		if (result != null) {
+			return AsyncServiceExecutor.completed(result);
+		}
+		return asyncService.searchAsync(market, category, queryText, page);
+	}
+
+	public ServiceFuture<SearchResult> featuredAsync() {
+		return featuredAsync(null, null);
+	}
+
+	public ServiceFuture<SearchResult> featuredAsync(Market market, Category category) {
+		SearchResult result = getCachedListing(CacheKey.Type.FEATURED, market, category);
+		if (result != null) {
+			return AsyncServiceExecutor.completed(result);
+		}
+		return asyncService.featuredAsync(market, category);
+	}
+
+	public ServiceFuture<SearchResult> recentAsync() {
+		SearchResult result = getCachedListing(CacheKey.Type.RECENT, null, null);
+		if (result != null) {
+			return AsyncServiceExecutor.completed(result);
+		}
+		return asyncService.recentAsync();
+	}
+
+	public ServiceFuture<SearchResult> favoritesAsync() {
+		SearchResult result = getCachedListing(CacheKey.Type.FAVORITES, null, null);
+		if (result != null) {
+			return AsyncServiceExecutor.completed(result);
+		}
+		return asyncService.favoritesAsync();
+	}
+
+	public ServiceFuture<SearchResult> popularAsync() {
+		SearchResult result = getCachedListing(CacheKey.Type.POPULAR, null, null);
+		if (result != null) {
+			return AsyncServiceExecutor.completed(result);
+		}
+		return asyncService.popularAsync();
+	}
+
+	private SearchResult getCachedListing(CacheKey.Type type, Market market, Category category) {
+		return getCached(CacheKey.listing(type, market, category), createListingOperation(type, market, category));
+	}
+
 }
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service;
+
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.epp.internal.mpc.core.util.MetricsRegistry;
+
+/**
+ * Shares one {@link CachingMarketplaceService} per marketplace for the whole session, so that results cached while
+ * browsing one catalog are still available when the wizard is reopened or the catalog is switched back to.
+ * <p>
+ * Services are keyed by the base URL of the marketplace, and each of them keeps its results in a
+ * {@link MarketplaceStore} so that they also survive the session. The registry lives as long as the bundle and is
+ * {@link #clear() cleared} when the core bundle stops. The total size of the shared caches is published as the
+ * <code>cache.size</code> and <code>cache.bytes</code> gauges of the {@link MetricsRegistry}.
+ * </p>
+ */
+public class CachingMarketplaceServiceRegistry {
+
+	/**
+	 * Creates the service that a shared caching service delegates to.
+	 */
+	public interface ServiceFactory {
+
+		public MarketplaceService createMarketplaceService(URL baseUrl);
+	}
+
+	private static final CachingMarketplaceServiceRegistry instance = new CachingMarketplaceServiceRegistry();
+	static {
+		MetricsRegistry.getInstance().gauge("cache.size", new MetricsRegistry.Gauge() { //$NON-NLS-1$
+			public long getValue() {
+				long size = 0;
+				for (CachingMarketplaceService service : instance.services.values()) {
+					size += service.getCacheSize();
+				}
+				return size;
+			}
+		});
+		MetricsRegistry.getInstance().gauge("cache.bytes", new MetricsRegistry.Gauge() { //$NON-NLS-1$
+			public long getValue() {
+				long bytes = 0;
+				for (CachingMarketplaceService service : instance.services.values()) {
+					bytes += service.getCacheBytes();
+				}
+				return bytes;
+			}
+		});
+	}
+
+	private final ConcurrentMap<String, CachingMarketplaceService> services;
+
+	CachingMarketplaceServiceRegistry() {
+		services = new ConcurrentHashMap<String, CachingMarketplaceService>();
+	}
+
+	public static CachingMarketplaceServiceRegistry getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Get the shared service for the marketplace at the given URL, creating it with the given factory if there is none
+	 * yet.
+	 */
+	public CachingMarketplaceService getService(URL baseUrl, ServiceFactory factory) {
+		// don't use the URL as the key: URL.equals and URL.hashCode resolve the host name
+		String key = baseUrl.toExternalForm();
+		CachingMarketplaceService service = services.get(key);
+		if (service == null) {
+			// the service must have its store before it is published, since callers use it right away
+			MarketplaceStore store = MarketplaceStore.createDefault(baseUrl);
+			service = new CachingMarketplaceService(factory.createMarketplaceService(baseUrl));
+			service.setStore(store);
+			CachingMarketplaceService existing = services.putIfAbsent(key, service);
+			if (existing != null) {
+				if (store != null) {
+					store.close();
+				}
+				service = existing;
+			}
+		}
+		return service;
+	}
+
+	/**
+	 * Discard the shared services and everything they have cached in memory, and close their stores.
+	 */
+	public void clear() {
+		for (CachingMarketplaceService service : services.values()) {
+			MarketplaceStore store = service.getStore();
+			if (store != null) {
+				store.close();
+			}
+		}
+		services.clear();
+	}
+}
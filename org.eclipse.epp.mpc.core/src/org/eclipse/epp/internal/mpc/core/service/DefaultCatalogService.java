@@ -18,7 +18,8 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.epp.internal.mpc.core.MarketplaceClientCore;
 
-public class DefaultCatalogService extends RemoteMarketplaceService<Catalogs> implements CatalogService {
+public class DefaultCatalogService extends RemoteMarketplaceService<Catalogs> implements CatalogService,
+		AsyncCatalogService {
 
 	public static final String DEFAULT_CATALOG_SERVICE_LOCATION = System.getProperty(DefaultCatalogService.class.getName()
 			+ ".url", "http://marketplace.eclipse.org"); //$NON-NLS-1$//$NON-NLS-2$
@@ -36,4 +37,12 @@ public class DefaultCatalogService extends RemoteMarketplaceService<Catalogs> im
 		Catalogs result = processRequest("catalogs/" + API_URI_SUFFIX, monitor); //$NON-NLS-1$
 		return result.getCatalogs();
 	}
+
+	public ServiceFuture<List<Catalog>> listCatalogsAsync() {
+		return AsyncServiceExecutor.submit(new AsyncServiceExecutor.Operation<List<Catalog>>() {
+			public List<Catalog> run(IProgressMonitor monitor) throws CoreException {
+				return listCatalogs(monitor);
+			}
+		});
+	}
 }
@@ -17,6 +17,7 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -34,7 +35,8 @@ import org.eclipse.osgi.util.NLS;
 /**
  * @author David Green
  */
-public class DefaultMarketplaceService extends RemoteMarketplaceService<Marketplace> implements MarketplaceService {
+public class DefaultMarketplaceService extends RemoteMarketplaceService<Marketplace> implements MarketplaceService,
+		AsyncMarketplaceService {
 
 //	This provisional API will be identified by /api/p at the end of most urls.
 //
@@ -111,6 +113,8 @@ public class DefaultMarketplaceService extends RemoteMarketplaceService<Marketpl
 	 */
 	public static final String META_PARAM_PRODUCT = "product"; //$NON-NLS-1$
 
+	private final AsyncMarketplaceService asyncService = new AsyncMarketplaceServiceAdapter(this);
+
 	public DefaultMarketplaceService(URL baseUrl) {
 		this.baseUrl = baseUrl;
 	}
@@ -166,15 +170,33 @@ public class DefaultMarketplaceService extends RemoteMarketplaceService<Marketpl
 			marketplace = processRequest(node.getUrl(), API_URI_SUFFIX, monitor);
 		}
 		if (marketplace.getNode().isEmpty()) {
-			throw new CoreException(createErrorStatus(Messages.DefaultMarketplaceService_nodeNotFound, null));
+			throw new CoreException(createErrorStatus(Messages.DefaultMarketplaceService_nodeNotFound,
+					new NotFoundException(node.getId() != null ? node.getId() : node.getUrl())));
 		} else if (marketplace.getNode().size() > 1) {
 			throw new CoreException(createErrorStatus(Messages.DefaultMarketplaceService_unexpectedResponse, null));
 		}
 		return marketplace.getNode().get(0);
 	}
 
+	public NodeBatchResult getNodes(Collection<Node> nodes, IProgressMonitor monitor) throws CoreException {
+		return new NodeBatchRetriever(this, nodes).retrieve(monitor);
+	}
+
 	public SearchResult search(Market market, Category category, String queryText, IProgressMonitor monitor)
 	throws CoreException {
+		return search(market, category, queryText, 0, monitor);
+	}
+
+	public SearchResult search(Market market, Category category, String queryText, int page,
+			IProgressMonitor monitor) throws CoreException {
+		return search(market, category, queryText, page, null, monitor);
+	}
+
+	public SearchResult search(Market market, Category category, String queryText, int page,
+			NodeListener nodeListener, IProgressMonitor monitor) throws CoreException {
+		if (page < 0) {
+			throw new IllegalArgumentException();
+		}
 		// per bug 302825 - http://www.eclipseplugincentral.net/api/v2/search/apachesolr_search/e?filters=tid:31%20tid:38
 		SearchResult result = new SearchResult();
 		if (queryText == null || queryText.trim().length() == 0) {
@@ -199,19 +221,27 @@ public class DefaultMarketplaceService extends RemoteMarketplaceService<Marketpl
 						queryString += "tid:" + URLEncoder.encode(category.getId(), UTF_8); //$NON-NLS-1$
 					}
 				}
+				if (page > 0) {
+					if (queryString.length() > 0) {
+						queryString += '&';
+					}
+					queryString += "page=" + page; //$NON-NLS-1$
+				}
 				if (queryString.length() > 0) {
 					relativeUrl += '?' + queryString;
 				}
 			} catch (UnsupportedEncodingException e) {
 				throw new IllegalStateException();
 			}
-			Marketplace marketplace = processRequest(relativeUrl, monitor);
+			NodeDelivery delivery = NodeDelivery.create(nodeListener);
+			Marketplace marketplace = processRequest(relativeUrl, delivery, monitor);
 			Search search = marketplace.getSearch();
 			if (search == null) {
 				throw new CoreException(createErrorStatus(Messages.DefaultMarketplaceService_unexpectedResponse, null));
 			}
 			result.setMatchCount(search.getCount());
 			result.setNodes(search.getNode());
+			NodeDelivery.complete(delivery, result.getNodes());
 		}
 		return result;
 	}
@@ -221,6 +251,11 @@ public class DefaultMarketplaceService extends RemoteMarketplaceService<Marketpl
 	}
 
 	public SearchResult featured(IProgressMonitor monitor, Market market, Category category) throws CoreException {
+		return featured(monitor, market, category, null);
+	}
+
+	public SearchResult featured(IProgressMonitor monitor, Market market, Category category, NodeListener nodeListener)
+			throws CoreException {
 		String nodePart = ""; //$NON-NLS-1$
 		try {
 			if (market != null) {
@@ -239,32 +274,53 @@ public class DefaultMarketplaceService extends RemoteMarketplaceService<Marketpl
 		if (nodePart.length() > 0) {
 			uri += nodePart + '/';
 		}
-		Marketplace marketplace = processRequest(uri + API_URI_SUFFIX, monitor);
-		return createSearchResult(marketplace.getFeatured());
+		NodeDelivery delivery = NodeDelivery.create(nodeListener);
+		Marketplace marketplace = processRequest(uri + API_URI_SUFFIX, delivery, monitor);
+		return createSearchResult(marketplace.getFeatured(), delivery);
 	}
 
 	public SearchResult recent(IProgressMonitor monitor) throws CoreException {
-		Marketplace marketplace = processRequest("recent/" + API_URI_SUFFIX, monitor); //$NON-NLS-1$
-		return createSearchResult(marketplace.getRecent());
+		return recent(monitor, null);
+	}
+
+	public SearchResult recent(IProgressMonitor monitor, NodeListener nodeListener) throws CoreException {
+		NodeDelivery delivery = NodeDelivery.create(nodeListener);
+		Marketplace marketplace = processRequest("recent/" + API_URI_SUFFIX, delivery, monitor); //$NON-NLS-1$
+		return createSearchResult(marketplace.getRecent(), delivery);
 	}
 
 	public SearchResult favorites(IProgressMonitor monitor) throws CoreException {
-		Marketplace marketplace = processRequest("favorites/top/" + API_URI_SUFFIX, monitor); //$NON-NLS-1$
-		return createSearchResult(marketplace.getFavorites());
+		return favorites(monitor, null);
+	}
+
+	public SearchResult favorites(IProgressMonitor monitor, NodeListener nodeListener) throws CoreException {
+		NodeDelivery delivery = NodeDelivery.create(nodeListener);
+		Marketplace marketplace = processRequest("favorites/top/" + API_URI_SUFFIX, delivery, monitor); //$NON-NLS-1$
+		return createSearchResult(marketplace.getFavorites(), delivery);
 	}
 
 	public SearchResult popular(IProgressMonitor monitor) throws CoreException {
-		Marketplace marketplace = processRequest("popular/top/" + API_URI_SUFFIX, monitor); //$NON-NLS-1$
-		return createSearchResult(marketplace.getPopular());
+		return popular(monitor, null);
+	}
+
+	public SearchResult popular(IProgressMonitor monitor, NodeListener nodeListener) throws CoreException {
+		NodeDelivery delivery = NodeDelivery.create(nodeListener);
+		Marketplace marketplace = processRequest("popular/top/" + API_URI_SUFFIX, delivery, monitor); //$NON-NLS-1$
+		return createSearchResult(marketplace.getPopular(), delivery);
 	}
 
 	protected SearchResult createSearchResult(NodeListing nodeList) throws CoreException {
+		return createSearchResult(nodeList, null);
+	}
+
+	private SearchResult createSearchResult(NodeListing nodeList, NodeDelivery delivery) throws CoreException {
 		if (nodeList == null) {
 			throw new CoreException(createErrorStatus(Messages.DefaultMarketplaceService_unexpectedResponse, null));
 		}
 		SearchResult result = new SearchResult();
 		result.setMatchCount(nodeList.getCount());
 		result.setNodes(nodeList.getNode());
+		NodeDelivery.complete(delivery, result.getNodes());
 		return result;
 	}
 
@@ -309,4 +365,47 @@ public class DefaultMarketplaceService extends RemoteMarketplaceService<Marketpl
 		}
 	}
 
+	public ServiceFuture<List<Market>> listMarketsAsync() {
+		return asyncService.listMarketsAsync();
+	}
+
+	public ServiceFuture<Market> getMarketAsync(Market market) {
+		return asyncService.getMarketAsync(market);
+	}
+
+	public ServiceFuture<Category> getCategoryAsync(Category category) {
+		return asyncService.getCategoryAsync(category);
+	}
+
+	public ServiceFuture<Node> getNodeAsync(Node node) {
+		return asyncService.getNodeAsync(node);
+	}
+
+	public ServiceFuture<SearchResult> searchAsync(Market market, Category category, String queryText) {
+		return asyncService.searchAsync(market, category, queryText);
+	}
+
+	public ServiceFuture<SearchResult> searchAsync(Market market, Category category, String queryText, int page) {
+		return asyncService.searchAsync(market, category, queryText, page);
+	}
+
+	public ServiceFuture<SearchResult> featuredAsync() {
+		return asyncService.featuredAsync();
+	}
+
+	public ServiceFuture<SearchResult> featuredAsync(Market market, Category category) {
+		return asyncService.featuredAsync(market, category);
+	}
+
+	public ServiceFuture<SearchResult> recentAsync() {
+		return asyncService.recentAsync();
+	}
+
+	public ServiceFuture<SearchResult> favoritesAsync() {
+		return asyncService.favoritesAsync();
+	}
+
+	public ServiceFuture<SearchResult> popularAsync() {
+		return asyncService.popularAsync();
+	}
 }
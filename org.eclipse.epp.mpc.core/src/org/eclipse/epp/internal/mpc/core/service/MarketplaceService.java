@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.epp.internal.mpc.core.service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -56,6 +57,20 @@ public interface MarketplaceService {
 	 */
 	public Node getNode(Node node, IProgressMonitor monitor) throws CoreException;
 
+	/**
+	 * Get several nodes at once. Nodes are retrieved in parallel, and a node that cannot be retrieved does not prevent
+	 * retrieval of the others.
+	 * 
+	 * @param nodes
+	 *            the nodes to retrieve, each of which must either have an {@link Node#getUrl() url} or an
+	 *            {@link Node#getId() id}.
+	 * @return the retrieved nodes in the order in which they were given, and the status of nodes that could not be
+	 *         retrieved
+	 * @throws CoreException
+	 *             if the operation was canceled
+	 */
+	public NodeBatchResult getNodes(Collection<Node> nodes, IProgressMonitor monitor) throws CoreException;
+
 	/**
 	 * Find nodes in the marketplace with a text query, and optionally specify the market/category
 	 * 
@@ -70,6 +85,34 @@ public interface MarketplaceService {
 	public SearchResult search(Market market, Category category, String queryText, IProgressMonitor monitor)
 			throws CoreException;
 
+	/**
+	 * Retrieve a single page of the nodes matching a text query. The page size is determined by the server.
+	 * 
+	 * @param market
+	 *            the market to search in, or null if the search should span all markets
+	 * @param category
+	 *            the category to search in, or null if the search should span all categories
+	 * @param queryText
+	 *            the query text, must not be null
+	 * @param page
+	 *            the page to retrieve, starting at 0
+	 * @return the search result, whose {@link SearchResult#getMatchCount() match count} is the total number of matches
+	 * @see PagedSearch
+	 */
+	public SearchResult search(Market market, Category category, String queryText, int page,
+			IProgressMonitor monitor) throws CoreException;
+
+	/**
+	 * Retrieve a single page of the nodes matching a text query, notifying the given listener of each node as soon as
+	 * it has been received.
+	 * 
+	 * @param nodeListener
+	 *            the listener to notify, or null
+	 * @see #search(Market, Category, String, int, IProgressMonitor)
+	 */
+	public SearchResult search(Market market, Category category, String queryText, int page,
+			NodeListener nodeListener, IProgressMonitor monitor) throws CoreException;
+
 	/**
 	 * Find featured nodes in the marketplace
 	 * 
@@ -88,6 +131,17 @@ public interface MarketplaceService {
 	 */
 	public SearchResult featured(IProgressMonitor monitor, Market market, Category category) throws CoreException;
 
+	/**
+	 * Find featured nodes in the marketplace, notifying the given listener of each node as soon as it has been
+	 * received.
+	 * 
+	 * @param nodeListener
+	 *            the listener to notify, or null
+	 * @see #featured(IProgressMonitor, Market, Category)
+	 */
+	public SearchResult featured(IProgressMonitor monitor, Market market, Category category, NodeListener nodeListener)
+			throws CoreException;
+
 	/**
 	 * Find recently added/modified nodes in the marketplace
 	 * 
@@ -95,6 +149,16 @@ public interface MarketplaceService {
 	 */
 	public SearchResult recent(IProgressMonitor monitor) throws CoreException;
 
+	/**
+	 * Find recently added/modified nodes in the marketplace, notifying the given listener of each node as soon as it has been
+	 * received.
+	 * 
+	 * @param nodeListener
+	 *            the listener to notify, or null
+	 * @see #recent(IProgressMonitor)
+	 */
+	public SearchResult recent(IProgressMonitor monitor, NodeListener nodeListener) throws CoreException;
+
 	/**
 	 * Find most-favorited nodes in the marketplace
 	 * 
@@ -102,6 +166,16 @@ public interface MarketplaceService {
 	 */
 	public SearchResult favorites(IProgressMonitor monitor) throws CoreException;
 
+	/**
+	 * Find most-favorited nodes in the marketplace, notifying the given listener of each node as soon as it has been
+	 * received.
+	 * 
+	 * @param nodeListener
+	 *            the listener to notify, or null
+	 * @see #favorites(IProgressMonitor)
+	 */
+	public SearchResult favorites(IProgressMonitor monitor, NodeListener nodeListener) throws CoreException;
+
 	/**
 	 * Find most active nodes in the marketplace
 	 * 
@@ -109,6 +183,16 @@ public interface MarketplaceService {
 	 */
 	public SearchResult popular(IProgressMonitor monitor) throws CoreException;
 
+	/**
+	 * Find most active nodes in the marketplace, notifying the given listener of each node as soon as it has been
+	 * received.
+	 * 
+	 * @param nodeListener
+	 *            the listener to notify, or null
+	 * @see #popular(IProgressMonitor)
+	 */
+	public SearchResult popular(IProgressMonitor monitor, NodeListener nodeListener) throws CoreException;
+
 	/**
 	 * Report an error in resolving an install operation.
 	 * 
@@ -0,0 +1,577 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.epp.internal.mpc.core.MarketplaceClientCore;
+import org.osgi.framework.Bundle;
+
+/**
+ * A persistent store of nodes, markets, categories and listings of a marketplace, which keeps what the client knew
+ * across sessions so that the wizard can show it before the server has responded.
+ * <p>
+ * The store is a single file holding a log of records in a compact binary form. Each record has a key, the time at
+ * which its value was retrieved and the encoded value; a later record with the same key supersedes an earlier one.
+ * When the store is first accessed only the record headers are read to build an index, and values are decoded when
+ * they are requested. The file is compacted once superseded records take up more space than live ones, or the store
+ * outgrows its maximum size, in which case the oldest records are dropped.
+ * </p>
+ * <p>
+ * The file starts with a format version; a file of another version is discarded. Failures to read or write the file
+ * are logged and disable the store for the rest of the session.
+ * </p>
+ */
+public class MarketplaceStore {
+
+	/**
+	 * the version of the file format, to be incremented with any change to the encoding of records
+	 */
+	public static final int FORMAT_VERSION = 1;
+
+	/**
+	 * the default maximum size of the store, in bytes
+	 */
+	public static final long DEFAULT_MAX_SIZE = 4L * 1024L * 1024L;
+
+	/**
+	 * the maximum size of the store, in bytes
+	 */
+	public static final long MAX_SIZE = Long.getLong(MarketplaceStore.class.getName() + ".maxSize", //$NON-NLS-1$
+			DEFAULT_MAX_SIZE);
+
+	/**
+	 * the default age after which records are dropped, in seconds
+	 */
+	public static final long DEFAULT_MAX_AGE = 30L * 24L * 60L * 60L;
+
+	/**
+	 * the age after which records are dropped, in milliseconds
+	 */
+	public static final long MAX_AGE = Long.getLong(MarketplaceStore.class.getName() + ".maxAge", //$NON-NLS-1$
+			DEFAULT_MAX_AGE) * 1000L;
+
+	private static final String STORE_DIRECTORY = "store"; //$NON-NLS-1$
+
+	private static final String STORE_SUFFIX = ".store"; //$NON-NLS-1$
+
+	private static final String TEMP_SUFFIX = ".tmp"; //$NON-NLS-1$
+
+	private static final int MAGIC = 0x4d504353;
+
+	private static final int HEADER_SIZE = 8;
+
+	/**
+	 * the size below which the file is not compacted, however much of it is superseded
+	 */
+	private static final long MIN_COMPACTION_SIZE = 64L * 1024L;
+
+	private static final byte KIND_DELETED = 0;
+
+	private static final byte KIND_NODE = 1;
+
+	private static final byte KIND_SEARCH_RESULT = 2;
+
+	private static final byte KIND_MARKETS = 3;
+
+	private static final byte KIND_MARKET = 4;
+
+	private static final byte KIND_CATEGORY = 5;
+
+	private static final String KEY_NODE = "node:"; //$NON-NLS-1$
+
+	private static final String KEY_LISTING = "listing:"; //$NON-NLS-1$
+
+	private static final String KEY_MARKETS = "markets"; //$NON-NLS-1$
+
+	private static final String KEY_MARKET = "market:"; //$NON-NLS-1$
+
+	private static final String KEY_CATEGORY = "category:"; //$NON-NLS-1$
+
+	/**
+	 * A stored value and the time at which it was retrieved.
+	 */
+	public static class Stored<T> {
+
+		private final T value;
+
+		private final long timestamp;
+
+		Stored(T value, long timestamp) {
+			this.value = value;
+			this.timestamp = timestamp;
+		}
+
+		public T getValue() {
+			return value;
+		}
+
+		/**
+		 * the time at which the value was retrieved, in milliseconds
+		 */
+		public long getTimestamp() {
+			return timestamp;
+		}
+	}
+
+	/**
+	 * The location of a record in the file.
+	 */
+	private static class Slot {
+
+		final String key;
+
+		final byte kind;
+
+		final long timestamp;
+
+		final long offset;
+
+		final int length;
+
+		final long valueOffset;
+
+		Slot(String key, byte kind, long timestamp, long offset, int length, long valueOffset) {
+			this.key = key;
+			this.kind = kind;
+			this.timestamp = timestamp;
+			this.offset = offset;
+			this.length = length;
+			this.valueOffset = valueOffset;
+		}
+	}
+
+	private final File file;
+
+	private final long maxSize;
+
+	private final Map<String, Slot> index = new HashMap<String, Slot>();
+
+	private RandomAccessFile data;
+
+	private long liveSize;
+
+	private long garbageSize;
+
+	private boolean loaded;
+
+	private boolean failed;
+
+	public MarketplaceStore(File file, long maxSize) {
+		if (file == null) {
+			throw new IllegalArgumentException();
+		}
+		this.file = file;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Create a store for the marketplace at the given URL in the state location of the core bundle.
+	 *
+	 * @return the store, or null if there is no state location available
+	 */
+	public static MarketplaceStore createDefault(URL baseUrl) {
+		if (MAX_SIZE <= 0) {
+			return null;
+		}
+		try {
+			Bundle bundle = Platform.getBundle(MarketplaceClientCore.BUNDLE_ID);
+			if (bundle == null) {
+				return null;
+			}
+			File location = Platform.getStateLocation(bundle).append(STORE_DIRECTORY).toFile();
+			return new MarketplaceStore(new File(location, fileName(baseUrl.toExternalForm())), MAX_SIZE);
+		} catch (RuntimeException e) {
+			// no instance location, or platform not running
+			return null;
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public Stored<Node> getNode(String id) {
+		return get(KEY_NODE + id, KIND_NODE);
+	}
+
+	/**
+	 * Store a node, which must have an id.
+	 */
+	public void putNode(Node node, long timestamp) {
+		put(KEY_NODE + node.getId(), KIND_NODE, node, timestamp);
+	}
+
+	public Stored<SearchResult> getListing(String name) {
+		return get(KEY_LISTING + name, KIND_SEARCH_RESULT);
+	}
+
+	public void putListing(String name, SearchResult result, long timestamp) {
+		put(KEY_LISTING + name, KIND_SEARCH_RESULT, result, timestamp);
+	}
+
+	public Stored<List<Market>> getMarkets() {
+		return get(KEY_MARKETS, KIND_MARKETS);
+	}
+
+	public void putMarkets(List<Market> markets, long timestamp) {
+		put(KEY_MARKETS, KIND_MARKETS, markets, timestamp);
+	}
+
+	public Stored<Market> getMarket(String url) {
+		return get(KEY_MARKET + url, KIND_MARKET);
+	}
+
+	/**
+	 * Store a market, which must have a url.
+	 */
+	public void putMarket(Market market, long timestamp) {
+		put(KEY_MARKET + market.getUrl(), KIND_MARKET, market, timestamp);
+	}
+
+	public Stored<Category> getCategory(String url) {
+		return get(KEY_CATEGORY + url, KIND_CATEGORY);
+	}
+
+	/**
+	 * Store a category, which must have a url.
+	 */
+	public void putCategory(Category category, long timestamp) {
+		put(KEY_CATEGORY + category.getUrl(), KIND_CATEGORY, category, timestamp);
+	}
+
+	/**
+	 * Remove the stored taxonomy and all stored markets and categories.
+	 */
+	public synchronized void removeTaxonomy() {
+		if (!open()) {
+			return;
+		}
+		List<String> keys = new ArrayList<String>();
+		for (Slot slot : index.values()) {
+			if (slot.kind == KIND_MARKETS || slot.kind == KIND_MARKET || slot.kind == KIND_CATEGORY) {
+				keys.add(slot.key);
+			}
+		}
+		for (String key : keys) {
+			put(key, KIND_DELETED, null, 0);
+		}
+	}
+
+	/**
+	 * the number of stored values
+	 */
+	public synchronized int size() {
+		return open() ? index.size() : 0;
+	}
+
+	/**
+	 * Rewrite the file with only the live records, dropping records that are older than {@link #MAX_AGE} and the
+	 * oldest records if the store exceeds its maximum size.
+	 */
+	public synchronized void compact() {
+		if (!open()) {
+			return;
+		}
+		List<Slot> slots = new ArrayList<Slot>(index.values());
+		Collections.sort(slots, new Comparator<Slot>() {
+			public int compare(Slot o1, Slot o2) {
+				// newest first
+				return o1.timestamp > o2.timestamp ? -1 : (o1.timestamp == o2.timestamp ? 0 : 1);
+			}
+		});
+		long now = System.currentTimeMillis();
+		long size = HEADER_SIZE;
+		List<Slot> retained = new ArrayList<Slot>(slots.size());
+		for (Slot slot : slots) {
+			if (now - slot.timestamp > MAX_AGE || size + slot.length > maxSize) {
+				continue;
+			}
+			size += slot.length;
+			retained.add(slot);
+		}
+		Collections.sort(retained, new Comparator<Slot>() {
+			public int compare(Slot o1, Slot o2) {
+				return o1.offset < o2.offset ? -1 : (o1.offset == o2.offset ? 0 : 1);
+			}
+		});
+		File tempFile = new File(file.getParentFile(), file.getName() + TEMP_SUFFIX);
+		try {
+			RandomAccessFile out = new RandomAccessFile(tempFile, "rw"); //$NON-NLS-1$
+			try {
+				out.setLength(0);
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				byte[] buffer = new byte[8192];
+				for (Slot slot : retained) {
+					byte[] record = slot.length <= buffer.length ? buffer : new byte[slot.length];
+					data.seek(slot.offset);
+					data.readFully(record, 0, slot.length);
+					out.write(record, 0, slot.length);
+				}
+			} finally {
+				out.close();
+			}
+			data.close();
+			data = null;
+			if (!file.delete() || !tempFile.renameTo(file)) {
+				throw new IOException(file.getPath());
+			}
+		} catch (IOException e) {
+			tempFile.delete();
+			fail(e);
+			return;
+		}
+		loaded = false;
+		open();
+	}
+
+	/**
+	 * Close the file, compacting it first if worthwhile. The store is reopened when it is next accessed.
+	 */
+	public synchronized void close() {
+		if (data != null) {
+			if (needsCompaction()) {
+				compact();
+			}
+			try {
+				if (data != null) {
+					data.close();
+				}
+			} catch (IOException e) {
+				// ignore
+			}
+			data = null;
+		}
+		loaded = false;
+	}
+
+	@SuppressWarnings("unchecked")
+	private synchronized <T> Stored<T> get(String key, byte kind) {
+		if (!open()) {
+			return null;
+		}
+		Slot slot = index.get(key);
+		if (slot == null || slot.kind != kind) {
+			return null;
+		}
+		try {
+			byte[] bytes = new byte[(int) (slot.offset + slot.length - slot.valueOffset)];
+			data.seek(slot.valueOffset);
+			data.readFully(bytes);
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+			Object value;
+			switch (kind) {
+			case KIND_NODE:
+				value = ModelCodec.readNode(in);
+				break;
+			case KIND_SEARCH_RESULT:
+				value = ModelCodec.readSearchResult(in);
+				break;
+			case KIND_MARKETS:
+				value = ModelCodec.readMarkets(in);
+				break;
+			case KIND_MARKET:
+				value = ModelCodec.readMarket(in);
+				break;
+			case KIND_CATEGORY:
+				value = ModelCodec.readCategory(in);
+				break;
+			default:
+				return null;
+			}
+			return new Stored<T>((T) value, slot.timestamp);
+		} catch (IOException e) {
+			fail(e);
+			return null;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private synchronized void put(String key, byte kind, Object value, long timestamp) {
+		if (!open()) {
+			return;
+		}
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(0);
+			out.writeByte(kind);
+			ModelCodec.writeString(out, key);
+			out.writeLong(timestamp);
+			int valueStart = out.size();
+			switch (kind) {
+			case KIND_NODE:
+				ModelCodec.writeNode(out, (Node) value);
+				break;
+			case KIND_SEARCH_RESULT:
+				ModelCodec.writeSearchResult(out, (SearchResult) value);
+				break;
+			case KIND_MARKETS:
+				ModelCodec.writeMarkets(out, (List<Market>) value);
+				break;
+			case KIND_MARKET:
+				ModelCodec.writeMarket(out, (Market) value);
+				break;
+			case KIND_CATEGORY:
+				ModelCodec.writeCategory(out, (Category) value);
+				break;
+			}
+			out.flush();
+			byte[] record = bytes.toByteArray();
+			int length = record.length;
+			// fill in the length of the record following the length field
+			int recordLength = length - 4;
+			record[0] = (byte) (recordLength >>> 24);
+			record[1] = (byte) (recordLength >>> 16);
+			record[2] = (byte) (recordLength >>> 8);
+			record[3] = (byte) recordLength;
+
+			long offset = data.length();
+			data.seek(offset);
+			data.write(record);
+			Slot slot = new Slot(key, kind, timestamp, offset, length, offset + valueStart);
+			index(slot);
+		} catch (IOException e) {
+			fail(e);
+			return;
+		}
+		if (needsCompaction()) {
+			compact();
+		}
+	}
+
+	private void index(Slot slot) {
+		Slot previous = slot.kind == KIND_DELETED ? index.remove(slot.key) : index.put(slot.key, slot);
+		if (previous != null) {
+			liveSize -= previous.length;
+			garbageSize += previous.length;
+		}
+		if (slot.kind == KIND_DELETED) {
+			garbageSize += slot.length;
+		} else {
+			liveSize += slot.length;
+		}
+	}
+
+	private boolean needsCompaction() {
+		long size = HEADER_SIZE + liveSize + garbageSize;
+		return (size > MIN_COMPACTION_SIZE && garbageSize > liveSize) || size > maxSize;
+	}
+
+	/**
+	 * Open the file and build the index if it has not been done yet.
+	 *
+	 * @return true if the store is available
+	 */
+	private boolean open() {
+		if (failed) {
+			return false;
+		}
+		if (loaded) {
+			return true;
+		}
+		index.clear();
+		liveSize = 0;
+		garbageSize = 0;
+		try {
+			File directory = file.getParentFile();
+			if (directory != null && !directory.exists() && !directory.mkdirs()) {
+				throw new IOException(directory.getPath());
+			}
+			if (data == null) {
+				data = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+			}
+			long length = data.length();
+			boolean valid = length >= HEADER_SIZE;
+			if (valid) {
+				data.seek(0);
+				valid = data.readInt() == MAGIC && data.readInt() == FORMAT_VERSION;
+			}
+			if (!valid) {
+				data.setLength(0);
+				data.writeInt(MAGIC);
+				data.writeInt(FORMAT_VERSION);
+				length = HEADER_SIZE;
+			}
+			long offset = HEADER_SIZE;
+			while (offset + 4 <= length) {
+				data.seek(offset);
+				int recordLength = data.readInt();
+				if (recordLength <= 0 || offset + 4 + recordLength > length) {
+					break;
+				}
+				byte kind = data.readByte();
+				String key = ModelCodec.readString(data);
+				long timestamp = data.readLong();
+				index(new Slot(key, kind, timestamp, offset, recordLength + 4, data.getFilePointer()));
+				offset += 4 + recordLength;
+			}
+			if (offset < length) {
+				// a record was only partially written, for example because the process was killed
+				data.setLength(offset);
+			}
+		} catch (IOException e) {
+			fail(e);
+			return false;
+		}
+		loaded = true;
+		return true;
+	}
+
+	private void fail(IOException e) {
+		MarketplaceClientCore.error(e);
+		failed = true;
+		index.clear();
+		if (data != null) {
+			try {
+				data.close();
+			} catch (IOException e1) {
+				// ignore
+			}
+			data = null;
+		}
+	}
+
+	private static String fileName(String key) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+			byte[] hash = digest.digest(key.getBytes("UTF-8")); //$NON-NLS-1$
+			StringBuilder buf = new StringBuilder(hash.length * 2 + STORE_SUFFIX.length());
+			for (byte b : hash) {
+				buf.append(Character.forDigit((b >> 4) & 0xf, 16));
+				buf.append(Character.forDigit(b & 0xf, 16));
+			}
+			buf.append(STORE_SUFFIX);
+			return buf.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -18,6 +18,8 @@ class Messages extends NLS {
 
 	public static String DefaultMarketplaceService_cannotCompleteRequest_reason;
 
+	public static String DefaultMarketplaceService_cannotRetrieveNodes;
+
 	public static String DefaultMarketplaceService_categoryNotFound;
 
 	public static String DefaultMarketplaceService_invalidLocation;
@@ -32,6 +34,8 @@ class Messages extends NLS {
 
 	public static String DefaultMarketplaceService_retrievingDataFrom;
 
+	public static String DefaultMarketplaceService_retrievingNodes;
+
 	public static String DefaultMarketplaceService_unexpectedResponse;
 
 	public static String DefaultMarketplaceService_unexpectedResponseContent;
@@ -0,0 +1,294 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Encodes marketplace model objects in a compact binary form for the {@link MarketplaceStore}. Strings are written as
+ * UTF-8 with a variable-length prefix that also encodes null, so that the many absent fields of a node take a single
+ * byte each.
+ * <p>
+ * The encoding of a type must not change without incrementing {@link MarketplaceStore#FORMAT_VERSION}. The nodes of
+ * a category are not encoded, since categories are only stored as part of the taxonomy.
+ * </p>
+ */
+class ModelCodec {
+
+	private ModelCodec() {
+	}
+
+	public static void writeNode(DataOutput out, Node node) throws IOException {
+		writeIdentifiable(out, node);
+		writeInteger(out, node.getFavorited());
+		writeString(out, node.getType());
+		List<Category> categories = node.getCategories() == null ? null : node.getCategories().getCategory();
+		writeLength(out, categories == null ? -1 : categories.size());
+		if (categories != null) {
+			for (Category category : categories) {
+				writeCategory(out, category);
+			}
+		}
+		List<Tag> tags = node.getTags() == null ? null : node.getTags().getTags();
+		writeLength(out, tags == null ? -1 : tags.size());
+		if (tags != null) {
+			for (Tag tag : tags) {
+				writeIdentifiable(out, tag);
+			}
+		}
+		writeString(out, node.getOwner());
+		writeString(out, node.getShortdescription());
+		writeString(out, node.getBody());
+		writeDate(out, node.getCreated());
+		writeDate(out, node.getChanged());
+		writeLength(out, node.getFoundationmember() == null ? -1 : (node.getFoundationmember() ? 1 : 0));
+		writeString(out, node.getHomepageurl());
+		writeString(out, node.getImage());
+		writeString(out, node.getScreenshot());
+		writeString(out, node.getVersion());
+		writeString(out, node.getLicense());
+		writeString(out, node.getCompanyname());
+		writeString(out, node.getStatus());
+		writeString(out, node.getEclipseversion());
+		writeString(out, node.getSupporturl());
+		writeString(out, node.getUpdateurl());
+		writeStrings(out, node.getIus() == null ? null : node.getIus().getIu());
+		writeStrings(out, node.getPlatforms() == null ? null : node.getPlatforms().getPlatform());
+	}
+
+	public static Node readNode(DataInput in) throws IOException {
+		Node node = new Node();
+		readIdentifiable(in, node);
+		node.setFavorited(readInteger(in));
+		node.setType(readString(in));
+		int categoryCount = readLength(in);
+		if (categoryCount >= 0) {
+			Categories categories = new Categories();
+			for (int x = 0; x < categoryCount; ++x) {
+				categories.getCategory().add(readCategory(in));
+			}
+			node.setCategories(categories);
+		}
+		int tagCount = readLength(in);
+		if (tagCount >= 0) {
+			Tags tags = new Tags();
+			for (int x = 0; x < tagCount; ++x) {
+				Tag tag = new Tag();
+				readIdentifiable(in, tag);
+				tags.getTags().add(tag);
+			}
+			node.setTags(tags);
+		}
+		node.setOwner(readString(in));
+		node.setShortdescription(readString(in));
+		node.setBody(readString(in));
+		node.setCreated(readDate(in));
+		node.setChanged(readDate(in));
+		int foundationMember = readLength(in);
+		node.setFoundationmember(foundationMember < 0 ? null : Boolean.valueOf(foundationMember == 1));
+		node.setHomepageurl(readString(in));
+		node.setImage(readString(in));
+		node.setScreenshot(readString(in));
+		node.setVersion(readString(in));
+		node.setLicense(readString(in));
+		node.setCompanyname(readString(in));
+		node.setStatus(readString(in));
+		node.setEclipseversion(readString(in));
+		node.setSupporturl(readString(in));
+		node.setUpdateurl(readString(in));
+		List<String> ius = readStrings(in);
+		if (ius != null) {
+			node.setIus(new Ius());
+			node.getIus().setIu(ius);
+		}
+		List<String> platforms = readStrings(in);
+		if (platforms != null) {
+			node.setPlatforms(new Platforms());
+			node.getPlatforms().setPlatform(platforms);
+		}
+		return node;
+	}
+
+	public static void writeSearchResult(DataOutput out, SearchResult result) throws IOException {
+		writeInteger(out, result.getMatchCount());
+		List<Node> nodes = result.getNodes();
+		writeLength(out, nodes == null ? -1 : nodes.size());
+		if (nodes != null) {
+			for (Node node : nodes) {
+				writeNode(out, node);
+			}
+		}
+	}
+
+	public static SearchResult readSearchResult(DataInput in) throws IOException {
+		SearchResult result = new SearchResult();
+		result.setMatchCount(readInteger(in));
+		int nodeCount = readLength(in);
+		if (nodeCount >= 0) {
+			List<Node> nodes = new ArrayList<Node>(nodeCount);
+			for (int x = 0; x < nodeCount; ++x) {
+				nodes.add(readNode(in));
+			}
+			result.setNodes(nodes);
+		}
+		return result;
+	}
+
+	public static void writeMarket(DataOutput out, Market market) throws IOException {
+		writeIdentifiable(out, market);
+		writeLength(out, market.getCategory().size());
+		for (Category category : market.getCategory()) {
+			writeCategory(out, category);
+		}
+	}
+
+	public static Market readMarket(DataInput in) throws IOException {
+		Market market = new Market();
+		readIdentifiable(in, market);
+		int categoryCount = readLength(in);
+		for (int x = 0; x < categoryCount; ++x) {
+			market.getCategory().add(readCategory(in));
+		}
+		return market;
+	}
+
+	public static void writeMarkets(DataOutput out, List<Market> markets) throws IOException {
+		writeLength(out, markets.size());
+		for (Market market : markets) {
+			writeMarket(out, market);
+		}
+	}
+
+	public static List<Market> readMarkets(DataInput in) throws IOException {
+		int marketCount = readLength(in);
+		List<Market> markets = new ArrayList<Market>(Math.max(0, marketCount));
+		for (int x = 0; x < marketCount; ++x) {
+			markets.add(readMarket(in));
+		}
+		return markets;
+	}
+
+	public static void writeCategory(DataOutput out, Category category) throws IOException {
+		writeIdentifiable(out, category);
+		writeInteger(out, category.getCount());
+	}
+
+	public static Category readCategory(DataInput in) throws IOException {
+		Category category = new Category();
+		readIdentifiable(in, category);
+		category.setCount(readInteger(in));
+		return category;
+	}
+
+	private static void writeIdentifiable(DataOutput out, Identifiable identifiable) throws IOException {
+		writeString(out, identifiable.getId());
+		writeString(out, identifiable.getName());
+		writeString(out, identifiable.getUrl());
+	}
+
+	private static void readIdentifiable(DataInput in, Identifiable identifiable) throws IOException {
+		identifiable.setId(readString(in));
+		identifiable.setName(readString(in));
+		identifiable.setUrl(readString(in));
+	}
+
+	private static void writeStrings(DataOutput out, List<String> strings) throws IOException {
+		writeLength(out, strings == null ? -1 : strings.size());
+		if (strings != null) {
+			for (String string : strings) {
+				writeString(out, string);
+			}
+		}
+	}
+
+	private static List<String> readStrings(DataInput in) throws IOException {
+		int count = readLength(in);
+		if (count < 0) {
+			return null;
+		}
+		List<String> strings = new ArrayList<String>(count);
+		for (int x = 0; x < count; ++x) {
+			strings.add(readString(in));
+		}
+		return strings;
+	}
+
+	private static void writeInteger(DataOutput out, Integer value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeInt(value);
+		}
+	}
+
+	private static Integer readInteger(DataInput in) throws IOException {
+		return in.readBoolean() ? Integer.valueOf(in.readInt()) : null;
+	}
+
+	private static void writeDate(DataOutput out, Date date) throws IOException {
+		out.writeBoolean(date != null);
+		if (date != null) {
+			out.writeLong(date.getTime());
+		}
+	}
+
+	private static Date readDate(DataInput in) throws IOException {
+		return in.readBoolean() ? new Date(in.readLong()) : null;
+	}
+
+	static void writeString(DataOutput out, String string) throws IOException {
+		if (string == null) {
+			writeLength(out, -1);
+		} else {
+			byte[] bytes = string.getBytes("UTF-8"); //$NON-NLS-1$
+			writeLength(out, bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	static String readString(DataInput in) throws IOException {
+		int length = readLength(in);
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Write a length, or -1 for null, as an unsigned variable-length integer of seven bits per byte.
+	 */
+	private static void writeLength(DataOutput out, int length) throws IOException {
+		int value = length + 1;
+		while ((value & ~0x7f) != 0) {
+			out.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int readLength(DataInput in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return value - 1;
+			}
+		}
+		throw new IOException("malformed length"); //$NON-NLS-1$
+	}
+}
@@ -10,12 +10,149 @@
  *******************************************************************************/
 package org.eclipse.epp.internal.mpc.core.service;
 
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.epp.internal.mpc.core.util.TextUtil;
+
 /**
  * @author David Green
  * @author Benjamin Muskalla
  */
 public class Node extends Identifiable {
 
+	/**
+	 * Values that are derived from the properties of a node for display and installation. They are computed at most
+	 * once per node, since the same nodes are presented again and again from the cache.
+	 */
+	private static final class Derived {
+
+		// bug 306653 <!--break--> marks the end of the short description.
+		private static final Pattern BREAK_PATTERN = Pattern.compile("<!--\\s*break\\s*-->"); //$NON-NLS-1$
+
+		private static final String COMMENT_START = "<!--"; //$NON-NLS-1$
+
+		private static final String DOT_FEATURE_DOT_GROUP = ".feature.group"; //$NON-NLS-1$
+
+		private final String description;
+
+		private final String descriptionText;
+
+		private final List<String> featureGroupIus;
+
+		private final String updateSiteUrl;
+
+		private final URI updateUri;
+
+		private Derived(Node node) {
+			description = computeDescription(node);
+			descriptionText = description == null ? null : collapseWhitespace(TextUtil.stripHtmlMarkup(description)
+					.trim());
+			featureGroupIus = computeFeatureGroupIus(node.ius);
+			updateSiteUrl = computeUpdateSiteUrl(node.updateurl);
+			updateUri = computeUpdateUri(updateSiteUrl);
+		}
+
+		private static String computeDescription(Node node) {
+			if (node.shortdescription != null || node.body == null) {
+				return node.shortdescription;
+			}
+			int commentStart = node.body.indexOf(COMMENT_START);
+			if (commentStart == -1) {
+				return node.body;
+			}
+			Matcher matcher = BREAK_PATTERN.matcher(node.body);
+			if (matcher.find(commentStart) && matcher.start() > 0) {
+				String shortDescription = node.body.substring(0, matcher.start()).trim();
+				if (shortDescription.length() > 0) {
+					return shortDescription;
+				}
+			}
+			return node.body;
+		}
+
+		/**
+		 * Replace line breaks and runs of whitespace with a single space.
+		 */
+		private static String collapseWhitespace(String text) {
+			StringBuilder result = null;
+			int length = text.length();
+			int lastOffset = 0;
+			for (int x = 0; x < length; ++x) {
+				char c = text.charAt(x);
+				if (!isWhitespace(c)) {
+					continue;
+				}
+				int end = x + 1;
+				while (end < length && isWhitespace(text.charAt(end))) {
+					++end;
+				}
+				if (end - x > 1 || c == '\n' || c == '\r') {
+					if (result == null) {
+						result = new StringBuilder(length);
+					}
+					result.append(text, lastOffset, x).append(' ');
+					lastOffset = end;
+				}
+				x = end - 1;
+			}
+			if (result == null) {
+				return text;
+			}
+			return result.append(text, lastOffset, length).toString();
+		}
+
+		private static boolean isWhitespace(char c) {
+			return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u000b';
+		}
+
+		private static List<String> computeFeatureGroupIus(Ius ius) {
+			if (ius == null) {
+				return null;
+			}
+			List<String> featureGroupIus = new ArrayList<String>(ius.getIu().size());
+			for (String iu : ius.getIu()) {
+				featureGroupIus.add(iu.endsWith(DOT_FEATURE_DOT_GROUP) ? iu : iu + DOT_FEATURE_DOT_GROUP);
+			}
+			return Collections.unmodifiableList(featureGroupIus);
+		}
+
+		private static String computeUpdateSiteUrl(String updateurl) {
+			if (updateurl == null) {
+				return null;
+			}
+			// trim is important!
+			updateurl = updateurl.trim();
+			try {
+				new URL(updateurl);
+				return updateurl;
+			} catch (MalformedURLException e) {
+				return null;
+			}
+		}
+
+		private static URI computeUpdateUri(String updateSiteUrl) {
+			if (updateSiteUrl == null) {
+				return null;
+			}
+			try {
+				return new URL(updateSiteUrl).toURI();
+			} catch (MalformedURLException e) {
+				return null;
+			} catch (URISyntaxException e) {
+				// a valid URL is not necessarily a valid URI, e.g. if it contains spaces
+				return null;
+			}
+		}
+	}
+
 	protected Integer favorited;
 	protected String type;
 	protected Categories categories;
@@ -39,6 +176,8 @@ public class Node extends Identifiable {
 	protected Ius ius;
 	protected Platforms platforms;
 
+	private volatile Derived derived;
+
 	public Node() {
 	}
 
@@ -101,6 +240,7 @@ public class Node extends Identifiable {
 
 	public void setShortdescription(String shortdescription) {
 		this.shortdescription = shortdescription;
+		derived = null;
 	}
 
 	/**
@@ -112,6 +252,7 @@ public class Node extends Identifiable {
 
 	public void setBody(String body) {
 		this.body = body;
+		derived = null;
 	}
 
 	/**
@@ -222,6 +363,7 @@ public class Node extends Identifiable {
 
 	public void setUpdateurl(String updateurl) {
 		this.updateurl = updateurl;
+		derived = null;
 	}
 
 	public Ius getIus() {
@@ -230,6 +372,7 @@ public class Node extends Identifiable {
 
 	public void setIus(Ius ius) {
 		this.ius = ius;
+		derived = null;
 	}
 
 	public Platforms getPlatforms() {
@@ -240,4 +383,66 @@ public class Node extends Identifiable {
 		this.platforms = platforms;
 	}
 
+	/**
+	 * The description to display for this listing: the {@link #getShortdescription() short description} if there is
+	 * one, otherwise the {@link #getBody() body} up to its <code>&lt;!--break--&gt;</code> marker, or the whole body if
+	 * it has no such marker. May include HTML markup.
+	 */
+	public String getDescription() {
+		return getDerived().description;
+	}
+
+	/**
+	 * The {@link #getDescription() description} as plain text, without HTML markup and on a single line.
+	 */
+	public String getDescriptionText() {
+		return getDerived().descriptionText;
+	}
+
+	/**
+	 * The ids of the {@link #getIus() installable units}, each naming a feature group, i.e. ending with
+	 * <code>.feature.group</code>.
+	 *
+	 * @return an unmodifiable list of the ids, or null if there are no installable units
+	 */
+	public List<String> getFeatureGroupIus() {
+		return getDerived().featureGroupIus;
+	}
+
+	/**
+	 * The {@link #getUpdateurl() update site URL}, without surrounding whitespace.
+	 *
+	 * @return the URL, or null if there is no update site URL or it is malformed
+	 */
+	public String getUpdateSiteUrl() {
+		return getDerived().updateSiteUrl;
+	}
+
+	/**
+	 * The {@link #getUpdateurl() update site URL} as a URI.
+	 *
+	 * @return the URI, or null if there is no update site URL or it is not a valid URI
+	 */
+	public URI getUpdateUri() {
+		return getDerived().updateUri;
+	}
+
+	/**
+	 * Compute the {@link #getDescription() derived values} of this node, if they have not been computed yet. Derived
+	 * values are computed on first access; this method allows to compute them ahead of time, e.g. as the node is
+	 * unmarshalled. They are recomputed when a property they derive from is set, but not when the
+	 * {@link #getIus() installable units} are modified in place.
+	 */
+	public void computeDerivedValues() {
+		getDerived();
+	}
+
+	private Derived getDerived() {
+		Derived derived = this.derived;
+		if (derived == null) {
+			derived = new Derived(this);
+			this.derived = derived;
+		}
+		return derived;
+	}
 }
@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service;
+
+import java.util.List;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+/**
+ * The result of retrieving several nodes at once.
+ *
+ * @see MarketplaceService#getNodes(java.util.Collection, org.eclipse.core.runtime.IProgressMonitor)
+ */
+public class NodeBatchResult {
+
+	private final List<Node> nodes;
+
+	private final IStatus status;
+
+	public NodeBatchResult(List<Node> nodes, IStatus status) {
+		this.nodes = nodes;
+		this.status = status == null ? Status.OK_STATUS : status;
+	}
+
+	/**
+	 * the nodes that were retrieved, in the order in which they were requested
+	 */
+	public List<Node> getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * the status of the batch, which is OK if all nodes were retrieved, or otherwise has a child status for each node
+	 * that could not be retrieved
+	 */
+	public IStatus getStatus() {
+		return status;
+	}
+}
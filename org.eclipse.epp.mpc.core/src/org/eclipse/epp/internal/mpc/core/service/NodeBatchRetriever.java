@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.epp.internal.mpc.core.MarketplaceClientCore;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Retrieves several nodes in parallel, with at most
+ * <code>org.eclipse.epp.internal.mpc.core.service.NodeBatchRetriever.maxConcurrentRequests</code> requests in flight.
+ * <p>
+ * The calling thread takes part in the work, with additional workers running on the {@link AsyncServiceExecutor}. This
+ * guarantees progress even if the executor is saturated, for example when a batch is itself run asynchronously.
+ * </p>
+ */
+class NodeBatchRetriever {
+
+	/**
+	 * the default maximum number of concurrent requests of a batch
+	 */
+	public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 4;
+
+	/**
+	 * the maximum number of concurrent requests of a batch
+	 */
+	public static final int MAX_CONCURRENT_REQUESTS = Integer.getInteger(NodeBatchRetriever.class.getName()
+			+ ".maxConcurrentRequests", DEFAULT_MAX_CONCURRENT_REQUESTS); //$NON-NLS-1$
+
+	private static final long POLL_INTERVAL = 100L;
+
+	private final MarketplaceService service;
+
+	private final Node[] nodes;
+
+	private final Node[] results;
+
+	private final IStatus[] failures;
+
+	private final AtomicInteger nextIndex = new AtomicInteger();
+
+	private int completed;
+
+	private volatile boolean canceled;
+
+	/**
+	 * the monitor shared by all requests, since the caller's monitor may only be used by the calling thread
+	 */
+	private final IProgressMonitor sharedMonitor = new NullProgressMonitor() {
+		@Override
+		public boolean isCanceled() {
+			return canceled;
+		}
+
+		@Override
+		public void setCanceled(boolean canceled) {
+			NodeBatchRetriever.this.canceled = canceled;
+		}
+	};
+
+	public NodeBatchRetriever(MarketplaceService service, Collection<Node> nodes) {
+		this.service = service;
+		this.nodes = nodes.toArray(new Node[nodes.size()]);
+		results = new Node[this.nodes.length];
+		failures = new IStatus[this.nodes.length];
+	}
+
+	public NodeBatchResult retrieve(IProgressMonitor monitor) throws CoreException {
+		monitor.beginTask(NLS.bind(Messages.DefaultMarketplaceService_retrievingNodes, nodes.length), nodes.length);
+		try {
+			int workers = Math.min(nodes.length, Math.max(1, MAX_CONCURRENT_REQUESTS)) - 1;
+			for (int x = 0; x < workers; ++x) {
+				AsyncServiceExecutor.submit(new AsyncServiceExecutor.Operation<Object>() {
+					public Object run(IProgressMonitor monitor) {
+						work();
+						return null;
+					}
+				});
+			}
+			int reported = 0;
+			for (;;) {
+				if (monitor.isCanceled()) {
+					sharedMonitor.setCanceled(true);
+					throw new CoreException(Status.CANCEL_STATUS);
+				}
+				if (!retrieveNext()) {
+					synchronized (this) {
+						if (completed < nodes.length) {
+							try {
+								wait(POLL_INTERVAL);
+							} catch (InterruptedException e) {
+								sharedMonitor.setCanceled(true);
+								Thread.currentThread().interrupt();
+								throw new CoreException(Status.CANCEL_STATUS);
+							}
+						}
+					}
+				}
+				int done;
+				synchronized (this) {
+					done = completed;
+				}
+				monitor.worked(done - reported);
+				reported = done;
+				if (done == nodes.length) {
+					break;
+				}
+			}
+		} finally {
+			monitor.done();
+		}
+		return createResult();
+	}
+
+	private void work() {
+		while (!sharedMonitor.isCanceled() && retrieveNext()) {
+			// keep going
+		}
+	}
+
+	/**
+	 * @return true if a node was retrieved, false if there are no more nodes to retrieve
+	 */
+	private boolean retrieveNext() {
+		int index = nextIndex.getAndIncrement();
+		if (index >= nodes.length) {
+			return false;
+		}
+		Node result = null;
+		IStatus failure = null;
+		try {
+			result = service.getNode(nodes[index], sharedMonitor);
+		} catch (CoreException e) {
+			failure = e.getStatus();
+		} catch (RuntimeException e) {
+			failure = new Status(IStatus.ERROR, MarketplaceClientCore.BUNDLE_ID, e.getMessage(), e);
+		}
+		synchronized (this) {
+			results[index] = result;
+			failures[index] = failure;
+			++completed;
+			notifyAll();
+		}
+		return true;
+	}
+
+	private synchronized NodeBatchResult createResult() {
+		List<Node> retrieved = new ArrayList<Node>(nodes.length);
+		MultiStatus status = new MultiStatus(MarketplaceClientCore.BUNDLE_ID, 0,
+				Messages.DefaultMarketplaceService_cannotRetrieveNodes, null);
+		for (int x = 0; x < nodes.length; ++x) {
+			if (results[x] != null) {
+				retrieved.add(results[x]);
+			} else if (failures[x] != null) {
+				status.add(failures[x]);
+			}
+		}
+		return new NodeBatchResult(retrieved, status.isOK() ? Status.OK_STATUS : status);
+	}
+}
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delivers nodes to a {@link NodeListener} exactly once. Nodes are delivered as they are streamed, and
+ * {@link #complete(List)} delivers the nodes of the result that were not streamed, for example because the request
+ * was coalesced with a concurrent identical request.
+ */
+class NodeDelivery implements NodeListener {
+
+	private final NodeListener listener;
+
+	private final Map<Node, Boolean> delivered = new IdentityHashMap<Node, Boolean>();
+
+	private NodeDelivery(NodeListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * @return a delivery to the given listener, or null if the listener is null
+	 */
+	public static NodeDelivery create(NodeListener listener) {
+		return listener == null ? null : new NodeDelivery(listener);
+	}
+
+	/**
+	 * Deliver the given nodes that have not yet been delivered.
+	 */
+	public static void complete(NodeDelivery delivery, List<Node> nodes) {
+		if (delivery != null) {
+			delivery.complete(nodes);
+		}
+	}
+
+	public void nodeReceived(Node node) {
+		if (delivered.put(node, Boolean.TRUE) == null) {
+			listener.nodeReceived(node);
+		}
+	}
+
+	public void complete(List<Node> nodes) {
+		if (nodes != null) {
+			for (Node node : nodes) {
+				nodeReceived(node);
+			}
+		}
+	}
+}
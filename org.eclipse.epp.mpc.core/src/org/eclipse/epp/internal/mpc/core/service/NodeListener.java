@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service;
+
+/**
+ * A listener that receives the nodes of a listing one at a time while the response is still being read, so that
+ * clients can start processing the first nodes before the whole listing has arrived.
+ * <p>
+ * The listener is notified in the thread performing the request. Each node of the result is delivered exactly once,
+ * in document order. Nodes that could not be streamed, for example because the result was served from a cache, are
+ * delivered before the request returns.
+ * </p>
+ */
+public interface NodeListener {
+
+	/**
+	 * Called when a node of the listing has been completely read.
+	 */
+	public void nodeReceived(Node node);
+}
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * A cursor over the pages of a search. Each call to {@link #nextPage(IProgressMonitor)} retrieves the next page of
+ * results from the server, so that large result sets can be browsed incrementally. The page size is determined by the
+ * server.
+ *
+ * @see MarketplaceService#search(Market, Category, String, int, IProgressMonitor)
+ */
+public class PagedSearch {
+
+	private final MarketplaceService service;
+
+	private final Market market;
+
+	private final Category category;
+
+	private final String queryText;
+
+	private int page;
+
+	private int nodeCount;
+
+	private Integer matchCount;
+
+	private boolean exhausted;
+
+	/**
+	 * @param service
+	 *            the service to search
+	 * @param market
+	 *            the market to search in, or null if the search should span all markets
+	 * @param category
+	 *            the category to search in, or null if the search should span all categories
+	 * @param queryText
+	 *            the query text, must not be null
+	 */
+	public PagedSearch(MarketplaceService service, Market market, Category category, String queryText) {
+		if (service == null || queryText == null) {
+			throw new IllegalArgumentException();
+		}
+		this.service = service;
+		this.market = market;
+		this.category = category;
+		this.queryText = queryText;
+	}
+
+	/**
+	 * Indicate if there may be more results to retrieve. This is always true before the first page is retrieved.
+	 */
+	public synchronized boolean hasNextPage() {
+		if (exhausted) {
+			return false;
+		}
+		return matchCount == null ? page == 0 : nodeCount < matchCount;
+	}
+
+	/**
+	 * Retrieve the next page of results.
+	 *
+	 * @return the next page, whose {@link SearchResult#getMatchCount() match count} is the total number of matches
+	 * @throws IllegalStateException
+	 *             if there are no more pages
+	 */
+	public SearchResult nextPage(IProgressMonitor monitor) throws CoreException {
+		return nextPage(null, monitor);
+	}
+
+	/**
+	 * Retrieve the next page of results, notifying the given listener of each node of the page as soon as it has been
+	 * received.
+	 *
+	 * @param nodeListener
+	 *            the listener to notify, or null
+	 * @return the next page, whose {@link SearchResult#getMatchCount() match count} is the total number of matches
+	 * @throws IllegalStateException
+	 *             if there are no more pages
+	 */
+	public SearchResult nextPage(NodeListener nodeListener, IProgressMonitor monitor) throws CoreException {
+		int pageToRetrieve;
+		synchronized (this) {
+			if (!hasNextPage()) {
+				throw new IllegalStateException();
+			}
+			pageToRetrieve = page;
+		}
+		SearchResult result = service.search(market, category, queryText, pageToRetrieve, nodeListener, monitor);
+		synchronized (this) {
+			if (page == pageToRetrieve) {
+				++page;
+				matchCount = result.getMatchCount();
+				int pageSize = result.getNodes() == null ? 0 : result.getNodes().size();
+				nodeCount += pageSize;
+				// guard against a server that reports more matches than it will ever return
+				exhausted = pageSize == 0;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The number of the next page to be retrieved, starting at 0
+	 */
+	public synchronized int getPage() {
+		return page;
+	}
+
+	/**
+	 * The number of nodes retrieved so far
+	 */
+	public synchronized int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * The total number of matches, or null if no page has been retrieved yet
+	 */
+	public synchronized Integer getMatchCount() {
+		return matchCount;
+	}
+
+	public Market getMarket() {
+		return market;
+	}
+
+	public Category getCategory() {
+		return category;
+	}
+
+	public String getQueryText() {
+		return queryText;
+	}
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service;
+
+import java.util.List;
+
+import org.eclipse.epp.internal.mpc.core.util.ConcurrentCache;
+
+/**
+ * Estimates the memory retained by cached marketplace payloads, in bytes. The estimate is dominated by the text of
+ * nodes, such as their HTML body and the descriptions derived from it, and only approximates the object overhead of
+ * the model.
+ */
+class PayloadWeigher implements ConcurrentCache.Weigher<CacheKey, Object> {
+
+	private static final int OBJECT_OVERHEAD = 16;
+
+	private static final int REFERENCE_SIZE = 8;
+
+	private static final int STRING_OVERHEAD = 40;
+
+	private static final int ENTRY_OVERHEAD = 100;
+
+	public long weigh(CacheKey key, Object value) {
+		long weight = ENTRY_OVERHEAD;
+		if (value instanceof SearchResult) {
+			weight += weigh((SearchResult) value);
+		} else if (value instanceof Node) {
+			weight += weigh((Node) value);
+		}
+		return weight;
+	}
+
+	static long weigh(SearchResult result) {
+		long weight = OBJECT_OVERHEAD + 2 * REFERENCE_SIZE;
+		List<Node> nodes = result.getNodes();
+		if (nodes != null) {
+			weight += OBJECT_OVERHEAD + nodes.size() * REFERENCE_SIZE;
+			for (Node node : nodes) {
+				weight += weigh(node);
+			}
+		}
+		return weight;
+	}
+
+	static long weigh(Node node) {
+		long weight = OBJECT_OVERHEAD + 26 * REFERENCE_SIZE;
+		weight += weigh(node.getId());
+		weight += weigh(node.getName());
+		weight += weigh(node.getUrl());
+		weight += weigh(node.getType());
+		weight += weigh(node.getOwner());
+		weight += weigh(node.getShortdescription());
+		weight += weigh(node.getBody());
+		weight += weigh(node.getHomepageurl());
+		weight += weigh(node.getImage());
+		weight += weigh(node.getScreenshot());
+		weight += weigh(node.getVersion());
+		weight += weigh(node.getLicense());
+		weight += weigh(node.getCompanyname());
+		weight += weigh(node.getStatus());
+		weight += weigh(node.getEclipseversion());
+		weight += weigh(node.getSupporturl());
+		weight += weigh(node.getUpdateurl());
+		if (node.getCategories() != null) {
+			for (Category category : node.getCategories().getCategory()) {
+				weight += weigh(category);
+			}
+		}
+		if (node.getTags() != null) {
+			for (Tag tag : node.getTags().getTags()) {
+				weight += weigh(tag);
+			}
+		}
+		if (node.getIus() != null) {
+			weight += weighStrings(node.getIus().getIu());
+		}
+		if (node.getPlatforms() != null) {
+			weight += weighStrings(node.getPlatforms().getPlatform());
+		}
+		weight += weighDerived(node);
+		return weight;
+	}
+
+	/**
+	 * Weigh the values that the node derives for display. The description is often the short description or the body
+	 * itself, which is already counted.
+	 */
+	private static long weighDerived(Node node) {
+		long weight = OBJECT_OVERHEAD + 4 * REFERENCE_SIZE;
+		String description = node.getDescription();
+		if (description != node.getShortdescription() && description != node.getBody()) {
+			weight += weigh(description);
+		}
+		String descriptionText = node.getDescriptionText();
+		if (descriptionText != description) {
+			weight += weigh(descriptionText);
+		}
+		return weight;
+	}
+
+	private static long weigh(Identifiable identifiable) {
+		return OBJECT_OVERHEAD + REFERENCE_SIZE * 4 + weigh(identifiable.getId()) + weigh(identifiable.getName())
+				+ weigh(identifiable.getUrl());
+	}
+
+	private static long weighStrings(List<String> strings) {
+		long weight = OBJECT_OVERHEAD * 2;
+		for (String string : strings) {
+			weight += REFERENCE_SIZE + weigh(string);
+		}
+		return weight;
+	}
+
+	private static long weigh(String string) {
+		return string == null ? 0 : STRING_OVERHEAD + 2L * string.length();
+	}
+}
@@ -10,19 +10,20 @@
  *******************************************************************************/
 package org.eclipse.epp.internal.mpc.core.service;
 
-import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
 import java.io.UnsupportedEncodingException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
 import java.util.Map;
-
-import javax.xml.parsers.SAXParserFactory;
+import java.util.Set;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -31,13 +32,35 @@ import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.epp.internal.mpc.core.MarketplaceClientCore;
 import org.eclipse.epp.internal.mpc.core.service.xml.Unmarshaller;
+import org.eclipse.epp.internal.mpc.core.util.IContentTypeProvider;
 import org.eclipse.epp.internal.mpc.core.util.ITransport;
+import org.eclipse.epp.internal.mpc.core.util.MetricsRegistry;
+import org.eclipse.epp.internal.mpc.core.util.RequestCoalescer;
 import org.eclipse.epp.internal.mpc.core.util.TransportFactory;
 import org.eclipse.osgi.util.NLS;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
-import org.xml.sax.XMLReader;
 
+/**
+ * Base class of services that retrieve and unmarshal marketplace XML.
+ * <p>
+ * Each request that goes to the server is recorded in the {@link MetricsRegistry} under the name of its endpoint, the
+ * first path segment of the request such as <code>featured</code> or <code>node</code>:
+ * </p>
+ * <ul>
+ * <li><code>request.&lt;endpoint&gt;.count</code> and <code>request.&lt;endpoint&gt;.failed</code>: the number of
+ * requests and of failed requests</li>
+ * <li><code>request.&lt;endpoint&gt;.latency</code>: the time until the response starts, in milliseconds</li>
+ * <li><code>request.&lt;endpoint&gt;.parse</code>: the time to read and parse the response, in milliseconds</li>
+ * <li><code>request.&lt;endpoint&gt;.bytes</code>: the number of bytes read</li>
+ * </ul>
+ * <p>
+ * Responses are unmarshalled with a SAX {@link Unmarshaller}, or with a StAX unmarshaller if {@link #isStax() StAX is
+ * enabled} and available. Both produce the same models. The StAX unmarshaller is contributed by the
+ * <code>org.eclipse.epp.mpc.core.stax</code> fragment, which requires JavaSE-1.6 and is therefore only resolved on a
+ * JRE that provides StAX.
+ * </p>
+ */
 public class RemoteMarketplaceService<T> {
 
 	protected URL baseUrl;
@@ -46,10 +69,36 @@ public class RemoteMarketplaceService<T> {
 
 	protected static final String UTF_8 = "UTF-8"; //$NON-NLS-1$
 
+	private static final String CHARSET_PARAMETER = "charset="; //$NON-NLS-1$
+
+	/**
+	 * true to unmarshal responses with a StAX stream reader instead of a SAX parser by default
+	 */
+	public static final boolean STAX = Boolean.getBoolean(RemoteMarketplaceService.class.getName()
+			+ ".stax"); //$NON-NLS-1$
+
+	private static final String STAX_UNMARSHALLER_CLASS = //
+			"org.eclipse.epp.internal.mpc.core.service.xml.StaxUnmarshaller"; //$NON-NLS-1$
+
+	/**
+	 * the <code>parse(InputSource, NodeListener, Set)</code> method of the StAX unmarshaller, or null if the fragment
+	 * that contributes it is not resolved, as on J2SE 1.5
+	 */
+	private static final Method STAX_PARSE = findStaxParse();
+
+	/**
+	 * coalesces concurrent requests for the same URI across all service instances
+	 */
+	private static final RequestCoalescer<String, Object> requestCoalescer = new RequestCoalescer<String, Object>();
+
 	private final ITransport transport = TransportFactory.instance().getTransport();
 
 	private Map<String, String> requestMetaParameters;
 
+	private boolean stax = STAX;
+
+	private Set<String> skippedElements;
+
 	protected IStatus createErrorStatus(String message, Throwable t) {
 		return new Status(IStatus.ERROR, MarketplaceClientCore.BUNDLE_ID, 0, message, t);
 	}
@@ -69,6 +118,17 @@ public class RemoteMarketplaceService<T> {
 	}
 
 	protected T processRequest(String relativeUrl, IProgressMonitor monitor) throws CoreException {
+		return processRequest(relativeUrl, (NodeListener) null, monitor);
+	}
+
+	/**
+	 * Process a request, notifying the given listener of each node of a listing as soon as the node has been read.
+	 * 
+	 * @param nodeListener
+	 *            the listener to notify, or null
+	 */
+	protected T processRequest(String relativeUrl, NodeListener nodeListener, IProgressMonitor monitor)
+			throws CoreException {
 		URI baseUri;
 		try {
 			baseUri = baseUrl.toURI();
@@ -77,11 +137,24 @@ public class RemoteMarketplaceService<T> {
 			throw new IllegalStateException(e);
 		}
 
-		return processRequest(baseUri.toString(), relativeUrl, monitor);
+		return processRequest(baseUri.toString(), relativeUrl, nodeListener, monitor);
 	}
 
-	@SuppressWarnings({ "unchecked" })
 	protected T processRequest(String baseUri, String relativePath, IProgressMonitor monitor) throws CoreException {
+		return processRequest(baseUri, relativePath, null, monitor);
+	}
+
+	/**
+	 * Process a request, notifying the given listener of each node of a listing as soon as the node has been read. A
+	 * request that is coalesced with a concurrent identical request is not streamed: its nodes are only available in
+	 * the returned model.
+	 * 
+	 * @param nodeListener
+	 *            the listener to notify, or null
+	 */
+	@SuppressWarnings({ "unchecked" })
+	protected T processRequest(String baseUri, String relativePath, final NodeListener nodeListener,
+			IProgressMonitor monitor) throws CoreException {
 		checkConfiguration();
 		if (baseUri == null || relativePath == null) {
 			throw new IllegalArgumentException();
@@ -125,33 +198,81 @@ public class RemoteMarketplaceService<T> {
 			throw new CoreException(createErrorStatus(message, e));
 		}
 
-		final Unmarshaller unmarshaller = new Unmarshaller();
 		monitor.beginTask(NLS.bind(Messages.DefaultMarketplaceService_retrievingDataFrom, baseUri), 100);
+		Object model;
 		try {
-			SAXParserFactory parserFactory = SAXParserFactory.newInstance();
-			parserFactory.setNamespaceAware(true);
-			final XMLReader xmlReader;
+			final URI requestLocation = location;
+			final String endpoint = getEndpoint(relativePath);
+			// requests that skip elements produce different models for the same URI
+			String key = skippedElements == null ? uri : uri + ' ' + skippedElements;
+			model = requestCoalescer.perform(key, monitor, new RequestCoalescer.Request<Object>() {
+				public Object execute(IProgressMonitor monitor) throws CoreException {
+					return retrieveModel(requestLocation, endpoint, nodeListener, monitor);
+				}
+			});
+		} finally {
+			monitor.done();
+		}
+
+		if (model == null) {
+			// if we reach here this should never happen
+			throw new IllegalStateException();
+		} else {
 			try {
-				xmlReader = parserFactory.newSAXParser().getXMLReader();
-			} catch (Exception e1) {
-				throw new IllegalStateException(e1);
+				return (T) model;
+			} catch (Exception e) {
+				String message = NLS.bind(Messages.DefaultMarketplaceService_unexpectedResponseContent,
+						model.getClass().getSimpleName());
+				throw new CoreException(createErrorStatus(message, null));
 			}
-			xmlReader.setContentHandler(unmarshaller);
+		}
+	}
 
+	/**
+	 * Retrieve and unmarshal the content at the given location. Concurrent requests for the same URI share a single
+	 * invocation of this method.
+	 */
+	private Object retrieveModel(URI location, String endpoint, NodeListener nodeListener, IProgressMonitor monitor)
+			throws CoreException {
+		MetricsRegistry metrics = MetricsRegistry.getInstance();
+		String metricPrefix = "request." + endpoint; //$NON-NLS-1$
+		metrics.counter(metricPrefix + ".count").increment(); //$NON-NLS-1$
+		Object model;
+		boolean succeeded = false;
+		try {
+			long start = System.currentTimeMillis();
 			InputStream in = transport.stream(location, monitor);
+			CountingInputStream countingIn = null;
+			long responseTime = System.currentTimeMillis();
+			metrics.histogram(metricPrefix + ".latency").record(responseTime - start); //$NON-NLS-1$
 			try {
 				monitor.worked(30);
 
-				// FIXME how can the charset be determined?
-				Reader reader = new InputStreamReader(new BufferedInputStream(in), UTF_8);
+				// hand the bytes to the parser, which detects the encoding from the byte order mark or the XML
+				// declaration unless the server declares it
+				countingIn = new CountingInputStream(in);
+				InputSource input = new InputSource(countingIn);
+				String charset = computeCharset(in);
+				if (charset != null) {
+					input.setEncoding(charset);
+				}
 				try {
-					xmlReader.parse(new InputSource(reader));
+					if (stax && STAX_PARSE != null) {
+						model = parseStax(input, nodeListener);
+					} else {
+						model = Unmarshaller.parse(input, nodeListener, skippedElements);
+					}
 				} catch (final SAXException e) {
 					MarketplaceClientCore.error(
 							NLS.bind(Messages.DefaultMarketplaceService_parseError, location.toString()), e);
 					throw new IOException(e.getMessage());
 				}
+				metrics.histogram(metricPrefix + ".parse").record(System.currentTimeMillis() - responseTime); //$NON-NLS-1$
+				succeeded = true;
 			} finally {
+				if (countingIn != null) {
+					metrics.counter(metricPrefix + ".bytes").add(countingIn.count); //$NON-NLS-1$
+				}
 				if (in != null) {
 					in.close();
 				}
@@ -164,22 +285,132 @@ public class RemoteMarketplaceService<T> {
 					location.toString(), e.getMessage());
 			throw new CoreException(createErrorStatus(message, e));
 		} finally {
-			monitor.done();
+			if (!succeeded) {
+				metrics.counter(metricPrefix + ".failed").increment(); //$NON-NLS-1$
+			}
 		}
+		return model;
+	}
 
-		Object model = unmarshaller.getModel();
-		if (model == null) {
-			// if we reach here this should never happen
-			throw new IllegalStateException();
-		} else {
-			try {
-				return (T) model;
-			} catch (Exception e) {
-				String message = NLS.bind(Messages.DefaultMarketplaceService_unexpectedResponseContent,
-						model.getClass().getSimpleName());
-				throw new CoreException(createErrorStatus(message, null));
+	/**
+	 * Get the name of the endpoint of a request for metrics: the first segment of its path following the API prefix,
+	 * or <code>index</code> for a request of the base URI itself, such as a market, category or node given by URL.
+	 */
+	static String getEndpoint(String relativePath) {
+		int start = relativePath.startsWith("/") ? 1 : 0; //$NON-NLS-1$
+		if (relativePath.startsWith(API_URI_SUFFIX, start)) {
+			start += API_URI_SUFFIX.length();
+			if (relativePath.startsWith("/", start)) { //$NON-NLS-1$
+				++start;
 			}
 		}
+		int end = start;
+		while (end < relativePath.length() && "/?".indexOf(relativePath.charAt(end)) == -1) { //$NON-NLS-1$
+			++end;
+		}
+		return end == start ? "index" : relativePath.substring(start, end); //$NON-NLS-1$
+	}
+
+	/**
+	 * Counts the bytes read from a response.
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+
+		long count;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				++count;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if (read > 0) {
+				count += read;
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+	}
+
+	private Object parseStax(InputSource input, NodeListener nodeListener) throws IOException, SAXException {
+		try {
+			return STAX_PARSE.invoke(null, input, nodeListener, skippedElements);
+		} catch (InvocationTargetException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof SAXException) {
+				throw (SAXException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new SAXException(cause.getMessage());
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static Method findStaxParse() {
+		try {
+			Class<?> unmarshallerClass = Class.forName(STAX_UNMARSHALLER_CLASS, true,
+					RemoteMarketplaceService.class.getClassLoader());
+			return unmarshallerClass.getMethod("parse", InputSource.class, NodeListener.class, Set.class); //$NON-NLS-1$
+		} catch (ClassNotFoundException e) {
+			return null;
+		} catch (NoSuchMethodException e) {
+			return null;
+		} catch (LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Get the charset declared by the Content-Type of the given response.
+	 * 
+	 * @return the charset, or null if the response does not declare a supported charset
+	 */
+	private static String computeCharset(InputStream in) {
+		if (!(in instanceof IContentTypeProvider)) {
+			return null;
+		}
+		String contentType = ((IContentTypeProvider) in).getContentType();
+		if (contentType == null) {
+			return null;
+		}
+		String[] parameters = contentType.split(";"); //$NON-NLS-1$
+		for (int x = 1; x < parameters.length; ++x) {
+			String parameter = parameters[x].trim();
+			if (parameter.regionMatches(true, 0, CHARSET_PARAMETER, 0, CHARSET_PARAMETER.length())) {
+				String charset = parameter.substring(CHARSET_PARAMETER.length()).trim();
+				if (charset.length() > 1 && charset.charAt(0) == '"' && charset.charAt(charset.length() - 1) == '"') {
+					charset = charset.substring(1, charset.length() - 1);
+				}
+				try {
+					return Charset.isSupported(charset) ? charset : null;
+				} catch (IllegalCharsetNameException e) {
+					return null;
+				}
+			}
+		}
+		return null;
 	}
 
 	/**
@@ -201,4 +432,31 @@ public class RemoteMarketplaceService<T> {
 		this.requestMetaParameters = requestMetaParameters;
 	}
 
+	/**
+	 * Indicate if responses are unmarshalled with a StAX stream reader instead of a SAX parser. StAX is only used if
+	 * the fragment that contributes the StAX unmarshaller is resolved.
+	 */
+	public boolean isStax() {
+		return stax;
+	}
+
+	public void setStax(boolean stax) {
+		this.stax = stax;
+	}
+
+	/**
+	 * The names of the elements that are skipped when unmarshalling responses, or null if no elements are skipped. For
+	 * example, skipping <code>body</code> avoids reading the descriptions of nodes when only their ids and installable
+	 * units are wanted.
+	 * 
+	 * @see Unmarshaller#setSkippedElements(Set)
+	 */
+	public Set<String> getSkippedElements() {
+		return skippedElements;
+	}
+
+	public void setSkippedElements(Set<String> skippedElements) {
+		this.skippedElements = skippedElements;
+	}
+
 }
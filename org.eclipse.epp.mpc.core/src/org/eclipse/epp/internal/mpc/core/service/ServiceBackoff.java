@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service;
+
+import java.io.FileNotFoundException;
+
+import org.eclipse.core.runtime.CoreException;
+
+/**
+ * Tracks failures indicating that a service is unavailable, such as HTTP 5xx responses, and fails requests fast for a
+ * while after each of them. The period doubles with each consecutive failure, up to a maximum, and is reset as soon as
+ * the service responds again.
+ */
+class ServiceBackoff {
+
+	private final long initialBackoff;
+
+	private final long maxBackoff;
+
+	private int failureCount;
+
+	private long retryTime;
+
+	private CoreException failure;
+
+	/**
+	 * @param initialBackoff
+	 *            the time to wait after the first failure, in milliseconds
+	 * @param maxBackoff
+	 *            the maximum time to wait, in milliseconds
+	 */
+	public ServiceBackoff(long initialBackoff, long maxBackoff) {
+		this.initialBackoff = initialBackoff;
+		this.maxBackoff = maxBackoff;
+	}
+
+	/**
+	 * Fail fast with the last failure if the service is still considered unavailable.
+	 *
+	 * @param now
+	 *            the current time in milliseconds
+	 */
+	public synchronized void check(long now) throws CoreException {
+		if (failure != null && now < retryTime) {
+			if (failure instanceof ServiceUnavailableException) {
+				throw new ServiceUnavailableException(failure.getStatus());
+			}
+			throw new CoreException(failure.getStatus());
+		}
+	}
+
+	/**
+	 * Record that the service responded.
+	 */
+	public synchronized void succeeded() {
+		failureCount = 0;
+		failure = null;
+	}
+
+	/**
+	 * Record a failed request. Failures that do not indicate that the service is unavailable are ignored, except that
+	 * a response saying that a resource was not found counts as the service having responded.
+	 *
+	 * @param now
+	 *            the current time in milliseconds
+	 */
+	public synchronized void failed(CoreException e, long now) {
+		if (isNotFound(e)) {
+			succeeded();
+		} else if (isUnavailable(e)) {
+			long backoff = initialBackoff;
+			for (int x = 0; x < failureCount && backoff < maxBackoff; ++x) {
+				backoff *= 2;
+			}
+			++failureCount;
+			failure = e;
+			retryTime = now + Math.min(backoff, maxBackoff);
+		}
+	}
+
+	/**
+	 * Indicate if the given failure means that the service is temporarily unable to handle requests.
+	 */
+	public static boolean isUnavailable(CoreException e) {
+		if (e instanceof ServiceUnavailableException) {
+			return true;
+		}
+		int code = e.getStatus().getCode();
+		return code >= 500 && code < 600;
+	}
+
+	/**
+	 * Indicate if the given failure means that the requested resource does not exist.
+	 */
+	public static boolean isNotFound(CoreException e) {
+		Throwable exception = e.getStatus().getException();
+		return exception instanceof NotFoundException || exception instanceof FileNotFoundException;
+	}
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service;
+
+import java.util.concurrent.Future;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.Status;
+
+/**
+ * The pending result of an asynchronous marketplace service request. Canceling the future cancels the progress monitor
+ * of the underlying request, so that a request in progress stops as soon as possible.
+ *
+ * @see AsyncMarketplaceService
+ * @see AsyncCatalogService
+ */
+public interface ServiceFuture<V> extends Future<V> {
+
+	/**
+	 * A listener that is notified when a future completes.
+	 */
+	public interface Listener<V> {
+
+		/**
+		 * Called once the future is done, whether it succeeded, failed or was canceled.
+		 */
+		public void done(ServiceFuture<V> future);
+	}
+
+	/**
+	 * A computation to be applied to the result of a future.
+	 */
+	public interface Continuation<V, R> {
+
+		public R apply(V value, IProgressMonitor monitor) throws CoreException;
+	}
+
+	/**
+	 * Wait for the result of the request.
+	 *
+	 * @param monitor
+	 *            the monitor of the waiting caller; canceling it cancels this future
+	 * @return the result of the request
+	 * @throws CoreException
+	 *             if the request failed, or with {@link Status#CANCEL_STATUS} if it was canceled
+	 */
+	public V getResult(IProgressMonitor monitor) throws CoreException;
+
+	/**
+	 * Add a listener to be notified when this future is done. If the future is already done the listener is notified
+	 * immediately in the calling thread.
+	 */
+	public void addListener(Listener<V> listener);
+
+	/**
+	 * Compose this future with a continuation. The continuation is run asynchronously once this future has completed
+	 * successfully; if this future fails or is canceled, the returned future fails the same way. Canceling the returned
+	 * future does not cancel this future.
+	 *
+	 * @return a future for the result of the continuation
+	 */
+	public <R> ServiceFuture<R> then(Continuation<? super V, R> continuation);
+}
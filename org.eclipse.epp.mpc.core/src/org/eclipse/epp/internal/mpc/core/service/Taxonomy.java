@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The markets of a marketplace and their categories, indexed by id. A category may appear in several markets; it is
+ * listed once by {@link #getCategories()}, as it first appears.
+ *
+ * @see MarketplaceService#listMarkets(org.eclipse.core.runtime.IProgressMonitor)
+ */
+public class Taxonomy {
+
+	private final List<Market> markets;
+
+	private final List<Category> categories;
+
+	private final Map<String, Market> marketById = new HashMap<String, Market>();
+
+	private final Map<String, Category> categoryById = new HashMap<String, Category>();
+
+	public Taxonomy(List<Market> markets) {
+		List<Category> categories = new ArrayList<Category>();
+		for (Market market : markets) {
+			if (market.getId() != null && !marketById.containsKey(market.getId())) {
+				marketById.put(market.getId(), market);
+			}
+			for (Category category : market.getCategory()) {
+				if (category.getId() == null) {
+					categories.add(category);
+				} else if (!categoryById.containsKey(category.getId())) {
+					categoryById.put(category.getId(), category);
+					categories.add(category);
+				}
+			}
+		}
+		this.markets = Collections.unmodifiableList(new ArrayList<Market>(markets));
+		this.categories = Collections.unmodifiableList(categories);
+	}
+
+	/**
+	 * the markets, in the order in which they were listed
+	 */
+	public List<Market> getMarkets() {
+		return markets;
+	}
+
+	/**
+	 * the categories of all markets, without duplicates
+	 */
+	public List<Category> getCategories() {
+		return categories;
+	}
+
+	/**
+	 * @return the market with the given id, or null if there is none
+	 */
+	public Market getMarket(String id) {
+		return marketById.get(id);
+	}
+
+	/**
+	 * @return the category with the given id, or null if there is none
+	 */
+	public Category getCategory(String id) {
+		return categoryById.get(id);
+	}
+
+	/**
+	 * @return the categories of the market with the given id, or an empty list if there is no such market
+	 */
+	public List<Category> getCategories(String marketId) {
+		Market market = getMarket(marketId);
+		if (market == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(market.getCategory());
+	}
+}
@@ -24,7 +24,7 @@ public class CatalogContentHandler extends UnmarshalContentHandler {
 	private Catalog model;
 
 	@Override
-	public void startElement(String uri, String localName, Attributes attributes) {
+	public void startElement(String uri, String localName, Attributes attributes) throws SAXException {
 		if (localName.equals("catalog")) { //$NON-NLS-1$
 			model = new Catalog();
 
@@ -38,12 +38,7 @@ public class CatalogContentHandler extends UnmarshalContentHandler {
 		} else if (localName.equals("description")) { //$NON-NLS-1$
 			capturingContent = true;
 		} else if (localName.equals("wizard")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.CatalogBrandingContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.CatalogBrandingContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
+			startChild(model, uri, localName, attributes);
 		}
 	}
 
@@ -22,17 +22,12 @@ public class CatalogsContentHandler extends UnmarshalContentHandler {
 	private Catalogs model;
 
 	@Override
-	public void startElement(String uri, String localName, Attributes attributes) {
+	public void startElement(String uri, String localName, Attributes attributes) throws SAXException {
 		if (localName.equals("catalogs")) { //$NON-NLS-1$
 			model = new Catalogs();
 
 		} else if (localName.equals("catalog")) { //$NON-NLS-1$
-			CatalogContentHandler childHandler = new CatalogContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
+			startChild(model, uri, localName, attributes);
 		}
 	}
 
@@ -22,17 +22,12 @@ public class CategoriesContentHandler extends UnmarshalContentHandler {
 	private Categories model;
 
 	@Override
-	public void startElement(String uri, String localName, Attributes attributes) {
+	public void startElement(String uri, String localName, Attributes attributes) throws SAXException {
 		if (localName.equals("categories")) { //$NON-NLS-1$
 			model = new Categories();
 
 		} else if (localName.equals("category")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.CategoryContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.CategoryContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
+			startChild(model, uri, localName, attributes);
 		}
 	}
 
@@ -25,21 +25,16 @@ public class CategoryContentHandler extends UnmarshalContentHandler {
 	
 	private Category model;
 	
-	public void startElement(String uri, String localName, Attributes attributes) {
+	public void startElement(String uri, String localName, Attributes attributes) throws SAXException {
 		if (localName.equals("category")) { //$NON-NLS-1$
 			model = new Category();
 			
-			model.setId(attributes.getValue(NS_URI,"id")); //$NON-NLS-1$
-			model.setName(attributes.getValue(NS_URI,"name")); //$NON-NLS-1$
-			model.setUrl(attributes.getValue(NS_URI,"url")); //$NON-NLS-1$
+			model.setId(toPooledString(attributes.getValue(NS_URI,"id"))); //$NON-NLS-1$
+			model.setName(toPooledString(attributes.getValue(NS_URI,"name"))); //$NON-NLS-1$
+			model.setUrl(toPooledString(attributes.getValue(NS_URI,"url"))); //$NON-NLS-1$
 			model.setCount(toInteger(attributes.getValue(NS_URI,"count"))); //$NON-NLS-1$
 		} else if (localName.equals("node")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.NodeContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.NodeContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri,localName,attributes);
+			startChild(model, uri, localName, attributes);
 		}
 	}
 	
@@ -25,18 +25,13 @@ public class FavoritesContentHandler extends UnmarshalContentHandler {
 	
 	private Favorites model;
 	
-	public void startElement(String uri, String localName, Attributes attributes) {
+	public void startElement(String uri, String localName, Attributes attributes) throws SAXException {
 		if (localName.equals("favorites")) { //$NON-NLS-1$
 			model = new Favorites();
 			
 			model.setCount(toInteger(attributes.getValue(NS_URI,"count"))); //$NON-NLS-1$
 		} else if (localName.equals("node")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.NodeContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.NodeContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri,localName,attributes);
+			startChild(model, uri, localName, attributes);
 		}
 	}
 	
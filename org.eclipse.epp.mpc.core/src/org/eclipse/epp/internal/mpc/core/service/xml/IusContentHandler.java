@@ -46,7 +46,7 @@ public class IusContentHandler extends UnmarshalContentHandler {
 			return true;
 		} else if (localName.equals("iu")) { //$NON-NLS-1$
 			if (content != null) {
-				model.getIu().add(content.toString());
+				model.getIu().add(toPooledString(content));
 				content = null;
 			}
 			capturingContent = false;
@@ -10,6 +10,10 @@
  *******************************************************************************/
 package org.eclipse.epp.internal.mpc.core.service.xml;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.eclipse.epp.internal.mpc.core.service.Marketplace;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
@@ -19,76 +23,21 @@ import org.xml.sax.SAXException;
  */
 public class MarketplaceContentHandler extends UnmarshalContentHandler {
 
+	/**
+	 * the child elements of a marketplace
+	 */
+	private static final Set<String> CHILD_ELEMENTS = new HashSet<String>(Arrays.asList("market", "catalogs", //$NON-NLS-1$ //$NON-NLS-2$
+			"category", "node", "featured", "search", "favorites", "popular", "recent")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
+
 	private Marketplace model;
 
 	@Override
-	public void startElement(String uri, String localName, Attributes attributes) {
+	public void startElement(String uri, String localName, Attributes attributes) throws SAXException {
 		if (localName.equals("marketplace")) { //$NON-NLS-1$
 			model = new Marketplace();
 
-		} else if (localName.equals("market")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.MarketContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.MarketContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
-		} else if (localName.equals("catalogs")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.CatalogsContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.CatalogsContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
-		} else if (localName.equals("category")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.CategoryContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.CategoryContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
-		} else if (localName.equals("node")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.NodeContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.NodeContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
-		} else if (localName.equals("featured")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.FeaturedContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.FeaturedContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
-		} else if (localName.equals("search")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.SearchContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.SearchContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
-		} else if (localName.equals("favorites")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.FavoritesContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.FavoritesContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
-		} else if (localName.equals("popular")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.PopularContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.PopularContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
-		} else if (localName.equals("recent")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.RecentContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.RecentContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
+		} else if (CHILD_ELEMENTS.contains(localName)) {
+			startChild(model, uri, localName, attributes);
 		}
 	}
 
@@ -103,23 +52,8 @@ public class MarketplaceContentHandler extends UnmarshalContentHandler {
 				parentHandler.endElement(uri, localName);
 			}
 			return true;
-		} else if (localName.equals("market")) { //$NON-NLS-1$
-			// nothing to do
-		} else if (localName.equals("category")) { //$NON-NLS-1$
-			// nothing to do
-		} else if (localName.equals("node")) { //$NON-NLS-1$
-			// nothing to do
-		} else if (localName.equals("featured")) { //$NON-NLS-1$
-			// nothing to do
-		} else if (localName.equals("search")) { //$NON-NLS-1$
-			// nothing to do
-		} else if (localName.equals("favorites")) { //$NON-NLS-1$
-			// nothing to do
-		} else if (localName.equals("popular")) { //$NON-NLS-1$
-			// nothing to do
-		} else if (localName.equals("recent")) { //$NON-NLS-1$
-			// nothing to do
 		}
+		// child elements are handled by their handlers
 		return false;
 	}
 
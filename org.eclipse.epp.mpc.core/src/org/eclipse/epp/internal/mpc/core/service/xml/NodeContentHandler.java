@@ -10,7 +10,14 @@
  *******************************************************************************/
 package org.eclipse.epp.internal.mpc.core.service.xml;
 
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.epp.internal.mpc.core.service.Category;
+import org.eclipse.epp.internal.mpc.core.service.Marketplace;
 import org.eclipse.epp.internal.mpc.core.service.Node;
+import org.eclipse.epp.internal.mpc.core.service.NodeListener;
+import org.eclipse.epp.internal.mpc.core.service.NodeListing;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 
@@ -20,102 +27,202 @@ import org.xml.sax.SAXException;
  */
 public class NodeContentHandler extends UnmarshalContentHandler {
 
+	/**
+	 * The elements of a node. Elements with text content set the corresponding property of the node, the others are
+	 * handled by a {@link UnmarshalContentHandler#startChild child handler}.
+	 */
+	private enum Element {
+		NODE("node", false), //$NON-NLS-1$
+		CATEGORIES("categories", false), //$NON-NLS-1$
+		TAGS("tags", false), //$NON-NLS-1$
+		IUS("ius", false), //$NON-NLS-1$
+		PLATFORMS("platforms", false), //$NON-NLS-1$
+		FAVORITED("favorited") { //$NON-NLS-1$
+			@Override
+			void setContent(NodeContentHandler handler, Node node, StringBuilder content) {
+				node.setFavorited(handler.toInteger(content.toString()));
+			}
+		},
+		TYPE("type") { //$NON-NLS-1$
+			@Override
+			void setContent(NodeContentHandler handler, Node node, StringBuilder content) {
+				node.setType(handler.toPooledString(content));
+			}
+		},
+		OWNER("owner") { //$NON-NLS-1$
+			@Override
+			void setContent(NodeContentHandler handler, Node node, StringBuilder content) {
+				node.setOwner(handler.toPooledString(content));
+			}
+		},
+		SHORTDESCRIPTION("shortdescription") { //$NON-NLS-1$
+			@Override
+			void setContent(NodeContentHandler handler, Node node, StringBuilder content) {
+				node.setShortdescription(content.toString());
+			}
+		},
+		BODY("body") { //$NON-NLS-1$
+			@Override
+			void setContent(NodeContentHandler handler, Node node, StringBuilder content) {
+				node.setBody(content.toString());
+			}
+		},
+		CREATED("created") { //$NON-NLS-1$
+			@Override
+			void setContent(NodeContentHandler handler, Node node, StringBuilder content) {
+				node.setCreated(handler.toDate(content.toString()));
+			}
+		},
+		CHANGED("changed") { //$NON-NLS-1$
+			@Override
+			void setContent(NodeContentHandler handler, Node node, StringBuilder content) {
+				node.setChanged(handler.toDate(content.toString()));
+			}
+		},
+		FOUNDATIONMEMBER("foundationmember") { //$NON-NLS-1$
+			@Override
+			void setContent(NodeContentHandler handler, Node node, StringBuilder content) {
+				node.setFoundationmember(handler.toBoolean(content.toString()));
+			}
+		},
+		HOMEPAGEURL("homepageurl") { //$NON-NLS-1$
+			@Override
+			void setContent(NodeContentHandler handler, Node node, StringBuilder content) {
+				node.setHomepageurl(handler.toPooledString(content));
+			}
+		},
+		IMAGE("image") { //$NON-NLS-1$
+			@Override
+			void setContent(NodeContentHandler handler, Node node, StringBuilder content) {
+				node.setImage(content.toString());
+			}
+		},
+		SCREENSHOT("screenshot") { //$NON-NLS-1$
+			@Override
+			void setContent(NodeContentHandler handler, Node node, StringBuilder content) {
+				node.setScreenshot(content.toString());
+			}
+		},
+		VERSION("version") { //$NON-NLS-1$
+			@Override
+			void setContent(NodeContentHandler handler, Node node, StringBuilder content) {
+				node.setVersion(content.toString());
+			}
+		},
+		LICENSE("license") { //$NON-NLS-1$
+			@Override
+			void setContent(NodeContentHandler handler, Node node, StringBuilder content) {
+				node.setLicense(handler.toPooledString(content));
+			}
+		},
+		COMPANYNAME("companyname") { //$NON-NLS-1$
+			@Override
+			void setContent(NodeContentHandler handler, Node node, StringBuilder content) {
+				node.setCompanyname(handler.toPooledString(content));
+			}
+		},
+		STATUS("status") { //$NON-NLS-1$
+			@Override
+			void setContent(NodeContentHandler handler, Node node, StringBuilder content) {
+				node.setStatus(handler.toPooledString(content));
+			}
+		},
+		ECLIPSEVERSION("eclipseversion") { //$NON-NLS-1$
+			@Override
+			void setContent(NodeContentHandler handler, Node node, StringBuilder content) {
+				node.setEclipseversion(handler.toPooledString(content));
+			}
+		},
+		SUPPORTURL("supporturl") { //$NON-NLS-1$
+			@Override
+			void setContent(NodeContentHandler handler, Node node, StringBuilder content) {
+				node.setSupporturl(handler.toPooledString(content));
+			}
+		},
+		UPDATEURL("updateurl") { //$NON-NLS-1$
+			@Override
+			void setContent(NodeContentHandler handler, Node node, StringBuilder content) {
+				node.setUpdateurl(handler.toPooledString(content));
+			}
+		};
+
+		private final String localName;
+
+		private final boolean text;
+
+		private Element(String localName) {
+			this(localName, true);
+		}
+
+		private Element(String localName, boolean text) {
+			this.localName = localName;
+			this.text = text;
+		}
+
+		/**
+		 * set the property of the node from the text content of the element
+		 */
+		void setContent(NodeContentHandler handler, Node node, StringBuilder content) {
+			// no text content
+		}
+	}
+
+	private static final Map<String, Element> ELEMENTS = new HashMap<String, Element>();
+
+	static {
+		for (Element element : Element.values()) {
+			ELEMENTS.put(element.localName, element);
+		}
+	}
+
 	private static final String NS_URI = ""; //$NON-NLS-1$
 
 	private Node model;
 
 	@Override
-	public void startElement(String uri, String localName, Attributes attributes) {
-		if (localName.equals("node")) { //$NON-NLS-1$
+	public void startElement(String uri, String localName, Attributes attributes) throws SAXException {
+		Element element = ELEMENTS.get(localName);
+		if (element == null) {
+			return;
+		}
+		if (element.text) {
+			content = null;
+			capturingContent = true;
+		} else if (element == Element.NODE) {
 			model = new Node();
 
 			model.setId(attributes.getValue(NS_URI, "id")); //$NON-NLS-1$
 			model.setName(attributes.getValue(NS_URI, "name")); //$NON-NLS-1$
 			model.setUrl(attributes.getValue(NS_URI, "url")); //$NON-NLS-1$
-		} else if (localName.equals("favorited")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("type")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("categories")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.CategoriesContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.CategoriesContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
-		} else if (localName.equals("tags")) { //$NON-NLS-1$
-			TagsContentHandler childHandler = new TagsContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
-		} else if (localName.equals("owner")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("shortdescription")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("body")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("created")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("changed")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("foundationmember")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("homepageurl")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("image")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("screenshot")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("version")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("license")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("companyname")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("status")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("eclipseversion")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("supporturl")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("updateurl")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("ius")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.IusContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.IusContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
-		} else if (localName.equals("platforms")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.PlatformsContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.PlatformsContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
+		} else {
+			startChild(model, uri, localName, attributes);
 		}
 	}
 
 	@Override
 	public boolean endElement(String uri, String localName) throws SAXException {
-		if (localName.equals("node")) { //$NON-NLS-1$
-			if (parentModel instanceof org.eclipse.epp.internal.mpc.core.service.Marketplace) {
-				((org.eclipse.epp.internal.mpc.core.service.Marketplace) parentModel).getNode().add(model);
-			} else if (parentModel instanceof org.eclipse.epp.internal.mpc.core.service.Category) {
-				((org.eclipse.epp.internal.mpc.core.service.Category) parentModel).getNode().add(model);
-			} else if (parentModel instanceof org.eclipse.epp.internal.mpc.core.service.Search) {
-				((org.eclipse.epp.internal.mpc.core.service.Search) parentModel).getNode().add(model);
-			} else if (parentModel instanceof org.eclipse.epp.internal.mpc.core.service.Recent) {
-				((org.eclipse.epp.internal.mpc.core.service.Recent) parentModel).getNode().add(model);
-			} else if (parentModel instanceof org.eclipse.epp.internal.mpc.core.service.Featured) {
-				((org.eclipse.epp.internal.mpc.core.service.Featured) parentModel).getNode().add(model);
-			} else if (parentModel instanceof org.eclipse.epp.internal.mpc.core.service.Popular) {
-				((org.eclipse.epp.internal.mpc.core.service.Popular) parentModel).getNode().add(model);
-			} else if (parentModel instanceof org.eclipse.epp.internal.mpc.core.service.Favorites) {
-				((org.eclipse.epp.internal.mpc.core.service.Favorites) parentModel).getNode().add(model);
+		Element element = ELEMENTS.get(localName);
+		if (element == null) {
+			return false;
+		}
+		if (element.text) {
+			if (content != null) {
+				element.setContent(this, model, content);
+				content = null;
+			}
+			capturingContent = false;
+		} else if (element == Element.NODE) {
+			model.computeDerivedValues();
+			if (parentModel instanceof Marketplace) {
+				((Marketplace) parentModel).getNode().add(model);
+			} else if (parentModel instanceof Category) {
+				((Category) parentModel).getNode().add(model);
+			} else if (parentModel instanceof NodeListing) {
+				((NodeListing) parentModel).getNode().add(model);
+				NodeListener nodeListener = getUnmarshaller().getNodeListener();
+				if (nodeListener != null) {
+					nodeListener.nodeReceived(model);
+				}
 			}
 			getUnmarshaller().setModel(model);
 			model = null;
@@ -124,120 +231,6 @@ public class NodeContentHandler extends UnmarshalContentHandler {
 				parentHandler.endElement(uri, localName);
 			}
 			return true;
-		} else if (localName.equals("favorited")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setFavorited(toInteger(content.toString()));
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("type")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setType(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("categories")) { //$NON-NLS-1$
-			// nothing to do
-		} else if (localName.equals("owner")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setOwner(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("shortdescription")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setShortdescription(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("body")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setBody(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("created")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setCreated(toDate(content.toString()));
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("changed")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setChanged(toDate(content.toString()));
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("foundationmember")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setFoundationmember(toBoolean(content.toString()));
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("homepageurl")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setHomepageurl(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("image")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setImage(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("screenshot")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setScreenshot(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("version")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setVersion(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("license")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setLicense(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("companyname")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setCompanyname(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("status")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setStatus(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("eclipseversion")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setEclipseversion(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("supporturl")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setSupporturl(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("updateurl")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setUpdateurl(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("ius")) { //$NON-NLS-1$
-			// nothing to do
-		} else if (localName.equals("platforms")) { //$NON-NLS-1$
-			// nothing to do
 		}
 		return false;
 	}
@@ -25,7 +25,7 @@ public class SearchContentHandler extends UnmarshalContentHandler {
 	
 	private Search model;
 	
-	public void startElement(String uri, String localName, Attributes attributes) {
+	public void startElement(String uri, String localName, Attributes attributes) throws SAXException {
 		if (localName.equals("search")) { //$NON-NLS-1$
 			model = new Search();
 			
@@ -33,12 +33,7 @@ public class SearchContentHandler extends UnmarshalContentHandler {
 			model.setUrl(attributes.getValue(NS_URI,"url")); //$NON-NLS-1$
 			model.setTerm(attributes.getValue(NS_URI,"term")); //$NON-NLS-1$
 		} else if (localName.equals("node")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.NodeContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.NodeContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri,localName,attributes);
+			startChild(model, uri, localName, attributes);
 		}
 	}
 	
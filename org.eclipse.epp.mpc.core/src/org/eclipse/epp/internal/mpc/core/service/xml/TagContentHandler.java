@@ -24,20 +24,15 @@ public class TagContentHandler extends UnmarshalContentHandler {
 	private Tag model;
 
 	@Override
-	public void startElement(String uri, String localName, Attributes attributes) {
+	public void startElement(String uri, String localName, Attributes attributes) throws SAXException {
 		if (localName.equals("tag")) { //$NON-NLS-1$
 			model = new Tag();
 
-			model.setId(attributes.getValue(NS_URI, "id")); //$NON-NLS-1$
-			model.setName(attributes.getValue(NS_URI, "name")); //$NON-NLS-1$
-			model.setUrl(attributes.getValue(NS_URI, "url")); //$NON-NLS-1$
+			model.setId(toPooledString(attributes.getValue(NS_URI, "id"))); //$NON-NLS-1$
+			model.setName(toPooledString(attributes.getValue(NS_URI, "name"))); //$NON-NLS-1$
+			model.setUrl(toPooledString(attributes.getValue(NS_URI, "url"))); //$NON-NLS-1$
 		} else if (localName.equals("node")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.NodeContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.NodeContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
+			startChild(model, uri, localName, attributes);
 		}
 	}
 
@@ -11,12 +11,17 @@
 package org.eclipse.epp.internal.mpc.core.service.xml;
 
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
+import org.eclipse.epp.internal.mpc.core.util.StringPool;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 
 /**
- * Subclasses may participate in unmarshalling from XML
+ * Subclasses may participate in unmarshalling from XML. Handlers are reused: an unmarshaller keeps its handlers for
+ * root elements, and each handler keeps the {@link #startChild handlers} of its child elements, so that a handler
+ * must initialize its state when its element starts.
  * 
  * @author David Green
  */
@@ -32,6 +37,13 @@ public abstract class UnmarshalContentHandler {
 
 	protected UnmarshalContentHandler parentHandler;
 
+	/**
+	 * the buffer that is reused for {@link #content}
+	 */
+	private StringBuilder contentBuffer;
+
+	private Map<String, UnmarshalContentHandler> childHandlers;
+
 	public abstract void startElement(String uri, String localName, Attributes attributes) throws SAXException;
 
 	/**
@@ -42,12 +54,40 @@ public abstract class UnmarshalContentHandler {
 	public void characters(char[] ch, int start, int length) throws SAXException {
 		if (capturingContent) {
 			if (content == null) {
-				content = new StringBuilder();
+				if (contentBuffer == null) {
+					contentBuffer = new StringBuilder();
+				} else {
+					contentBuffer.setLength(0);
+				}
+				content = contentBuffer;
 			}
 			content.append(ch, start, length);
 		}
 	}
 
+	/**
+	 * Delegate a child element to its handler until the element ends. Child handlers are created on first use and
+	 * reused for subsequent elements of the same name.
+	 *
+	 * @param model
+	 *            the model of this handler, which is the parent model of the child
+	 */
+	protected void startChild(Object model, String uri, String localName, Attributes attributes) throws SAXException {
+		if (childHandlers == null) {
+			childHandlers = new HashMap<String, UnmarshalContentHandler>(4);
+		}
+		UnmarshalContentHandler childHandler = childHandlers.get(localName);
+		if (childHandler == null) {
+			childHandler = Unmarshaller.createContentHandler(localName);
+			childHandlers.put(localName, childHandler);
+		}
+		childHandler.setParentModel(model);
+		childHandler.setParentHandler(this);
+		childHandler.setUnmarshaller(getUnmarshaller());
+		getUnmarshaller().setCurrentHandler(childHandler);
+		childHandler.startElement(uri, localName, attributes);
+	}
+
 	protected Unmarshaller getUnmarshaller() {
 		return unmarshaller;
 	}
@@ -72,6 +112,20 @@ public abstract class UnmarshalContentHandler {
 		this.parentHandler = parentHandler;
 	}
 
+	/**
+	 * Get a string for a value that is likely to recur across the models of a response, such as a category name or a
+	 * license, sharing one instance for equal values.
+	 *
+	 * @see Unmarshaller#getStringPool()
+	 */
+	protected String toPooledString(CharSequence value) {
+		if (value == null) {
+			return null;
+		}
+		StringPool stringPool = unmarshaller == null ? null : unmarshaller.getStringPool();
+		return stringPool == null ? value.toString() : stringPool.get(value);
+	}
+
 	protected Date toDate(String string) {
 		if (string == null) {
 			return null;
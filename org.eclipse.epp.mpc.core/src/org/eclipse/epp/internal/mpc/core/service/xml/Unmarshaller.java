@@ -15,10 +15,15 @@ package org.eclipse.epp.internal.mpc.core.service.xml;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParserFactory;
 
+import org.eclipse.epp.internal.mpc.core.service.NodeListener;
+import org.eclipse.epp.internal.mpc.core.util.StringPool;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
@@ -26,58 +31,170 @@ import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
 
 /**
- * XML unmarshaller
+ * XML unmarshaller. Instances are not thread-safe. Use {@link #parse(InputSource, NodeListener)} to unmarshal with an
+ * instance from a bounded pool, so that the parser and the content handlers are reused across requests.
  * 
  * @author David Green
  * @author Benjamin Muskalla
  */
 public class Unmarshaller extends DefaultHandler {
 
+	/**
+	 * the default maximum number of idle unmarshallers kept for reuse
+	 */
+	public static final int DEFAULT_POOL_SIZE = 8;
+
+	/**
+	 * the maximum number of idle unmarshallers kept for reuse
+	 */
+	public static final int POOL_SIZE = Integer.getInteger(Unmarshaller.class.getName() + ".poolSize", //$NON-NLS-1$
+			DEFAULT_POOL_SIZE);
+
+	/**
+	 * the default maximum number of distinct values in the {@link #getStringPool() string pool} of an unmarshaller
+	 */
+	public static final int DEFAULT_STRING_POOL_SIZE = 1024;
+
+	/**
+	 * the maximum number of distinct values in the {@link #getStringPool() string pool} of an unmarshaller, or 0 to
+	 * not deduplicate values
+	 */
+	public static final int STRING_POOL_SIZE = Integer.getInteger(Unmarshaller.class.getName()
+			+ ".stringPoolSize", DEFAULT_STRING_POOL_SIZE); //$NON-NLS-1$
+
+	private static final BlockingQueue<Unmarshaller> pool = new ArrayBlockingQueue<Unmarshaller>(Math.max(1,
+			POOL_SIZE));
+
+	private static SAXParserFactory parserFactory;
+
 	/**
 	 * Unmarshal an object from the given input source
 	 */
 	public static Object parse(InputSource input) throws IOException, SAXException {
-		SAXParserFactory parserFactory = SAXParserFactory.newInstance();
-		parserFactory.setNamespaceAware(true);
-		XMLReader xmlReader;
+		return parse(input, null);
+	}
+
+	/**
+	 * Unmarshal an object from the given input source, notifying the given listener of each node of a listing as soon
+	 * as it has been read
+	 * 
+	 * @param nodeListener
+	 *            the listener to notify, or null
+	 */
+	public static Object parse(InputSource input, NodeListener nodeListener) throws IOException, SAXException {
+		return parse(input, nodeListener, null);
+	}
+
+	/**
+	 * Unmarshal an object from the given input source, notifying the given listener of each node of a listing as soon
+	 * as it has been read, and skipping the content of the given elements
+	 * 
+	 * @param nodeListener
+	 *            the listener to notify, or null
+	 * @param skippedElements
+	 *            the names of the elements to skip, or null
+	 * @see #setSkippedElements(Set)
+	 */
+	public static Object parse(InputSource input, NodeListener nodeListener, Set<String> skippedElements)
+			throws IOException, SAXException {
+		Unmarshaller unmarshaller = pool.poll();
+		if (unmarshaller == null) {
+			unmarshaller = new Unmarshaller();
+		}
+		boolean reusable = false;
 		try {
-			xmlReader = parserFactory.newSAXParser().getXMLReader();
-		} catch (ParserConfigurationException e) {
-			throw new IllegalStateException(e);
+			unmarshaller.setNodeListener(nodeListener);
+			unmarshaller.setSkippedElements(skippedElements);
+			Object model = unmarshaller.unmarshal(input);
+			reusable = true;
+			return model;
+		} finally {
+			// a failed parse may leave the content handlers in an arbitrary state, so only reuse after success
+			if (reusable && POOL_SIZE > 0) {
+				unmarshaller.reset();
+				pool.offer(unmarshaller);
+			}
 		}
-		Unmarshaller unmarshaller = new Unmarshaller();
-		xmlReader.setContentHandler(unmarshaller);
-		xmlReader.parse(input);
-		return unmarshaller.getModel();
-	}
-
-
-	private final Map<String,UnmarshalContentHandler> elementNameToUnmarshalContentHandler = new HashMap<String, UnmarshalContentHandler>();
-	{
-		elementNameToUnmarshalContentHandler.put("marketplace", new MarketplaceContentHandler()); //$NON-NLS-1$
-		elementNameToUnmarshalContentHandler.put("market", new MarketContentHandler()); //$NON-NLS-1$
-		elementNameToUnmarshalContentHandler.put("category", new CategoryContentHandler()); //$NON-NLS-1$
-		elementNameToUnmarshalContentHandler.put("node", new NodeContentHandler()); //$NON-NLS-1$
-		elementNameToUnmarshalContentHandler.put("categories", new CategoriesContentHandler()); //$NON-NLS-1$
-		elementNameToUnmarshalContentHandler.put("catalogs", new CatalogsContentHandler()); //$NON-NLS-1$
-		elementNameToUnmarshalContentHandler.put("catalog", new CatalogContentHandler()); //$NON-NLS-1$
-		elementNameToUnmarshalContentHandler.put("wizard", new CatalogBrandingContentHandler()); //$NON-NLS-1$
-		elementNameToUnmarshalContentHandler.put("tags", new TagsContentHandler()); //$NON-NLS-1$
-		elementNameToUnmarshalContentHandler.put("tag", new TagContentHandler()); //$NON-NLS-1$
-		elementNameToUnmarshalContentHandler.put("ius", new IusContentHandler()); //$NON-NLS-1$
-		elementNameToUnmarshalContentHandler.put("platforms", new PlatformsContentHandler()); //$NON-NLS-1$
-		elementNameToUnmarshalContentHandler.put("search", new SearchContentHandler()); //$NON-NLS-1$
-		elementNameToUnmarshalContentHandler.put("recent", new RecentContentHandler()); //$NON-NLS-1$
-		elementNameToUnmarshalContentHandler.put("featured", new FeaturedContentHandler()); //$NON-NLS-1$
-		elementNameToUnmarshalContentHandler.put("popular", new PopularContentHandler()); //$NON-NLS-1$
-		elementNameToUnmarshalContentHandler.put("favorites", new FavoritesContentHandler()); //$NON-NLS-1$
 	}
 
+	private static XMLReader createXMLReader() {
+		// the factory lookup is expensive, the factory itself is not thread-safe
+		synchronized (Unmarshaller.class) {
+			if (parserFactory == null) {
+				parserFactory = SAXParserFactory.newInstance();
+				parserFactory.setNamespaceAware(true);
+			}
+			try {
+				return parserFactory.newSAXParser().getXMLReader();
+			} catch (ParserConfigurationException e) {
+				throw new IllegalStateException(e);
+			} catch (SAXException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * handlers for the root element, created on demand since a document only ever needs one of them
+	 */
+	private final Map<String, UnmarshalContentHandler> elementNameToUnmarshalContentHandler = new HashMap<String, UnmarshalContentHandler>();
+
 	private UnmarshalContentHandler currentHandler;
+
 	private Object model;
 
+	private NodeListener nodeListener;
+
+	private Set<String> skippedElements;
+
+	/**
+	 * the depth of the current element within a skipped element, or 0 if no element is being skipped
+	 */
+	private int skipDepth;
+
+	private XMLReader xmlReader;
+
+	private StringPool stringPool = STRING_POOL_SIZE > 0 ? new StringPool(STRING_POOL_SIZE) : null;
+
+	/**
+	 * Unmarshal an object from the given input source using a parser that is retained by this unmarshaller
+	 */
+	public Object unmarshal(InputSource input) throws IOException, SAXException {
+		if (xmlReader == null) {
+			xmlReader = createXMLReader();
+			xmlReader.setContentHandler(this);
+		}
+		xmlReader.parse(input);
+		return model;
+	}
+
+	@Override
+	public void startDocument() {
+		currentHandler = null;
+		model = null;
+		skipDepth = 0;
+	}
+
+	/**
+	 * Release the state of the last parse so that this unmarshaller can be reused. The {@link #getStringPool() string
+	 * pool} is retained, so that values are also shared with the models of later responses.
+	 */
+	public void reset() {
+		currentHandler = null;
+		model = null;
+		nodeListener = null;
+		skippedElements = null;
+	}
+
 	@Override
 	public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+		if (skipDepth > 0) {
+			++skipDepth;
+			return;
+		} else if (isSkipped(localName)) {
+			skipDepth = 1;
+			return;
+		}
 		computeHandler(localName);
 		currentHandler.startElement(uri, localName, attributes);
 	}
@@ -86,20 +203,67 @@ public class Unmarshaller extends DefaultHandler {
 		if (currentHandler == null) {
 			currentHandler = elementNameToUnmarshalContentHandler.get(localName);
 			if (currentHandler == null) {
-				currentHandler = new DefaultContentHandler();
+				currentHandler = createContentHandler(localName);
+				elementNameToUnmarshalContentHandler.put(localName, currentHandler);
 			}
 			currentHandler.setUnmarshaller(this);
 		}
 	}
 
+	/**
+	 * Create the handler for an element with the given name.
+	 */
+	static UnmarshalContentHandler createContentHandler(String localName) {
+		if (localName.equals("marketplace")) { //$NON-NLS-1$
+			return new MarketplaceContentHandler();
+		} else if (localName.equals("market")) { //$NON-NLS-1$
+			return new MarketContentHandler();
+		} else if (localName.equals("category")) { //$NON-NLS-1$
+			return new CategoryContentHandler();
+		} else if (localName.equals("node")) { //$NON-NLS-1$
+			return new NodeContentHandler();
+		} else if (localName.equals("categories")) { //$NON-NLS-1$
+			return new CategoriesContentHandler();
+		} else if (localName.equals("catalogs")) { //$NON-NLS-1$
+			return new CatalogsContentHandler();
+		} else if (localName.equals("catalog")) { //$NON-NLS-1$
+			return new CatalogContentHandler();
+		} else if (localName.equals("wizard")) { //$NON-NLS-1$
+			return new CatalogBrandingContentHandler();
+		} else if (localName.equals("tags")) { //$NON-NLS-1$
+			return new TagsContentHandler();
+		} else if (localName.equals("tag")) { //$NON-NLS-1$
+			return new TagContentHandler();
+		} else if (localName.equals("ius")) { //$NON-NLS-1$
+			return new IusContentHandler();
+		} else if (localName.equals("platforms")) { //$NON-NLS-1$
+			return new PlatformsContentHandler();
+		} else if (localName.equals("search")) { //$NON-NLS-1$
+			return new SearchContentHandler();
+		} else if (localName.equals("recent")) { //$NON-NLS-1$
+			return new RecentContentHandler();
+		} else if (localName.equals("featured")) { //$NON-NLS-1$
+			return new FeaturedContentHandler();
+		} else if (localName.equals("popular")) { //$NON-NLS-1$
+			return new PopularContentHandler();
+		} else if (localName.equals("favorites")) { //$NON-NLS-1$
+			return new FavoritesContentHandler();
+		}
+		return new DefaultContentHandler();
+	}
+
 	@Override
 	public void endElement(String uri, String localName, String qName) throws SAXException {
+		if (skipDepth > 0) {
+			--skipDepth;
+			return;
+		}
 		currentHandler.endElement(uri, localName);
 	}
 
 	@Override
 	public void characters(char[] ch, int start, int length) throws SAXException {
-		if (currentHandler != null) {
+		if (currentHandler != null && skipDepth == 0) {
 			currentHandler.characters(ch, start, length);
 		}
 	}
@@ -111,6 +275,51 @@ public class Unmarshaller extends DefaultHandler {
 	public void setModel(Object model) {
 		this.model = model;
 	}
+
+	/**
+	 * The listener that is notified of each node of a listing as soon as the node has been read, or null if nodes
+	 * should not be streamed.
+	 */
+	public NodeListener getNodeListener() {
+		return nodeListener;
+	}
+
+	public void setNodeListener(NodeListener nodeListener) {
+		this.nodeListener = nodeListener;
+	}
+
+	/**
+	 * The names of the elements that are skipped together with their content, or null if no elements are skipped. The
+	 * root element is never skipped. Skipping elements that are not needed, such as the body of a node when only its
+	 * id and installable units are wanted, avoids creating their values.
+	 */
+	public Set<String> getSkippedElements() {
+		return skippedElements;
+	}
+
+	public void setSkippedElements(Set<String> skippedElements) {
+		this.skippedElements = skippedElements;
+	}
+
+	/**
+	 * Indicate if the element with the given name is to be skipped together with its content.
+	 */
+	boolean isSkipped(String localName) {
+		return skippedElements != null && currentHandler != null && skippedElements.contains(localName);
+	}
+
+	/**
+	 * The pool used to deduplicate values that recur across the models of a response, such as category names, or null
+	 * if values are not deduplicated.
+	 */
+	public StringPool getStringPool() {
+		return stringPool;
+	}
+
+	public void setStringPool(StringPool stringPool) {
+		this.stringPool = stringPool;
+	}
+
 	protected UnmarshalContentHandler getCurrentHandler() {
 		return currentHandler;
 	}
@@ -13,27 +13,54 @@ package org.eclipse.epp.internal.mpc.core.util;
 
 
 import java.io.InputStream;
-import java.lang.reflect.Method;
 import java.net.URI;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.epp.internal.mpc.core.MarketplaceClientCore;
 import org.eclipse.equinox.internal.p2.repository.Transport;
 
+/**
+ * Base class of factories that stream through the p2 transport. The transport is bound once, when the availability of
+ * the factory is first checked, and all requests share a {@link P2TransportAdapter} for it.
+ */
 @SuppressWarnings("restriction")
 public abstract class AbstractP2TransportFactory extends TransportFactory {
 
-	private static final String STREAM_METHOD = "stream"; //$NON-NLS-1$
-
 	protected static final String P2_REPOSITORY_BUNDLE = "org.eclipse.equinox.p2.repository"; //$NON-NLS-1$
 
+	private P2TransportAdapter adapter;
+
 	@Override
 	protected InputStream invokeStream(URI location, IProgressMonitor monitor) throws Exception {
-		Transport repositoryTransport = getTransportService();
-		Method streamMethod = repositoryTransport.getClass()
-		.getMethod(STREAM_METHOD, URI.class, IProgressMonitor.class);
-		Object stream = streamMethod.invoke(repositoryTransport, location, monitor);
-		return (InputStream) stream;
+		return getAdapter().stream(location, monitor);
+	}
+
+	@Override
+	protected ITransport createTransport() {
+		try {
+			P2TransportAdapter adapter = getAdapter();
+			if (adapter != null) {
+				return adapter;
+			}
+		} catch (Exception e) {
+			MarketplaceClientCore.error(e);
+		}
+		return super.createTransport();
+	}
+
+	/**
+	 * Get the adapter for the p2 transport, binding it on first use.
+	 *
+	 * @return the adapter, or null if there is no p2 transport
+	 */
+	protected synchronized P2TransportAdapter getAdapter() throws Exception {
+		if (adapter == null) {
+			Transport repositoryTransport = getTransportService();
+			if (repositoryTransport != null) {
+				adapter = P2TransportAdapter.create(repositoryTransport);
+			}
+		}
+		return adapter;
 	}
 
 	protected abstract Transport getTransportService() throws Exception;
@@ -41,7 +68,7 @@ public abstract class AbstractP2TransportFactory extends TransportFactory {
 	@Override
 	protected boolean isAvailable() {
 		try {
-			return getTransportService() != null;
+			return getAdapter() != null;
 		} catch (Exception e) {
 			MarketplaceClientCore.error(e);
 			return false;
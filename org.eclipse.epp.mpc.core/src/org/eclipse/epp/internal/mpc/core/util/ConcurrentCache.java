@@ -0,0 +1,409 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.util;
+
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A bounded, thread-safe cache with least-recently-used eviction. Values are softly referenced, so that the garbage
+ * collector may reclaim them under memory pressure.
+ * <p>
+ * The cache is divided into segments by the hash code of the key, each with its own lock and its own share of the
+ * capacity, so that threads using different keys rarely contend. Eviction is least-recently-used within a segment,
+ * which approximates global LRU order closely for the capacities used here.
+ * </p>
+ * <p>
+ * Optionally, each entry is given a weight by a {@link Weigher}, such as its estimated size in bytes, and entries are
+ * also evicted to keep the total weight within a {@link #getMaxWeight() budget}. Thus a few large entries displace
+ * each other rather than many small ones. An entry that weighs more than the share of the budget of its segment
+ * displaces all other entries of its segment, so the total weight may exceed the budget while such entries are
+ * cached. Only entries that weigh more than the whole budget are not cached.
+ * </p>
+ */
+public class ConcurrentCache<K, V> {
+
+	/**
+	 * Computes the weight of cache entries.
+	 */
+	public interface Weigher<K, V> {
+
+		/**
+		 * @return the weight of the given entry, which must not be negative
+		 */
+		public long weigh(K key, V value);
+	}
+
+	/**
+	 * A cached value and the time at which it was put into the cache.
+	 */
+	public static class Entry<V> extends SoftReference<V> {
+
+		private final long timestamp;
+
+		private final long weight;
+
+		Entry(V value, long timestamp, long weight) {
+			super(value);
+			this.timestamp = timestamp;
+			this.weight = weight;
+		}
+
+		/**
+		 * @return the value, or null if it has been reclaimed by the garbage collector
+		 */
+		public V getValue() {
+			return get();
+		}
+
+		/**
+		 * @return the time at which the value was put into the cache, in milliseconds
+		 */
+		public long getTimestamp() {
+			return timestamp;
+		}
+	}
+
+	/**
+	 * the maximum number of segments
+	 */
+	public static final int MAX_SEGMENTS = 16;
+
+	/**
+	 * the minimum number of entries per segment, below which fewer segments are used to keep eviction accurate
+	 */
+	private static final int MIN_SEGMENT_CAPACITY = 16;
+
+	private final Segment<K, V>[] segments;
+
+	private final Weigher<? super K, ? super V> weigher;
+
+	private volatile int capacity;
+
+	private volatile long maxWeight;
+
+	private volatile MetricsRegistry.Counter evictionCounter;
+
+	private volatile MetricsRegistry.Counter reclaimCounter;
+
+	private volatile MetricsRegistry.Counter rejectionCounter;
+
+	/**
+	 * @param capacity
+	 *            the maximum number of entries
+	 */
+	public ConcurrentCache(int capacity) {
+		this(capacity, Long.MAX_VALUE, null);
+	}
+
+	/**
+	 * @param capacity
+	 *            the maximum number of entries
+	 * @param maxWeight
+	 *            the maximum total weight of the entries
+	 * @param weigher
+	 *            the weigher of entries, or null if entries are not weighed
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public ConcurrentCache(int capacity, long maxWeight, Weigher<? super K, ? super V> weigher) {
+		if (capacity < 1 || maxWeight < 1) {
+			throw new IllegalArgumentException();
+		}
+		this.weigher = weigher;
+		int segmentCount = 1;
+		while (segmentCount * 2 <= MAX_SEGMENTS && segmentCount * 2 * MIN_SEGMENT_CAPACITY <= capacity) {
+			segmentCount *= 2;
+		}
+		segments = new Segment[segmentCount];
+		for (int x = 0; x < segmentCount; ++x) {
+			segments[x] = new Segment<K, V>(this);
+		}
+		setCapacity(capacity);
+		setMaxWeight(maxWeight);
+	}
+
+	/**
+	 * Get the value for the given key, marking it as recently used.
+	 *
+	 * @return the value, or null if there is none
+	 */
+	public V get(K key) {
+		Entry<V> entry = getEntry(key);
+		return entry == null ? null : entry.getValue();
+	}
+
+	/**
+	 * Get the entry for the given key, marking it as recently used.
+	 *
+	 * @return the entry, or null if there is none or its value has been reclaimed
+	 */
+	public Entry<V> getEntry(K key) {
+		return segmentFor(key).get(key);
+	}
+
+	/**
+	 * Put a value into the cache, evicting the least-recently-used entry of its segment if the segment is full.
+	 */
+	public void put(K key, V value) {
+		put(key, value, System.currentTimeMillis());
+	}
+
+	/**
+	 * Put a value into the cache with the given timestamp.
+	 *
+	 * @see #put(Object, Object)
+	 */
+	public void put(K key, V value, long timestamp) {
+		if (key == null || value == null) {
+			throw new IllegalArgumentException();
+		}
+		long weight = weigher == null ? 0 : weigher.weigh(key, value);
+		segmentFor(key).put(key, new Entry<V>(value, timestamp, weight));
+	}
+
+	/**
+	 * Remove the value for the given key.
+	 *
+	 * @return the removed value, or null if there was none
+	 */
+	public V remove(K key) {
+		return segmentFor(key).remove(key);
+	}
+
+	/**
+	 * Remove all entries.
+	 */
+	public void clear() {
+		for (Segment<K, V> segment : segments) {
+			segment.clear();
+		}
+	}
+
+	/**
+	 * @return the number of entries, including entries whose value has been reclaimed but not yet removed
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment<K, V> segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * @return the total weight of the entries
+	 */
+	public long getWeight() {
+		long weight = 0;
+		for (Segment<K, V> segment : segments) {
+			weight += segment.getWeight();
+		}
+		return weight;
+	}
+
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	/**
+	 * Set the maximum total weight of the entries, evicting entries if the cache holds more. Each segment holds an
+	 * equal share of the weight; an entry that weighs more than a share is only cached if it is the only entry of its
+	 * segment, and an entry that weighs more than the maximum total weight is not cached.
+	 */
+	public void setMaxWeight(long maxWeight) {
+		if (maxWeight < 1) {
+			throw new IllegalArgumentException();
+		}
+		this.maxWeight = maxWeight;
+		long segmentWeight = Math.max(1, maxWeight / segments.length);
+		for (Segment<K, V> segment : segments) {
+			segment.setMaxWeight(segmentWeight);
+		}
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Set the maximum number of entries, evicting entries if the cache holds more than the new capacity.
+	 */
+	public void setCapacity(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException();
+		}
+		this.capacity = capacity;
+		int segmentCapacity = Math.max(1, (capacity + segments.length - 1) / segments.length);
+		for (Segment<K, V> segment : segments) {
+			segment.setCapacity(segmentCapacity);
+		}
+	}
+
+	/**
+	 * Count the entries that are evicted to stay within the capacity or weight of the cache, the entries that are
+	 * dropped because their value was reclaimed by the garbage collector, and the entries that are not cached because
+	 * they weigh more than the {@link #getMaxWeight() maximum total weight}.
+	 *
+	 * @param evictionCounter
+	 *            the counter of evicted entries, or null
+	 * @param reclaimCounter
+	 *            the counter of reclaimed entries, or null
+	 * @param rejectionCounter
+	 *            the counter of rejected entries, or null
+	 */
+	public void setCounters(MetricsRegistry.Counter evictionCounter, MetricsRegistry.Counter reclaimCounter,
+			MetricsRegistry.Counter rejectionCounter) {
+		this.evictionCounter = evictionCounter;
+		this.reclaimCounter = reclaimCounter;
+		this.rejectionCounter = rejectionCounter;
+	}
+
+	private void evicted() {
+		MetricsRegistry.Counter counter = evictionCounter;
+		if (counter != null) {
+			counter.increment();
+		}
+	}
+
+	private void reclaimed() {
+		MetricsRegistry.Counter counter = reclaimCounter;
+		if (counter != null) {
+			counter.increment();
+		}
+	}
+
+	private void rejected() {
+		MetricsRegistry.Counter counter = rejectionCounter;
+		if (counter != null) {
+			counter.increment();
+		}
+	}
+
+	private Segment<K, V> segmentFor(Object key) {
+		int hash = key.hashCode();
+		// spread the bits so that keys with similar hash codes end up in different segments
+		hash ^= (hash >>> 20) ^ (hash >>> 12);
+		hash ^= (hash >>> 7) ^ (hash >>> 4);
+		return segments[hash & (segments.length - 1)];
+	}
+
+	private static class Segment<K, V> {
+
+		private final ConcurrentCache<K, V> cache;
+
+		private int capacity;
+
+		private long maxWeight;
+
+		private long weight;
+
+		private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true);
+
+		Segment(ConcurrentCache<K, V> cache) {
+			this.cache = cache;
+		}
+
+		public synchronized Entry<V> get(K key) {
+			Entry<V> entry = entries.get(key);
+			if (entry == null) {
+				return null;
+			}
+			if (entry.get() == null) {
+				remove(key);
+				cache.reclaimed();
+				return null;
+			}
+			return entry;
+		}
+
+		public synchronized void put(K key, Entry<V> entry) {
+			if (entry.weight > cache.maxWeight) {
+				remove(key);
+				cache.rejected();
+				return;
+			}
+			Entry<V> previous = entries.put(key, entry);
+			if (previous != null) {
+				weight -= previous.weight;
+			}
+			weight += entry.weight;
+			evict();
+		}
+
+		public synchronized V remove(K key) {
+			Entry<V> entry = entries.remove(key);
+			if (entry == null) {
+				return null;
+			}
+			weight -= entry.weight;
+			return entry.get();
+		}
+
+		public synchronized void clear() {
+			entries.clear();
+			weight = 0;
+		}
+
+		public synchronized int size() {
+			return entries.size();
+		}
+
+		public synchronized long getWeight() {
+			return weight;
+		}
+
+		public synchronized void setCapacity(int capacity) {
+			this.capacity = capacity;
+			evict();
+		}
+
+		public synchronized void setMaxWeight(long maxWeight) {
+			this.maxWeight = maxWeight;
+			evict();
+		}
+
+		/**
+		 * Remove reclaimed and least-recently-used entries until the segment is within its capacity and weight. The
+		 * most recently used entry is kept even if it weighs more than the share of the segment, unless it weighs more
+		 * than the whole cache may hold.
+		 */
+		private void evict() {
+			Iterator<Entry<V>> iterator = entries.values().iterator();
+			while (iterator.hasNext() && (entries.size() > capacity || isOverweight())) {
+				Entry<V> eldest = iterator.next();
+				iterator.remove();
+				weight -= eldest.weight;
+				if (eldest.get() == null) {
+					cache.reclaimed();
+				} else {
+					cache.evicted();
+				}
+			}
+			// also drop reclaimed entries at the head, which would otherwise occupy capacity until accessed
+			iterator = entries.values().iterator();
+			while (iterator.hasNext()) {
+				Entry<V> eldest = iterator.next();
+				if (eldest.get() != null) {
+					break;
+				}
+				iterator.remove();
+				weight -= eldest.weight;
+				cache.reclaimed();
+			}
+		}
+
+		private boolean isOverweight() {
+			// a single entry may exceed the share of the segment, as long as it fits into the whole cache
+			return weight > maxWeight && (entries.size() > 1 || weight > cache.maxWeight);
+		}
+	}
+}
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.util;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Negotiates compressed HTTP responses. Transports send {@link #ACCEPT_ENCODING} with their requests, and
+ * {@link #decode(InputStream, String) decode} the response body as it is read, so that the parser consumes the
+ * decompressed content without the response ever being buffered in full.
+ */
+public class ContentEncoding {
+
+	/**
+	 * the name of the request header that lists the accepted encodings
+	 */
+	public static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding"; //$NON-NLS-1$
+
+	/**
+	 * the name of the response header that gives the encoding of the body
+	 */
+	public static final String HEADER_CONTENT_ENCODING = "Content-Encoding"; //$NON-NLS-1$
+
+	/**
+	 * the encodings that can be {@link #decode(InputStream, String) decoded}
+	 */
+	public static final String ACCEPT_ENCODING = "gzip, deflate"; //$NON-NLS-1$
+
+	private static final String GZIP = "gzip"; //$NON-NLS-1$
+
+	private static final String X_GZIP = "x-gzip"; //$NON-NLS-1$
+
+	private static final String DEFLATE = "deflate"; //$NON-NLS-1$
+
+	private static final String IDENTITY = "identity"; //$NON-NLS-1$
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private ContentEncoding() {
+	}
+
+	/**
+	 * Decode a response body.
+	 *
+	 * @param in
+	 *            the body as received
+	 * @param contentEncoding
+	 *            the value of the <code>Content-Encoding</code> header, or null if there is none
+	 * @return a stream of the decoded body, which closes the given stream when it is closed
+	 * @throws IOException
+	 *             if the encoding is not supported, or the body cannot be read
+	 */
+	public static InputStream decode(InputStream in, String contentEncoding) throws IOException {
+		if (contentEncoding == null) {
+			return in;
+		}
+		String encoding = contentEncoding.trim();
+		if (encoding.length() == 0 || IDENTITY.equalsIgnoreCase(encoding)) {
+			return in;
+		} else if (GZIP.equalsIgnoreCase(encoding) || X_GZIP.equalsIgnoreCase(encoding)) {
+			return new GZIPInputStream(in, BUFFER_SIZE);
+		} else if (DEFLATE.equalsIgnoreCase(encoding)) {
+			return inflate(in);
+		}
+		throw new IOException(NLS.bind(Messages.ContentEncoding_unsupportedEncoding, contentEncoding));
+	}
+
+	/**
+	 * Inflate a body with the <code>deflate</code> encoding. The encoding is defined as zlib-wrapped deflate data,
+	 * but some servers send raw deflate data, so the zlib header is detected.
+	 */
+	private static InputStream inflate(InputStream in) throws IOException {
+		BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+		buffered.mark(2);
+		int first = buffered.read();
+		int second = buffered.read();
+		buffered.reset();
+		// a zlib header has compression method 8 in the low bits of the first byte, and a checksum over both bytes
+		boolean zlib = first != -1 && second != -1 && (first & 0x0f) == 8 && ((first << 8) | second) % 31 == 0;
+		return new InflaterInputStream(buffered, new Inflater(!zlib), BUFFER_SIZE) {
+			private boolean closed;
+
+			@Override
+			public void close() throws IOException {
+				if (closed) {
+					return;
+				}
+				closed = true;
+				try {
+					super.close();
+				} finally {
+					// the inflater is not the default one, so it is not released by the stream
+					inf.end();
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,568 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.epp.internal.mpc.core.MarketplaceClientCore;
+import org.osgi.framework.Bundle;
+
+/**
+ * A persistent cache of HTTP response bodies and their validators (<code>ETag</code> and <code>Last-Modified</code>),
+ * used to issue conditional requests and to serve <code>304 Not Modified</code> responses from disk. The cache is
+ * bounded in size; least recently used entries are evicted first.
+ * <p>
+ * Each entry is stored as two files named after a digest of the request URI: a <code>.body</code> file holding the
+ * response body and a <code>.meta</code> file holding the URI, the validators and the <code>Content-Type</code>. The last-modified time of the body file
+ * records the last access, so that the LRU order survives restarts.
+ * </p>
+ */
+public class HttpCache {
+
+	/**
+	 * the default maximum size of the cache on disk, in bytes
+	 */
+	public static final long DEFAULT_MAX_SIZE = 10L * 1024L * 1024L;
+
+	/**
+	 * the maximum size of the cache on disk, in bytes
+	 */
+	public static final long MAX_SIZE = Long.getLong(HttpCache.class.getName() + ".maxSize", DEFAULT_MAX_SIZE); //$NON-NLS-1$
+
+	private static final String CACHE_DIRECTORY = "http-cache"; //$NON-NLS-1$
+
+	private static final String BODY_SUFFIX = ".body"; //$NON-NLS-1$
+
+	private static final String META_SUFFIX = ".meta"; //$NON-NLS-1$
+
+	private static final String TEMP_SUFFIX = ".tmp"; //$NON-NLS-1$
+
+	private static final String META_KEY = "key"; //$NON-NLS-1$
+
+	private static final String META_ETAG = "etag"; //$NON-NLS-1$
+
+	private static final String META_LAST_MODIFIED = "lastModified"; //$NON-NLS-1$
+
+	private static final String META_CONTENT_TYPE = "contentType"; //$NON-NLS-1$
+
+	/**
+	 * A cached response.
+	 */
+	public static class Entry {
+
+		private final String key;
+
+		private final String baseName;
+
+		private final String etag;
+
+		private final String lastModified;
+
+		private final String contentType;
+
+		private final long length;
+
+		Entry(String key, String baseName, String etag, String lastModified, String contentType, long length) {
+			this.key = key;
+			this.baseName = baseName;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.contentType = contentType;
+			this.length = length;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		/**
+		 * the value of the <code>ETag</code> response header, or null if there was none
+		 */
+		public String getEtag() {
+			return etag;
+		}
+
+		/**
+		 * the value of the <code>Last-Modified</code> response header, or null if there was none
+		 */
+		public String getLastModified() {
+			return lastModified;
+		}
+
+		/**
+		 * the value of the <code>Content-Type</code> response header, or null if there was none
+		 */
+		public String getContentType() {
+			return contentType;
+		}
+
+		/**
+		 * the size of the cached body in bytes
+		 */
+		public long getLength() {
+			return length;
+		}
+	}
+
+	private final File directory;
+
+	private final long maxSize;
+
+	private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+	private long size;
+
+	private boolean loaded;
+
+	private int tempCounter;
+
+	public HttpCache(File directory, long maxSize) {
+		if (directory == null) {
+			throw new IllegalArgumentException();
+		}
+		this.directory = directory;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Create a cache located in the state location of the core bundle.
+	 *
+	 * @return the cache, or null if there is no state location available
+	 */
+	static HttpCache createDefault() {
+		if (MAX_SIZE <= 0) {
+			return null;
+		}
+		try {
+			Bundle bundle = Platform.getBundle(MarketplaceClientCore.BUNDLE_ID);
+			if (bundle == null) {
+				return null;
+			}
+			File location = Platform.getStateLocation(bundle).append(CACHE_DIRECTORY).toFile();
+			return new HttpCache(location, MAX_SIZE);
+		} catch (RuntimeException e) {
+			// no instance location, or platform not running
+			return null;
+		}
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * the current size of the cached bodies in bytes
+	 */
+	public synchronized long getSize() {
+		load();
+		return size;
+	}
+
+	/**
+	 * Get the cache entry for the given key.
+	 *
+	 * @return the entry, or null if there is none
+	 */
+	public synchronized Entry get(String key) {
+		load();
+		return entries.get(key);
+	}
+
+	/**
+	 * Open the cached body of the given entry, marking it as recently used. The body is an
+	 * {@link IContentTypeProvider} that provides the <code>Content-Type</code> of the cached response.
+	 *
+	 * @return the body, or null if the entry is no longer available
+	 */
+	public InputStream open(Entry entry) {
+		File bodyFile;
+		synchronized (this) {
+			if (entries.get(entry.getKey()) != entry) {
+				return null;
+			}
+			bodyFile = new File(directory, entry.baseName + BODY_SUFFIX);
+			bodyFile.setLastModified(System.currentTimeMillis());
+		}
+		try {
+			return new CachedInputStream(new FileInputStream(bodyFile), entry.getContentType());
+		} catch (IOException e) {
+			remove(entry.getKey());
+			return null;
+		}
+	}
+
+	/**
+	 * Wrap the given response body so that it is written to the cache as it is read. The entry is added to the cache
+	 * once the body has been read completely and closed; a body that is only partially read is discarded.
+	 *
+	 * @param key
+	 *            the cache key, typically the request URI
+	 * @param etag
+	 *            the <code>ETag</code> response header, or null
+	 * @param lastModified
+	 *            the <code>Last-Modified</code> response header, or null
+	 * @param in
+	 *            the response body
+	 * @return the stream to read the response body from
+	 */
+	public InputStream store(String key, String etag, String lastModified, InputStream in) {
+		return store(key, etag, lastModified, null, in);
+	}
+
+	/**
+	 * Wrap the given response body so that it is written to the cache as it is read, together with its
+	 * <code>Content-Type</code>.
+	 *
+	 * @param contentType
+	 *            the <code>Content-Type</code> response header, or null
+	 * @see #store(String, String, String, InputStream)
+	 */
+	public InputStream store(String key, String etag, String lastModified, String contentType, InputStream in) {
+		if (etag == null && lastModified == null) {
+			return in;
+		}
+		File tempFile;
+		OutputStream out;
+		synchronized (this) {
+			// load first, since loading removes stale temporary files
+			load();
+			if (!directory.exists() && !directory.mkdirs()) {
+				return in;
+			}
+			tempFile = new File(directory, baseName(key) + '-' + (++tempCounter) + TEMP_SUFFIX);
+		}
+		try {
+			out = new BufferedOutputStream(new FileOutputStream(tempFile));
+		} catch (IOException e) {
+			return in;
+		}
+		return new CachingInputStream(in, out, tempFile, key, etag, lastModified, contentType);
+	}
+
+	public synchronized void remove(String key) {
+		load();
+		Entry entry = entries.remove(key);
+		if (entry != null) {
+			delete(entry);
+		}
+	}
+
+	public synchronized void clear() {
+		load();
+		for (Entry entry : entries.values()) {
+			delete(entry);
+		}
+		entries.clear();
+		size = 0;
+	}
+
+	private synchronized void commit(String key, String etag, String lastModified, String contentType, File tempFile,
+			long length) {
+		load();
+		if (length > maxSize) {
+			tempFile.delete();
+			return;
+		}
+		Entry previous = entries.remove(key);
+		if (previous != null) {
+			size -= previous.getLength();
+		}
+		String baseName = baseName(key);
+		File bodyFile = new File(directory, baseName + BODY_SUFFIX);
+		File metaFile = new File(directory, baseName + META_SUFFIX);
+		bodyFile.delete();
+		if (!tempFile.renameTo(bodyFile)) {
+			tempFile.delete();
+			metaFile.delete();
+			return;
+		}
+		Properties meta = new Properties();
+		meta.setProperty(META_KEY, key);
+		if (etag != null) {
+			meta.setProperty(META_ETAG, etag);
+		}
+		if (lastModified != null) {
+			meta.setProperty(META_LAST_MODIFIED, lastModified);
+		}
+		if (contentType != null) {
+			meta.setProperty(META_CONTENT_TYPE, contentType);
+		}
+		try {
+			OutputStream out = new FileOutputStream(metaFile);
+			try {
+				meta.store(out, null);
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			bodyFile.delete();
+			metaFile.delete();
+			return;
+		}
+		entries.put(key, new Entry(key, baseName, etag, lastModified, contentType, length));
+		size += length;
+		evict();
+	}
+
+	private void evict() {
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (size > maxSize && iterator.hasNext()) {
+			Entry eldest = iterator.next();
+			iterator.remove();
+			delete(eldest);
+		}
+	}
+
+	private void delete(Entry entry) {
+		new File(directory, entry.baseName + BODY_SUFFIX).delete();
+		new File(directory, entry.baseName + META_SUFFIX).delete();
+		size -= entry.getLength();
+	}
+
+	private void load() {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		List<File> bodyFiles = new ArrayList<File>();
+		for (File file : files) {
+			String name = file.getName();
+			if (name.endsWith(TEMP_SUFFIX)) {
+				// left over from an interrupted download
+				file.delete();
+			} else if (name.endsWith(BODY_SUFFIX)) {
+				bodyFiles.add(file);
+			}
+		}
+		Collections.sort(bodyFiles, new Comparator<File>() {
+			public int compare(File o1, File o2) {
+				long m1 = o1.lastModified();
+				long m2 = o2.lastModified();
+				return m1 < m2 ? -1 : (m1 == m2 ? 0 : 1);
+			}
+		});
+		for (File bodyFile : bodyFiles) {
+			String name = bodyFile.getName();
+			String baseName = name.substring(0, name.length() - BODY_SUFFIX.length());
+			File metaFile = new File(directory, baseName + META_SUFFIX);
+			Properties meta = new Properties();
+			try {
+				InputStream in = new FileInputStream(metaFile);
+				try {
+					meta.load(in);
+				} finally {
+					in.close();
+				}
+			} catch (IOException e) {
+				bodyFile.delete();
+				metaFile.delete();
+				continue;
+			}
+			String key = meta.getProperty(META_KEY);
+			if (key == null) {
+				bodyFile.delete();
+				metaFile.delete();
+				continue;
+			}
+			long length = bodyFile.length();
+			entries.put(key, new Entry(key, baseName, meta.getProperty(META_ETAG),
+					meta.getProperty(META_LAST_MODIFIED), meta.getProperty(META_CONTENT_TYPE), length));
+			size += length;
+		}
+		evict();
+	}
+
+	private static String baseName(String key) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+			byte[] hash = digest.digest(key.getBytes("UTF-8")); //$NON-NLS-1$
+			StringBuilder buf = new StringBuilder(hash.length * 2);
+			for (byte b : hash) {
+				buf.append(Character.forDigit((b >> 4) & 0xf, 16));
+				buf.append(Character.forDigit(b & 0xf, 16));
+			}
+			return buf.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * The body of a cached response, which provides the <code>Content-Type</code> of the response like a body that is
+	 * read from the network.
+	 */
+	private static class CachedInputStream extends BufferedInputStream implements IContentTypeProvider {
+
+		private final String contentType;
+
+		public CachedInputStream(InputStream in, String contentType) {
+			super(in);
+			this.contentType = contentType;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+	}
+
+	/**
+	 * Copies everything that is read to a temporary file, and commits the file to the cache once the stream has been
+	 * read to its end.
+	 */
+	private class CachingInputStream extends FilterInputStream {
+
+		private final OutputStream out;
+
+		private final File tempFile;
+
+		private final String key;
+
+		private final String etag;
+
+		private final String lastModified;
+
+		private final String contentType;
+
+		private long length;
+
+		private boolean complete;
+
+		private boolean failed;
+
+		private boolean closed;
+
+		public CachingInputStream(InputStream in, OutputStream out, File tempFile, String key, String etag,
+				String lastModified, String contentType) {
+			super(in);
+			this.out = out;
+			this.tempFile = tempFile;
+			this.key = key;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.contentType = contentType;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b == -1) {
+				complete = true;
+			} else {
+				write(b);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int count = super.read(b, off, len);
+			if (count == -1) {
+				complete = true;
+			} else {
+				write(b, off, count);
+			}
+			return count;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			// read rather than skip, so that the skipped bytes are cached
+			byte[] buffer = new byte[(int) Math.min(n, 4096)];
+			long skipped = 0;
+			while (skipped < n) {
+				int count = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+				if (count == -1) {
+					break;
+				}
+				skipped += count;
+			}
+			return skipped;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		private void write(int b) {
+			if (!failed) {
+				try {
+					out.write(b);
+					++length;
+				} catch (IOException e) {
+					failed = true;
+				}
+			}
+		}
+
+		private void write(byte[] b, int off, int len) {
+			if (!failed) {
+				try {
+					out.write(b, off, len);
+					length += len;
+				} catch (IOException e) {
+					failed = true;
+				}
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				try {
+					out.close();
+				} catch (IOException e) {
+					failed = true;
+				}
+				if (complete && !failed) {
+					commit(key, etag, lastModified, contentType, tempFile, length);
+				} else {
+					tempFile.delete();
+				}
+			} finally {
+				super.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,435 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.util.List;
+
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.UsernamePasswordCredentials;
+import org.apache.commons.httpclient.auth.AuthScope;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.httpclient.params.HttpMethodParams;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.epp.internal.mpc.core.MarketplaceClientCore;
+import org.eclipse.epp.internal.mpc.core.service.ServiceUnavailableException;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * A transport that keeps a pool of persistent (keep-alive) HTTP connections per host. Opening the marketplace wizard
+ * issues many requests against the same host (catalog, markets, featured nodes, icons and screenshots); with this
+ * transport those requests reuse established connections instead of paying for a new connection every time.
+ * <p>
+ * The maximum number of connections per host can be configured with the system property
+ * <code>org.eclipse.epp.internal.mpc.core.util.HttpClientTransportFactory.maxConnectionsPerHost</code>.
+ * </p>
+ * <p>
+ * Responses are requested with gzip or deflate compression, and are decompressed as they are read.
+ * </p>
+ * <p>
+ * Responses that carry an <code>ETag</code> or <code>Last-Modified</code> validator are kept in an {@link HttpCache}
+ * in the bundle state location. Subsequent requests for the same URI are sent as conditional requests, and a
+ * <code>304 Not Modified</code> response is served from disk.
+ * </p>
+ * <p>
+ * Redirects are followed by this transport rather than by HttpClient, which does not follow redirects to another host
+ * or scheme. At most {@link #MAX_REDIRECTS} redirects are followed for a request.
+ * </p>
+ * <p>
+ * Proxies and proxy credentials are taken from the Eclipse network settings if org.eclipse.core.net is available, and
+ * from the JRE otherwise. Requests that this transport cannot serve, because they must go through a proxy that is not
+ * an HTTP proxy or because the server or proxy requires authentication that is not configured, are delegated to the
+ * next available transport, which can prompt for credentials.
+ * </p>
+ */
+public class HttpClientTransportFactory extends TransportFactory {
+
+	private static final String PROPERTY_PREFIX = HttpClientTransportFactory.class.getName();
+
+	/**
+	 * the default maximum number of pooled connections per host
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 6;
+
+	/**
+	 * the maximum number of pooled connections per host
+	 */
+	public static final int MAX_CONNECTIONS_PER_HOST = Integer.getInteger(PROPERTY_PREFIX + ".maxConnectionsPerHost", //$NON-NLS-1$
+			DEFAULT_MAX_CONNECTIONS_PER_HOST);
+
+	/**
+	 * the maximum number of redirects that are followed for a request
+	 */
+	public static final int MAX_REDIRECTS = 10;
+
+	private static final int MAX_TOTAL_CONNECTIONS = Math.max(20, 4 * MAX_CONNECTIONS_PER_HOST);
+
+	private static final int CONNECT_TIMEOUT = 30000;
+
+	private static final int READ_TIMEOUT = 60000;
+
+	private static final String SCHEME_HTTP = "http"; //$NON-NLS-1$
+
+	private static final String SCHEME_HTTPS = "https"; //$NON-NLS-1$
+
+	private static final String HEADER_ETAG = "ETag"; //$NON-NLS-1$
+
+	private static final String HEADER_LAST_MODIFIED = "Last-Modified"; //$NON-NLS-1$
+
+	private static final String HEADER_IF_NONE_MATCH = "If-None-Match"; //$NON-NLS-1$
+
+	private static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since"; //$NON-NLS-1$
+
+	private static final String HEADER_CACHE_CONTROL = "Cache-Control"; //$NON-NLS-1$
+
+	private static final String HEADER_CONTENT_TYPE = "Content-Type"; //$NON-NLS-1$
+
+	private static final String HEADER_LOCATION = "Location"; //$NON-NLS-1$
+
+	private static final String NO_STORE = "no-store"; //$NON-NLS-1$
+
+	private final MultiThreadedHttpConnectionManager connectionManager;
+
+	private final HttpClient client;
+
+	private final HttpCache cache;
+
+	/**
+	 * the resolver of the Eclipse network settings, or null if org.eclipse.core.net is not available
+	 */
+	private final ProxyServiceResolver proxyResolver = createProxyResolver();
+
+	private TransportFactory fallback;
+
+	private boolean fallbackCreated;
+
+	public HttpClientTransportFactory() {
+		this(HttpCache.createDefault());
+	}
+
+	/**
+	 * Create a transport that delegates the requests that it cannot serve to the given transport factory.
+	 * 
+	 * @param cache
+	 *            the cache of responses, or null if responses are not cached
+	 * @param fallback
+	 *            the factory of the transport that serves the requests that this transport cannot serve, or null if
+	 *            there is none
+	 */
+	public HttpClientTransportFactory(HttpCache cache, TransportFactory fallback) {
+		this(cache);
+		this.fallback = fallback;
+		this.fallbackCreated = true;
+	}
+
+	HttpClientTransportFactory(HttpCache cache) {
+		this.cache = cache;
+		connectionManager = new MultiThreadedHttpConnectionManager();
+		HttpConnectionManagerParams params = connectionManager.getParams();
+		params.setDefaultMaxConnectionsPerHost(Math.max(1, MAX_CONNECTIONS_PER_HOST));
+		params.setMaxTotalConnections(MAX_TOTAL_CONNECTIONS);
+		params.setConnectionTimeout(CONNECT_TIMEOUT);
+		params.setSoTimeout(READ_TIMEOUT);
+		params.setStaleCheckingEnabled(true);
+
+		client = new HttpClient(connectionManager);
+		client.getParams().setParameter(HttpMethodParams.USER_AGENT, MarketplaceClientCore.BUNDLE_ID);
+
+		String proxyUser = System.getProperty("http.proxyUser"); //$NON-NLS-1$
+		if (proxyUser != null) {
+			client.getState().setProxyCredentials(AuthScope.ANY,
+					new UsernamePasswordCredentials(proxyUser, System.getProperty("http.proxyPassword"))); //$NON-NLS-1$
+		}
+	}
+
+	private static ProxyServiceResolver createProxyResolver() {
+		try {
+			return new ProxyServiceResolver();
+		} catch (LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Get the transport that serves the requests that this transport cannot serve.
+	 * 
+	 * @return the transport, or null if there is none
+	 */
+	private synchronized ITransport getFallbackTransport() {
+		if (!fallbackCreated) {
+			fallbackCreated = true;
+			fallback = createFallback(this);
+		}
+		return fallback == null ? null : fallback.getTransport();
+	}
+
+	@Override
+	protected boolean isAvailable() {
+		return !Boolean.getBoolean(PROPERTY_PREFIX + ".disabled"); //$NON-NLS-1$
+	}
+
+	@Override
+	protected InputStream invokeStream(URI location, IProgressMonitor monitor) throws Exception {
+		return invokeStream(location, monitor, 0);
+	}
+
+	private InputStream invokeStream(URI location, IProgressMonitor monitor, int redirects) throws Exception {
+		String scheme = location.getScheme();
+		if (!SCHEME_HTTP.equalsIgnoreCase(scheme) && !SCHEME_HTTPS.equalsIgnoreCase(scheme)) {
+			return location.toURL().openStream();
+		}
+		if (monitor.isCanceled()) {
+			throw new OperationCanceledException();
+		}
+		HostConfiguration hostConfiguration = createHostConfiguration(location);
+		if (hostConfiguration == null) {
+			ITransport fallbackTransport = getFallbackTransport();
+			if (fallbackTransport == null) {
+				throw new CoreException(new Status(IStatus.ERROR, MarketplaceClientCore.BUNDLE_ID, NLS.bind(
+						Messages.HttpClientTransportFactory_unsupportedProxy, location)));
+			}
+			return fallbackTransport.stream(location, monitor);
+		}
+		String key = location.toString();
+		HttpCache.Entry cacheEntry = cache == null ? null : cache.get(key);
+		GetMethod method = new GetMethod(key);
+		method.setFollowRedirects(false);
+		method.setRequestHeader(ContentEncoding.HEADER_ACCEPT_ENCODING, ContentEncoding.ACCEPT_ENCODING);
+		if (cacheEntry != null) {
+			if (cacheEntry.getEtag() != null) {
+				method.setRequestHeader(HEADER_IF_NONE_MATCH, cacheEntry.getEtag());
+			}
+			if (cacheEntry.getLastModified() != null) {
+				method.setRequestHeader(HEADER_IF_MODIFIED_SINCE, cacheEntry.getLastModified());
+			}
+		}
+		boolean releaseConnection = true;
+		try {
+			int statusCode = client.executeMethod(hostConfiguration, method);
+			if (statusCode == HttpStatus.SC_UNAUTHORIZED || statusCode == HttpStatus.SC_PROXY_AUTHENTICATION_REQUIRED) {
+				ITransport fallbackTransport = getFallbackTransport();
+				if (fallbackTransport != null) {
+					return fallbackTransport.stream(location, monitor);
+				}
+			}
+			String redirectLocation = isRedirect(statusCode) ? getHeader(method, HEADER_LOCATION) : null;
+			if (redirectLocation != null) {
+				if (redirects >= MAX_REDIRECTS) {
+					throw new CoreException(new Status(IStatus.ERROR, MarketplaceClientCore.BUNDLE_ID, statusCode,
+							NLS.bind(Messages.HttpClientTransportFactory_tooManyRedirects, location), null));
+				}
+				// the location may be relative to the requested one, and may point to another host or scheme
+				URI redirectUri = location.resolve(redirectLocation.trim());
+				method.releaseConnection();
+				releaseConnection = false;
+				return invokeStream(redirectUri, monitor, redirects + 1);
+			}
+			if (statusCode == HttpStatus.SC_NOT_MODIFIED && cacheEntry != null) {
+				InputStream cached = cache.open(cacheEntry);
+				if (cached != null) {
+					return cached;
+				}
+				// the cached body is gone: the entry has been removed, so retry unconditionally
+				method.releaseConnection();
+				releaseConnection = false;
+				return invokeStream(location, monitor, redirects);
+			}
+			checkStatus(location, method, statusCode);
+
+			InputStream body = method.getResponseBodyAsStream();
+			if (body == null) {
+				body = new ByteArrayInputStream(new byte[0]);
+			} else {
+				// the cache holds decoded bodies, so that a 304 response can be served regardless of its encoding
+				body = ContentEncoding.decode(body, getHeader(method, ContentEncoding.HEADER_CONTENT_ENCODING));
+				if (cache != null) {
+					if (isCacheable(method)) {
+						body = cache.store(key, getHeader(method, HEADER_ETAG), getHeader(method, HEADER_LAST_MODIFIED),
+								getHeader(method, HEADER_CONTENT_TYPE), body);
+					} else if (cacheEntry != null) {
+						cache.remove(key);
+					}
+				}
+			}
+			releaseConnection = false;
+			return new ResponseInputStream(method, body, getHeader(method, HEADER_CONTENT_TYPE), monitor);
+		} finally {
+			if (releaseConnection) {
+				method.releaseConnection();
+			}
+		}
+	}
+
+	private static boolean isRedirect(int statusCode) {
+		switch (statusCode) {
+		case HttpStatus.SC_MOVED_PERMANENTLY:
+		case HttpStatus.SC_MOVED_TEMPORARILY:
+		case HttpStatus.SC_SEE_OTHER:
+		case HttpStatus.SC_TEMPORARY_REDIRECT:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private boolean isCacheable(HttpMethod method) {
+		String cacheControl = getHeader(method, HEADER_CACHE_CONTROL);
+		if (cacheControl != null && cacheControl.toLowerCase().indexOf(NO_STORE) != -1) {
+			return false;
+		}
+		return getHeader(method, HEADER_ETAG) != null || getHeader(method, HEADER_LAST_MODIFIED) != null;
+	}
+
+	private static String getHeader(HttpMethod method, String name) {
+		Header header = method.getResponseHeader(name);
+		return header == null ? null : header.getValue();
+	}
+
+	/**
+	 * Create the host configuration of a request, with the proxy to use for the given location.
+	 * 
+	 * @return the host configuration, or null if the request must go through a proxy that this transport cannot use
+	 */
+	private HostConfiguration createHostConfiguration(URI location) {
+		HostConfiguration hostConfiguration = new HostConfiguration();
+		if (proxyResolver != null) {
+			ProxyServiceResolver.Result result = proxyResolver.configure(location, hostConfiguration,
+					client.getState());
+			if (result == ProxyServiceResolver.Result.CONFIGURED) {
+				return hostConfiguration;
+			} else if (result == ProxyServiceResolver.Result.UNSUPPORTED) {
+				return null;
+			}
+			// the Eclipse network settings are not available, use those of the JRE
+		}
+		ProxySelector proxySelector = ProxySelector.getDefault();
+		if (proxySelector != null) {
+			List<Proxy> proxies = proxySelector.select(location);
+			if (proxies != null) {
+				for (Proxy proxy : proxies) {
+					if (proxy.type() == Proxy.Type.HTTP) {
+						SocketAddress address = proxy.address();
+						if (address instanceof InetSocketAddress) {
+							InetSocketAddress inetAddress = (InetSocketAddress) address;
+							hostConfiguration.setProxy(inetAddress.getHostName(), inetAddress.getPort());
+							break;
+						}
+					}
+				}
+			}
+		}
+		return hostConfiguration;
+	}
+
+	private void checkStatus(URI location, HttpMethod method, int statusCode) throws FileNotFoundException,
+	CoreException {
+		if (statusCode >= 200 && statusCode < 300) {
+			return;
+		}
+		switch (statusCode) {
+		case HttpStatus.SC_NOT_FOUND:
+		case HttpStatus.SC_GONE:
+			throw new FileNotFoundException(location.toString());
+		case HttpStatus.SC_SERVICE_UNAVAILABLE:
+			throw new ServiceUnavailableException(new Status(IStatus.ERROR, MarketplaceClientCore.BUNDLE_ID, 503,
+					Messages.DefaultMarketplaceService_serviceUnavailable503, null));
+		default:
+			throw new CoreException(new Status(IStatus.ERROR, MarketplaceClientCore.BUNDLE_ID, statusCode, NLS.bind(
+					Messages.HttpClientTransportFactory_unexpectedStatus, new Object[] { statusCode,
+							method.getStatusText(), location }), null));
+		}
+	}
+
+	/**
+	 * Wraps a response body so that closing it returns the connection to the pool, and so that reading from it honors
+	 * cancellation of the progress monitor.
+	 */
+	private static class ResponseInputStream extends FilterInputStream implements IContentTypeProvider {
+
+		private final HttpMethod method;
+
+		private final String contentType;
+
+		private final IProgressMonitor monitor;
+
+		private boolean closed;
+
+		private boolean aborted;
+
+		public ResponseInputStream(HttpMethod method, InputStream in, String contentType, IProgressMonitor monitor) {
+			super(in);
+			this.method = method;
+			this.contentType = contentType;
+			this.monitor = monitor;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		private void checkCanceled() throws IOException {
+			if (monitor.isCanceled()) {
+				aborted = true;
+				method.abort();
+				IOException exception = new IOException();
+				exception.initCause(new OperationCanceledException());
+				throw exception;
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+			checkCanceled();
+			return super.read();
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			checkCanceled();
+			return super.read(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				// the body of an aborted request is gone with its connection
+				if (!aborted) {
+					super.close();
+				}
+			} finally {
+				method.releaseConnection();
+			}
+		}
+	}
+}
@@ -0,0 +1,22 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.util;
+
+/**
+ * Implemented by streams returned from an {@link ITransport} that know the content type of the response.
+ */
+public interface IContentTypeProvider {
+
+	/**
+	 * @return the value of the Content-Type header of the response, or null if unknown
+	 */
+	public String getContentType();
+}
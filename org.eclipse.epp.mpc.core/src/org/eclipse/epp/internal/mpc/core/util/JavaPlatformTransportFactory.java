@@ -10,8 +10,11 @@
  *******************************************************************************/
 package org.eclipse.epp.internal.mpc.core.util;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.URI;
+import java.net.URLConnection;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 
@@ -24,7 +27,17 @@ public class JavaPlatformTransportFactory extends TransportFactory {
 
 	@Override
 	protected InputStream invokeStream(URI location, IProgressMonitor monitor) throws Exception {
-		return location.toURL().openStream();
+		URLConnection connection = location.toURL().openConnection();
+		if (connection instanceof HttpURLConnection) {
+			connection.setRequestProperty(ContentEncoding.HEADER_ACCEPT_ENCODING, ContentEncoding.ACCEPT_ENCODING);
+		}
+		InputStream in = connection.getInputStream();
+		try {
+			return ContentEncoding.decode(in, connection.getContentEncoding());
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
 	}
 
 }
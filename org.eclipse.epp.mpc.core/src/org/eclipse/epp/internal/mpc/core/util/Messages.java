@@ -18,6 +18,14 @@ class Messages extends NLS {
 	public static String P2TransportFactory_AuthenticationFailed;
 
 	public static String DefaultMarketplaceService_serviceUnavailable503;
+
+	public static String ContentEncoding_unsupportedEncoding;
+
+	public static String HttpClientTransportFactory_tooManyRedirects;
+
+	public static String HttpClientTransportFactory_unexpectedStatus;
+
+	public static String HttpClientTransportFactory_unsupportedProxy;
 	static {
 		// initialize resource bundle
 		NLS.initializeMessages(BUNDLE_NAME, Messages.class);
@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A registry of the counters, gauges and histograms recorded by the marketplace client, such as request latencies per
+ * endpoint and cache hit counts. Metrics are created on first use and live as long as the registry; a
+ * {@link #snapshot() snapshot} gives a consistent-enough copy of all of them for telemetry.
+ * <p>
+ * The {@link #getInstance() shared registry} is also registered as an OSGi service under the name of this class while
+ * the core bundle is active. Recording is lock-free, so that instrumented code paths are not slowed down noticeably.
+ * </p>
+ * <p>
+ * Metric names are dot-separated, e.g. <code>request.featured.latency</code>; see the instrumented classes for the
+ * names they use.
+ * </p>
+ */
+public class MetricsRegistry {
+
+	/**
+	 * A monotonically increasing count.
+	 */
+	public static class Counter {
+
+		private final AtomicLong value = new AtomicLong();
+
+		Counter() {
+		}
+
+		public void increment() {
+			value.incrementAndGet();
+		}
+
+		public void add(long delta) {
+			value.addAndGet(delta);
+		}
+
+		public long get() {
+			return value.get();
+		}
+
+		void reset() {
+			value.set(0);
+		}
+	}
+
+	/**
+	 * A value that is read when a snapshot is taken, such as the length of a queue.
+	 */
+	public interface Gauge {
+
+		public long getValue();
+	}
+
+	/**
+	 * A distribution of recorded values, such as durations in milliseconds, counted in buckets of exponentially
+	 * growing size.
+	 */
+	public static class Histogram {
+
+		/**
+		 * the inclusive upper bounds of the buckets; values above the last bound are counted in an additional bucket
+		 */
+		static final long[] BOUNDS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000, 60000 };
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+
+		private final AtomicLong count = new AtomicLong();
+
+		private final AtomicLong sum = new AtomicLong();
+
+		private final AtomicLong max = new AtomicLong();
+
+		Histogram() {
+		}
+
+		public void record(long value) {
+			if (value < 0) {
+				value = 0;
+			}
+			int bucket = 0;
+			while (bucket < BOUNDS.length && value > BOUNDS[bucket]) {
+				++bucket;
+			}
+			buckets.incrementAndGet(bucket);
+			count.incrementAndGet();
+			sum.addAndGet(value);
+			long currentMax;
+			while ((currentMax = max.get()) < value && !max.compareAndSet(currentMax, value)) {
+				// retry
+			}
+		}
+
+		MetricsSnapshot.HistogramSnapshot snapshot() {
+			long[] counts = new long[buckets.length()];
+			for (int x = 0; x < counts.length; ++x) {
+				counts[x] = buckets.get(x);
+			}
+			return new MetricsSnapshot.HistogramSnapshot(count.get(), sum.get(), max.get(), counts);
+		}
+
+		void reset() {
+			for (int x = 0; x < buckets.length(); ++x) {
+				buckets.set(x, 0);
+			}
+			count.set(0);
+			sum.set(0);
+			max.set(0);
+		}
+	}
+
+	private static final MetricsRegistry instance = new MetricsRegistry();
+
+	private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<String, Counter>();
+
+	private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+
+	private final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<String, Gauge>();
+
+	/**
+	 * for testing purposes; the client records its metrics in the {@link #getInstance() shared registry}
+	 */
+	public MetricsRegistry() {
+	}
+
+	public static MetricsRegistry getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Get the counter with the given name, creating it if there is none.
+	 */
+	public Counter counter(String name) {
+		Counter counter = counters.get(name);
+		if (counter == null) {
+			counter = new Counter();
+			Counter existing = counters.putIfAbsent(name, counter);
+			if (existing != null) {
+				counter = existing;
+			}
+		}
+		return counter;
+	}
+
+	/**
+	 * Get the histogram with the given name, creating it if there is none.
+	 */
+	public Histogram histogram(String name) {
+		Histogram histogram = histograms.get(name);
+		if (histogram == null) {
+			histogram = new Histogram();
+			Histogram existing = histograms.putIfAbsent(name, histogram);
+			if (existing != null) {
+				histogram = existing;
+			}
+		}
+		return histogram;
+	}
+
+	/**
+	 * Register a gauge under the given name, replacing any gauge previously registered under that name.
+	 */
+	public void gauge(String name, Gauge gauge) {
+		if (gauge == null) {
+			throw new IllegalArgumentException();
+		}
+		gauges.put(name, gauge);
+	}
+
+	/**
+	 * Take a snapshot of all metrics, reading the current value of each gauge.
+	 */
+	public MetricsSnapshot snapshot() {
+		MetricsSnapshot snapshot = new MetricsSnapshot(System.currentTimeMillis());
+		for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+			snapshot.counters.put(entry.getKey(), entry.getValue().get());
+		}
+		for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+			long value;
+			try {
+				value = entry.getValue().getValue();
+			} catch (RuntimeException e) {
+				continue;
+			}
+			snapshot.gauges.put(entry.getKey(), value);
+		}
+		for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+			snapshot.histograms.put(entry.getKey(), entry.getValue().snapshot());
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Reset all counters and histograms to zero. Metrics are reset in place, since instrumented code may hold on to
+	 * them.
+	 */
+	public void reset() {
+		for (Counter counter : counters.values()) {
+			counter.reset();
+		}
+		for (Histogram histogram : histograms.values()) {
+			histogram.reset();
+		}
+	}
+}
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.util;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * A copy of the metrics of a {@link MetricsRegistry} at a point in time. Metrics are sorted by name.
+ */
+public class MetricsSnapshot {
+
+	/**
+	 * A copy of a {@link MetricsRegistry.Histogram}.
+	 */
+	public static class HistogramSnapshot {
+
+		private final long count;
+
+		private final long sum;
+
+		private final long max;
+
+		private final long[] buckets;
+
+		HistogramSnapshot(long count, long sum, long max, long[] buckets) {
+			this.count = count;
+			this.sum = sum;
+			this.max = max;
+			this.buckets = buckets;
+		}
+
+		/**
+		 * the number of recorded values
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * the sum of the recorded values
+		 */
+		public long getSum() {
+			return sum;
+		}
+
+		/**
+		 * the largest recorded value
+		 */
+		public long getMax() {
+			return max;
+		}
+
+		/**
+		 * the mean of the recorded values, or 0 if there are none
+		 */
+		public double getMean() {
+			return count == 0 ? 0 : (double) sum / count;
+		}
+
+		/**
+		 * Estimate a percentile of the recorded values as the upper bound of the bucket it falls into, but no more than
+		 * the {@link #getMax() maximum}.
+		 *
+		 * @param percentile
+		 *            the percentile, between 0 and 100
+		 * @return the estimate, or 0 if there are no values
+		 */
+		public long getPercentile(double percentile) {
+			long total = 0;
+			for (long bucketCount : buckets) {
+				total += bucketCount;
+			}
+			if (total == 0) {
+				return 0;
+			}
+			long rank = (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100d);
+			long seen = 0;
+			for (int x = 0; x < buckets.length; ++x) {
+				seen += buckets[x];
+				if (seen >= rank && seen > 0) {
+					return x < MetricsRegistry.Histogram.BOUNDS.length ? Math.min(max,
+							MetricsRegistry.Histogram.BOUNDS[x]) : max;
+				}
+			}
+			return max;
+		}
+
+		@Override
+		public String toString() {
+			return "count=" + count + " mean=" + Math.round(getMean()) + " p50=" + getPercentile(50) + " p90=" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+					+ getPercentile(90) + " p99=" + getPercentile(99) + " max=" + max; //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	private final long timestamp;
+
+	final SortedMap<String, Long> counters = new TreeMap<String, Long>();
+
+	final SortedMap<String, Long> gauges = new TreeMap<String, Long>();
+
+	final SortedMap<String, HistogramSnapshot> histograms = new TreeMap<String, HistogramSnapshot>();
+
+	MetricsSnapshot(long timestamp) {
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * the time at which the snapshot was taken, in milliseconds
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public Map<String, Long> getCounters() {
+		return Collections.unmodifiableMap(counters);
+	}
+
+	public Map<String, Long> getGauges() {
+		return Collections.unmodifiableMap(gauges);
+	}
+
+	public Map<String, HistogramSnapshot> getHistograms() {
+		return Collections.unmodifiableMap(histograms);
+	}
+
+	/**
+	 * @return the value of the counter with the given name, or 0 if there is none
+	 */
+	public long getCounter(String name) {
+		Long value = counters.get(name);
+		return value == null ? 0 : value;
+	}
+
+	/**
+	 * @return the histogram with the given name, or null if there is none
+	 */
+	public HistogramSnapshot getHistogram(String name) {
+		return histograms.get(name);
+	}
+
+	/**
+	 * Compute the hit ratio of a cache from its <code>&lt;name&gt;.hit</code> and <code>&lt;name&gt;.miss</code>
+	 * counters.
+	 *
+	 * @return the ratio of hits to all lookups, or 0 if there were none
+	 */
+	public double getHitRatio(String name) {
+		long hits = getCounter(name + ".hit"); //$NON-NLS-1$
+		long lookups = hits + getCounter(name + ".miss"); //$NON-NLS-1$
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buf = new StringBuilder();
+		for (Map.Entry<String, Long> entry : counters.entrySet()) {
+			buf.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n'); //$NON-NLS-1$
+		}
+		for (Map.Entry<String, Long> entry : gauges.entrySet()) {
+			buf.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n'); //$NON-NLS-1$
+		}
+		for (Map.Entry<String, HistogramSnapshot> entry : histograms.entrySet()) {
+			buf.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n'); //$NON-NLS-1$
+		}
+		return buf.toString();
+	}
+}
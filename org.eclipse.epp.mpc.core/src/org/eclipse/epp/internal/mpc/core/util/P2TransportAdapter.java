@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.util;
+
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.epp.internal.mpc.core.MarketplaceClientCore;
+
+/**
+ * Adapts a p2 transport to {@link ITransport}. The <code>stream</code> method is not declared by the p2 transport API
+ * in all supported versions of p2, so it is looked up reflectively; this is done once when the adapter is created
+ * rather than on every request.
+ * <p>
+ * Exceptions thrown by the p2 transport are unwrapped: a {@link CoreException} indicating that the service is
+ * unavailable is reported as a {@link org.eclipse.epp.internal.mpc.core.service.ServiceUnavailableException}, and any
+ * other checked exception is wrapped in a {@link CoreException}.
+ * </p>
+ */
+public class P2TransportAdapter implements ITransport {
+
+	private static final String STREAM_METHOD = "stream"; //$NON-NLS-1$
+
+	private final Object transport;
+
+	private final Method streamMethod;
+
+	private P2TransportAdapter(Object transport, Method streamMethod) {
+		this.transport = transport;
+		this.streamMethod = streamMethod;
+	}
+
+	/**
+	 * Create an adapter for the given p2 transport.
+	 *
+	 * @throws NoSuchMethodException
+	 *             if the transport has no <code>stream(URI, IProgressMonitor)</code> method
+	 */
+	public static P2TransportAdapter create(Object transport) throws NoSuchMethodException {
+		if (transport == null) {
+			throw new IllegalArgumentException();
+		}
+		Method streamMethod = transport.getClass().getMethod(STREAM_METHOD, URI.class, IProgressMonitor.class);
+		if (!InputStream.class.isAssignableFrom(streamMethod.getReturnType())) {
+			throw new NoSuchMethodException(STREAM_METHOD);
+		}
+		try {
+			// also allows calls when the transport class itself is not public, and skips access checks on each call
+			streamMethod.setAccessible(true);
+		} catch (SecurityException e) {
+			// calls are checked
+		}
+		return new P2TransportAdapter(transport, streamMethod);
+	}
+
+	/**
+	 * the adapted p2 transport
+	 */
+	public Object getTransport() {
+		return transport;
+	}
+
+	public InputStream stream(URI location, IProgressMonitor monitor) throws FileNotFoundException, CoreException {
+		try {
+			return (InputStream) streamMethod.invoke(transport, location, monitor);
+		} catch (InvocationTargetException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof CoreException) {
+				CoreException coreCause = (CoreException) cause;
+				TransportFactory.handleServiceUnavailable(coreCause);
+				throw coreCause;
+			} else if (cause instanceof FileNotFoundException) {
+				throw (FileNotFoundException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new CoreException(new Status(IStatus.ERROR, MarketplaceClientCore.BUNDLE_ID, cause.getMessage(),
+					cause));
+		} catch (IllegalAccessException e) {
+			throw new CoreException(new Status(IStatus.ERROR, MarketplaceClientCore.BUNDLE_ID, e.getMessage(), e));
+		}
+	}
+}
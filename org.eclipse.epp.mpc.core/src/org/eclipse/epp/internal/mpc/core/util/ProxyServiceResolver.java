@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.util;
+
+import java.net.URI;
+
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpState;
+import org.apache.commons.httpclient.UsernamePasswordCredentials;
+import org.apache.commons.httpclient.auth.AuthScope;
+import org.eclipse.core.net.proxy.IProxyData;
+import org.eclipse.core.net.proxy.IProxyService;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.epp.internal.mpc.core.MarketplaceClientCore;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+
+/**
+ * Configures the proxy of a request from the Eclipse network settings, which are managed by the {@link IProxyService}
+ * of org.eclipse.core.net: manual or native proxies, hosts that bypass the proxy, and the credentials of the proxy.
+ * <p>
+ * org.eclipse.core.net is an optional dependency. Loading this class fails with a {@link LinkageError} if it is not
+ * available.
+ * </p>
+ */
+class ProxyServiceResolver {
+
+	/**
+	 * The outcome of configuring the proxy of a request.
+	 */
+	enum Result {
+		/**
+		 * the request is configured to connect directly or through an HTTP proxy
+		 */
+		CONFIGURED,
+
+		/**
+		 * the request must go through a proxy that is not an HTTP proxy, such as a SOCKS proxy
+		 */
+		UNSUPPORTED,
+
+		/**
+		 * the proxy service is not available, so the Eclipse network settings are unknown
+		 */
+		UNAVAILABLE
+	}
+
+	/**
+	 * Configure the proxy of a request for the given location and its credentials.
+	 */
+	Result configure(URI location, HostConfiguration hostConfiguration, HttpState state) {
+		BundleContext context = getBundleContext();
+		if (context == null) {
+			return Result.UNAVAILABLE;
+		}
+		ServiceReference reference = context.getServiceReference(IProxyService.class.getName());
+		if (reference == null) {
+			return Result.UNAVAILABLE;
+		}
+		IProxyService proxyService = (IProxyService) context.getService(reference);
+		if (proxyService == null) {
+			return Result.UNAVAILABLE;
+		}
+		try {
+			IProxyData[] proxies = proxyService.select(location);
+			if (proxies == null || proxies.length == 0) {
+				return Result.CONFIGURED;
+			}
+			for (IProxyData proxy : proxies) {
+				if (isHttpProxy(proxy)) {
+					hostConfiguration.setProxy(proxy.getHost(), proxy.getPort());
+					if (proxy.getUserId() != null) {
+						state.setProxyCredentials(new AuthScope(proxy.getHost(), proxy.getPort()),
+								new UsernamePasswordCredentials(proxy.getUserId(), proxy.getPassword()));
+					}
+					return Result.CONFIGURED;
+				}
+			}
+			return Result.UNSUPPORTED;
+		} finally {
+			context.ungetService(reference);
+		}
+	}
+
+	private static boolean isHttpProxy(IProxyData proxy) {
+		String type = proxy.getType();
+		return proxy.getHost() != null
+				&& (IProxyData.HTTP_PROXY_TYPE.equals(type) || IProxyData.HTTPS_PROXY_TYPE.equals(type));
+	}
+
+	private static BundleContext getBundleContext() {
+		try {
+			Bundle bundle = Platform.getBundle(MarketplaceClientCore.BUNDLE_ID);
+			return bundle == null ? null : bundle.getBundleContext();
+		} catch (RuntimeException e) {
+			// not running in OSGi
+			return null;
+		}
+	}
+}
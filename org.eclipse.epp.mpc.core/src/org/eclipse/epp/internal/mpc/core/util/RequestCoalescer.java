@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.ProgressMonitorWrapper;
+import org.eclipse.core.runtime.Status;
+
+/**
+ * Coalesces concurrent requests for the same key, so that callers asking for the same thing at the same time share a
+ * single execution of the request and its result.
+ * <p>
+ * The request is executed on the thread of the caller that started it, and reports its progress to the monitor of that
+ * caller. The other callers wait for the result with their own monitor: a waiting caller whose monitor is canceled stops
+ * waiting at once without affecting the others. The monitor passed to the request only reports cancellation once every
+ * caller has been canceled, so the caller that started the request keeps executing it for as long as another caller
+ * waits for it. A request that is canceled this way is no longer shared with later callers.
+ * </p>
+ */
+public class RequestCoalescer<K, V> {
+
+	/**
+	 * A request that can be coalesced.
+	 */
+	public interface Request<V> {
+		public V execute(IProgressMonitor monitor) throws CoreException;
+	}
+
+	private static final long POLL_INTERVAL = 100L;
+
+	private final Map<K, Flight<V>> inFlight = new HashMap<K, Flight<V>>();
+
+	/**
+	 * Perform the given request, or join an identical request that is already in flight.
+	 *
+	 * @param key
+	 *            the key identifying the request
+	 * @param monitor
+	 *            the progress monitor of the caller
+	 * @param request
+	 *            the request to execute if no identical request is in flight
+	 * @return the result of the request
+	 * @throws CoreException
+	 *             if the request failed, or with {@link Status#CANCEL_STATUS} if the caller's monitor was canceled
+	 *             while waiting for the result
+	 */
+	public V perform(K key, IProgressMonitor monitor, Request<V> request) throws CoreException {
+		Flight<V> flight;
+		boolean leader = false;
+		synchronized (inFlight) {
+			flight = inFlight.get(key);
+			if (flight == null || !flight.join(monitor)) {
+				// an abandoned request is about to be canceled, so it is not shared
+				flight = new Flight<V>(monitor);
+				inFlight.put(key, flight);
+				leader = true;
+			}
+		}
+		if (leader) {
+			return execute(key, flight, monitor, request);
+		}
+		if (!flight.await(monitor)) {
+			flight.leave(monitor);
+			throw new CoreException(Status.CANCEL_STATUS);
+		}
+		return flight.getResult();
+	}
+
+	private V execute(K key, final Flight<V> flight, IProgressMonitor monitor, Request<V> request)
+			throws CoreException {
+		V result = null;
+		Throwable failure = null;
+		try {
+			result = request.execute(new ProgressMonitorWrapper(monitor) {
+				@Override
+				public boolean isCanceled() {
+					return flight.isAbandoned();
+				}
+			});
+		} catch (Throwable t) {
+			failure = t;
+		} finally {
+			synchronized (inFlight) {
+				if (inFlight.get(key) == flight) {
+					inFlight.remove(key);
+				}
+			}
+			flight.complete(result, failure);
+		}
+		return flight.getResult();
+	}
+
+	private static class Flight<V> {
+
+		/**
+		 * the monitors of the callers, starting with the one that executes the request
+		 */
+		private final List<IProgressMonitor> participants = new ArrayList<IProgressMonitor>(2);
+
+		private boolean abandoned;
+
+		private boolean done;
+
+		private V result;
+
+		private Throwable failure;
+
+		Flight(IProgressMonitor leader) {
+			participants.add(leader);
+		}
+
+		/**
+		 * @return true if the participant joined the flight, or false if the flight has been abandoned
+		 */
+		synchronized boolean join(IProgressMonitor participant) {
+			if (isAbandoned()) {
+				return false;
+			}
+			participants.add(participant);
+			return true;
+		}
+
+		synchronized void leave(IProgressMonitor participant) {
+			participants.remove(participant);
+		}
+
+		/**
+		 * @return true if every participant has been canceled, in which case the request should be canceled
+		 */
+		synchronized boolean isAbandoned() {
+			if (!abandoned) {
+				for (IProgressMonitor participant : participants) {
+					if (!participant.isCanceled()) {
+						return false;
+					}
+				}
+				abandoned = true;
+			}
+			return true;
+		}
+
+		synchronized void complete(V result, Throwable failure) {
+			this.result = result;
+			this.failure = failure;
+			done = true;
+			notifyAll();
+		}
+
+		/**
+		 * Wait for the flight to complete.
+		 * 
+		 * @return true if the flight has completed, or false if the given monitor was canceled or the thread was
+		 *         interrupted
+		 */
+		synchronized boolean await(IProgressMonitor participant) {
+			while (!done) {
+				if (participant.isCanceled()) {
+					return false;
+				}
+				try {
+					wait(POLL_INTERVAL);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+			return true;
+		}
+
+		synchronized V getResult() throws CoreException {
+			if (failure instanceof CoreException) {
+				throw (CoreException) failure;
+			} else if (failure instanceof RuntimeException) {
+				throw (RuntimeException) failure;
+			} else if (failure instanceof Error) {
+				throw (Error) failure;
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.util;
+
+import java.util.Arrays;
+
+/**
+ * A bounded pool of strings that deduplicates values that recur across the models of a response, such as category
+ * names, licenses and update site URLs, so that equal values share one instance. Unlike {@link String#intern()}, the
+ * pool never holds more than a fixed number of strings and does not keep its strings alive beyond its own lifetime.
+ * <p>
+ * The pool is a direct-mapped table: each value has exactly one slot, and a value that collides with another replaces
+ * it. Values are looked up from their characters, so that no string is created for a value that is already pooled.
+ * Long values are not pooled, since they are rarely repeated. Instances are not thread-safe.
+ * </p>
+ */
+public class StringPool {
+
+	/**
+	 * the length of the longest value that is pooled
+	 */
+	public static final int MAX_LENGTH = 256;
+
+	private final String[] table;
+
+	private final int mask;
+
+	/**
+	 * @param capacity
+	 *            the maximum number of strings in the pool, rounded up to a power of two
+	 */
+	public StringPool(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException();
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		table = new String[size];
+		mask = size - 1;
+	}
+
+	/**
+	 * Get the pooled string that is equal to the given characters, adding it to the pool if there is none.
+	 *
+	 * @return the string, or null if the given characters are null
+	 */
+	public String get(CharSequence chars) {
+		if (chars == null) {
+			return null;
+		}
+		int length = chars.length();
+		if (length > MAX_LENGTH) {
+			return chars.toString();
+		}
+		int hash = 0;
+		for (int x = 0; x < length; ++x) {
+			hash = 31 * hash + chars.charAt(x);
+		}
+		int index = (hash ^ (hash >>> 16)) & mask;
+		String pooled = table[index];
+		if (pooled != null && equals(pooled, chars)) {
+			return pooled;
+		}
+		String value = chars.toString();
+		table[index] = value;
+		return value;
+	}
+
+	private static boolean equals(String pooled, CharSequence chars) {
+		if (pooled == chars) {
+			return true;
+		}
+		int length = chars.length();
+		if (pooled.length() != length) {
+			return false;
+		}
+		for (int x = 0; x < length; ++x) {
+			if (pooled.charAt(x) != chars.charAt(x)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * the maximum number of strings in the pool
+	 */
+	public int getCapacity() {
+		return table.length;
+	}
+
+	/**
+	 * Remove all strings from the pool.
+	 */
+	public void clear() {
+		Arrays.fill(table, null);
+	}
+}
@@ -10,7 +10,6 @@
  *******************************************************************************/
 package org.eclipse.epp.internal.mpc.core.util;
 
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -19,34 +18,163 @@ import java.util.regex.Pattern;
  * @author David Green
  */
 public class TextUtil {
-	private static final Pattern STRIP_TAG_PATTERN = Pattern.compile(
-			"</?[a-zA-Z]+[0-6]?(\\s+[a-zA-Z]+\\s*=\\s*((('|\")[^>]*?\\4)|(\\S+)))*\\s*/?>", Pattern.MULTILINE); //$NON-NLS-1$
+
+	/**
+	 * dual newlines, but not between tags
+	 */
+	private static final Pattern INFORMAL_PARAGRAPH_PATTERN = Pattern.compile(
+			"(?<!>)\\s*?((\\r\\n)|\\n|\\r){2,}\\s*(?!<)"); //$NON-NLS-1$
+
+	private static final String PARAGRAPH_TAG = "<p>"; //$NON-NLS-1$
 
 	/**
 	 * Strip HTML tags such that the returned text is suitable for display.
+	 * <p>
+	 * A tag is an element name of letters optionally followed by a digit, e.g. <code>h1</code>, and attributes with
+	 * quoted or unquoted values, e.g. <code>&lt;span class="x" id=y&gt;</code> or <code>&lt;br/&gt;</code>. Anything
+	 * else, such as a lone <code>&lt;</code>, is kept. A candidate tag only extends past another <code>&lt;</code>
+	 * within a quoted value, which ends at the next matching quote or <code>&gt;</code>, so each character is examined
+	 * by a bounded number of candidate tags and the time taken is linear in the length of the text.
+	 * </p>
 	 * 
 	 * @param text
 	 *            the text to adjust
 	 * @return the text, possibly altered
 	 */
-	public static String stripHtmlMarkup(String text) {
+	public static String stripHtmlMarkup(CharSequence text) {
 		if (text == null) {
 			return null;
 		}
-		String result = ""; //$NON-NLS-1$
+		int length = text.length();
+		StringBuilder result = null;
 		int lastOffset = 0;
-		Matcher matcher = STRIP_TAG_PATTERN.matcher(text);
-		while (matcher.find()) {
-			int start = matcher.start();
-			if (start > lastOffset) {
-				result += text.substring(lastOffset, start);
+		for (int x = 0; x < length; ++x) {
+			if (text.charAt(x) != '<') {
+				continue;
+			}
+			int end = matchTag(text, x, length);
+			if (end == -1) {
+				continue;
+			}
+			if (result == null) {
+				result = new StringBuilder(length);
+			}
+			result.append(text, lastOffset, x);
+			lastOffset = end;
+			x = end - 1;
+		}
+		if (result == null) {
+			return text.toString();
+		}
+		result.append(text, lastOffset, length);
+		return result.toString();
+	}
+
+	/**
+	 * Match a tag that starts at the given offset.
+	 * 
+	 * @return the offset following the tag, or -1 if there is no tag at the offset
+	 */
+	private static int matchTag(CharSequence text, int offset, int length) {
+		int x = offset + 1;
+		if (x < length && text.charAt(x) == '/') {
+			++x;
+		}
+		int nameStart = x;
+		x = skipLetters(text, x, length);
+		if (x == nameStart) {
+			return -1;
+		}
+		if (x < length && text.charAt(x) >= '0' && text.charAt(x) <= '6') {
+			++x;
+		}
+		for (;;) {
+			int attributeStart = x;
+			x = skipWhitespace(text, x, length);
+			if (x == attributeStart) {
+				break;
+			}
+			int nameEnd = skipLetters(text, x, length);
+			if (nameEnd == x) {
+				break;
+			}
+			int valueStart = skipWhitespace(text, nameEnd, length);
+			if (valueStart == length || text.charAt(valueStart) != '=') {
+				x = attributeStart;
+				break;
+			}
+			valueStart = skipWhitespace(text, valueStart + 1, length);
+			int valueEnd = matchAttributeValue(text, valueStart, length);
+			if (valueEnd == -1) {
+				x = attributeStart;
+				break;
+			}
+			x = valueEnd;
+		}
+		x = skipWhitespace(text, x, length);
+		if (x < length && text.charAt(x) == '/') {
+			++x;
+		}
+		if (x < length && text.charAt(x) == '>') {
+			return x + 1;
+		}
+		return -1;
+	}
+
+	/**
+	 * Match an attribute value, which is either quoted and does not contain <code>&gt;</code>, or a run of characters
+	 * other than whitespace, <code>&lt;</code> and <code>&gt;</code>. Ending unquoted values at <code>&lt;</code> keeps
+	 * a candidate tag from scanning over the candidate tags that follow it.
+	 * 
+	 * @return the offset following the value, or -1 if there is no value
+	 */
+	private static int matchAttributeValue(CharSequence text, int offset, int length) {
+		if (offset == length) {
+			return -1;
+		}
+		char c = text.charAt(offset);
+		if (c == '"' || c == '\'') {
+			for (int x = offset + 1; x < length; ++x) {
+				char d = text.charAt(x);
+				if (d == c) {
+					return x + 1;
+				} else if (d == '>') {
+					break;
+				}
 			}
-			lastOffset = matcher.end();
 		}
-		if (lastOffset < text.length()) {
-			result += text.substring(lastOffset);
+		int x = offset;
+		while (x < length && text.charAt(x) != '>' && text.charAt(x) != '<' && !isWhitespace(text.charAt(x))) {
+			++x;
 		}
-		return result;
+		return x == offset ? -1 : x;
+	}
+
+	private static int skipLetters(CharSequence text, int offset, int length) {
+		int x = offset;
+		while (x < length) {
+			char c = text.charAt(x);
+			if ((c < 'a' || c > 'z') && (c < 'A' || c > 'Z')) {
+				break;
+			}
+			++x;
+		}
+		return x;
+	}
+
+	private static int skipWhitespace(CharSequence text, int offset, int length) {
+		int x = offset;
+		while (x < length && isWhitespace(text.charAt(x))) {
+			++x;
+		}
+		return x;
+	}
+
+	/**
+	 * Indicate if the given character is whitespace as matched by <code>\\s</code> in a regular expression.
+	 */
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000b' || c == '\f' || c == '\r';
 	}
 
 	/**
@@ -62,7 +190,10 @@ public class TextUtil {
 			return null;
 		}
 		// replace dual newlines with paragraph tags, but not if between tags
-		text = Pattern.compile("(?<!>)\\s*?((\\r\\n)|\\n|\\r){2,}\\s*(?!<)").matcher(text).replaceAll("<p>"); //$NON-NLS-1$ //$NON-NLS-2$
+		if (text.indexOf('\n') == -1 && text.indexOf('\r') == -1) {
+			return text;
+		}
+		text = INFORMAL_PARAGRAPH_PATTERN.matcher(text).replaceAll(PARAGRAPH_TAG);
 
 		return text;
 	}
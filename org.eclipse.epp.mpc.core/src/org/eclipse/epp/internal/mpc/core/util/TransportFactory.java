@@ -12,7 +12,6 @@ package org.eclipse.epp.internal.mpc.core.util;
 
 import java.io.FileNotFoundException;
 import java.io.InputStream;
-import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
 
 import org.eclipse.core.runtime.CoreException;
@@ -31,27 +30,18 @@ import org.eclipse.epp.internal.mpc.core.service.ServiceUnavailableException;
 public abstract class TransportFactory {
 
 	private static final String[] factoryClasses = new String[] { //
+		"org.eclipse.epp.internal.mpc.core.util.HttpClientTransportFactory", // //$NON-NLS-1$
 		"org.eclipse.epp.internal.mpc.core.util.P2TransportFactory", // //$NON-NLS-1$
 		"org.eclipse.epp.internal.mpc.core.util.Eclipse36TransportFactory", // //$NON-NLS-1$
 	"org.eclipse.epp.internal.mpc.core.util.JavaPlatformTransportFactory" }; //$NON-NLS-1$
 
 	private static TransportFactory instance;
 
+	private ITransport transport;
+
 	public static synchronized TransportFactory instance() {
 		if (instance == null) {
-			for (String factoryClass : factoryClasses) {
-				TransportFactory factory;
-				try {
-					factory = (TransportFactory) Class.forName(factoryClass,true,TransportFactory.class.getClassLoader()).newInstance();
-				} catch (Throwable t) {
-					// ignore
-					continue;
-				}
-				if (factory.isAvailable()) {
-					instance = factory;
-					break;
-				}
-			}
+			instance = createFactory(0);
 			if (instance == null) {
 				throw new IllegalStateException();
 			}
@@ -59,8 +49,54 @@ public abstract class TransportFactory {
 		return instance;
 	}
 
+	/**
+	 * Create the first available factory that follows the given factory in the order of preference, to serve the
+	 * requests that the given factory cannot serve.
+	 * 
+	 * @return the factory, or null if there is none
+	 */
+	static TransportFactory createFallback(TransportFactory factory) {
+		for (int x = 0; x < factoryClasses.length; ++x) {
+			if (factoryClasses[x].equals(factory.getClass().getName())) {
+				return createFactory(x + 1);
+			}
+		}
+		return null;
+	}
 
-	public ITransport getTransport() {
+	private static TransportFactory createFactory(int start) {
+		for (int x = start; x < factoryClasses.length; ++x) {
+			TransportFactory factory;
+			try {
+				factory = (TransportFactory) Class.forName(factoryClasses[x], true,
+						TransportFactory.class.getClassLoader()).newInstance();
+			} catch (Throwable t) {
+				// ignore
+				continue;
+			}
+			if (factory.isAvailable()) {
+				return factory;
+			}
+		}
+		return null;
+	}
+
+
+	/**
+	 * Get the transport of this factory, which is shared by all its clients.
+	 */
+	public synchronized ITransport getTransport() {
+		if (transport == null) {
+			transport = createTransport();
+		}
+		return transport;
+	}
+
+	/**
+	 * Create the transport returned by {@link #getTransport()}, which by default delegates to
+	 * {@link #invokeStream(URI, IProgressMonitor)}.
+	 */
+	protected ITransport createTransport() {
 		return new ITransport() {
 
 			public InputStream stream(URI location, IProgressMonitor monitor) throws FileNotFoundException,
@@ -82,17 +118,10 @@ public abstract class TransportFactory {
 
 	protected void handleStreamExceptions(Exception e) throws ServiceUnavailableException, CoreException,
 	FileNotFoundException {
-		if (e instanceof InvocationTargetException) {
-			InvocationTargetException targetException = (InvocationTargetException) e;
-			Throwable cause = targetException.getCause();
-			if (cause instanceof CoreException) {
-				CoreException coreCause = (CoreException) cause;
-				handleServiceUnavailable(coreCause);
-				throw coreCause;
-			} else if (cause instanceof FileNotFoundException) {
-				throw (FileNotFoundException) cause;
-			}
-
+		if (e instanceof CoreException) {
+			throw (CoreException) e;
+		} else if (e instanceof FileNotFoundException) {
+			throw (FileNotFoundException) e;
 		} else {
 			throw new CoreException(new Status(IStatus.ERROR, MarketplaceClientCore.BUNDLE_ID, e.getMessage(), e));
 		}
@@ -10,13 +10,30 @@
  *******************************************************************************/
 package org.eclipse.epp.mpc.tests;
 
+import org.eclipse.epp.mpc.tests.service.AsyncServiceExecutorTest;
+import org.eclipse.epp.mpc.tests.service.CachingMarketplaceServiceRegistryTest;
+import org.eclipse.epp.mpc.tests.service.CachingMarketplaceServiceTest;
 import org.eclipse.epp.mpc.tests.service.CatalogServiceTest;
 import org.eclipse.epp.mpc.tests.service.DefaultMarketplaceServiceTest;
+import org.eclipse.epp.mpc.tests.service.MarketplaceStoreTest;
+import org.eclipse.epp.mpc.tests.service.NodeTest;
+import org.eclipse.epp.mpc.tests.service.PagedSearchTest;
+import org.eclipse.epp.mpc.tests.service.TaxonomyTest;
+import org.eclipse.epp.mpc.tests.service.xml.StaxUnmarshallerTest;
 import org.eclipse.epp.mpc.tests.service.xml.UnmarshallerTest;
 import org.eclipse.epp.mpc.tests.ui.catalog.CatalogDescriptorTest;
+import org.eclipse.epp.mpc.tests.ui.catalog.MarketplaceCatalogTest;
 import org.eclipse.epp.mpc.tests.ui.catalog.MarketplaceInfoTest;
 import org.eclipse.epp.mpc.tests.ui.wizard.MarketplaceUrlHandlerTest;
 import org.eclipse.epp.mpc.tests.ui.wizard.SelectionModelStateSerializerTest;
+import org.eclipse.epp.mpc.tests.util.ConcurrentCacheTest;
+import org.eclipse.epp.mpc.tests.util.ContentEncodingTest;
+import org.eclipse.epp.mpc.tests.util.HttpCacheTest;
+import org.eclipse.epp.mpc.tests.util.HttpClientTransportFactoryTest;
+import org.eclipse.epp.mpc.tests.util.MetricsRegistryTest;
+import org.eclipse.epp.mpc.tests.util.P2TransportAdapterTest;
+import org.eclipse.epp.mpc.tests.util.RequestCoalescerTest;
+import org.eclipse.epp.mpc.tests.util.StringPoolTest;
 import org.eclipse.epp.mpc.tests.util.TextUtilTest;
 import org.eclipse.epp.mpc.tests.util.TransportFactoryTest;
 import org.junit.runner.RunWith;
@@ -29,12 +46,29 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({ //
 	UnmarshallerTest.class, //
+	StaxUnmarshallerTest.class, //
 	DefaultMarketplaceServiceTest.class, //
+	AsyncServiceExecutorTest.class, //
+	CachingMarketplaceServiceTest.class, //
+	CachingMarketplaceServiceRegistryTest.class, //
+	TaxonomyTest.class, //
+	NodeTest.class, //
+	MarketplaceStoreTest.class, //
+	PagedSearchTest.class, //
 	TextUtilTest.class, //
+	StringPoolTest.class, //
 	SelectionModelStateSerializerTest.class, //
 	MarketplaceUrlHandlerTest.class, //
 	TransportFactoryTest.class, //
+	P2TransportAdapterTest.class, //
+	HttpCacheTest.class, //
+	HttpClientTransportFactoryTest.class, //
+	ContentEncodingTest.class, //
+	RequestCoalescerTest.class, //
+	ConcurrentCacheTest.class, //
+	MetricsRegistryTest.class, //
 	MarketplaceInfoTest.class, //
+	MarketplaceCatalogTest.class, //
 	CatalogServiceTest.class, //
 	CatalogDescriptorTest.class //
 
@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+
+/**
+ * A minimal harness for micro-benchmarks that are run as plain Java applications. Each benchmark is warmed up before
+ * it is measured, and the results of the measured operation are consumed so that the work cannot be optimized away.
+ * <p>
+ * Benchmarks are not part of the test suite, since their results depend on the machine.
+ * </p>
+ */
+public abstract class Benchmark {
+
+	/**
+	 * An operation to be measured.
+	 */
+	public interface Operation {
+
+		/**
+		 * @return a value derived from the work performed
+		 */
+		public Object run() throws Exception;
+	}
+
+	public static final int DEFAULT_WARMUP_ITERATIONS = Integer.getInteger(Benchmark.class.getName()
+			+ ".warmupIterations", 2000); //$NON-NLS-1$
+
+	public static final int DEFAULT_ITERATIONS = Integer.getInteger(Benchmark.class.getName() + ".iterations", 10000); //$NON-NLS-1$
+
+	private final PrintStream out;
+
+	private int sink;
+
+	protected Benchmark() {
+		this(System.out);
+	}
+
+	protected Benchmark(PrintStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * Measure the given operation.
+	 * 
+	 * @return the average time per operation in nanoseconds
+	 */
+	public double measure(String name, Operation operation) throws Exception {
+		for (int x = 0; x < DEFAULT_WARMUP_ITERATIONS; ++x) {
+			consume(operation.run());
+		}
+		long start = System.nanoTime();
+		for (int x = 0; x < DEFAULT_ITERATIONS; ++x) {
+			consume(operation.run());
+		}
+		double nanosPerOperation = (System.nanoTime() - start) / (double) DEFAULT_ITERATIONS;
+		out.println(String.format("%-50s %12.0f ns/op", name, nanosPerOperation)); //$NON-NLS-1$
+		return nanosPerOperation;
+	}
+
+	/**
+	 * Report the relative improvement of a measurement over a baseline.
+	 */
+	public void compare(String name, double baselineNanos, double nanos) {
+		out.println(String.format("%-50s %12.2fx", name, baselineNanos / nanos)); //$NON-NLS-1$
+	}
+
+	/**
+	 * Report the throughput of a measurement.
+	 */
+	public void throughput(String name, double nanosPerOperation, double bytesPerOperation) {
+		double megabytesPerSecond = bytesPerOperation / nanosPerOperation * 1000000000d / (1024d * 1024d);
+		out.println(String.format("%-50s %12.2f MB/s", name, megabytesPerSecond)); //$NON-NLS-1$
+	}
+
+	/**
+	 * Report the rate at which items are processed by a measurement.
+	 */
+	public void rate(String name, double nanosPerOperation, double itemsPerOperation) {
+		out.println(String.format("%-50s %12.0f /s", name, itemsPerOperation / nanosPerOperation * 1000000000d)); //$NON-NLS-1$
+	}
+
+	/**
+	 * Measure the memory allocated by the given operation. This relies on the thread allocation counters of the
+	 * HotSpot virtual machine.
+	 *
+	 * @return the average number of bytes allocated per operation, or -1 if the virtual machine does not count
+	 *         allocations
+	 */
+	public double allocated(String name, Operation operation) throws Exception {
+		Object threadBean = ManagementFactory.getThreadMXBean();
+		Method allocatedBytes;
+		try {
+			allocatedBytes = Class.forName("com.sun.management.ThreadMXBean").getMethod("getThreadAllocatedBytes", //$NON-NLS-1$ //$NON-NLS-2$
+					long.class);
+		} catch (ClassNotFoundException e) {
+			out.println(String.format("%-50s %12s", name, "n/a")); //$NON-NLS-1$ //$NON-NLS-2$
+			return -1;
+		} catch (NoSuchMethodException e) {
+			out.println(String.format("%-50s %12s", name, "n/a")); //$NON-NLS-1$ //$NON-NLS-2$
+			return -1;
+		}
+		Long threadId = Thread.currentThread().getId();
+		for (int x = 0; x < DEFAULT_WARMUP_ITERATIONS; ++x) {
+			consume(operation.run());
+		}
+		long start = (Long) allocatedBytes.invoke(threadBean, threadId);
+		for (int x = 0; x < DEFAULT_ITERATIONS; ++x) {
+			consume(operation.run());
+		}
+		double bytesPerOperation = ((Long) allocatedBytes.invoke(threadBean, threadId) - start)
+				/ (double) DEFAULT_ITERATIONS;
+		out.println(String.format("%-50s %12.0f B/op", name, bytesPerOperation)); //$NON-NLS-1$
+		return bytesPerOperation;
+	}
+
+	/**
+	 * Measure the heap retained by the result of the given operation, which is run once.
+	 *
+	 * @return the retained heap in bytes
+	 */
+	public long retained(String name, Operation operation) throws Exception {
+		long before = usedMemory();
+		Object result = operation.run();
+		long retained = usedMemory() - before;
+		// keep the result reachable until it has been measured
+		consume(result);
+		out.println(String.format("%-50s %12d KB", name, retained / 1024)); //$NON-NLS-1$
+		return retained;
+	}
+
+	/**
+	 * Report the heap saved by a measurement compared to a baseline.
+	 */
+	public void savings(String name, long baselineBytes, long bytes) {
+		out.println(String.format("%-50s %12d KB (%.0f%%)", name, (baselineBytes - bytes) / 1024, //$NON-NLS-1$
+				100d * (baselineBytes - bytes) / baselineBytes));
+	}
+
+	private static long usedMemory() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		long used = runtime.totalMemory() - runtime.freeMemory();
+		for (int x = 0; x < 20; ++x) {
+			System.gc();
+			Thread.sleep(20);
+			long nowUsed = runtime.totalMemory() - runtime.freeMemory();
+			if (x > 2 && nowUsed >= used) {
+				return nowUsed;
+			}
+			used = nowUsed;
+		}
+		return used;
+	}
+
+	private void consume(Object result) {
+		sink += System.identityHashCode(result);
+	}
+
+	/**
+	 * prevents the results of measured operations from being eliminated as dead code
+	 */
+	protected int getSink() {
+		return sink;
+	}
+
+	/**
+	 * Read a resource that is located relative to the given class.
+	 */
+	public static byte[] readResource(Class<?> context, String resource) throws IOException {
+		InputStream in = context.getResourceAsStream(resource);
+		if (in == null) {
+			throw new IllegalStateException(resource);
+		}
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int length;
+			while ((length = in.read(buffer)) != -1) {
+				out.write(buffer, 0, length);
+			}
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Run the benchmark.
+	 */
+	public abstract void run() throws Exception;
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.benchmark;
+
+import java.io.ByteArrayInputStream;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.eclipse.epp.internal.mpc.core.service.xml.Unmarshaller;
+import org.eclipse.epp.mpc.tests.service.xml.UnmarshallerTest;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Measures the rate at which the content handlers consume SAX events, and the memory they allocate, for search and
+ * featured listings scaled up to hundreds of nodes. Parsing with a handler that ignores all events gives the cost of
+ * the parser itself.
+ */
+public class ContentHandlerBenchmark extends Benchmark {
+
+	private static final int SCALE = Integer.getInteger(ContentHandlerBenchmark.class.getName() + ".scale", 50); //$NON-NLS-1$
+
+	private static class CountingHandler extends DefaultHandler {
+
+		private long events;
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes attributes) {
+			++events;
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) {
+			++events;
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) {
+			++events;
+		}
+	}
+
+	/**
+	 * Repeat the nodes of a listing, so that the listing has the given multiple of its nodes.
+	 */
+	static byte[] scale(byte[] document, int scale) throws Exception {
+		String text = new String(document, "UTF-8"); //$NON-NLS-1$
+		int start = text.indexOf("<node "); //$NON-NLS-1$
+		int end = text.lastIndexOf("</node>") + "</node>".length(); //$NON-NLS-1$ //$NON-NLS-2$
+		StringBuilder scaled = new StringBuilder(text.substring(0, start));
+		for (int x = 0; x < scale; ++x) {
+			scaled.append(text, start, end);
+		}
+		scaled.append(text.substring(end));
+		return scaled.toString().getBytes("UTF-8"); //$NON-NLS-1$
+	}
+
+	@Override
+	public void run() throws Exception {
+		final byte[][] documents = {
+				scale(readResource(UnmarshallerTest.class, "resources/search.xml"), SCALE), //$NON-NLS-1$
+				scale(readResource(UnmarshallerTest.class, "resources/featured.xml"), SCALE) }; //$NON-NLS-1$
+
+		SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+		parserFactory.setNamespaceAware(true);
+		final XMLReader xmlReader = parserFactory.newSAXParser().getXMLReader();
+		CountingHandler counter = new CountingHandler();
+		xmlReader.setContentHandler(counter);
+		for (byte[] document : documents) {
+			xmlReader.parse(new InputSource(new ByteArrayInputStream(document)));
+		}
+		double eventsPerDocument = counter.events / (double) documents.length;
+
+		final DefaultHandler ignore = new DefaultHandler();
+		Operation parse = new Operation() {
+			private int index;
+
+			public Object run() throws Exception {
+				xmlReader.setContentHandler(ignore);
+				xmlReader.parse(new InputSource(new ByteArrayInputStream(documents[index++ % documents.length])));
+				return xmlReader;
+			}
+		};
+		final Unmarshaller unmarshaller = new Unmarshaller();
+		Operation unmarshal = new Operation() {
+			private int index;
+
+			public Object run() throws Exception {
+				return unmarshaller.unmarshal(new InputSource(new ByteArrayInputStream(documents[index++
+						% documents.length])));
+			}
+		};
+
+		double parseNanos = measure("parse only", parse); //$NON-NLS-1$
+		double unmarshalNanos = measure("unmarshal", unmarshal); //$NON-NLS-1$
+		rate("unmarshal events", unmarshalNanos, eventsPerDocument); //$NON-NLS-1$
+		rate("content handler events", unmarshalNanos - parseNanos, eventsPerDocument); //$NON-NLS-1$
+		allocated("parse only", parse); //$NON-NLS-1$
+		allocated("unmarshal", unmarshal); //$NON-NLS-1$
+	}
+
+	public static void main(String[] args) throws Exception {
+		new ContentHandlerBenchmark().run();
+	}
+}
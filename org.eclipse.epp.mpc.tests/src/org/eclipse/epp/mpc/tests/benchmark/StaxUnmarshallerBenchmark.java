@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.Set;
+
+import org.eclipse.epp.internal.mpc.core.service.xml.StaxUnmarshaller;
+import org.eclipse.epp.internal.mpc.core.service.xml.Unmarshaller;
+import org.eclipse.epp.mpc.tests.service.xml.UnmarshallerTest;
+import org.xml.sax.InputSource;
+
+/**
+ * Compares the throughput of the SAX {@link Unmarshaller} and the {@link StaxUnmarshaller} for search and featured
+ * listings scaled up to hundreds of nodes, reading complete nodes and reading nodes without their bodies.
+ */
+public class StaxUnmarshallerBenchmark extends Benchmark {
+
+	private static final int SCALE = Integer.getInteger(StaxUnmarshallerBenchmark.class.getName() + ".scale", 50); //$NON-NLS-1$
+
+	private static final Set<String> SKIP_BODY = Collections.singleton("body"); //$NON-NLS-1$
+
+	private byte[][] documents;
+
+	private double bytesPerDocument;
+
+	@Override
+	public void run() throws Exception {
+		documents = new byte[][] {
+				ContentHandlerBenchmark.scale(readResource(UnmarshallerTest.class, "resources/search.xml"), SCALE), //$NON-NLS-1$
+				ContentHandlerBenchmark.scale(readResource(UnmarshallerTest.class, "resources/featured.xml"), SCALE) }; //$NON-NLS-1$
+		bytesPerDocument = (documents[0].length + documents[1].length) / 2d;
+
+		double sax = measure("SAX", false, null); //$NON-NLS-1$
+		double stax = measure("StAX", true, null); //$NON-NLS-1$
+		compare("StAX speedup", sax, stax); //$NON-NLS-1$
+
+		double saxSkipping = measure("SAX, bodies skipped", false, SKIP_BODY); //$NON-NLS-1$
+		double staxSkipping = measure("StAX, bodies skipped", true, SKIP_BODY); //$NON-NLS-1$
+		compare("StAX speedup, bodies skipped", saxSkipping, staxSkipping); //$NON-NLS-1$
+		compare("StAX speedup from skipping bodies", stax, staxSkipping); //$NON-NLS-1$
+	}
+
+	private double measure(String name, final boolean stax, final Set<String> skippedElements) throws Exception {
+		Operation unmarshal = new Operation() {
+			private int index;
+
+			public Object run() throws Exception {
+				InputSource input = new InputSource(new ByteArrayInputStream(documents[index++ % documents.length]));
+				return stax ? StaxUnmarshaller.parse(input, null, skippedElements) : Unmarshaller.parse(input, null,
+						skippedElements);
+			}
+		};
+		double nanos = measure(name, unmarshal);
+		throughput(name, nanos, bytesPerDocument);
+		allocated(name, unmarshal);
+		return nanos;
+	}
+
+	public static void main(String[] args) throws Exception {
+		new StaxUnmarshallerBenchmark().run();
+	}
+}
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.epp.internal.mpc.core.service.xml.Unmarshaller;
+import org.eclipse.epp.internal.mpc.core.util.StringPool;
+import org.xml.sax.InputSource;
+
+/**
+ * Measures the heap retained by the models of the test corpus, unmarshalled repeatedly so that thousands of nodes
+ * are held as in a long session, with and without deduplicating recurring values in a {@link StringPool}.
+ */
+public class StringPoolBenchmark extends Benchmark {
+
+	private static final int REPETITIONS = Integer.getInteger(StringPoolBenchmark.class.getName()
+			+ ".repetitions", 100); //$NON-NLS-1$
+
+	@Override
+	public void run() throws Exception {
+		final byte[][] documents = UnmarshallerBenchmark.readCorpus();
+
+		long unpooled = retained("models, values not pooled", new Operation() { //$NON-NLS-1$
+			public Object run() throws Exception {
+				return unmarshal(documents, null);
+			}
+		});
+		long pooled = retained("models, recurring values pooled", new Operation() { //$NON-NLS-1$
+			public Object run() throws Exception {
+				return unmarshal(documents, new StringPool(Unmarshaller.DEFAULT_STRING_POOL_SIZE));
+			}
+		});
+		savings("savings", unpooled, pooled); //$NON-NLS-1$
+	}
+
+	private static List<Object> unmarshal(byte[][] documents, StringPool stringPool) throws Exception {
+		Unmarshaller unmarshaller = new Unmarshaller();
+		unmarshaller.setStringPool(stringPool);
+		List<Object> models = new ArrayList<Object>();
+		for (int x = 0; x < REPETITIONS; ++x) {
+			for (byte[] document : documents) {
+				models.add(unmarshaller.unmarshal(new InputSource(new ByteArrayInputStream(document))));
+			}
+		}
+		return models;
+	}
+
+	public static void main(String[] args) throws Exception {
+		new StringPoolBenchmark().run();
+	}
+}
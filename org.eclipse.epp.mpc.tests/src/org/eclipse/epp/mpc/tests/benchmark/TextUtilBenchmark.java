@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.epp.internal.mpc.core.service.Marketplace;
+import org.eclipse.epp.internal.mpc.core.service.Node;
+import org.eclipse.epp.internal.mpc.core.service.NodeListing;
+import org.eclipse.epp.internal.mpc.core.service.xml.Unmarshaller;
+import org.eclipse.epp.internal.mpc.core.util.TextUtil;
+import org.xml.sax.InputSource;
+
+/**
+ * Measures {@link TextUtil#stripHtmlMarkup(CharSequence)} and {@link TextUtil#cleanInformalHtmlMarkup(String)} on the
+ * node bodies of the test corpus and on malformed markup, compared to the previous regular expression based
+ * implementation.
+ */
+public class TextUtilBenchmark extends Benchmark {
+
+	private static final Pattern STRIP_TAG_PATTERN = Pattern.compile(
+			"</?[a-zA-Z]+[0-6]?(\\s+[a-zA-Z]+\\s*=\\s*((('|\")[^>]*?\\4)|(\\S+)))*\\s*/?>", Pattern.MULTILINE); //$NON-NLS-1$
+
+	private static String regexStripHtmlMarkup(String text) {
+		String result = ""; //$NON-NLS-1$
+		int lastOffset = 0;
+		Matcher matcher = STRIP_TAG_PATTERN.matcher(text);
+		while (matcher.find()) {
+			int start = matcher.start();
+			if (start > lastOffset) {
+				result += text.substring(lastOffset, start);
+			}
+			lastOffset = matcher.end();
+		}
+		if (lastOffset < text.length()) {
+			result += text.substring(lastOffset);
+		}
+		return result;
+	}
+
+	private static String regexCleanInformalHtmlMarkup(String text) {
+		return Pattern.compile("(?<!>)\\s*?((\\r\\n)|\\n|\\r){2,}\\s*(?!<)").matcher(text).replaceAll("<p>"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	static String[] readBodies() throws Exception {
+		List<String> bodies = new ArrayList<String>();
+		for (byte[] document : UnmarshallerBenchmark.readCorpus()) {
+			Object model = Unmarshaller.parse(new InputSource(new ByteArrayInputStream(document)));
+			if (!(model instanceof Marketplace)) {
+				continue;
+			}
+			Marketplace marketplace = (Marketplace) model;
+			List<Node> nodes = new ArrayList<Node>(marketplace.getNode());
+			NodeListing[] listings = { marketplace.getFeatured(), marketplace.getSearch(), marketplace.getFavorites(),
+					marketplace.getPopular(), marketplace.getRecent() };
+			for (NodeListing listing : listings) {
+				if (listing != null) {
+					nodes.addAll(listing.getNode());
+				}
+			}
+			for (Node node : nodes) {
+				if (node.getBody() != null) {
+					bodies.add(node.getBody());
+				}
+			}
+		}
+		return bodies.toArray(new String[bodies.size()]);
+	}
+
+	@Override
+	public void run() throws Exception {
+		final String[] bodies = readBodies();
+		long totalChars = 0;
+		for (String body : bodies) {
+			totalChars += body.length();
+		}
+		double charsPerBody = totalChars / (double) bodies.length;
+
+		double regexStrip = measure("strip, regular expression", new Operation() { //$NON-NLS-1$
+			private int index;
+
+			public Object run() throws Exception {
+				return regexStripHtmlMarkup(bodies[index++ % bodies.length]);
+			}
+		});
+		double strip = measure("strip, scanner", new Operation() { //$NON-NLS-1$
+			private int index;
+
+			public Object run() throws Exception {
+				return TextUtil.stripHtmlMarkup(bodies[index++ % bodies.length]);
+			}
+		});
+		throughput("strip, regular expression", regexStrip, charsPerBody); //$NON-NLS-1$
+		throughput("strip, scanner", strip, charsPerBody); //$NON-NLS-1$
+		compare("strip speedup", regexStrip, strip); //$NON-NLS-1$
+
+		double regexClean = measure("paragraphs, compiled per call", new Operation() { //$NON-NLS-1$
+			private int index;
+
+			public Object run() throws Exception {
+				return regexCleanInformalHtmlMarkup(bodies[index++ % bodies.length]);
+			}
+		});
+		double clean = measure("paragraphs, precompiled", new Operation() { //$NON-NLS-1$
+			private int index;
+
+			public Object run() throws Exception {
+				return TextUtil.cleanInformalHtmlMarkup(bodies[index++ % bodies.length]);
+			}
+		});
+		compare("paragraphs speedup", regexClean, clean); //$NON-NLS-1$
+
+		StringBuilder malformed = new StringBuilder();
+		for (int x = 0; x < 500; ++x) {
+			malformed.append("<a b=c d=e "); //$NON-NLS-1$
+		}
+		final String pathological = malformed.toString();
+		double regexPathological = measure("unterminated tags, regular expression", new Operation() { //$NON-NLS-1$
+			public Object run() throws Exception {
+				return regexStripHtmlMarkup(pathological);
+			}
+		});
+		double scannerPathological = measure("unterminated tags, scanner", new Operation() { //$NON-NLS-1$
+			public Object run() throws Exception {
+				return TextUtil.stripHtmlMarkup(pathological);
+			}
+		});
+		compare("unterminated tags speedup", regexPathological, scannerPathological); //$NON-NLS-1$
+
+		StringBuilder nested = new StringBuilder();
+		for (int x = 0; x < 500; ++x) {
+			nested.append("<a x="); //$NON-NLS-1$
+		}
+		final String nestedPathological = nested.toString();
+		double regexNested = measure("nested unquoted values, regular expression", new Operation() { //$NON-NLS-1$
+			public Object run() throws Exception {
+				return regexStripHtmlMarkup(nestedPathological);
+			}
+		});
+		double scannerNested = measure("nested unquoted values, scanner", new Operation() { //$NON-NLS-1$
+			public Object run() throws Exception {
+				return TextUtil.stripHtmlMarkup(nestedPathological);
+			}
+		});
+		compare("nested unquoted values speedup", regexNested, scannerNested); //$NON-NLS-1$
+	}
+
+	public static void main(String[] args) throws Exception {
+		new TextUtilBenchmark().run();
+	}
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.net.URI;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.epp.internal.mpc.core.util.ITransport;
+import org.eclipse.epp.internal.mpc.core.util.P2TransportAdapter;
+
+/**
+ * Measures the overhead of calling a p2 transport through a {@link P2TransportAdapter}, which binds the
+ * <code>stream</code> method once, compared to looking the method up on every call, and to a direct call. The
+ * transport is a stand-in that returns an empty stream, so that only the cost of the call itself is measured.
+ */
+public class TransportBindingBenchmark extends Benchmark {
+
+	/**
+	 * A stand-in for a p2 transport.
+	 */
+	public static class StubTransport {
+
+		private final InputStream stream = new ByteArrayInputStream(new byte[0]);
+
+		public InputStream stream(URI location, IProgressMonitor monitor) {
+			return stream;
+		}
+	}
+
+	@Override
+	public void run() throws Exception {
+		final StubTransport stub = new StubTransport();
+		final URI location = new URI("http://marketplace.eclipse.org/featured/api/p"); //$NON-NLS-1$
+		final IProgressMonitor monitor = new NullProgressMonitor();
+
+		double lookup = measure("method lookup per call", new Operation() { //$NON-NLS-1$
+			public Object run() throws Exception {
+				Method streamMethod = stub.getClass().getMethod("stream", URI.class, IProgressMonitor.class); //$NON-NLS-1$
+				return streamMethod.invoke(stub, location, monitor);
+			}
+		});
+		final ITransport adapter = P2TransportAdapter.create(stub);
+		double bound = measure("bound adapter", new Operation() { //$NON-NLS-1$
+			public Object run() throws Exception {
+				return adapter.stream(location, monitor);
+			}
+		});
+		double direct = measure("direct call", new Operation() { //$NON-NLS-1$
+			public Object run() throws Exception {
+				return stub.stream(location, monitor);
+			}
+		});
+		compare("bound adapter vs. lookup per call", lookup, bound); //$NON-NLS-1$
+		compare("direct call vs. bound adapter", bound, direct); //$NON-NLS-1$
+	}
+
+	public static void main(String[] args) throws Exception {
+		new TransportBindingBenchmark().run();
+	}
+}
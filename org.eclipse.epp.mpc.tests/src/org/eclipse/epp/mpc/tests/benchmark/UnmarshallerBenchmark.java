@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.benchmark;
+
+import java.io.ByteArrayInputStream;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.eclipse.epp.internal.mpc.core.service.xml.Unmarshaller;
+import org.eclipse.epp.mpc.tests.service.xml.UnmarshallerTest;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+/**
+ * Measures the per-request overhead of unmarshalling the documents of the test corpus with a new parser and
+ * unmarshaller for every document, compared to unmarshalling with the pooled instances of {@link Unmarshaller}.
+ */
+public class UnmarshallerBenchmark extends Benchmark {
+
+	static final String[] CORPUS = { "resources/active.xml", "resources/catalogs.xml", //$NON-NLS-1$ //$NON-NLS-2$
+			"resources/category-taxonomy.xml", "resources/favorites.xml", "resources/featured.xml", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			"resources/marketplace-root.xml", "resources/node.xml", "resources/recent.xml", "resources/search.xml" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+
+	static byte[][] readCorpus() throws Exception {
+		byte[][] documents = new byte[CORPUS.length][];
+		for (int x = 0; x < CORPUS.length; ++x) {
+			documents[x] = readResource(UnmarshallerTest.class, CORPUS[x]);
+		}
+		return documents;
+	}
+
+	@Override
+	public void run() throws Exception {
+		final byte[][] documents = readCorpus();
+
+		double unpooled = measure("new parser per request", new Operation() { //$NON-NLS-1$
+			private int index;
+
+			public Object run() throws Exception {
+				SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+				parserFactory.setNamespaceAware(true);
+				XMLReader xmlReader = parserFactory.newSAXParser().getXMLReader();
+				Unmarshaller unmarshaller = new Unmarshaller();
+				xmlReader.setContentHandler(unmarshaller);
+				xmlReader.parse(new InputSource(new ByteArrayInputStream(documents[index++ % documents.length])));
+				return unmarshaller.getModel();
+			}
+		});
+		double pooled = measure("pooled parser", new Operation() { //$NON-NLS-1$
+			private int index;
+
+			public Object run() throws Exception {
+				return Unmarshaller.parse(new InputSource(new ByteArrayInputStream(documents[index++
+						% documents.length])));
+			}
+		});
+		compare("speedup", unpooled, pooled); //$NON-NLS-1$
+	}
+
+	public static void main(String[] args) throws Exception {
+		new UnmarshallerBenchmark().run();
+	}
+}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+
+import org.eclipse.epp.internal.mpc.core.service.xml.Unmarshaller;
+import org.xml.sax.InputSource;
+
+/**
+ * Measures the throughput of unmarshalling the test corpus from a buffered UTF-8 reader, compared to handing the
+ * bytes to the parser and letting it detect the encoding.
+ */
+public class XmlInputBenchmark extends Benchmark {
+
+	@Override
+	public void run() throws Exception {
+		final byte[][] documents = UnmarshallerBenchmark.readCorpus();
+		long totalBytes = 0;
+		for (byte[] document : documents) {
+			totalBytes += document.length;
+		}
+		double bytesPerDocument = totalBytes / (double) documents.length;
+
+		double reader = measure("buffered UTF-8 reader", new Operation() { //$NON-NLS-1$
+			private int index;
+
+			public Object run() throws Exception {
+				byte[] document = documents[index++ % documents.length];
+				return Unmarshaller.parse(new InputSource(new InputStreamReader(new BufferedInputStream(
+						new ByteArrayInputStream(document)), "UTF-8"))); //$NON-NLS-1$
+			}
+		});
+		double bytes = measure("byte stream", new Operation() { //$NON-NLS-1$
+			private int index;
+
+			public Object run() throws Exception {
+				byte[] document = documents[index++ % documents.length];
+				return Unmarshaller.parse(new InputSource(new ByteArrayInputStream(document)));
+			}
+		});
+		throughput("buffered UTF-8 reader", reader, bytesPerDocument); //$NON-NLS-1$
+		throughput("byte stream", bytes, bytesPerDocument); //$NON-NLS-1$
+		compare("speedup", reader, bytes); //$NON-NLS-1$
+	}
+
+	public static void main(String[] args) throws Exception {
+		new XmlInputBenchmark().run();
+	}
+}
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.epp.internal.mpc.core.service.AsyncServiceExecutor;
+import org.eclipse.epp.internal.mpc.core.service.ServiceFuture;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class AsyncServiceExecutorTest {
+
+	@Test
+	public void testSubmit() throws CoreException {
+		ServiceFuture<String> future = AsyncServiceExecutor.submit(new AsyncServiceExecutor.Operation<String>() {
+			public String run(IProgressMonitor monitor) {
+				return "result"; //$NON-NLS-1$
+			}
+		});
+		assertEquals("result", future.getResult(new NullProgressMonitor())); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testFailure() {
+		final CoreException failure = new CoreException(Status.OK_STATUS);
+		ServiceFuture<String> future = AsyncServiceExecutor.submit(new AsyncServiceExecutor.Operation<String>() {
+			public String run(IProgressMonitor monitor) throws CoreException {
+				throw failure;
+			}
+		});
+		try {
+			future.getResult(new NullProgressMonitor());
+			fail("expected failure"); //$NON-NLS-1$
+		} catch (CoreException e) {
+			assertSame(failure, e);
+		}
+	}
+
+	@Test
+	public void testCancelCancelsMonitor() throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch canceled = new CountDownLatch(1);
+		ServiceFuture<String> future = AsyncServiceExecutor.submit(new AsyncServiceExecutor.Operation<String>() {
+			public String run(IProgressMonitor monitor) {
+				started.countDown();
+				while (!monitor.isCanceled()) {
+					Thread.yield();
+				}
+				canceled.countDown();
+				return null;
+			}
+		});
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		future.cancel(false);
+		assertTrue(canceled.await(10, TimeUnit.SECONDS));
+		try {
+			future.getResult(new NullProgressMonitor());
+			fail("expected cancellation"); //$NON-NLS-1$
+		} catch (CoreException e) {
+			assertEquals(IStatus.CANCEL, e.getStatus().getSeverity());
+		}
+	}
+
+	@Test
+	public void testCanceledCallerCancelsFuture() throws InterruptedException {
+		final CountDownLatch release = new CountDownLatch(1);
+		ServiceFuture<String> future = AsyncServiceExecutor.submit(new AsyncServiceExecutor.Operation<String>() {
+			public String run(IProgressMonitor monitor) {
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					// ignore
+				}
+				return null;
+			}
+		});
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		monitor.setCanceled(true);
+		try {
+			future.getResult(monitor);
+			fail("expected cancellation"); //$NON-NLS-1$
+		} catch (CoreException e) {
+			assertEquals(IStatus.CANCEL, e.getStatus().getSeverity());
+		} finally {
+			release.countDown();
+		}
+		assertTrue(future.isCancelled());
+	}
+
+	@Test
+	public void testThen() throws CoreException {
+		ServiceFuture<Integer> future = AsyncServiceExecutor.completed("abc").then( //$NON-NLS-1$
+				new ServiceFuture.Continuation<String, Integer>() {
+					public Integer apply(String value, IProgressMonitor monitor) {
+						return value.length();
+					}
+				});
+		assertEquals(Integer.valueOf(3), future.getResult(new NullProgressMonitor()));
+	}
+
+	@Test
+	public void testListenerOnCompletedFuture() {
+		final String[] notified = new String[1];
+		ServiceFuture<String> future = AsyncServiceExecutor.completed("result"); //$NON-NLS-1$
+		assertTrue(future.isDone());
+		future.addListener(new ServiceFuture.Listener<String>() {
+			public void done(ServiceFuture<String> future) {
+				try {
+					notified[0] = future.getResult(null);
+				} catch (CoreException e) {
+					fail(e.getMessage());
+				}
+			}
+		});
+		assertEquals("result", notified[0]); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.epp.internal.mpc.core.service.CachingMarketplaceService;
+import org.eclipse.epp.internal.mpc.core.service.CachingMarketplaceServiceRegistry;
+import org.eclipse.epp.internal.mpc.core.service.CachingMarketplaceServiceRegistry.ServiceFactory;
+import org.eclipse.epp.internal.mpc.core.service.DefaultMarketplaceService;
+import org.eclipse.epp.internal.mpc.core.service.MarketplaceService;
+import org.eclipse.epp.internal.mpc.core.service.MarketplaceStore;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class CachingMarketplaceServiceRegistryTest {
+
+	private final CachingMarketplaceServiceRegistry registry = CachingMarketplaceServiceRegistry.getInstance();
+
+	private volatile int createdCount;
+
+	private final ServiceFactory factory = new ServiceFactory() {
+		public MarketplaceService createMarketplaceService(URL baseUrl) {
+			++createdCount;
+			return new DefaultMarketplaceService(baseUrl);
+		}
+	};
+
+	@After
+	public void tearDown() {
+		registry.clear();
+	}
+
+	@Test
+	public void testServiceIsSharedPerMarketplace() throws Exception {
+		CachingMarketplaceService service = registry.getService(new URL("http://marketplace.eclipse.org"), factory); //$NON-NLS-1$
+		assertSame(service, registry.getService(new URL("http://marketplace.eclipse.org"), factory)); //$NON-NLS-1$
+		assertTrue(service != registry.getService(new URL("http://marketplace.example.org"), factory)); //$NON-NLS-1$
+		assertEquals(2, createdCount);
+	}
+
+	@Test
+	public void testServiceIsPublishedWithItsStore() throws Exception {
+		final URL url = new URL("http://marketplace.eclipse.org"); //$NON-NLS-1$
+		final CountDownLatch start = new CountDownLatch(1);
+		final CachingMarketplaceService[] services = new CachingMarketplaceService[8];
+		final MarketplaceStore[] stores = new MarketplaceStore[services.length];
+		Thread[] threads = new Thread[services.length];
+		for (int x = 0; x < threads.length; ++x) {
+			final int index = x;
+			threads[x] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await(10, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						return;
+					}
+					services[index] = registry.getService(url, factory);
+					stores[index] = services[index].getStore();
+				}
+			};
+			threads[x].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join(10000);
+		}
+		// every caller sees the shared service with the store it keeps for its whole life
+		for (int x = 0; x < services.length; ++x) {
+			assertSame(services[0], services[x]);
+			assertSame(services[0].getStore(), stores[x]);
+		}
+	}
+
+	@Test
+	public void testClear() throws Exception {
+		CachingMarketplaceService service = registry.getService(new URL("http://marketplace.eclipse.org"), factory); //$NON-NLS-1$
+		registry.clear();
+		assertTrue(service != registry.getService(new URL("http://marketplace.eclipse.org"), factory)); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,332 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.epp.internal.mpc.core.service.CachingMarketplaceService;
+import org.eclipse.epp.internal.mpc.core.service.Category;
+import org.eclipse.epp.internal.mpc.core.service.DefaultMarketplaceService;
+import org.eclipse.epp.internal.mpc.core.service.Ius;
+import org.eclipse.epp.internal.mpc.core.service.Market;
+import org.eclipse.epp.internal.mpc.core.service.MarketplaceService;
+import org.eclipse.epp.internal.mpc.core.service.MarketplaceStore;
+import org.eclipse.epp.internal.mpc.core.service.Node;
+import org.eclipse.epp.internal.mpc.core.service.NodeBatchResult;
+import org.eclipse.epp.internal.mpc.core.service.NodeListener;
+import org.eclipse.epp.internal.mpc.core.service.NotFoundException;
+import org.eclipse.epp.internal.mpc.core.service.SearchResult;
+import org.eclipse.epp.internal.mpc.core.service.ServiceUnavailableException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class CachingMarketplaceServiceTest {
+
+	private final List<String> requested = Collections.synchronizedList(new ArrayList<String>());
+
+	private final AtomicInteger concurrentRequests = new AtomicInteger();
+
+	private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+
+	private final AtomicInteger featuredRequests = new AtomicInteger();
+
+	private final AtomicInteger marketRequests = new AtomicInteger();
+
+	private volatile long currentTime = 1000000L;
+
+	private MarketplaceService delegate;
+
+	private CachingMarketplaceService service;
+
+	private File storeFile;
+
+	@Before
+	public void setUp() {
+		delegate = new DefaultMarketplaceService() {
+			@Override
+			public Node getNode(Node node, IProgressMonitor monitor) throws CoreException {
+				requested.add(node.getId());
+				int concurrent = concurrentRequests.incrementAndGet();
+				try {
+					synchronized (maxConcurrentRequests) {
+						maxConcurrentRequests.set(Math.max(concurrent, maxConcurrentRequests.get()));
+					}
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				} finally {
+					concurrentRequests.decrementAndGet();
+				}
+				if (node.getId().startsWith("missing")) { //$NON-NLS-1$
+					throw new CoreException(new Status(IStatus.ERROR, "test", "not found: " + node.getId())); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				if (node.getId().startsWith("gone")) { //$NON-NLS-1$
+					throw new CoreException(new Status(IStatus.ERROR, "test", 0, "not found", new NotFoundException( //$NON-NLS-1$ //$NON-NLS-2$
+							node.getId())));
+				}
+				if (node.getId().startsWith("down")) { //$NON-NLS-1$
+					throw new ServiceUnavailableException(new Status(IStatus.ERROR, "test", 503, "unavailable", null)); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				Node result = new Node();
+				result.setId(node.getId());
+				result.setName("Node " + node.getId()); //$NON-NLS-1$
+				return result;
+			}
+
+			@Override
+			public SearchResult featured(IProgressMonitor monitor, Market market, Category category,
+					NodeListener nodeListener) throws CoreException {
+				featuredRequests.incrementAndGet();
+				SearchResult result = new SearchResult();
+				result.setNodes(nodes("1", "2")); //$NON-NLS-1$ //$NON-NLS-2$
+				result.setMatchCount(2);
+				// only the first node has the details needed to install it
+				Node complete = result.getNodes().get(0);
+				complete.setUpdateurl("http://example.org/update"); //$NON-NLS-1$
+				complete.setIus(new Ius());
+				complete.getIus().getIu().add("org.example.feature.group"); //$NON-NLS-1$
+				return result;
+			}
+
+			@Override
+			public List<Market> listMarkets(IProgressMonitor monitor) throws CoreException {
+				marketRequests.incrementAndGet();
+				Market market = new Market();
+				market.setId("31"); //$NON-NLS-1$
+				return Collections.singletonList(market);
+			}
+		};
+		service = createService();
+	}
+
+	@After
+	public void tearDown() {
+		if (storeFile != null) {
+			storeFile.delete();
+		}
+	}
+
+	private CachingMarketplaceService createService() {
+		return new CachingMarketplaceService(delegate) {
+			@Override
+			protected long currentTimeMillis() {
+				return currentTime;
+			}
+		};
+	}
+
+	@Test
+	public void testCompleteListedNodeIsServed() throws CoreException {
+		SearchResult result = service.featured(new NullProgressMonitor());
+		assertSame(result.getNodes().get(0), service.getNode(nodes("1").get(0), new NullProgressMonitor())); //$NON-NLS-1$
+		assertTrue(requested.isEmpty());
+
+		service.getNode(nodes("2").get(0), new NullProgressMonitor()); //$NON-NLS-1$
+		assertEquals(Collections.singletonList("2"), requested); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testListedNodeExpires() throws CoreException {
+		SearchResult result = service.featured(new NullProgressMonitor());
+		currentTime += CachingMarketplaceService.DEFAULT_LISTED_NODE_TIME_TO_LIVE * 1000L + 1;
+		Node node = service.getNode(nodes("1").get(0), new NullProgressMonitor()); //$NON-NLS-1$
+		assertTrue(node != result.getNodes().get(0));
+		assertEquals(Collections.singletonList("1"), requested); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testMissingNodeIsRemembered() {
+		for (int x = 0; x < 3; ++x) {
+			try {
+				service.getNode(nodes("gone1").get(0), new NullProgressMonitor()); //$NON-NLS-1$
+				fail();
+			} catch (CoreException e) {
+				// expected
+			}
+		}
+		assertEquals(Collections.singletonList("gone1"), requested); //$NON-NLS-1$
+
+		currentTime += CachingMarketplaceService.DEFAULT_MISSING_NODE_TIME_TO_LIVE * 1000L + 1;
+		try {
+			service.getNode(nodes("gone1").get(0), new NullProgressMonitor()); //$NON-NLS-1$
+			fail();
+		} catch (CoreException e) {
+			// expected
+		}
+		assertEquals(2, requested.size());
+	}
+
+	@Test
+	public void testBackoffAfterServiceUnavailable() throws CoreException {
+		try {
+			service.getNode(nodes("down1").get(0), new NullProgressMonitor()); //$NON-NLS-1$
+			fail();
+		} catch (ServiceUnavailableException e) {
+			// expected
+		}
+		try {
+			service.getNode(nodes("1").get(0), new NullProgressMonitor()); //$NON-NLS-1$
+			fail();
+		} catch (ServiceUnavailableException e) {
+			// expected
+		}
+		assertEquals(Collections.singletonList("down1"), requested); //$NON-NLS-1$
+
+		currentTime += CachingMarketplaceService.BACKOFF;
+		assertEquals("1", service.getNode(nodes("1").get(0), new NullProgressMonitor()).getId()); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testTaxonomyIsCached() throws CoreException {
+		List<Market> markets = service.listMarkets(new NullProgressMonitor());
+		currentTime += CachingMarketplaceService.TAXONOMY_TIME_TO_LIVE;
+		assertEquals(markets, service.listMarkets(new NullProgressMonitor()));
+		assertEquals("31", service.getTaxonomy(new NullProgressMonitor()).getMarket("31").getId()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(1, marketRequests.get());
+
+		currentTime += 1;
+		service.listMarkets(new NullProgressMonitor());
+		assertEquals(2, marketRequests.get());
+	}
+
+	@Test
+	public void testInvalidateTaxonomy() throws CoreException {
+		service.listMarkets(new NullProgressMonitor());
+		service.invalidateTaxonomy();
+		service.listMarkets(new NullProgressMonitor());
+		assertEquals(2, marketRequests.get());
+	}
+
+	@Test
+	public void testFreshListingIsServedFromCache() throws CoreException {
+		SearchResult result = service.featured(new NullProgressMonitor());
+		currentTime += CachingMarketplaceService.DEFAULT_FEATURED_TIME_TO_LIVE * 1000L;
+		assertSame(result, service.featured(new NullProgressMonitor()));
+		assertEquals(1, featuredRequests.get());
+	}
+
+	@Test
+	public void testExpiredListingIsRefreshedInBackground() throws Exception {
+		SearchResult result = service.featured(new NullProgressMonitor());
+		currentTime += CachingMarketplaceService.DEFAULT_FEATURED_TIME_TO_LIVE * 1000L + 1;
+		assertSame(result, service.featured(new NullProgressMonitor()));
+
+		SearchResult refreshed = result;
+		for (int x = 0; x < 100 && refreshed == result; ++x) {
+			Thread.sleep(20);
+			refreshed = service.featured(new NullProgressMonitor());
+		}
+		assertTrue(refreshed != result);
+		assertEquals(2, featuredRequests.get());
+	}
+
+	@Test
+	public void testTooStaleListingIsRetrieved() throws CoreException {
+		SearchResult result = service.featured(new NullProgressMonitor());
+		currentTime += CachingMarketplaceService.DEFAULT_FEATURED_TIME_TO_LIVE * 1000L
+				+ CachingMarketplaceService.MAX_STALE + 1;
+		SearchResult retrieved = service.featured(new NullProgressMonitor());
+		assertTrue(retrieved != result);
+		assertEquals(2, featuredRequests.get());
+		assertSame(retrieved, service.featured(new NullProgressMonitor()));
+	}
+
+	@Test
+	public void testStoredResultsAreServedInNextSession() throws Exception {
+		storeFile = File.createTempFile("marketplace", ".store"); //$NON-NLS-1$ //$NON-NLS-2$
+		storeFile.delete();
+		currentTime = System.currentTimeMillis();
+		service.setStore(new MarketplaceStore(storeFile, MarketplaceStore.DEFAULT_MAX_SIZE));
+		service.featured(new NullProgressMonitor());
+		service.getNode(nodes("2").get(0), new NullProgressMonitor()); //$NON-NLS-1$
+		service.listMarkets(new NullProgressMonitor());
+		service.getStore().close();
+
+		service = createService();
+		service.setStore(new MarketplaceStore(storeFile, MarketplaceStore.DEFAULT_MAX_SIZE));
+		requested.clear();
+		SearchResult result = service.featured(new NullProgressMonitor());
+		assertEquals(2, result.getNodes().size());
+		assertEquals("Node 2", service.getNode(nodes("2").get(0), new NullProgressMonitor()).getName()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("31", service.listMarkets(new NullProgressMonitor()).get(0).getId()); //$NON-NLS-1$
+		assertEquals(1, featuredRequests.get());
+		assertEquals(1, marketRequests.get());
+		assertTrue(requested.isEmpty());
+		service.getStore().close();
+	}
+
+	@Test
+	public void testGetNodesInOrder() throws CoreException {
+		NodeBatchResult result = service.getNodes(nodes("1", "2", "3", "4", "5", "6", "7", "8"), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$
+				new NullProgressMonitor());
+		assertTrue(result.getStatus().isOK());
+		assertEquals(8, result.getNodes().size());
+		for (int x = 0; x < 8; ++x) {
+			assertEquals(String.valueOf(x + 1), result.getNodes().get(x).getId());
+		}
+		assertTrue(maxConcurrentRequests.get() > 1);
+	}
+
+	@Test
+	public void testGetNodesFailureDoesNotAbortBatch() throws CoreException {
+		NodeBatchResult result = service.getNodes(nodes("1", "missing1", "3", "missing2"), new NullProgressMonitor()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		assertFalse(result.getStatus().isOK());
+		assertEquals(2, result.getStatus().getChildren().length);
+		assertEquals(2, result.getNodes().size());
+		assertEquals("1", result.getNodes().get(0).getId()); //$NON-NLS-1$
+		assertEquals("3", result.getNodes().get(1).getId()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testGetNodesServesCacheHits() throws CoreException {
+		service.getNode(nodes("1").get(0), new NullProgressMonitor()); //$NON-NLS-1$
+		requested.clear();
+		NodeBatchResult result = service.getNodes(nodes("1", "2"), new NullProgressMonitor()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(2, result.getNodes().size());
+		assertEquals(Collections.singletonList("2"), requested); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testGetNodesEmpty() throws CoreException {
+		NodeBatchResult result = service.getNodes(new ArrayList<Node>(), new NullProgressMonitor());
+		assertTrue(result.getStatus().isOK());
+		assertTrue(result.getNodes().isEmpty());
+	}
+
+	private static List<Node> nodes(String... ids) {
+		List<Node> nodes = new ArrayList<Node>();
+		for (String id : ids) {
+			Node node = new Node();
+			node.setId(id);
+			nodes.add(node);
+		}
+		return nodes;
+	}
+}
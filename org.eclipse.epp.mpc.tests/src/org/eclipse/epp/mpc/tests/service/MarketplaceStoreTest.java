@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.epp.internal.mpc.core.service.Categories;
+import org.eclipse.epp.internal.mpc.core.service.Category;
+import org.eclipse.epp.internal.mpc.core.service.Ius;
+import org.eclipse.epp.internal.mpc.core.service.Market;
+import org.eclipse.epp.internal.mpc.core.service.MarketplaceStore;
+import org.eclipse.epp.internal.mpc.core.service.Node;
+import org.eclipse.epp.internal.mpc.core.service.SearchResult;
+import org.eclipse.epp.internal.mpc.core.service.Tag;
+import org.eclipse.epp.internal.mpc.core.service.Tags;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class MarketplaceStoreTest {
+
+	private File file;
+
+	private MarketplaceStore store;
+
+	private long now;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("marketplace", ".store"); //$NON-NLS-1$ //$NON-NLS-2$
+		file.delete();
+		store = new MarketplaceStore(file, MarketplaceStore.DEFAULT_MAX_SIZE);
+		now = System.currentTimeMillis();
+	}
+
+	@After
+	public void tearDown() {
+		store.close();
+		file.delete();
+	}
+
+	@Test
+	public void testNodeSurvivesReopen() {
+		Node node = createNode("1"); //$NON-NLS-1$
+		store.putNode(node, now);
+		store.close();
+
+		MarketplaceStore.Stored<Node> stored = new MarketplaceStore(file, MarketplaceStore.DEFAULT_MAX_SIZE).getNode("1"); //$NON-NLS-1$
+		assertNotNull(stored);
+		assertEquals(now, stored.getTimestamp());
+		Node result = stored.getValue();
+		assertEquals("Node 1", result.getName()); //$NON-NLS-1$
+		assertNull(result.getBody());
+		assertEquals("http://example.org/update", result.getUpdateurl()); //$NON-NLS-1$
+		assertEquals(node.getIus().getIu(), result.getIus().getIu());
+		assertEquals("eclipse", result.getTags().getTags().get(0).getName()); //$NON-NLS-1$
+		assertEquals("Tools", result.getCategories().getCategory().get(0).getName()); //$NON-NLS-1$
+		assertNull(result.getPlatforms());
+	}
+
+	@Test
+	public void testListingAndMarkets() {
+		SearchResult result = new SearchResult();
+		result.setMatchCount(2);
+		result.setNodes(new ArrayList<Node>());
+		result.getNodes().add(createNode("1")); //$NON-NLS-1$
+		result.getNodes().add(createNode("2")); //$NON-NLS-1$
+		store.putListing("featured", result, now); //$NON-NLS-1$
+
+		Market market = new Market();
+		market.setId("31"); //$NON-NLS-1$
+		market.setUrl("http://example.org/market/31"); //$NON-NLS-1$
+		market.getCategory().add(createCategory());
+		store.putMarkets(Collections.singletonList(market), now);
+		store.close();
+
+		SearchResult stored = store.getListing("featured").getValue(); //$NON-NLS-1$
+		assertEquals(Integer.valueOf(2), stored.getMatchCount());
+		assertEquals(2, stored.getNodes().size());
+		assertEquals("2", stored.getNodes().get(1).getId()); //$NON-NLS-1$
+		assertNull(store.getListing("recent")); //$NON-NLS-1$
+
+		List<Market> markets = store.getMarkets().getValue();
+		assertEquals(1, markets.size());
+		assertEquals("Tools", markets.get(0).getCategory().get(0).getName()); //$NON-NLS-1$
+
+		store.removeTaxonomy();
+		assertNull(store.getMarkets());
+		assertNotNull(store.getListing("featured")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testLaterPutSupersedes() {
+		store.putNode(createNode("1"), now); //$NON-NLS-1$
+		Node node = createNode("1"); //$NON-NLS-1$
+		node.setName("Renamed"); //$NON-NLS-1$
+		store.putNode(node, now + 1);
+		store.close();
+
+		assertEquals(1, store.size());
+		assertEquals("Renamed", store.getNode("1").getValue().getName()); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testCompactionDropsSupersededRecords() {
+		Node node = createNode("1"); //$NON-NLS-1$
+		for (int x = 0; x < 100; ++x) {
+			node.setName("Node " + x); //$NON-NLS-1$
+			store.putNode(node, now + x);
+		}
+		store.putNode(createNode("2"), now); //$NON-NLS-1$
+		long size = file.length();
+		store.compact();
+
+		assertTrue(file.length() < size / 10);
+		assertEquals(2, store.size());
+		assertEquals("Node 99", store.getNode("1").getValue().getName()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNotNull(store.getNode("2")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testCompactionDropsOldestBeyondMaxSize() {
+		store.close();
+		store = new MarketplaceStore(file, 2048);
+		for (int x = 0; x < 20; ++x) {
+			store.putNode(createNode(String.valueOf(x)), now + x);
+		}
+		store.compact();
+
+		assertTrue(file.length() <= 2048);
+		assertTrue(store.size() < 20);
+		assertNotNull(store.getNode("19")); //$NON-NLS-1$
+		assertNull(store.getNode("0")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testOtherVersionIsDiscarded() throws IOException {
+		store.putNode(createNode("1"), now); //$NON-NLS-1$
+		store.close();
+		RandomAccessFile data = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+		try {
+			data.seek(4);
+			data.writeInt(MarketplaceStore.FORMAT_VERSION + 1);
+		} finally {
+			data.close();
+		}
+
+		assertNull(store.getNode("1")); //$NON-NLS-1$
+		store.putNode(createNode("2"), now); //$NON-NLS-1$
+		store.close();
+		assertNotNull(store.getNode("2")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testTruncatedRecordIsIgnored() throws IOException {
+		store.putNode(createNode("1"), now); //$NON-NLS-1$
+		store.putNode(createNode("2"), now); //$NON-NLS-1$
+		store.close();
+		RandomAccessFile data = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+		try {
+			data.setLength(data.length() - 10);
+		} finally {
+			data.close();
+		}
+
+		assertNotNull(store.getNode("1")); //$NON-NLS-1$
+		assertNull(store.getNode("2")); //$NON-NLS-1$
+		store.putNode(createNode("3"), now); //$NON-NLS-1$
+		store.close();
+		assertNotNull(store.getNode("1")); //$NON-NLS-1$
+		assertNotNull(store.getNode("3")); //$NON-NLS-1$
+	}
+
+	private static Node createNode(String id) {
+		Node node = new Node();
+		node.setId(id);
+		node.setName("Node " + id); //$NON-NLS-1$
+		node.setUpdateurl("http://example.org/update"); //$NON-NLS-1$
+		node.setIus(new Ius());
+		node.getIus().getIu().add("org.example.feature.group"); //$NON-NLS-1$
+		node.setTags(new Tags());
+		Tag tag = new Tag();
+		tag.setName("eclipse"); //$NON-NLS-1$
+		node.getTags().getTags().add(tag);
+		node.setCategories(new Categories());
+		node.getCategories().getCategory().add(createCategory());
+		return node;
+	}
+
+	private static Category createCategory() {
+		Category category = new Category();
+		category.setId("19"); //$NON-NLS-1$
+		category.setName("Tools"); //$NON-NLS-1$
+		category.setUrl("http://example.org/category/19"); //$NON-NLS-1$
+		return category;
+	}
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.net.URI;
+import java.util.Arrays;
+
+import org.eclipse.epp.internal.mpc.core.service.Ius;
+import org.eclipse.epp.internal.mpc.core.service.Node;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class NodeTest {
+
+	@Test
+	public void testDescriptionEndsAtBreak() {
+		Node node = new Node();
+		node.setBody("<p>Short\n\n description.</p> <!-- break --> <p>More.</p>"); //$NON-NLS-1$
+		assertEquals("<p>Short\n\n description.</p>", node.getDescription()); //$NON-NLS-1$
+		assertEquals("Short description.", node.getDescriptionText()); //$NON-NLS-1$
+
+		node.setBody("<!--break--> <p>More.</p>"); //$NON-NLS-1$
+		assertEquals("<!--break--> <p>More.</p>", node.getDescription()); //$NON-NLS-1$
+
+		node.setShortdescription("Summary"); //$NON-NLS-1$
+		assertEquals("Summary", node.getDescription()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testFeatureGroupIus() {
+		Node node = new Node();
+		assertNull(node.getFeatureGroupIus());
+
+		Ius ius = new Ius();
+		ius.getIu().add("org.example"); //$NON-NLS-1$
+		ius.getIu().add("org.example.other.feature.group"); //$NON-NLS-1$
+		node.setIus(ius);
+		assertEquals(Arrays.asList("org.example.feature.group", "org.example.other.feature.group"), //$NON-NLS-1$ //$NON-NLS-2$
+				node.getFeatureGroupIus());
+		assertEquals(Arrays.asList("org.example", "org.example.other.feature.group"), ius.getIu()); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testUpdateUri() {
+		Node node = new Node();
+		assertNull(node.getUpdateUri());
+
+		node.setUpdateurl(" http://example.org/update\n"); //$NON-NLS-1$
+		assertEquals(URI.create("http://example.org/update"), node.getUpdateUri()); //$NON-NLS-1$
+
+		node.setUpdateurl("example.org/update"); //$NON-NLS-1$
+		assertNull(node.getUpdateUri());
+	}
+
+	@Test
+	public void testUpdateSiteUrl() {
+		Node node = new Node();
+		assertNull(node.getUpdateSiteUrl());
+
+		node.setUpdateurl(" http://example.org/update\n"); //$NON-NLS-1$
+		assertEquals("http://example.org/update", node.getUpdateSiteUrl()); //$NON-NLS-1$
+
+		node.setUpdateurl("example.org/update"); //$NON-NLS-1$
+		assertNull(node.getUpdateSiteUrl());
+
+		// a valid URL that is not a valid URI is still an update site URL
+		node.setUpdateurl("http://example.org/update site/{version}|latest"); //$NON-NLS-1$
+		assertEquals("http://example.org/update site/{version}|latest", node.getUpdateSiteUrl()); //$NON-NLS-1$
+		assertNull(node.getUpdateUri());
+	}
+
+	@Test
+	public void testDerivedValuesAreComputedOnce() {
+		Node node = new Node();
+		node.setBody("<b>Body</b>"); //$NON-NLS-1$
+		node.computeDerivedValues();
+		String text = node.getDescriptionText();
+		assertEquals("Body", text); //$NON-NLS-1$
+		assertSame(text, node.getDescriptionText());
+	}
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.epp.internal.mpc.core.service.Category;
+import org.eclipse.epp.internal.mpc.core.service.DefaultMarketplaceService;
+import org.eclipse.epp.internal.mpc.core.service.Market;
+import org.eclipse.epp.internal.mpc.core.service.Node;
+import org.eclipse.epp.internal.mpc.core.service.NodeListener;
+import org.eclipse.epp.internal.mpc.core.service.PagedSearch;
+import org.eclipse.epp.internal.mpc.core.service.SearchResult;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class PagedSearchTest {
+
+	private static final int PAGE_SIZE = 10;
+
+	private final List<Integer> requestedPages = new ArrayList<Integer>();
+
+	private DefaultMarketplaceService createService(final int matchCount, final int availableCount) {
+		return new DefaultMarketplaceService() {
+			@Override
+			public SearchResult search(Market market, Category category, String queryText, int page,
+					NodeListener nodeListener, IProgressMonitor monitor) throws CoreException {
+				requestedPages.add(page);
+				SearchResult result = new SearchResult();
+				result.setMatchCount(matchCount);
+				List<Node> nodes = new ArrayList<Node>();
+				for (int x = page * PAGE_SIZE; x < Math.min((page + 1) * PAGE_SIZE, availableCount); ++x) {
+					Node node = new Node();
+					node.setId(String.valueOf(x));
+					nodes.add(node);
+				}
+				result.setNodes(nodes);
+				return result;
+			}
+		};
+	}
+
+	@Test
+	public void testPages() throws CoreException {
+		PagedSearch search = new PagedSearch(createService(25, 25), null, null, "test"); //$NON-NLS-1$
+		assertTrue(search.hasNextPage());
+		assertEquals(10, search.nextPage(new NullProgressMonitor()).getNodes().size());
+		assertTrue(search.hasNextPage());
+		assertEquals(10, search.nextPage(new NullProgressMonitor()).getNodes().size());
+		assertTrue(search.hasNextPage());
+		SearchResult lastPage = search.nextPage(new NullProgressMonitor());
+		assertEquals(5, lastPage.getNodes().size());
+		assertEquals("20", lastPage.getNodes().get(0).getId()); //$NON-NLS-1$
+		assertFalse(search.hasNextPage());
+		assertEquals(25, search.getNodeCount());
+		assertEquals(Integer.valueOf(25), search.getMatchCount());
+
+		List<Integer> expectedPages = new ArrayList<Integer>();
+		expectedPages.add(0);
+		expectedPages.add(1);
+		expectedPages.add(2);
+		assertEquals(expectedPages, requestedPages);
+	}
+
+	@Test
+	public void testSinglePage() throws CoreException {
+		PagedSearch search = new PagedSearch(createService(3, 3), null, null, "test"); //$NON-NLS-1$
+		search.nextPage(new NullProgressMonitor());
+		assertFalse(search.hasNextPage());
+	}
+
+	@Test
+	public void testEmptyPageEndsSearch() throws CoreException {
+		// the server claims more matches than it returns
+		PagedSearch search = new PagedSearch(createService(100, 10), null, null, "test"); //$NON-NLS-1$
+		search.nextPage(new NullProgressMonitor());
+		assertTrue(search.hasNextPage());
+		assertTrue(search.nextPage(new NullProgressMonitor()).getNodes().isEmpty());
+		assertFalse(search.hasNextPage());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testNoMorePages() throws CoreException {
+		PagedSearch search = new PagedSearch(createService(0, 0), null, null, "test"); //$NON-NLS-1$
+		search.nextPage(new NullProgressMonitor());
+		search.nextPage(new NullProgressMonitor());
+	}
+}
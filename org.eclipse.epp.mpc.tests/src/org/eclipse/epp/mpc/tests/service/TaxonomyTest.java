@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.epp.internal.mpc.core.service.Category;
+import org.eclipse.epp.internal.mpc.core.service.Market;
+import org.eclipse.epp.internal.mpc.core.service.Taxonomy;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class TaxonomyTest {
+
+	@Test
+	public void testIndex() {
+		List<Market> markets = new ArrayList<Market>();
+		Market tools = market("31", category("1"), category("2")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		Market rcp = market("32", category("2"), category("3")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		markets.add(tools);
+		markets.add(rcp);
+		Taxonomy taxonomy = new Taxonomy(markets);
+
+		assertEquals(markets, taxonomy.getMarkets());
+		assertSame(rcp, taxonomy.getMarket("32")); //$NON-NLS-1$
+		assertNull(taxonomy.getMarket("33")); //$NON-NLS-1$
+
+		assertEquals(3, taxonomy.getCategories().size());
+		assertEquals("1", taxonomy.getCategories().get(0).getId()); //$NON-NLS-1$
+		assertEquals("2", taxonomy.getCategories().get(1).getId()); //$NON-NLS-1$
+		assertEquals("3", taxonomy.getCategories().get(2).getId()); //$NON-NLS-1$
+		assertSame(tools.getCategory().get(1), taxonomy.getCategory("2")); //$NON-NLS-1$
+
+		assertEquals(rcp.getCategory(), taxonomy.getCategories("32")); //$NON-NLS-1$
+		assertTrue(taxonomy.getCategories("33").isEmpty()); //$NON-NLS-1$
+	}
+
+	private static Market market(String id, Category... categories) {
+		Market market = new Market();
+		market.setId(id);
+		for (Category category : categories) {
+			market.getCategory().add(category);
+		}
+		return market;
+	}
+
+	private static Category category(String id) {
+		Category category = new Category();
+		category.setId(id);
+		return category;
+	}
+}
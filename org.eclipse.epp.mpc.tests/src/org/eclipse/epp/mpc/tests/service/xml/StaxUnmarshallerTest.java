@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.service.xml;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.epp.internal.mpc.core.service.Marketplace;
+import org.eclipse.epp.internal.mpc.core.service.Node;
+import org.eclipse.epp.internal.mpc.core.service.NodeListing;
+import org.eclipse.epp.internal.mpc.core.service.xml.StaxUnmarshaller;
+import org.eclipse.epp.internal.mpc.core.service.xml.Unmarshaller;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Runs the {@link UnmarshallerTest unmarshaller tests} with the StAX engine.
+ */
+@RunWith(BlockJUnit4ClassRunner.class)
+public class StaxUnmarshallerTest extends UnmarshallerTest {
+
+	private StaxUnmarshaller staxUnmarshaller;
+
+	@Before
+	public void beforeStax() {
+		staxUnmarshaller = new StaxUnmarshaller();
+		unmarshaller = staxUnmarshaller.getUnmarshaller();
+	}
+
+	@Test
+	public void sameModelsAsSax() throws IOException, SAXException {
+		String[] resources = { "resources/search.xml", "resources/featured.xml", "resources/recent.xml", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				"resources/favorites.xml", "resources/node.xml" }; //$NON-NLS-1$ //$NON-NLS-2$
+		for (String resource : resources) {
+			List<Node> nodes = getNodes((Marketplace) unmarshal(resource, new Unmarshaller()));
+			List<Node> staxNodes = getNodes((Marketplace) unmarshal(resource, null));
+			assertEquals(resource, nodes.size(), staxNodes.size());
+			for (int x = 0; x < nodes.size(); ++x) {
+				Node node = nodes.get(x);
+				Node staxNode = staxNodes.get(x);
+				assertEquals(node.getId(), staxNode.getId());
+				assertEquals(node.getName(), staxNode.getName());
+				assertEquals(node.getUrl(), staxNode.getUrl());
+				assertEquals(node.getBody(), staxNode.getBody());
+				assertEquals(node.getShortdescription(), staxNode.getShortdescription());
+				assertEquals(node.getLicense(), staxNode.getLicense());
+				assertEquals(node.getUpdateurl(), staxNode.getUpdateurl());
+				assertEquals(node.getChanged(), staxNode.getChanged());
+				assertEquals(node.getFavorited(), staxNode.getFavorited());
+				assertEquals(node.getFeatureGroupIus(), staxNode.getFeatureGroupIus());
+				assertEquals(node.getCategories().getCategory().size(), staxNode.getCategories().getCategory().size());
+			}
+		}
+	}
+
+	private static List<Node> getNodes(Marketplace marketplace) {
+		NodeListing[] listings = { marketplace.getSearch(), marketplace.getFeatured(), marketplace.getRecent(),
+				marketplace.getFavorites() };
+		for (NodeListing listing : listings) {
+			if (listing != null) {
+				return listing.getNode();
+			}
+		}
+		return marketplace.getNode();
+	}
+
+	private Object unmarshal(String resource, Unmarshaller saxUnmarshaller) throws IOException, SAXException {
+		InputStream in = UnmarshallerTest.class.getResourceAsStream(resource);
+		try {
+			return saxUnmarshaller == null ? unmarshal(new InputSource(in)) : saxUnmarshaller.unmarshal(new InputSource(
+					in));
+		} finally {
+			in.close();
+		}
+	}
+
+	@Override
+	protected Object parse(InputSource input, Set<String> skippedElements) throws IOException, SAXException {
+		return StaxUnmarshaller.parse(input, null, skippedElements);
+	}
+
+	@Override
+	protected Object unmarshal(InputSource input) throws IOException, SAXException {
+		return staxUnmarshaller.unmarshal(input);
+	}
+}
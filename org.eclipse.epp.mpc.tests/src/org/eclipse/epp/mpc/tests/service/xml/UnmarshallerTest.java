@@ -13,11 +13,20 @@ package org.eclipse.epp.mpc.tests.service.xml;
 import static junit.framework.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParserFactory;
@@ -31,7 +40,9 @@ import org.eclipse.epp.internal.mpc.core.service.Favorites;
 import org.eclipse.epp.internal.mpc.core.service.Featured;
 import org.eclipse.epp.internal.mpc.core.service.Market;
 import org.eclipse.epp.internal.mpc.core.service.Marketplace;
+import org.eclipse.epp.internal.mpc.core.service.Ius;
 import org.eclipse.epp.internal.mpc.core.service.Node;
+import org.eclipse.epp.internal.mpc.core.service.NodeListener;
 import org.eclipse.epp.internal.mpc.core.service.Recent;
 import org.eclipse.epp.internal.mpc.core.service.Search;
 import org.eclipse.epp.internal.mpc.core.service.Tag;
@@ -51,7 +62,7 @@ import org.xml.sax.XMLReader;
 @RunWith(BlockJUnit4ClassRunner.class)
 public class UnmarshallerTest {
 
-	private Unmarshaller unmarshaller;
+	protected Unmarshaller unmarshaller;
 
 	private XMLReader reader;
 
@@ -135,6 +146,11 @@ public class UnmarshallerTest {
 		assertNotNull(node.getBody());
 		assertTrue(node.getBody().startsWith("Mylyn WikiText is a"));
 		assertTrue(node.getBody().endsWith("FAQ</a>."));
+		assertEquals(node.getBody(), node.getDescription());
+		assertTrue(node.getDescriptionText().startsWith("Mylyn WikiText is a"));
+		assertTrue(node.getDescriptionText().endsWith("available here and in the FAQ."));
+		assertFalse(node.getDescriptionText().contains("\n"));
+		assertEquals("http://download.eclipse.org/tools/mylyn/update/e3.4", node.getUpdateUri().toString());
 
 		assertNotNull(node.getCategories());
 		assertEquals(5, node.getCategories().getCategory().size());
@@ -363,6 +379,86 @@ public class UnmarshallerTest {
 
 	}
 
+	@Test
+	public void streamNodes() throws IOException, SAXException {
+		final List<Node> receivedNodes = new ArrayList<Node>();
+		unmarshaller.setNodeListener(new NodeListener() {
+			public void nodeReceived(Node node) {
+				// nodes are delivered fully populated
+				assertNotNull(node.getName());
+				assertNotNull(node.getUpdateurl());
+				receivedNodes.add(node);
+			}
+		});
+		Marketplace marketplace = (Marketplace) process("resources/search.xml");
+		List<Node> nodes = marketplace.getSearch().getNode();
+		assertEquals(nodes.size(), receivedNodes.size());
+		for (int x = 0; x < nodes.size(); ++x) {
+			assertTrue(nodes.get(x) == receivedNodes.get(x));
+		}
+	}
+
+	@Test
+	public void streamNodesOnlyForListings() throws IOException, SAXException {
+		final List<Node> receivedNodes = new ArrayList<Node>();
+		unmarshaller.setNodeListener(new NodeListener() {
+			public void nodeReceived(Node node) {
+				receivedNodes.add(node);
+			}
+		});
+		process("resources/node.xml");
+		assertTrue(receivedNodes.isEmpty());
+	}
+
+	@Test
+	public void parseWithPooledUnmarshaller() throws IOException, SAXException {
+		Marketplace first = (Marketplace) parse("resources/search.xml");
+		Marketplace second = (Marketplace) parse("resources/search.xml");
+		assertTrue(first != second);
+		assertEquals(first.getSearch().getNode().size(), second.getSearch().getNode().size());
+
+		Object catalogs = parse("resources/catalogs.xml");
+		assertTrue(catalogs instanceof Catalogs);
+	}
+
+	@Test
+	public void reuseHandlers() throws IOException, SAXException {
+		Search first = ((Marketplace) process("resources/search.xml")).getSearch();
+		Featured featured = ((Marketplace) process("resources/featured.xml")).getFeatured();
+		Search second = ((Marketplace) process("resources/search.xml")).getSearch();
+
+		assertEquals(6, featured.getNode().size());
+		assertEquals(first.getNode().size(), second.getNode().size());
+		for (int x = 0; x < first.getNode().size(); ++x) {
+			Node node = first.getNode().get(x);
+			Node other = second.getNode().get(x);
+			assertTrue(node != other);
+			assertEquals(node.getId(), other.getId());
+			assertEquals(node.getBody(), other.getBody());
+			assertEquals(node.getCategories().getCategory().size(), other.getCategories().getCategory().size());
+		}
+	}
+
+	@Test
+	public void parseAfterFailure() throws IOException, SAXException {
+		try {
+			parse(new InputSource(new StringReader("<marketplace><search><node id=\"1\">")), null); //$NON-NLS-1$
+			fail();
+		} catch (SAXException e) {
+			// expected
+		}
+		Marketplace marketplace = (Marketplace) parse("resources/search.xml");
+		assertEquals(7, marketplace.getSearch().getNode().size());
+	}
+
+	@Test
+	public void declaredEncoding() throws IOException, SAXException {
+		byte[] document = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><marketplace><node id=\"1\" name=\"Preu\u00DF\"/></marketplace>" //$NON-NLS-1$
+		.getBytes("ISO-8859-1"); //$NON-NLS-1$
+		Marketplace marketplace = (Marketplace) parse(new InputSource(new ByteArrayInputStream(document)), null);
+		assertEquals("Preu\u00DF", marketplace.getNode().get(0).getName()); //$NON-NLS-1$
+	}
+
 	@Test
 	public void tags() throws Exception {
 		Object model = process("resources/node.xml");
@@ -419,16 +515,93 @@ public class UnmarshallerTest {
 
 	}
 
-	private Object process(String resource) throws IOException, SAXException {
+	@Test
+	public void recurringValuesAreShared() throws Exception {
+		Search search = ((Marketplace) process("resources/search.xml")).getSearch();
+		List<String> licenses = new ArrayList<String>();
+		for (Node node : search.getNode()) {
+			if ("Free EPL".equals(node.getLicense())) {
+				licenses.add(node.getLicense());
+			}
+		}
+		assertEquals(3, licenses.size());
+		assertSame(licenses.get(0), licenses.get(1));
+		assertSame(licenses.get(0), licenses.get(2));
+
+		Search again = ((Marketplace) process("resources/search.xml")).getSearch();
+		assertSame(search.getNode().get(0).getUpdateurl(), again.getNode().get(0).getUpdateurl());
+		assertNotSame(search.getNode().get(0).getBody(), again.getNode().get(0).getBody());
+	}
+
+	@Test
+	public void skipElements() throws IOException, SAXException {
+		Set<String> skippedElements = Collections.singleton("body"); //$NON-NLS-1$
+		InputStream in = UnmarshallerTest.class.getResourceAsStream("resources/search.xml"); //$NON-NLS-1$
+		Marketplace marketplace;
+		try {
+			marketplace = (Marketplace) parse(new InputSource(in), skippedElements);
+		} finally {
+			in.close();
+		}
+		Marketplace complete = (Marketplace) parse("resources/search.xml");
+
+		List<Node> nodes = marketplace.getSearch().getNode();
+		assertEquals(7, nodes.size());
+		for (int x = 0; x < nodes.size(); ++x) {
+			Node node = nodes.get(x);
+			Node completeNode = complete.getSearch().getNode().get(x);
+			assertNull(node.getBody());
+			assertNotNull(completeNode.getBody());
+			assertEquals(completeNode.getId(), node.getId());
+			assertEquals(completeNode.getUpdateurl(), node.getUpdateurl());
+			Ius ius = completeNode.getIus();
+			if (ius != null) {
+				assertEquals(ius.getIu(), node.getIus().getIu());
+			}
+		}
+
+		// the root element is never skipped
+		Node node = (Node) parse(new InputSource(new StringReader("<node id=\"1\"><body>Body</body></node>")), //$NON-NLS-1$
+				Collections.singleton("node")); //$NON-NLS-1$
+		assertEquals("Body", node.getBody()); //$NON-NLS-1$
+	}
+
+	private Object parse(String resource) throws IOException, SAXException {
 		InputStream in = UnmarshallerTest.class.getResourceAsStream(resource);
 		if (in == null) {
 			throw new IllegalStateException(resource);
 		}
 		try {
-			reader.parse(new InputSource(in));
+			return parse(new InputSource(in), null);
 		} finally {
 			in.close();
 		}
+	}
+
+	/**
+	 * Unmarshal with an unmarshaller from the pool of the engine under test.
+	 */
+	protected Object parse(InputSource input, Set<String> skippedElements) throws IOException, SAXException {
+		return Unmarshaller.parse(input, null, skippedElements);
+	}
+
+	/**
+	 * Unmarshal with the {@link #unmarshaller} of this test.
+	 */
+	protected Object unmarshal(InputSource input) throws IOException, SAXException {
+		reader.parse(input);
 		return unmarshaller.getModel();
 	}
+
+	private Object process(String resource) throws IOException, SAXException {
+		InputStream in = UnmarshallerTest.class.getResourceAsStream(resource);
+		if (in == null) {
+			throw new IllegalStateException(resource);
+		}
+		try {
+			return unmarshal(new InputSource(in));
+		} finally {
+			in.close();
+		}
+	}
 }
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.ui.catalog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.epp.internal.mpc.core.service.Category;
+import org.eclipse.epp.internal.mpc.core.service.DefaultMarketplaceService;
+import org.eclipse.epp.internal.mpc.core.service.Market;
+import org.eclipse.epp.internal.mpc.core.service.MarketplaceService;
+import org.eclipse.epp.internal.mpc.ui.catalog.MarketplaceCatalog;
+import org.eclipse.epp.internal.mpc.ui.catalog.MarketplaceDiscoveryStrategy;
+import org.eclipse.epp.mpc.ui.CatalogDescriptor;
+import org.eclipse.equinox.internal.p2.discovery.model.CatalogCategory;
+import org.eclipse.equinox.internal.p2.discovery.model.CatalogItem;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+/**
+ * Test {@link MarketplaceCatalog}
+ */
+@RunWith(BlockJUnit4ClassRunner.class)
+public class MarketplaceCatalogTest {
+
+	private static final String CATEGORY_ID = "test"; //$NON-NLS-1$
+
+	private static final int ITEM_COUNT = 500;
+
+	private MarketplaceCatalog catalog;
+
+	private final AtomicInteger published = new AtomicInteger();
+
+	@Before
+	public void setUp() throws Exception {
+		CatalogDescriptor catalogDescriptor = new CatalogDescriptor(new URL("http://marketplace.eclipse.org"), //$NON-NLS-1$
+				"Eclipse.org Marketplace"); //$NON-NLS-1$
+		MarketplaceDiscoveryStrategy discoveryStrategy = new MarketplaceDiscoveryStrategy(catalogDescriptor) {
+			@Override
+			public MarketplaceService createMarketplaceService() {
+				return new DefaultMarketplaceService(catalogDescriptor.getUrl());
+			}
+
+			@Override
+			public void performQuery(Market market, Category category, String queryText, IProgressMonitor monitor) {
+				// stream items like a listing that is being read, publishing after each one
+				CatalogCategory catalogCategory = new CatalogCategory();
+				catalogCategory.setId(CATEGORY_ID);
+				getCategories().add(catalogCategory);
+				for (int x = 0; x < ITEM_COUNT; ++x) {
+					CatalogItem item = new CatalogItem();
+					item.setId(Integer.toString(x));
+					item.setName(item.getId());
+					item.setCategoryId(CATEGORY_ID);
+					getItems().add(item);
+					publishItems();
+					published.incrementAndGet();
+				}
+			}
+		};
+		catalog = new MarketplaceCatalog();
+		catalog.getDiscoveryStrategies().add(discoveryStrategy);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		catalog.dispose();
+	}
+
+	@Test
+	public void testPublishWhileRefreshing() throws Exception {
+		final List<Throwable> errors = new ArrayList<Throwable>();
+		final AtomicInteger refreshes = new AtomicInteger();
+		final Runnable refresh = new Runnable() {
+			public void run() {
+				// read the catalog like a viewer refresh, slowly enough to overlap with publishing
+				int itemCount = 0;
+				for (CatalogItem item : catalog.getItems()) {
+					if (CATEGORY_ID.equals(item.getCategoryId())) {
+						++itemCount;
+					}
+					Thread.yield();
+				}
+				for (CatalogCategory category : catalog.getCategories()) {
+					if (CATEGORY_ID.equals(category.getId())) {
+						assertEquals(itemCount, new ArrayList<CatalogItem>(category.getItems()).size());
+					}
+				}
+				refreshes.incrementAndGet();
+			}
+		};
+		Thread refresher = new Thread() {
+			@Override
+			public void run() {
+				try {
+					do {
+						catalog.runExclusive(refresh);
+					} while (published.get() < ITEM_COUNT);
+				} catch (Throwable t) {
+					synchronized (errors) {
+						errors.add(t);
+					}
+				}
+			}
+		};
+		refresher.start();
+		IStatus status = catalog.performQuery(null, null, "test", new NullProgressMonitor()); //$NON-NLS-1$
+		refresher.join();
+
+		assertTrue(status.isOK());
+		assertEquals(errors.toString(), 0, errors.size());
+		assertTrue(refreshes.get() > 0);
+		assertEquals(ITEM_COUNT, catalog.getItems().size());
+		assertEquals(ITEM_COUNT, catalog.getCategories().get(0).getItems().size());
+	}
+}
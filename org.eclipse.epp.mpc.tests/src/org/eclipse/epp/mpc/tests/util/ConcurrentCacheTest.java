@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.epp.internal.mpc.core.util.ConcurrentCache;
+import org.eclipse.epp.internal.mpc.core.util.MetricsRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class ConcurrentCacheTest {
+
+	@Test
+	public void testEvictsLeastRecentlyUsed() {
+		ConcurrentCache<String, String> cache = new ConcurrentCache<String, String>(3);
+		cache.put("a", "A"); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put("b", "B"); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put("c", "C"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("A", cache.get("a")); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put("d", "D"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertNull(cache.get("b")); //$NON-NLS-1$
+		assertEquals("A", cache.get("a")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("C", cache.get("c")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("D", cache.get("d")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(3, cache.size());
+	}
+
+	@Test
+	public void testCountsEvictions() {
+		MetricsRegistry metrics = new MetricsRegistry();
+		ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<Integer, Integer>(4);
+		cache.setCounters(metrics.counter("evicted"), metrics.counter("reclaimed"), null); //$NON-NLS-1$ //$NON-NLS-2$
+		for (int x = 0; x < 10; ++x) {
+			cache.put(x, x);
+		}
+		assertEquals(6, metrics.snapshot().getCounter("evicted")); //$NON-NLS-1$
+		assertEquals(0, metrics.snapshot().getCounter("reclaimed")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testSetCapacity() {
+		ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<Integer, Integer>(10);
+		for (int x = 0; x < 10; ++x) {
+			cache.put(x, x);
+		}
+		cache.setCapacity(4);
+		assertEquals(4, cache.getCapacity());
+		assertEquals(4, cache.size());
+		assertEquals(Integer.valueOf(9), cache.get(9));
+		assertNull(cache.get(0));
+	}
+
+	@Test
+	public void testRemoveAndClear() {
+		ConcurrentCache<String, String> cache = new ConcurrentCache<String, String>(10);
+		cache.put("a", "A"); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put("b", "B"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("A", cache.remove("a")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(cache.get("a")); //$NON-NLS-1$
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testEvictsByWeight() {
+		ConcurrentCache<String, String> cache = new ConcurrentCache<String, String>(10, 10, new StringLengthWeigher());
+		cache.put("a", "AAAA"); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put("b", "B"); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put("c", "CCCC"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(9, cache.getWeight());
+		assertEquals("B", cache.get("b")); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put("d", "DDD"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		// only the least recently used entry is evicted to make room
+		assertNull(cache.get("a")); //$NON-NLS-1$
+		assertEquals("B", cache.get("b")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("CCCC", cache.get("c")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("DDD", cache.get("d")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(8, cache.getWeight());
+
+		cache.put("b", "BBB"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(10, cache.getWeight());
+		cache.remove("c"); //$NON-NLS-1$
+		assertEquals(6, cache.getWeight());
+	}
+
+	@Test
+	public void testOversizedEntryIsNotCached() {
+		ConcurrentCache<String, String> cache = new ConcurrentCache<String, String>(10, 4, new StringLengthWeigher());
+		cache.put("a", "A"); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put("b", "BBBBB"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(cache.get("b")); //$NON-NLS-1$
+		assertEquals("A", cache.get("a")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testEntryHeavierThanSegmentShareIsCached() {
+		MetricsRegistry metrics = new MetricsRegistry();
+		// the capacity is large enough for two segments, each with a share of 5 of the weight
+		ConcurrentCache<String, String> cache = new ConcurrentCache<String, String>(32, 10, new StringLengthWeigher());
+		cache.setCounters(null, null, metrics.counter("rejected")); //$NON-NLS-1$
+		cache.put("a", "AAAAAAAA"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("AAAAAAAA", cache.get("a")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(0, metrics.snapshot().getCounter("rejected")); //$NON-NLS-1$
+
+		cache.put("b", "BBBBBBBBBBB"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(cache.get("b")); //$NON-NLS-1$
+		assertEquals(1, metrics.snapshot().getCounter("rejected")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testConcurrentAccessStaysBounded() throws InterruptedException {
+		final int capacity = 256;
+		final ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<Integer, Integer>(capacity);
+		final AtomicInteger errors = new AtomicInteger();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 8; ++t) {
+			final int offset = t * 1000;
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int x = 0; x < 5000; ++x) {
+							Integer key = offset + (x % 1000);
+							cache.put(key, key);
+							Integer value = cache.get(key);
+							if (value != null && !value.equals(key)) {
+								errors.incrementAndGet();
+							}
+						}
+					} catch (RuntimeException e) {
+						errors.incrementAndGet();
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(0, errors.get());
+		// each segment holds its share of the capacity, rounded up
+		assertTrue(cache.size() <= capacity + ConcurrentCache.MAX_SEGMENTS);
+	}
+
+	private static class StringLengthWeigher implements ConcurrentCache.Weigher<String, String> {
+		public long weigh(String key, String value) {
+			return value.length();
+		}
+	}
+}
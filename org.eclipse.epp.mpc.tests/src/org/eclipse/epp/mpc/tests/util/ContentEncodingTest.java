@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.epp.internal.mpc.core.util.ContentEncoding;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class ContentEncodingTest {
+
+	private static final String CONTENT = "<marketplace><node id=\"1\" name=\"Test\"/></marketplace>"; //$NON-NLS-1$
+
+	@Test
+	public void testIdentity() throws IOException {
+		InputStream in = new ByteArrayInputStream(CONTENT.getBytes("UTF-8")); //$NON-NLS-1$
+		assertSame(in, ContentEncoding.decode(in, null));
+		assertSame(in, ContentEncoding.decode(in, "identity")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testGzip() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		GZIPOutputStream out = new GZIPOutputStream(bytes);
+		out.write(CONTENT.getBytes("UTF-8")); //$NON-NLS-1$
+		out.close();
+		assertEquals(CONTENT, read(ContentEncoding.decode(new ByteArrayInputStream(bytes.toByteArray()), "gzip"))); //$NON-NLS-1$
+		assertEquals(CONTENT, read(ContentEncoding.decode(new ByteArrayInputStream(bytes.toByteArray()), "X-GZIP"))); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testDeflate() throws IOException {
+		assertEquals(CONTENT, read(ContentEncoding.decode(new ByteArrayInputStream(deflate(false)), "deflate"))); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testRawDeflate() throws IOException {
+		assertEquals(CONTENT, read(ContentEncoding.decode(new ByteArrayInputStream(deflate(true)), "deflate"))); //$NON-NLS-1$
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnsupportedEncoding() throws IOException {
+		ContentEncoding.decode(new ByteArrayInputStream(new byte[0]), "br"); //$NON-NLS-1$
+	}
+
+	private static byte[] deflate(boolean raw) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DeflaterOutputStream out = new DeflaterOutputStream(bytes, new Deflater(Deflater.DEFAULT_COMPRESSION, raw));
+		out.write(CONTENT.getBytes("UTF-8")); //$NON-NLS-1$
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private static String read(InputStream in) throws IOException {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[16];
+			int length;
+			while ((length = in.read(buffer)) != -1) {
+				out.write(buffer, 0, length);
+			}
+			return new String(out.toByteArray(), "UTF-8"); //$NON-NLS-1$
+		} finally {
+			in.close();
+		}
+	}
+}
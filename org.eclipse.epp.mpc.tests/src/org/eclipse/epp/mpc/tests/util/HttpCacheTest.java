@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.eclipse.epp.internal.mpc.core.util.HttpCache;
+import org.eclipse.epp.internal.mpc.core.util.IContentTypeProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class HttpCacheTest {
+
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = File.createTempFile(HttpCacheTest.class.getSimpleName(), ".tmp");
+		directory.delete();
+		directory.mkdirs();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void testStoreAndOpen() throws IOException {
+		HttpCache cache = new HttpCache(directory, 1024);
+		assertEquals("content", read(cache.store("a", "\"1\"", null, stream("content"))));
+
+		HttpCache.Entry entry = cache.get("a");
+		assertNotNull(entry);
+		assertEquals("\"1\"", entry.getEtag());
+		assertNull(entry.getLastModified());
+		assertEquals(7, entry.getLength());
+		assertEquals("content", read(cache.open(entry)));
+	}
+
+	@Test
+	public void testNoValidatorsNotCached() throws IOException {
+		HttpCache cache = new HttpCache(directory, 1024);
+		assertEquals("content", read(cache.store("a", null, null, stream("content"))));
+		assertNull(cache.get("a"));
+	}
+
+	@Test
+	public void testPartialReadNotCached() throws IOException {
+		HttpCache cache = new HttpCache(directory, 1024);
+		InputStream in = cache.store("a", "\"1\"", null, stream("content"));
+		in.read();
+		in.close();
+		assertNull(cache.get("a"));
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void testReplaceEntry() throws IOException {
+		HttpCache cache = new HttpCache(directory, 1024);
+		read(cache.store("a", "\"1\"", null, stream("content")));
+		read(cache.store("a", "\"2\"", null, stream("new")));
+		assertEquals("\"2\"", cache.get("a").getEtag());
+		assertEquals("new", read(cache.open(cache.get("a"))));
+		assertEquals(3, cache.getSize());
+	}
+
+	@Test
+	public void testEvictLeastRecentlyUsed() throws IOException {
+		HttpCache cache = new HttpCache(directory, 10);
+		read(cache.store("a", "\"1\"", null, stream("aaaa")));
+		read(cache.store("b", "\"1\"", null, stream("bbbb")));
+		// access a so that b is the least recently used
+		cache.get("a");
+		read(cache.store("c", "\"1\"", null, stream("cccc")));
+
+		assertNotNull(cache.get("a"));
+		assertNull(cache.get("b"));
+		assertNotNull(cache.get("c"));
+		assertEquals(8, cache.getSize());
+	}
+
+	@Test
+	public void testPersistent() throws IOException {
+		HttpCache cache = new HttpCache(directory, 1024);
+		read(cache.store("a", null, "Sat, 01 Jan 2011 00:00:00 GMT", stream("content")));
+
+		HttpCache reloaded = new HttpCache(directory, 1024);
+		HttpCache.Entry entry = reloaded.get("a");
+		assertNotNull(entry);
+		assertEquals("Sat, 01 Jan 2011 00:00:00 GMT", entry.getLastModified());
+		assertEquals("content", read(reloaded.open(entry)));
+	}
+
+	@Test
+	public void testContentType() throws IOException {
+		HttpCache cache = new HttpCache(directory, 1024);
+		read(cache.store("a", "\"1\"", null, "text/xml; charset=ISO-8859-1", stream("content")));
+
+		HttpCache reloaded = new HttpCache(directory, 1024);
+		HttpCache.Entry entry = reloaded.get("a");
+		assertEquals("text/xml; charset=ISO-8859-1", entry.getContentType());
+		InputStream in = reloaded.open(entry);
+		assertTrue(in instanceof IContentTypeProvider);
+		assertEquals("text/xml; charset=ISO-8859-1", ((IContentTypeProvider) in).getContentType());
+		assertEquals("content", read(in));
+	}
+
+	private static InputStream stream(String content) {
+		return new ByteArrayInputStream(content.getBytes());
+	}
+
+	private static String read(InputStream in) throws IOException {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[3];
+			int count;
+			while ((count = in.read(buffer)) != -1) {
+				out.write(buffer, 0, count);
+			}
+			return new String(out.toByteArray());
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,333 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.epp.internal.mpc.core.util.HttpCache;
+import org.eclipse.epp.internal.mpc.core.util.HttpClientTransportFactory;
+import org.eclipse.epp.internal.mpc.core.util.ITransport;
+import org.eclipse.epp.internal.mpc.core.util.TransportFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class HttpClientTransportFactoryTest {
+
+	private File directory;
+
+	private Server server;
+
+	private RecordingTransportFactory fallback;
+
+	private ITransport transport;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = File.createTempFile(HttpClientTransportFactoryTest.class.getSimpleName(), ".tmp");
+		directory.delete();
+		directory.mkdirs();
+		server = new Server();
+		server.start();
+		fallback = new RecordingTransportFactory();
+		transport = new HttpClientTransportFactory(new HttpCache(directory, 1024 * 1024), fallback).getTransport();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.stop();
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void testStream() throws Exception {
+		server.respond("/a", "200 OK", null, "content");
+		assertEquals("content", read(transport.stream(server.uri("/a"), new NullProgressMonitor())));
+	}
+
+	@Test
+	public void testRedirectToOtherHost() throws Exception {
+		// HttpClient itself refuses to follow a redirect to another host
+		server.respond("/a", "301 Moved Permanently", "Location: http://localhost:" + server.getPort() + "/b", null);
+		server.respond("/b", "200 OK", null, "content");
+		assertEquals("content", read(transport.stream(server.uri("/a"), new NullProgressMonitor())));
+		assertEquals(Collections.singletonList("/b"), server.getPaths("localhost"));
+	}
+
+	@Test
+	public void testRelativeRedirect() throws Exception {
+		server.respond("/a/b", "302 Found", "Location: c", null);
+		server.respond("/a/c", "200 OK", null, "content");
+		assertEquals("content", read(transport.stream(server.uri("/a/b"), new NullProgressMonitor())));
+	}
+
+	@Test
+	public void testTooManyRedirects() throws Exception {
+		server.respond("/a", "302 Found", "Location: /a", null);
+		try {
+			transport.stream(server.uri("/a"), new NullProgressMonitor());
+			fail();
+		} catch (CoreException e) {
+			assertEquals(HttpClientTransportFactory.MAX_REDIRECTS + 1, server.getPaths(null).size());
+		}
+	}
+
+	@Test
+	public void testNotModified() throws Exception {
+		server.respond("/a", "200 OK", "ETag: \"1\"", "content");
+		assertEquals("content", read(transport.stream(server.uri("/a"), new NullProgressMonitor())));
+
+		server.respond("/a", "304 Not Modified", null, null);
+		assertEquals("content", read(transport.stream(server.uri("/a"), new NullProgressMonitor())));
+		assertEquals("\"1\"", server.getHeader("If-None-Match"));
+	}
+
+	@Test
+	public void testFallbackOnUnauthorized() throws Exception {
+		server.respond("/a", "401 Unauthorized", "WWW-Authenticate: Basic realm=\"test\"", null);
+		URI uri = server.uri("/a");
+		assertEquals("fallback", read(transport.stream(uri, new NullProgressMonitor())));
+		assertEquals(Collections.singletonList(uri), fallback.locations);
+	}
+
+	@Test
+	public void testFallbackOnProxyAuthenticationRequired() throws Exception {
+		server.respond("/a", "407 Proxy Authentication Required", "Proxy-Authenticate: Basic realm=\"test\"", null);
+		URI uri = server.uri("/a");
+		assertEquals("fallback", read(transport.stream(uri, new NullProgressMonitor())));
+		assertEquals(Collections.singletonList(uri), fallback.locations);
+	}
+
+	@Test
+	public void testNotFound() throws Exception {
+		try {
+			transport.stream(server.uri("/missing"), new NullProgressMonitor());
+			fail();
+		} catch (FileNotFoundException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testCanceledBeforeRequest() throws Exception {
+		server.respond("/a", "200 OK", null, "content");
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		monitor.setCanceled(true);
+		try {
+			transport.stream(server.uri("/a"), monitor);
+			fail();
+		} catch (CoreException e) {
+			assertTrue(e.getStatus().getException() instanceof OperationCanceledException);
+		}
+		assertTrue(server.getPaths(null).isEmpty());
+	}
+
+	@Test
+	public void testCanceledWhileReading() throws Exception {
+		server.respond("/a", "200 OK", null, "content");
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		InputStream in = transport.stream(server.uri("/a"), monitor);
+		try {
+			assertEquals('c', in.read());
+			monitor.setCanceled(true);
+			in.read();
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getCause() instanceof OperationCanceledException);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static String read(InputStream in) throws IOException {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[1024];
+			int len;
+			while ((len = in.read(buffer)) != -1) {
+				out.write(buffer, 0, len);
+			}
+			return new String(out.toByteArray(), "UTF-8");
+		} finally {
+			in.close();
+		}
+	}
+
+	private static class RecordingTransportFactory extends TransportFactory {
+
+		private final List<URI> locations = Collections.synchronizedList(new ArrayList<URI>());
+
+		@Override
+		protected boolean isAvailable() {
+			return true;
+		}
+
+		@Override
+		protected InputStream invokeStream(URI location, IProgressMonitor monitor) throws Exception {
+			locations.add(location);
+			return new ByteArrayInputStream("fallback".getBytes("UTF-8"));
+		}
+	}
+
+	/**
+	 * A minimal HTTP server that serves canned responses, one request per connection.
+	 */
+	private static class Server implements Runnable {
+
+		private final ServerSocket socket;
+
+		private final Map<String, String[]> responses = new HashMap<String, String[]>();
+
+		private final List<String[]> requests = new ArrayList<String[]>();
+
+		private final Map<String, String> headers = new HashMap<String, String>();
+
+		private Thread thread;
+
+		public Server() throws IOException {
+			socket = new ServerSocket(0);
+		}
+
+		public int getPort() {
+			return socket.getLocalPort();
+		}
+
+		public URI uri(String path) {
+			return URI.create("http://127.0.0.1:" + getPort() + path);
+		}
+
+		public synchronized void respond(String path, String status, String header, String body) {
+			responses.put(path, new String[] { status, header, body });
+		}
+
+		/**
+		 * Get the paths requested from the given host, or from any host if null.
+		 */
+		public synchronized List<String> getPaths(String host) {
+			List<String> paths = new ArrayList<String>();
+			for (String[] request : requests) {
+				if (host == null || request[0].startsWith(host + ":")) {
+					paths.add(request[1]);
+				}
+			}
+			return paths;
+		}
+
+		/**
+		 * Get a header of the last request.
+		 */
+		public synchronized String getHeader(String name) {
+			return headers.get(name.toLowerCase());
+		}
+
+		public void start() {
+			thread = new Thread(this, Server.class.getName());
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		public void stop() throws Exception {
+			socket.close();
+			thread.join(10000);
+		}
+
+		public void run() {
+			while (!socket.isClosed()) {
+				try {
+					Socket connection = socket.accept();
+					try {
+						handle(connection);
+					} finally {
+						connection.close();
+					}
+				} catch (IOException e) {
+					// closed
+				}
+			}
+		}
+
+		private void handle(Socket connection) throws IOException {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), "ISO-8859-1"));
+			String requestLine = reader.readLine();
+			if (requestLine == null) {
+				return;
+			}
+			String path = requestLine.split(" ")[1];
+			String host = null;
+			Map<String, String> requestHeaders = new HashMap<String, String>();
+			String line;
+			while ((line = reader.readLine()) != null && line.length() > 0) {
+				int separator = line.indexOf(':');
+				String name = line.substring(0, separator).trim().toLowerCase();
+				String value = line.substring(separator + 1).trim();
+				requestHeaders.put(name, value);
+				if (name.equals("host")) {
+					host = value;
+				}
+			}
+			String[] response;
+			synchronized (this) {
+				requests.add(new String[] { host, path });
+				headers.clear();
+				headers.putAll(requestHeaders);
+				response = responses.get(path);
+			}
+			if (response == null) {
+				response = new String[] { "404 Not Found", null, null };
+			}
+			byte[] body = response[2] == null ? new byte[0] : response[2].getBytes("UTF-8");
+			StringBuilder head = new StringBuilder();
+			head.append("HTTP/1.1 ").append(response[0]).append("\r\n");
+			if (response[1] != null) {
+				head.append(response[1]).append("\r\n");
+			}
+			head.append("Content-Length: ").append(body.length).append("\r\n");
+			head.append("Connection: close\r\n\r\n");
+			OutputStream out = connection.getOutputStream();
+			out.write(head.toString().getBytes("ISO-8859-1"));
+			out.write(body);
+			out.flush();
+		}
+	}
+}
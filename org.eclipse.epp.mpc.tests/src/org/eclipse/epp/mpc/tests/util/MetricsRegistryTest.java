@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.epp.internal.mpc.core.util.MetricsRegistry;
+import org.eclipse.epp.internal.mpc.core.util.MetricsSnapshot;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class MetricsRegistryTest {
+
+	private final MetricsRegistry metrics = new MetricsRegistry();
+
+	@Test
+	public void testCounters() {
+		assertSame(metrics.counter("a"), metrics.counter("a")); //$NON-NLS-1$ //$NON-NLS-2$
+		metrics.counter("a").increment(); //$NON-NLS-1$
+		metrics.counter("a").add(2); //$NON-NLS-1$
+		MetricsSnapshot snapshot = metrics.snapshot();
+		assertEquals(3, snapshot.getCounter("a")); //$NON-NLS-1$
+		assertEquals(0, snapshot.getCounter("b")); //$NON-NLS-1$
+
+		metrics.counter("a").increment(); //$NON-NLS-1$
+		assertEquals(3, snapshot.getCounter("a")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testHistogram() {
+		MetricsRegistry.Histogram histogram = metrics.histogram("latency"); //$NON-NLS-1$
+		for (int x = 1; x <= 100; ++x) {
+			histogram.record(x);
+		}
+		MetricsSnapshot.HistogramSnapshot snapshot = metrics.snapshot().getHistogram("latency"); //$NON-NLS-1$
+		assertEquals(100, snapshot.getCount());
+		assertEquals(5050, snapshot.getSum());
+		assertEquals(100, snapshot.getMax());
+		assertEquals(50.5d, snapshot.getMean(), 0.001d);
+		assertEquals(50, snapshot.getPercentile(50));
+		assertEquals(100, snapshot.getPercentile(90));
+		assertEquals(100, snapshot.getPercentile(100));
+		assertNull(metrics.snapshot().getHistogram("other")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testHistogramOverflow() {
+		metrics.histogram("latency").record(120000); //$NON-NLS-1$
+		assertEquals(120000, metrics.snapshot().getHistogram("latency").getPercentile(50)); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testGaugeAndHitRatio() {
+		metrics.gauge("queued", new MetricsRegistry.Gauge() { //$NON-NLS-1$
+			public long getValue() {
+				return 7;
+			}
+		});
+		metrics.counter("cache.node.hit").add(3); //$NON-NLS-1$
+		metrics.counter("cache.node.miss").increment(); //$NON-NLS-1$
+		MetricsSnapshot snapshot = metrics.snapshot();
+		assertEquals(Long.valueOf(7), snapshot.getGauges().get("queued")); //$NON-NLS-1$
+		assertEquals(0.75d, snapshot.getHitRatio("cache.node"), 0.001d); //$NON-NLS-1$
+		assertEquals(0d, snapshot.getHitRatio("cache.search"), 0.001d); //$NON-NLS-1$
+		assertTrue(snapshot.toString().contains("queued: 7")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testReset() {
+		MetricsRegistry.Counter counter = metrics.counter("a"); //$NON-NLS-1$
+		counter.increment();
+		metrics.histogram("latency").record(10); //$NON-NLS-1$
+		metrics.reset();
+		counter.increment();
+		assertEquals(1, metrics.snapshot().getCounter("a")); //$NON-NLS-1$
+		assertEquals(0, metrics.snapshot().getHistogram("latency").getCount()); //$NON-NLS-1$
+	}
+}
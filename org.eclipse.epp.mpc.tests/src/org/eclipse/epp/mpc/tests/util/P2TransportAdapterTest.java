@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.net.URI;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.epp.internal.mpc.core.service.ServiceUnavailableException;
+import org.eclipse.epp.internal.mpc.core.util.P2TransportAdapter;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class P2TransportAdapterTest {
+
+	/**
+	 * A stand-in for a p2 transport, which fails depending on the path of the requested location.
+	 */
+	public static class StubTransport {
+
+		final InputStream stream = new ByteArrayInputStream(new byte[0]);
+
+		public InputStream stream(URI location, IProgressMonitor monitor) throws FileNotFoundException,
+				CoreException, Exception {
+			String path = location.getPath();
+			if (path.equals("/missing")) { //$NON-NLS-1$
+				throw new FileNotFoundException(path);
+			} else if (path.equals("/unavailable")) { //$NON-NLS-1$
+				throw new CoreException(new Status(IStatus.ERROR, "test", 1002, "failed", new Exception( //$NON-NLS-1$ //$NON-NLS-2$
+						"Server returned HTTP response code: 503"))); //$NON-NLS-1$
+			} else if (path.equals("/unauthorized")) { //$NON-NLS-1$
+				throw new Exception("unauthorized"); //$NON-NLS-1$
+			}
+			return stream;
+		}
+	}
+
+	private final StubTransport stub = new StubTransport();
+
+	@Test
+	public void testStream() throws Exception {
+		P2TransportAdapter adapter = P2TransportAdapter.create(stub);
+		assertSame(stub, adapter.getTransport());
+		assertSame(stub.stream, adapter.stream(new URI("http://example.org/"), new NullProgressMonitor())); //$NON-NLS-1$
+	}
+
+	@Test(expected = FileNotFoundException.class)
+	public void testFileNotFound() throws Exception {
+		P2TransportAdapter.create(stub).stream(new URI("http://example.org/missing"), new NullProgressMonitor()); //$NON-NLS-1$
+	}
+
+	@Test(expected = ServiceUnavailableException.class)
+	public void testServiceUnavailable() throws Exception {
+		P2TransportAdapter.create(stub).stream(new URI("http://example.org/unavailable"), new NullProgressMonitor()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testOtherExceptionIsWrapped() throws Exception {
+		try {
+			P2TransportAdapter.create(stub).stream(new URI("http://example.org/unauthorized"), //$NON-NLS-1$
+					new NullProgressMonitor());
+			fail();
+		} catch (CoreException e) {
+			assertEquals("unauthorized", e.getStatus().getException().getMessage()); //$NON-NLS-1$
+		}
+	}
+
+	@Test(expected = NoSuchMethodException.class)
+	public void testNoStreamMethod() throws Exception {
+		P2TransportAdapter.create(new Object());
+	}
+}
@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.epp.internal.mpc.core.util.RequestCoalescer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class RequestCoalescerTest {
+
+	private final RequestCoalescer<String, String> coalescer = new RequestCoalescer<String, String>();
+
+	private final AtomicInteger executions = new AtomicInteger();
+
+	private final CountDownLatch started = new CountDownLatch(1);
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private final RequestCoalescer.Request<String> blockingRequest = new RequestCoalescer.Request<String>() {
+		public String execute(IProgressMonitor monitor) throws CoreException {
+			executions.incrementAndGet();
+			started.countDown();
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			return monitor.isCanceled() ? "canceled" : "result"; //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	};
+
+	@Test
+	public void testConcurrentRequestsShareExecution() throws Exception {
+		Caller leader = new Caller("a", new NullProgressMonitor()); //$NON-NLS-1$
+		leader.start();
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		Caller follower = new Caller("a", new NullProgressMonitor()); //$NON-NLS-1$
+		follower.start();
+		// give the follower a chance to join the flight
+		Thread.sleep(200);
+		release.countDown();
+		leader.join(10000);
+		follower.join(10000);
+
+		assertEquals(1, executions.get());
+		assertEquals("result", leader.result); //$NON-NLS-1$
+		assertEquals("result", follower.result); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testDifferentKeysNotCoalesced() throws Exception {
+		release.countDown();
+		coalescer.perform("a", new NullProgressMonitor(), blockingRequest); //$NON-NLS-1$
+		coalescer.perform("b", new NullProgressMonitor(), blockingRequest); //$NON-NLS-1$
+		assertEquals(2, executions.get());
+	}
+
+	@Test
+	public void testCanceledFollowerDoesNotCancelLeader() throws Exception {
+		Caller leader = new Caller("a", new NullProgressMonitor()); //$NON-NLS-1$
+		leader.start();
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		NullProgressMonitor followerMonitor = new NullProgressMonitor();
+		Caller follower = new Caller("a", followerMonitor); //$NON-NLS-1$
+		follower.start();
+		Thread.sleep(200);
+		followerMonitor.setCanceled(true);
+		follower.join(10000);
+		assertFalse(follower.isAlive());
+		assertEquals(IStatus.CANCEL, follower.failure.getStatus().getSeverity());
+
+		release.countDown();
+		leader.join(10000);
+		assertEquals("result", leader.result); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testRequestExecutedOnLeaderThread() throws Exception {
+		final Thread caller = Thread.currentThread();
+		final AtomicInteger work = new AtomicInteger();
+		String result = coalescer.perform("a", new NullProgressMonitor() { //$NON-NLS-1$
+					@Override
+					public void worked(int units) {
+						work.addAndGet(units);
+					}
+				}, new RequestCoalescer.Request<String>() {
+					public String execute(IProgressMonitor monitor) {
+						monitor.worked(30);
+						return Thread.currentThread() == caller ? "result" : "other thread"; //$NON-NLS-1$ //$NON-NLS-2$
+					}
+				});
+		assertEquals("result", result); //$NON-NLS-1$
+		assertEquals(30, work.get());
+	}
+
+	@Test
+	public void testCanceledLeaderExecutesRequestForFollowers() throws Exception {
+		NullProgressMonitor leaderMonitor = new NullProgressMonitor();
+		Caller leader = new Caller("a", leaderMonitor); //$NON-NLS-1$
+		leader.start();
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		Caller follower = new Caller("a", new NullProgressMonitor()); //$NON-NLS-1$
+		follower.start();
+		Thread.sleep(200);
+		leaderMonitor.setCanceled(true);
+
+		release.countDown();
+		leader.join(10000);
+		follower.join(10000);
+		// the request is not canceled while the follower waits for it
+		assertEquals("result", leader.result); //$NON-NLS-1$
+		assertEquals("result", follower.result); //$NON-NLS-1$
+		assertEquals(1, executions.get());
+	}
+
+	@Test
+	public void testRequestCanceledWhenAllCallersCancel() throws Exception {
+		NullProgressMonitor leaderMonitor = new NullProgressMonitor();
+		Caller leader = new Caller("a", leaderMonitor); //$NON-NLS-1$
+		leader.start();
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		NullProgressMonitor followerMonitor = new NullProgressMonitor();
+		Caller follower = new Caller("a", followerMonitor); //$NON-NLS-1$
+		follower.start();
+		Thread.sleep(200);
+		followerMonitor.setCanceled(true);
+		follower.join(10000);
+		assertEquals(IStatus.CANCEL, follower.failure.getStatus().getSeverity());
+		leaderMonitor.setCanceled(true);
+
+		// the abandoned request is not shared with a later caller
+		Caller later = new Caller("a", new NullProgressMonitor()); //$NON-NLS-1$
+		later.start();
+		release.countDown();
+		leader.join(10000);
+		later.join(10000);
+		assertEquals("canceled", leader.result); //$NON-NLS-1$
+		assertEquals("result", later.result); //$NON-NLS-1$
+		assertEquals(2, executions.get());
+	}
+
+	@Test
+	public void testFailureSharedWithFollowers() throws Exception {
+		final CountDownLatch failing = new CountDownLatch(1);
+		final CountDownLatch joined = new CountDownLatch(1);
+		Thread leader = new Thread() {
+			@Override
+			public void run() {
+				try {
+					coalescer.perform("a", new NullProgressMonitor(), new RequestCoalescer.Request<String>() { //$NON-NLS-1$
+								public String execute(IProgressMonitor monitor) {
+									failing.countDown();
+									try {
+										joined.await(10, TimeUnit.SECONDS);
+										Thread.sleep(200);
+									} catch (InterruptedException e) {
+										// ignore
+									}
+									throw new IllegalStateException();
+								}
+							});
+				} catch (Exception e) {
+					// expected
+				}
+			}
+		};
+		leader.start();
+		assertTrue(failing.await(10, TimeUnit.SECONDS));
+		joined.countDown();
+		try {
+			coalescer.perform("a", new NullProgressMonitor(), blockingRequest); //$NON-NLS-1$
+			fail("expected failure"); //$NON-NLS-1$
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		leader.join(10000);
+		assertEquals(0, executions.get());
+	}
+
+	private class Caller extends Thread {
+
+		private final String key;
+
+		private final IProgressMonitor monitor;
+
+		private volatile String result;
+
+		private volatile CoreException failure;
+
+		public Caller(String key, IProgressMonitor monitor) {
+			this.key = key;
+			this.monitor = monitor;
+		}
+
+		@Override
+		public void run() {
+			try {
+				result = coalescer.perform(key, monitor, blockingRequest);
+			} catch (CoreException e) {
+				failure = e;
+			}
+		}
+	}
+}
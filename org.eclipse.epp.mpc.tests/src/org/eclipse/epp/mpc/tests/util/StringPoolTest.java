@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2011 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.eclipse.epp.internal.mpc.core.util.StringPool;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class StringPoolTest {
+
+	@Test
+	public void testEqualValuesShareInstance() {
+		StringPool pool = new StringPool(16);
+		String value = pool.get(new StringBuilder("Free EPL")); //$NON-NLS-1$
+		assertEquals("Free EPL", value); //$NON-NLS-1$
+		assertSame(value, pool.get(new StringBuilder("Free EPL"))); //$NON-NLS-1$
+		assertSame(value, pool.get(new String("Free EPL"))); //$NON-NLS-1$
+		assertEquals("", pool.get(new StringBuilder())); //$NON-NLS-1$
+		assertNull(pool.get(null));
+	}
+
+	@Test
+	public void testCapacityIsBounded() {
+		StringPool pool = new StringPool(100);
+		assertEquals(128, pool.getCapacity());
+
+		String first = pool.get("value 0"); //$NON-NLS-1$
+		for (int x = 1; x < 10000; ++x) {
+			assertEquals("value " + x, pool.get("value " + x)); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		assertEquals(first, pool.get(new StringBuilder("value 0"))); //$NON-NLS-1$
+
+		pool.clear();
+		String value = new String("value 1"); //$NON-NLS-1$
+		assertSame(value, pool.get(value));
+	}
+
+	@Test
+	public void testLongValuesAreNotPooled() {
+		StringPool pool = new StringPool(16);
+		StringBuilder longValue = new StringBuilder();
+		while (longValue.length() <= StringPool.MAX_LENGTH) {
+			longValue.append("long "); //$NON-NLS-1$
+		}
+		String value = pool.get(longValue);
+		assertEquals(longValue.toString(), value);
+		assertNotSame(value, pool.get(longValue));
+	}
+}
@@ -87,6 +87,57 @@ public class TextUtilTest {
 		assertEquals("one two three four", TextUtil.stripHtmlMarkup(input));
 	}
 
+	@Test
+	public void testStripHtmlMarkup_Heading() {
+		String input = "<h2>one two</h2> three four";
+		assertEquals("one two three four", TextUtil.stripHtmlMarkup(input));
+	}
+
+	@Test
+	public void testStripHtmlMarkup_NotATag() {
+		String input = "a<b and 1 < 2 > 0 and <data-x> and <a href=";
+		assertEquals(input, TextUtil.stripHtmlMarkup(input));
+	}
+
+	@Test
+	public void testStripHtmlMarkup_UnquotedAttributeBeforeTagEnd() {
+		String input = "one <a href=http://example.org/>two</a>";
+		assertEquals("one two", TextUtil.stripHtmlMarkup(input));
+	}
+
+	@Test
+	public void testStripHtmlMarkup_CharSequence() {
+		StringBuilder input = new StringBuilder("one <b>two</b>");
+		assertEquals("one two", TextUtil.stripHtmlMarkup(input));
+	}
+
+	@Test(timeout = 10000)
+	public void testStripHtmlMarkup_Pathological() {
+		StringBuilder input = new StringBuilder();
+		for (int x = 0; x < 20000; ++x) {
+			input.append("<a b=cccccccccccccccccccc d='e");
+		}
+		assertEquals(input.toString(), TextUtil.stripHtmlMarkup(input));
+
+		input.setLength(0);
+		for (int x = 0; x < 20000; ++x) {
+			input.append("<br/>x");
+		}
+		assertEquals(20000, TextUtil.stripHtmlMarkup(input).length());
+	}
+
+	@Test(timeout = 10000)
+	public void testStripHtmlMarkup_PathologicalUnquotedAttributes() {
+		// an unquoted value ends at the start of the next tag, so each candidate tag fails without scanning the rest
+		StringBuilder input = new StringBuilder();
+		for (int x = 0; x < 100000; ++x) {
+			input.append("<a x=");
+		}
+		assertEquals(input.toString(), TextUtil.stripHtmlMarkup(input));
+
+		assertEquals("one <a x=two", TextUtil.stripHtmlMarkup("one <a x=<b>two</b>"));
+	}
+
 	@Test
 	public void testCleanInformalHtmlMarkup_Null() {
 		assertNull(TextUtil.cleanInformalHtmlMarkup(null));
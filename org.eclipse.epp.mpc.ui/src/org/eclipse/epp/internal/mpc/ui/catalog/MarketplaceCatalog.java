@@ -20,6 +20,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -58,12 +59,44 @@ import org.eclipse.osgi.util.NLS;
  */
 public class MarketplaceCatalog extends Catalog {
 
+	/**
+	 * A listener that is notified when the items found so far are published to the catalog while a discovery is still
+	 * reading its results.
+	 */
+	public interface ItemsListener {
+		/**
+		 * Called on the thread that reads the results of the discovery, after the catalog has been updated. Listeners
+		 * that read the catalog on another thread must do so {@link MarketplaceCatalog#runExclusive(Runnable)
+		 * exclusively}.
+		 */
+		public void itemsPublished(MarketplaceCatalog catalog);
+	}
+
 	private final Map<String, Boolean> updateAvailableByNodeId = new HashMap<String, Boolean>();
 
+	private final List<ItemsListener> itemsListeners = new CopyOnWriteArrayList<ItemsListener>();
+
 	private interface DiscoveryOperation {
 		public void run(MarketplaceDiscoveryStrategy strategy, IProgressMonitor monitor) throws CoreException;
 	}
 
+	public void addItemsListener(ItemsListener listener) {
+		itemsListeners.add(listener);
+	}
+
+	public void removeItemsListener(ItemsListener listener) {
+		itemsListeners.remove(listener);
+	}
+
+	/**
+	 * Run the given runnable while no items are published to the catalog, so that it sees the items, categories and
+	 * the items of the categories in a consistent state while a discovery is still running, e.g. to refresh a viewer
+	 * of the catalog.
+	 */
+	public synchronized void runExclusive(Runnable runnable) {
+		runnable.run();
+	}
+
 	public IStatus performQuery(final Market market, final Category category, final String queryText,
 			IProgressMonitor monitor) {
 		return performDiscovery(new DiscoveryOperation() {
@@ -73,6 +106,32 @@ public class MarketplaceCatalog extends Catalog {
 		}, monitor);
 	}
 
+	/**
+	 * Indicate if the last {@link #performQuery(Market, Category, String, IProgressMonitor) query} has more results
+	 * than are currently in the catalog.
+	 */
+	public boolean hasNextPage() {
+		for (AbstractDiscoveryStrategy discoveryStrategy : getDiscoveryStrategies()) {
+			if (discoveryStrategy instanceof MarketplaceDiscoveryStrategy
+					&& ((MarketplaceDiscoveryStrategy) discoveryStrategy).hasNextPage()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Retrieve the next page of results of the last {@link #performQuery(Market, Category, String, IProgressMonitor)
+	 * query}, adding them to the items already in the catalog.
+	 */
+	public IStatus nextPage(IProgressMonitor monitor) {
+		return performDiscovery(new DiscoveryOperation() {
+			public void run(MarketplaceDiscoveryStrategy strategy, IProgressMonitor monitor) throws CoreException {
+				strategy.nextPage(monitor);
+			}
+		}, true, monitor);
+	}
+
 	public IStatus recent(IProgressMonitor monitor) {
 		return performDiscovery(new DiscoveryOperation() {
 			public void run(MarketplaceDiscoveryStrategy strategy, IProgressMonitor monitor) throws CoreException {
@@ -287,19 +346,31 @@ public class MarketplaceCatalog extends Catalog {
 	}
 
 	protected IStatus performDiscovery(DiscoveryOperation operation, IProgressMonitor monitor) {
+		return performDiscovery(operation, false, monitor);
+	}
+
+	/**
+	 * @param keepItems
+	 *            true if the items currently in the catalog should be kept, false if the catalog should only contain
+	 *            the items found by the operation
+	 */
+	protected IStatus performDiscovery(DiscoveryOperation operation, boolean keepItems, IProgressMonitor monitor) {
 		MultiStatus status = new MultiStatus(MarketplaceClientUi.BUNDLE_ID, 0, Messages.MarketplaceCatalog_queryFailed,
 				null);
 		if (getDiscoveryStrategies().isEmpty()) {
 			throw new IllegalStateException();
 		}
 
-		// reset, keeping no items but the same tags, categories and certifications
-		List<CatalogItem> items = new ArrayList<CatalogItem>();
-		List<CatalogCategory> categories = new ArrayList<CatalogCategory>(getCategories());
-		List<Certification> certifications = new ArrayList<Certification>(getCertifications());
-		List<Tag> tags = new ArrayList<Tag>(getTags());
-		for (CatalogCategory catalogCategory : categories) {
-			catalogCategory.getItems().clear();
+		// reset, keeping the same tags, categories and certifications, and the items only if requested
+		final List<CatalogItem> items = keepItems ? new ArrayList<CatalogItem>(getItems())
+				: new ArrayList<CatalogItem>();
+		final List<CatalogCategory> categories = new ArrayList<CatalogCategory>(getCategories());
+		final List<Certification> certifications = new ArrayList<Certification>(getCertifications());
+		final List<Tag> tags = new ArrayList<Tag>(getTags());
+		synchronized (this) {
+			for (CatalogCategory catalogCategory : categories) {
+				catalogCategory.getItems().clear();
+			}
 		}
 
 		final int totalTicks = 100000;
@@ -317,25 +388,55 @@ public class MarketplaceCatalog extends Catalog {
 					discoveryStrategy.setItems(items);
 					discoveryStrategy.setCertifications(certifications);
 					discoveryStrategy.setTags(tags);
+					MarketplaceDiscoveryStrategy marketplaceStrategy = (MarketplaceDiscoveryStrategy) discoveryStrategy;
+					marketplaceStrategy.setItemsPublisher(new Runnable() {
+						public void run() {
+							publish(categories, items, certifications, tags);
+							for (ItemsListener listener : itemsListeners) {
+								listener.itemsPublished(MarketplaceCatalog.this);
+							}
+						}
+					});
 					try {
-						MarketplaceDiscoveryStrategy marketplaceStrategy = (MarketplaceDiscoveryStrategy) discoveryStrategy;
 						operation.run(marketplaceStrategy, new SubProgressMonitor(monitor, strategyTicks));
 
 					} catch (CoreException e) {
 						status.add(new Status(e.getStatus().getSeverity(), DiscoveryCore.ID_PLUGIN, NLS.bind(
 								Messages.MarketplaceCatalog_failedWithError, discoveryStrategy.getClass()
 								.getSimpleName()), e));
+					} finally {
+						marketplaceStrategy.setItemsPublisher(null);
 					}
 				}
 			}
 
-			update(categories, items, certifications, tags);
+			publish(categories, items, certifications, tags);
 		} finally {
 			monitor.done();
 		}
 		return status;
 	}
 
+	/**
+	 * Update the catalog with copies of the given lists, so that the strategies can keep adding to them while the
+	 * catalog is shown. The copies are taken on the calling thread, which is the only one that modifies the lists;
+	 * the items of the categories, which are shared with readers of the catalog, are connected again by the update
+	 * while {@link #runExclusive(Runnable) readers are excluded}.
+	 */
+	private void publish(List<CatalogCategory> categories, List<CatalogItem> items,
+			List<Certification> certifications, List<Tag> tags) {
+		List<CatalogCategory> categoriesSnapshot = new ArrayList<CatalogCategory>(categories);
+		List<CatalogItem> itemsSnapshot = new ArrayList<CatalogItem>(items);
+		List<Certification> certificationsSnapshot = new ArrayList<Certification>(certifications);
+		List<Tag> tagsSnapshot = new ArrayList<Tag>(tags);
+		synchronized (this) {
+			for (CatalogCategory catalogCategory : categoriesSnapshot) {
+				catalogCategory.getItems().clear();
+			}
+			update(categoriesSnapshot, itemsSnapshot, certificationsSnapshot, tagsSnapshot);
+		}
+	}
+
 	/**
 	 * Report an error for an attempted install
 	 * 
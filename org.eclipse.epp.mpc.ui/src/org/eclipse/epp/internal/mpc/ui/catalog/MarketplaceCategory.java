@@ -14,6 +14,7 @@ import java.util.List;
 
 import org.eclipse.epp.internal.mpc.core.service.Market;
 import org.eclipse.epp.internal.mpc.core.service.SearchResult;
+import org.eclipse.epp.internal.mpc.core.service.Taxonomy;
 import org.eclipse.equinox.internal.p2.discovery.model.CatalogCategory;
 
 /**
@@ -25,18 +26,29 @@ public class MarketplaceCategory extends CatalogCategory {
 		FEATURED, POPULAR, INSTALLED, RECENT, QUERY
 	}
 
-	private List<Market> markets;
+	private Taxonomy taxonomy;
 
 	private Contents contents;
 
 	private int matchCount;
 
 	public void setMarkets(List<Market> markets) {
-		this.markets = markets;
+		this.taxonomy = markets == null ? null : new Taxonomy(markets);
 	}
 
 	public List<Market> getMarkets() {
-		return markets;
+		return taxonomy == null ? null : taxonomy.getMarkets();
+	}
+
+	/**
+	 * The markets and categories of the marketplace, indexed by id.
+	 */
+	public Taxonomy getTaxonomy() {
+		return taxonomy;
+	}
+
+	public void setTaxonomy(Taxonomy taxonomy) {
+		this.taxonomy = taxonomy;
 	}
 
 	/**
@@ -10,18 +10,17 @@
  *******************************************************************************/
 package org.eclipse.epp.internal.mpc.ui.catalog;
 
-import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProduct;
@@ -29,17 +28,24 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.epp.internal.mpc.core.MarketplaceClientCore;
+import org.eclipse.epp.internal.mpc.core.service.AsyncMarketplaceService;
 import org.eclipse.epp.internal.mpc.core.service.CachingMarketplaceService;
+import org.eclipse.epp.internal.mpc.core.service.CachingMarketplaceServiceRegistry;
 import org.eclipse.epp.internal.mpc.core.service.Categories;
 import org.eclipse.epp.internal.mpc.core.service.Category;
 import org.eclipse.epp.internal.mpc.core.service.DefaultMarketplaceService;
-import org.eclipse.epp.internal.mpc.core.service.Ius;
 import org.eclipse.epp.internal.mpc.core.service.Market;
 import org.eclipse.epp.internal.mpc.core.service.MarketplaceService;
 import org.eclipse.epp.internal.mpc.core.service.Node;
+import org.eclipse.epp.internal.mpc.core.service.NodeBatchResult;
+import org.eclipse.epp.internal.mpc.core.service.NodeListener;
+import org.eclipse.epp.internal.mpc.core.service.PagedSearch;
 import org.eclipse.epp.internal.mpc.core.service.SearchResult;
+import org.eclipse.epp.internal.mpc.core.service.ServiceFuture;
+import org.eclipse.epp.internal.mpc.core.service.Taxonomy;
 import org.eclipse.epp.internal.mpc.ui.MarketplaceClientUi;
 import org.eclipse.epp.internal.mpc.ui.catalog.MarketplaceCategory.Contents;
 import org.eclipse.epp.internal.mpc.ui.util.ConcurrentTaskManager;
@@ -61,9 +67,12 @@ import org.osgi.framework.Bundle;
  */
 public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 
-	private static final String DOT_FEATURE_DOT_GROUP = ".feature.group"; //$NON-NLS-1$
+	private static final int MAX_CONCURRENT_RESOURCE_REQUESTS = 10;
 
-	private static final Pattern BREAK_PATTERN = Pattern.compile("<!--\\s*break\\s*-->"); //$NON-NLS-1$
+	/**
+	 * the number of items that are created from a listing before they are published to the catalog
+	 */
+	private static final int PUBLISH_BATCH_SIZE = 5;
 
 	protected final CatalogDescriptor catalogDescriptor;
 
@@ -75,6 +84,10 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 
 	private Map<String, IInstallableUnit> featureIUById;
 
+	private PagedSearch pagedSearch;
+
+	private volatile Runnable itemsPublisher;
+
 	public MarketplaceDiscoveryStrategy(CatalogDescriptor catalogDescriptor) {
 		if (catalogDescriptor == null) {
 			throw new IllegalArgumentException();
@@ -85,8 +98,21 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 		marketplaceInfo = MarketplaceInfo.getInstance();
 	}
 
+	/**
+	 * Get the service for the marketplace of the catalog descriptor. The service and its cache are shared by all
+	 * strategies for the same marketplace.
+	 */
 	public MarketplaceService createMarketplaceService() {
-		DefaultMarketplaceService service = new DefaultMarketplaceService(this.catalogDescriptor.getUrl());
+		return CachingMarketplaceServiceRegistry.getInstance().getService(catalogDescriptor.getUrl(),
+				new CachingMarketplaceServiceRegistry.ServiceFactory() {
+					public MarketplaceService createMarketplaceService(URL baseUrl) {
+						return createDefaultMarketplaceService(baseUrl);
+					}
+				});
+	}
+
+	private static DefaultMarketplaceService createDefaultMarketplaceService(URL baseUrl) {
+		DefaultMarketplaceService service = new DefaultMarketplaceService(baseUrl);
 		Map<String, String> requestMetaParameters = new HashMap<String, String>();
 		requestMetaParameters.put(DefaultMarketplaceService.META_PARAM_CLIENT, MarketplaceClientCore.BUNDLE_ID);
 		requestMetaParameters.put(DefaultMarketplaceService.META_PARAM_OS, Platform.getOS());
@@ -108,7 +134,7 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 					.toString());
 		}
 		service.setRequestMetaParameters(requestMetaParameters);
-		return new CachingMarketplaceService(service);
+		return service;
 	}
 
 	@Override
@@ -124,6 +150,28 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 		super.dispose();
 	}
 
+	/**
+	 * Set the callback that publishes the {@link #getItems() items} created so far while the nodes of a listing are
+	 * still being read. The callback is run on the thread that reads the listing.
+	 *
+	 * @param itemsPublisher
+	 *            the callback, or null to only publish the items when the discovery has completed
+	 */
+	public void setItemsPublisher(Runnable itemsPublisher) {
+		this.itemsPublisher = itemsPublisher;
+	}
+
+	/**
+	 * Publish the {@link #getItems() items} created so far, if a {@link #setItemsPublisher(Runnable) publisher} is
+	 * set. Must be called on the thread that creates the items.
+	 */
+	protected void publishItems() {
+		Runnable publisher = itemsPublisher;
+		if (publisher != null) {
+			publisher.run();
+		}
+	}
+
 	@Override
 	public void performDiscovery(IProgressMonitor monitor) throws CoreException {
 		if (monitor == null) {
@@ -133,11 +181,25 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 		final int workSegment = totalWork / 3;
 		monitor.beginTask(Messages.MarketplaceDiscoveryStrategy_loadingMarketplace, totalWork);
 		try {
-			MarketplaceCategory catalogCategory = findMarketplaceCategory(new SubProgressMonitor(monitor, workSegment));
+			// request featured while the markets are being listed
+			ServiceFuture<SearchResult> featuredFuture = null;
+			if (marketplaceService instanceof AsyncMarketplaceService) {
+				featuredFuture = ((AsyncMarketplaceService) marketplaceService).featuredAsync();
+			}
+			MarketplaceCategory catalogCategory;
+			try {
+				catalogCategory = findMarketplaceCategory(new SubProgressMonitor(monitor, workSegment));
+			} catch (CoreException e) {
+				if (featuredFuture != null) {
+					featuredFuture.cancel(false);
+				}
+				throw e;
+			}
 
 			catalogCategory.setContents(Contents.FEATURED);
 
-			SearchResult featured = marketplaceService.featured(new SubProgressMonitor(monitor, workSegment));
+			SearchResult featured = featuredFuture != null ? featuredFuture.getResult(new SubProgressMonitor(monitor,
+					workSegment)) : marketplaceService.featured(new SubProgressMonitor(monitor, workSegment));
 			handleSearchResult(catalogCategory, featured, new SubProgressMonitor(monitor, workSegment));
 			maybeAddCatalogItem(catalogCategory);
 		} finally {
@@ -147,133 +209,174 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 
 	protected void handleSearchResult(MarketplaceCategory catalogCategory, SearchResult result,
 			final IProgressMonitor monitor) {
-		if (!result.getNodes().isEmpty()) {
-			int totalWork = 10000000;
-			monitor.beginTask(Messages.MarketplaceDiscoveryStrategy_loadingResources, totalWork);
-			ConcurrentTaskManager executor = new ConcurrentTaskManager(result.getNodes().size(),
+		handleSearchResult(catalogCategory, result, hasMoreResults(result), monitor);
+	}
+
+	private static boolean hasMoreResults(SearchResult result) {
+		return result.getMatchCount() != null && result.getMatchCount() > result.getNodes().size();
+	}
+
+	/**
+	 * @param moreResults
+	 *            true if the query matched more nodes than are available, in which case an item is added to indicate
+	 *            that there are more results
+	 */
+	protected void handleSearchResult(MarketplaceCategory catalogCategory, SearchResult result, boolean moreResults,
+			final IProgressMonitor monitor) {
+		CatalogItemFactory itemFactory = new CatalogItemFactory(catalogCategory, monitor);
+		try {
+			itemFactory.finish(result, moreResults);
+		} finally {
+			itemFactory.dispose();
+		}
+	}
+
+	/**
+	 * Creates a catalog item for each node as soon as it is received, so that items are created and their resources
+	 * retrieved while the remaining nodes of a listing are still being read. The items are published in batches of
+	 * {@link #PUBLISH_BATCH_SIZE}, so that they can be shown before the listing is complete. Nodes are received on the
+	 * thread that reads the listing, which keeps running when the request is canceled: no items are created once the
+	 * factory has been disposed.
+	 */
+	private class CatalogItemFactory implements NodeListener {
+
+		private static final int TOTAL_WORK = 10000000;
+
+		private final MarketplaceCategory catalogCategory;
+
+		private final IProgressMonitor monitor;
+
+		private final ConcurrentTaskManager executor;
+
+		private final Map<Node, Boolean> createdNodes = new IdentityHashMap<Node, Boolean>();
+
+		private Set<URI> knownRepositories;
+
+		private int unpublishedItems;
+
+		private boolean disposed;
+
+		public CatalogItemFactory(MarketplaceCategory catalogCategory, IProgressMonitor monitor) {
+			this.catalogCategory = catalogCategory;
+			this.monitor = monitor;
+			monitor.beginTask(Messages.MarketplaceDiscoveryStrategy_loadingResources, TOTAL_WORK);
+			// the number of nodes is not known up front, so size the pool for the largest listing
+			executor = new ConcurrentTaskManager(MAX_CONCURRENT_RESOURCE_REQUESTS,
 					Messages.MarketplaceDiscoveryStrategy_loadingResources);
-			try {
+		}
+
+		public synchronized void nodeReceived(final Node node) {
+			if (disposed || createdNodes.put(node, Boolean.TRUE) != null) {
+				return;
+			}
+			if (knownRepositories == null) {
 				ProvisioningSession session = ProvisioningUI.getDefaultUI().getSession();
 				RepositoryTracker repositoryTracker = ProvisioningUI.getDefaultUI().getRepositoryTracker();
 
-				Set<URI> knownRepositories = new HashSet<URI>(
-						Arrays.asList(repositoryTracker.getKnownRepositories(session)));
-
-				for (final Node node : result.getNodes()) {
-					final MarketplaceNodeCatalogItem catalogItem = new MarketplaceNodeCatalogItem();
-					catalogItem.setMarketplaceUrl(catalogDescriptor.getUrl());
-					catalogItem.setId(node.getId());
-					catalogItem.setName(node.getName());
-					catalogItem.setCategoryId(catalogCategory.getId());
-					Categories categories = node.getCategories();
-					if (categories != null) {
-						for (Category category : categories.getCategory()) {
-							catalogItem.addTag(new Tag(Category.class, category.getId(), category.getName()));
-						}
-					}
-					catalogItem.setData(node);
-					catalogItem.setSource(source);
-					catalogItem.setLicense(node.getLicense());
-					Ius ius = node.getIus();
-					if (ius != null) {
-						List<String> discoveryIus = new ArrayList<String>(ius.getIu());
-						for (int x = 0; x < discoveryIus.size(); ++x) {
-							String iu = discoveryIus.get(x);
-							if (!iu.endsWith(DOT_FEATURE_DOT_GROUP)) {
-								discoveryIus.set(x, iu + DOT_FEATURE_DOT_GROUP);
-							}
-						}
-						catalogItem.setInstallableUnits(discoveryIus);
-					}
-					if (node.getShortdescription() == null && node.getBody() != null) {
-						// bug 306653 <!--break--> marks the end of the short description.
-						String descriptionText = node.getBody();
-						Matcher matcher = BREAK_PATTERN.matcher(node.getBody());
-						if (matcher.find()) {
-							int start = matcher.start();
-							if (start > 0) {
-								String shortDescriptionText = descriptionText.substring(0, start).trim();
-								if (shortDescriptionText.length() > 0) {
-									descriptionText = shortDescriptionText;
-								}
-							}
-						}
-						catalogItem.setDescription(descriptionText);
-					} else {
-						catalogItem.setDescription(node.getShortdescription());
-					}
-					catalogItem.setProvider(node.getCompanyname());
-					String updateurl = node.getUpdateurl();
-					if (updateurl != null) {
-						try {
-							// trim is important!
-							updateurl = updateurl.trim();
-							new URL(updateurl);
-							catalogItem.setSiteUrl(updateurl);
-						} catch (MalformedURLException e) {
-							// don't use malformed URLs
-						}
-					}
-					if (node.getBody() != null || node.getScreenshot() != null) {
-						final Overview overview = new Overview();
-						overview.setItem(catalogItem);
-						overview.setSummary(node.getBody());
-						overview.setUrl(node.getUrl());
-						catalogItem.setOverview(overview);
-
-						if (node.getScreenshot() != null) {
-							if (!source.getResourceProvider().containsResource(node.getScreenshot())) {
-								executor.submit(new AbstractResourceRunnable(monitor, source.getResourceProvider(),
-										node.getScreenshot()) {
-									@Override
-									protected void resourceRetrieved() {
-										overview.setScreenshot(node.getScreenshot());
-									}
-								});
-							} else {
+				knownRepositories = new HashSet<URI>(Arrays.asList(repositoryTracker.getKnownRepositories(session)));
+			}
+			final MarketplaceNodeCatalogItem catalogItem = new MarketplaceNodeCatalogItem();
+			catalogItem.setMarketplaceUrl(catalogDescriptor.getUrl());
+			catalogItem.setId(node.getId());
+			catalogItem.setName(node.getName());
+			catalogItem.setCategoryId(catalogCategory.getId());
+			Categories categories = node.getCategories();
+			if (categories != null) {
+				for (Category category : categories.getCategory()) {
+					catalogItem.addTag(new Tag(Category.class, category.getId(), category.getName()));
+				}
+			}
+			catalogItem.setData(node);
+			catalogItem.setSource(source);
+			catalogItem.setLicense(node.getLicense());
+			List<String> featureGroupIus = node.getFeatureGroupIus();
+			if (featureGroupIus != null) {
+				catalogItem.setInstallableUnits(new ArrayList<String>(featureGroupIus));
+			}
+			catalogItem.setDescription(node.getDescription());
+			catalogItem.setProvider(node.getCompanyname());
+			if (node.getUpdateSiteUrl() != null) {
+				catalogItem.setSiteUrl(node.getUpdateSiteUrl());
+			}
+			if (node.getBody() != null || node.getScreenshot() != null) {
+				final Overview overview = new Overview();
+				overview.setItem(catalogItem);
+				overview.setSummary(node.getBody());
+				overview.setUrl(node.getUrl());
+				catalogItem.setOverview(overview);
+
+				if (node.getScreenshot() != null) {
+					if (!source.getResourceProvider().containsResource(node.getScreenshot())) {
+						executor.submit(new AbstractResourceRunnable(monitor, source.getResourceProvider(),
+								node.getScreenshot()) {
+							@Override
+							protected void resourceRetrieved() {
 								overview.setScreenshot(node.getScreenshot());
 							}
-						}
+						});
+					} else {
+						overview.setScreenshot(node.getScreenshot());
 					}
-					if (node.getImage() != null) {
-						// FIXME: icon sizing
-						if (!source.getResourceProvider().containsResource(node.getImage())) {
-							executor.submit(new AbstractResourceRunnable(monitor, source.getResourceProvider(),
-									node.getImage()) {
-								@Override
-								protected void resourceRetrieved() {
-									createIcon(catalogItem, node);
-								}
-
-							});
-						} else {
+				}
+			}
+			if (node.getImage() != null) {
+				// FIXME: icon sizing
+				if (!source.getResourceProvider().containsResource(node.getImage())) {
+					executor.submit(new AbstractResourceRunnable(monitor, source.getResourceProvider(),
+							node.getImage()) {
+						@Override
+						protected void resourceRetrieved() {
 							createIcon(catalogItem, node);
 						}
-					}
-					items.add(catalogItem);
-					marketplaceInfo.map(catalogItem.getMarketplaceUrl(), node);
-					catalogItem.setInstalled(marketplaceInfo.computeInstalled(computeInstalledFeatures(monitor),
-							knownRepositories, node));
 
+					});
+				} else {
+					createIcon(catalogItem, node);
 				}
+			}
+			items.add(catalogItem);
+			marketplaceInfo.map(catalogItem.getMarketplaceUrl(), node);
+			catalogItem.setInstalled(marketplaceInfo.computeInstalled(computeInstalledFeatures(monitor),
+					knownRepositories, node));
+			if (++unpublishedItems >= PUBLISH_BATCH_SIZE) {
+				unpublishedItems = 0;
+				publishItems();
+			}
+		}
+
+		/**
+		 * Create the items of the given result that have not been received yet, and wait for their resources to be
+		 * retrieved.
+		 */
+		public void finish(SearchResult result, boolean moreResults) {
+			for (Node node : result.getNodes()) {
+				nodeReceived(node);
+			}
+			if (!createdNodes.isEmpty()) {
 				try {
-					executor.waitUntilFinished(new SubProgressMonitor(monitor, totalWork - 10));
+					executor.waitUntilFinished(new SubProgressMonitor(monitor, TOTAL_WORK - 10));
 				} catch (CoreException e) {
 					// just log, since this is expected to occur frequently
 					MarketplaceClientUi.error(e);
 				}
-			} finally {
-				executor.shutdownNow();
-				monitor.done();
 			}
-			if (result.getMatchCount() != null) {
+			dispose();
+			if (!result.getNodes().isEmpty() && result.getMatchCount() != null) {
 				catalogCategory.setMatchCount(result.getMatchCount());
-				if (result.getMatchCount() > result.getNodes().size()) {
+				if (moreResults) {
 					// add an item here to indicate that the search matched more items than were returned by the server
 					addCatalogItem(catalogCategory);
 				}
 			}
 		}
+
+		public synchronized void dispose() {
+			if (!disposed) {
+				disposed = true;
+				executor.shutdownNow();
+				monitor.done();
+			}
+		}
 	}
 
 	public void maybeAddCatalogItem(MarketplaceCategory catalogCategory) {
@@ -285,6 +388,12 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 		}
 	}
 
+	private void removeCatalogItem() {
+		while (!items.isEmpty() && items.get(items.size() - 1).getData() == catalogDescriptor) {
+			items.remove(items.size() - 1);
+		}
+	}
+
 	public void addCatalogItem(MarketplaceCategory catalogCategory) {
 		CatalogItem catalogItem = new CatalogItem();
 		catalogItem.setSource(source);
@@ -310,12 +419,61 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 		try {
 			MarketplaceCategory catalogCategory = findMarketplaceCategory(new SubProgressMonitor(monitor, 1));
 			catalogCategory.setContents(Contents.QUERY);
-			SearchResult result = marketplaceService.search(market, category, queryText, new SubProgressMonitor(
-					monitor, totalWork / 2));
-			handleSearchResult(catalogCategory, result, new SubProgressMonitor(monitor, totalWork / 2));
-			if (result.getNodes().isEmpty()) {
-				catalogCategory.setMatchCount(0);
-				addCatalogItem(catalogCategory);
+			pagedSearch = new PagedSearch(marketplaceService, market, category, queryText);
+			CatalogItemFactory itemFactory = new CatalogItemFactory(catalogCategory, new SubProgressMonitor(monitor,
+					totalWork / 2));
+			try {
+				SearchResult result = pagedSearch.nextPage(itemFactory, new SubProgressMonitor(monitor, totalWork / 2));
+				itemFactory.finish(result, pagedSearch.hasNextPage());
+				if (result.getNodes().isEmpty()) {
+					catalogCategory.setMatchCount(0);
+					addCatalogItem(catalogCategory);
+				}
+			} finally {
+				itemFactory.dispose();
+			}
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Indicate if the last {@link #performQuery(Market, Category, String, IProgressMonitor) query} has more results
+	 * that can be retrieved with {@link #nextPage(IProgressMonitor)}.
+	 */
+	public boolean hasNextPage() {
+		if (pagedSearch == null || !pagedSearch.hasNextPage()) {
+			return false;
+		}
+		for (CatalogCategory candidate : getCategories()) {
+			if (candidate.getSource() == source) {
+				return ((MarketplaceCategory) candidate).getContents() == Contents.QUERY;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Retrieve the next page of results of the last {@link #performQuery(Market, Category, String, IProgressMonitor)
+	 * query}, appending them to the existing items.
+	 */
+	public void nextPage(IProgressMonitor monitor) throws CoreException {
+		final int totalWork = 1000000;
+		monitor.beginTask(Messages.MarketplaceDiscoveryStrategy_searchingMarketplace, totalWork);
+		try {
+			if (!hasNextPage()) {
+				return;
+			}
+			MarketplaceCategory catalogCategory = findMarketplaceCategory(new SubProgressMonitor(monitor, 1));
+			// the placeholder must go before the first item of the next page is appended
+			removeCatalogItem();
+			CatalogItemFactory itemFactory = new CatalogItemFactory(catalogCategory, new SubProgressMonitor(monitor,
+					totalWork / 2));
+			try {
+				SearchResult result = pagedSearch.nextPage(itemFactory, new SubProgressMonitor(monitor, totalWork / 2));
+				itemFactory.finish(result, pagedSearch.hasNextPage());
+			} finally {
+				itemFactory.dispose();
 			}
 		} finally {
 			monitor.done();
@@ -328,8 +486,15 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 		try {
 			MarketplaceCategory catalogCategory = findMarketplaceCategory(new SubProgressMonitor(monitor, 1));
 			catalogCategory.setContents(Contents.RECENT);
-			SearchResult result = marketplaceService.recent(new SubProgressMonitor(monitor, totalWork / 2));
-			handleSearchResult(catalogCategory, result, new SubProgressMonitor(monitor, totalWork / 2));
+			CatalogItemFactory itemFactory = new CatalogItemFactory(catalogCategory, new SubProgressMonitor(monitor,
+					totalWork / 2));
+			try {
+				SearchResult result = marketplaceService.recent(new SubProgressMonitor(monitor, totalWork / 2),
+						itemFactory);
+				itemFactory.finish(result, hasMoreResults(result));
+			} finally {
+				itemFactory.dispose();
+			}
 			maybeAddCatalogItem(catalogCategory);
 		} finally {
 			monitor.done();
@@ -342,9 +507,15 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 		try {
 			MarketplaceCategory catalogCategory = findMarketplaceCategory(new SubProgressMonitor(monitor, 1));
 			catalogCategory.setContents(Contents.FEATURED);
-			SearchResult result = marketplaceService.featured(new SubProgressMonitor(monitor, totalWork / 2), market,
-					category);
-			handleSearchResult(catalogCategory, result, new SubProgressMonitor(monitor, totalWork / 2));
+			CatalogItemFactory itemFactory = new CatalogItemFactory(catalogCategory, new SubProgressMonitor(monitor,
+					totalWork / 2));
+			try {
+				SearchResult result = marketplaceService.featured(new SubProgressMonitor(monitor, totalWork / 2),
+						market, category, itemFactory);
+				itemFactory.finish(result, hasMoreResults(result));
+			} finally {
+				itemFactory.dispose();
+			}
 			maybeAddCatalogItem(catalogCategory);
 		} finally {
 			monitor.done();
@@ -358,8 +529,15 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 		try {
 			MarketplaceCategory catalogCategory = findMarketplaceCategory(new SubProgressMonitor(monitor, 1));
 			catalogCategory.setContents(Contents.POPULAR);
-			SearchResult result = marketplaceService.favorites(new SubProgressMonitor(monitor, totalWork / 2));
-			handleSearchResult(catalogCategory, result, new SubProgressMonitor(monitor, totalWork / 2));
+			CatalogItemFactory itemFactory = new CatalogItemFactory(catalogCategory, new SubProgressMonitor(monitor,
+					totalWork / 2));
+			try {
+				SearchResult result = marketplaceService.favorites(new SubProgressMonitor(monitor, totalWork / 2),
+						itemFactory);
+				itemFactory.finish(result, hasMoreResults(result));
+			} finally {
+				itemFactory.dispose();
+			}
 			maybeAddCatalogItem(catalogCategory);
 		} finally {
 			monitor.done();
@@ -379,12 +557,8 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 				Set<Node> catalogNodes = marketplaceInfo.computeInstalledNodes(catalogDescriptor.getUrl(),
 						installedFeatures);
 				if (!catalogNodes.isEmpty()) {
-					int unitWork = totalWork / (2 * catalogNodes.size());
-					for (Node node : catalogNodes) {
-						node = marketplaceService.getNode(node, monitor);
-						result.getNodes().add(node);
-						monitor.worked(unitWork);
-					}
+					result.getNodes().addAll(
+							getNodes(catalogNodes, true, new SubProgressMonitor(monitor, totalWork / 2)));
 				} else {
 					monitor.worked(totalWork / 2);
 				}
@@ -401,18 +575,18 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 		try {
 			MarketplaceCategory catalogCategory = findMarketplaceCategory(new SubProgressMonitor(monitor, 1));
 			catalogCategory.setContents(Contents.QUERY);
+			pagedSearch = null;
 			SearchResult result = new SearchResult();
 			result.setNodes(new ArrayList<Node>());
 			if (!monitor.isCanceled()) {
 				if (!nodeIds.isEmpty()) {
-					int unitWork = totalWork / (2 * nodeIds.size());
+					List<Node> nodes = new ArrayList<Node>(nodeIds.size());
 					for (String nodeId : nodeIds) {
 						Node node = new Node();
 						node.setId(nodeId);
-						node = marketplaceService.getNode(node, monitor);
-						result.getNodes().add(node);
-						monitor.worked(unitWork);
+						nodes.add(node);
 					}
+					result.getNodes().addAll(getNodes(nodes, false, new SubProgressMonitor(monitor, totalWork / 2)));
 				} else {
 					monitor.worked(totalWork / 2);
 				}
@@ -425,6 +599,31 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 		}
 	}
 
+	/**
+	 * Retrieve the given nodes in a single batch.
+	 * 
+	 * @param partialResult
+	 *            true if the nodes that can be retrieved should be returned when some nodes cannot be retrieved, in
+	 *            which case the failures are logged as a warning
+	 * @throws CoreException
+	 *             if a node cannot be retrieved and a partial result is not acceptable, or if no node could be
+	 *             retrieved
+	 */
+	private List<Node> getNodes(Collection<Node> nodes, boolean partialResult, IProgressMonitor monitor)
+			throws CoreException {
+		NodeBatchResult batch = marketplaceService.getNodes(nodes, monitor);
+		IStatus status = batch.getStatus();
+		if (!status.isOK()) {
+			if (!partialResult || batch.getNodes().isEmpty()) {
+				throw new CoreException(status);
+			}
+			MarketplaceClientUi.getLog().log(
+					new Status(IStatus.WARNING, MarketplaceClientUi.BUNDLE_ID, status.getMessage(),
+							new CoreException(status)));
+		}
+		return batch.getNodes();
+	}
+
 	protected Set<String> computeInstalledFeatures(IProgressMonitor monitor) {
 		return computeInstalledIUs(monitor).keySet();
 	}
@@ -448,7 +647,13 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 			}
 
 			if (catalogCategory == null) {
-				List<Market> markets = marketplaceService.listMarkets(new SubProgressMonitor(monitor, 10000));
+				Taxonomy taxonomy;
+				if (marketplaceService instanceof CachingMarketplaceService) {
+					taxonomy = ((CachingMarketplaceService) marketplaceService).getTaxonomy(new SubProgressMonitor(
+							monitor, 10000));
+				} else {
+					taxonomy = new Taxonomy(marketplaceService.listMarkets(new SubProgressMonitor(monitor, 10000)));
+				}
 
 				// marketplace has markets and categories, however a node and/or category can appear in multiple
 				// markets.  This doesn't match well with discovery's concept of a category.  Discovery requires all
@@ -458,7 +663,7 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 				catalogCategory.setName("<root>"); //$NON-NLS-1$
 				catalogCategory.setSource(source);
 
-				catalogCategory.setMarkets(markets);
+				catalogCategory.setTaxonomy(taxonomy);
 
 				categories.add(catalogCategory);
 			}
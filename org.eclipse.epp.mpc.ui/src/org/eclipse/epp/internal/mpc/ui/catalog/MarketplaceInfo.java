@@ -19,7 +19,6 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -104,20 +103,13 @@ public class MarketplaceInfo {
 	 * @param knownRepositories
 	 */
 	public boolean computeInstalled(Set<String> installedFeatures, Set<URI> knownRepositories, Node node) {
-		String updateurl = node.getUpdateurl();
-		if (updateurl == null) {
-			// can't be installed if there's no update site
+		URI uri = node.getUpdateUri();
+		if (uri == null) {
+			// can't be installed if there's no valid update site
 			return false;
 		}
 		// SECURITY: can't be installed if the repository is not known/trusted
-		try {
-			URI uri = new URL(updateurl).toURI();
-			if (!knownRepositories.contains(uri)) {
-				return false;
-			}
-		} catch (MalformedURLException e) {
-			return false;
-		} catch (URISyntaxException e) {
+		if (!knownRepositories.contains(uri)) {
 			return false;
 		}
 		if (node.getIus() != null && !node.getIus().getIu().isEmpty()) {
@@ -32,6 +32,7 @@ import org.eclipse.epp.internal.mpc.core.service.Catalog;
 import org.eclipse.epp.internal.mpc.core.service.CatalogService;
 import org.eclipse.epp.internal.mpc.core.service.Category;
 import org.eclipse.epp.internal.mpc.core.service.Market;
+import org.eclipse.epp.internal.mpc.core.service.Taxonomy;
 import org.eclipse.epp.internal.mpc.ui.CatalogRegistry;
 import org.eclipse.epp.internal.mpc.ui.MarketplaceClientUi;
 import org.eclipse.epp.internal.mpc.ui.catalog.MarketplaceCatalog;
@@ -107,9 +108,10 @@ public class MarketplaceWizardCommand extends AbstractHandler implements IHandle
 			public void catalogUpdated(boolean wasCancelled) {
 				List<Tag> choices = new ArrayList<Tag>();
 				for (CatalogCategory category : catalog.getCategories()) {
-					if (category instanceof MarketplaceCategory) {
-						MarketplaceCategory marketplaceCategory = (MarketplaceCategory) category;
-						for (Market market : marketplaceCategory.getMarkets()) {
+					if (category instanceof MarketplaceCategory
+							&& ((MarketplaceCategory) category).getTaxonomy() != null) {
+						Taxonomy taxonomy = ((MarketplaceCategory) category).getTaxonomy();
+						for (Market market : taxonomy.getMarkets()) {
 							Tag marketTag = new Tag(Market.class, market.getId(), market.getName());
 							marketTag.setData(market);
 							choices.add(marketTag);
@@ -130,16 +132,14 @@ public class MarketplaceWizardCommand extends AbstractHandler implements IHandle
 				Set<Tag> newChoices = new HashSet<Tag>();
 				List<Tag> choices = new ArrayList<Tag>();
 				for (CatalogCategory category : catalog.getCategories()) {
-					if (category instanceof MarketplaceCategory) {
-						MarketplaceCategory marketplaceCategory = (MarketplaceCategory) category;
-						for (Market market : marketplaceCategory.getMarkets()) {
-							for (Category marketCategory : market.getCategory()) {
-								Tag categoryTag = new Tag(Category.class, marketCategory.getId(),
-										marketCategory.getName());
-								categoryTag.setData(marketCategory);
-								if (newChoices.add(categoryTag)) {
-									choices.add(categoryTag);
-								}
+					if (category instanceof MarketplaceCategory
+							&& ((MarketplaceCategory) category).getTaxonomy() != null) {
+						Taxonomy taxonomy = ((MarketplaceCategory) category).getTaxonomy();
+						for (Category marketCategory : taxonomy.getCategories()) {
+							Tag categoryTag = new Tag(Category.class, marketCategory.getId(), marketCategory.getName());
+							categoryTag.setData(marketCategory);
+							if (newChoices.add(categoryTag)) {
+								choices.add(categoryTag);
 							}
 						}
 					}
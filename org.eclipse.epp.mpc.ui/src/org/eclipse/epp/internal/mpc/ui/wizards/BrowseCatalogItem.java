@@ -73,6 +73,10 @@ public class BrowseCatalogItem extends AbstractDiscoveryItem<CatalogDescriptor>
 		GridLayoutFactory.swtDefaults().applyTo(parent);
 
 		Link link = new Link(parent, SWT.NULL);
+		if (viewer.hasNextPage()) {
+			createNextPageContent(link);
+			return;
+		}
 		if (viewer.getQueryContentType() == ContentType.SEARCH) {
 			link.setText(NLS.bind(Messages.BrowseCatalogItem_browseMoreLink, category.getMatchCount()));
 		} else {
@@ -89,6 +93,33 @@ public class BrowseCatalogItem extends AbstractDiscoveryItem<CatalogDescriptor>
 		GridDataFactory.swtDefaults().grab(true, false).align(SWT.CENTER, SWT.CENTER).applyTo(link);
 	}
 
+	private void createNextPageContent(Link link) {
+		link.setText(NLS.bind(Messages.BrowseCatalogItem_showMoreLink, category.getMatchCount()));
+		link.setBackground(null);
+		link.addListener(SWT.Selection, new Listener() {
+			public void handleEvent(Event event) {
+				viewer.showNextPage();
+			}
+		});
+		if (viewer.isNextPageOnDemand()) {
+			// paint events are only received once this item is scrolled into view, which is when the next page is needed
+			addListener(SWT.Paint, new Listener() {
+				public void handleEvent(Event event) {
+					removeListener(SWT.Paint, this);
+					getDisplay().asyncExec(new Runnable() {
+						public void run() {
+							if (!isDisposed() && viewer.isNextPageOnDemand()) {
+								viewer.showNextPage();
+							}
+						}
+					});
+				}
+			});
+		}
+
+		GridDataFactory.swtDefaults().grab(true, false).align(SWT.CENTER, SWT.CENTER).applyTo(link);
+	}
+
 	protected void openMarketplace() {
 		CatalogDescriptor catalogDescriptor = getData();
 
@@ -200,12 +200,19 @@ public class DiscoveryItem<T extends CatalogItem> extends AbstractDiscoveryItem<
 
 		description = new Label(this, SWT.NULL | SWT.WRAP);
 		GridDataFactory.fillDefaults().grab(true, false).span(2, 1).hint(100, SWT.DEFAULT).applyTo(description);
-		String descriptionText = connector.getDescription();
+		String descriptionText;
+		if (connector.getData() instanceof Node) {
+			// computed once per node
+			descriptionText = ((Node) connector.getData()).getDescriptionText();
+		} else {
+			descriptionText = connector.getDescription();
+			if (descriptionText != null) {
+				descriptionText = TextUtil.stripHtmlMarkup(descriptionText).trim();
+			}
+		}
 		int maxDescriptionLength = 162;
 		if (descriptionText == null) {
 			descriptionText = ""; //$NON-NLS-1$
-		} else {
-			descriptionText = TextUtil.stripHtmlMarkup(descriptionText).trim();
 		}
 		if (descriptionText.length() > maxDescriptionLength) {
 			int truncationIndex = maxDescriptionLength;
@@ -51,11 +51,14 @@ import org.eclipse.jface.viewers.StructuredViewer;
 import org.eclipse.jface.viewers.ViewerFilter;
 import org.eclipse.jface.window.IShellProvider;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.DisposeEvent;
+import org.eclipse.swt.events.DisposeListener;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.statushandlers.StatusManager;
 
 /**
@@ -122,6 +125,10 @@ public class MarketplaceViewer extends CatalogViewer {
 
 	private final List<IPropertyChangeListener> listeners = new LinkedList<IPropertyChangeListener>();
 
+	private boolean nextPageOnDemand = true;
+
+	private volatile boolean refreshPending;
+
 	public MarketplaceViewer(Catalog catalog, IShellProvider shellProvider, MarketplaceWizard wizard) {
 		super(catalog, shellProvider, wizard.getContainer(), wizard.getConfiguration());
 		this.browser = wizard;
@@ -269,6 +276,7 @@ public class MarketplaceViewer extends CatalogViewer {
 
 
 	private void doQuery(final Market market, final Category category, final String queryText) {
+		nextPageOnDemand = true;
 		try {
 			final ContentType queryType = contentType;
 			queryContentType = queryType;
@@ -330,6 +338,57 @@ public class MarketplaceViewer extends CatalogViewer {
 		getViewer().getControl().getParent().layout(true, true);
 	}
 
+	/**
+	 * Indicate if the current query has more results that can be shown with {@link #showNextPage()}.
+	 */
+	public boolean hasNextPage() {
+		return queryContentType == ContentType.SEARCH && getCatalog().hasNextPage();
+	}
+
+	/**
+	 * Indicate if the next page of results should be retrieved as soon as the end of the current results is reached.
+	 * This is the case unless retrieving a page failed or was canceled.
+	 */
+	public boolean isNextPageOnDemand() {
+		return nextPageOnDemand && hasNextPage();
+	}
+
+	/**
+	 * Retrieve the next page of results of the current query and append it to the results shown.
+	 */
+	public void showNextPage() {
+		if (!hasNextPage()) {
+			return;
+		}
+		try {
+			final IStatus[] result = new IStatus[1];
+			context.run(true, true, new IRunnableWithProgress() {
+				public void run(IProgressMonitor monitor) throws InvocationTargetException, InterruptedException {
+					result[0] = getCatalog().nextPage(monitor);
+					if (!monitor.isCanceled() && result[0] != null && result[0].getSeverity() != IStatus.CANCEL) {
+						getCatalog().checkForUpdates(monitor);
+					}
+				}
+			});
+			if (result[0] != null && !result[0].isOK()) {
+				nextPageOnDemand = false;
+				if (result[0].getSeverity() != IStatus.CANCEL) {
+					StatusManager.getManager().handle(result[0],
+							StatusManager.SHOW | StatusManager.BLOCK | StatusManager.LOG);
+				}
+			}
+		} catch (InvocationTargetException e) {
+			nextPageOnDemand = false;
+			IStatus status = computeStatus(e, Messages.MarketplaceViewer_unexpectedException);
+			StatusManager.getManager().handle(status, StatusManager.SHOW | StatusManager.BLOCK | StatusManager.LOG);
+		} catch (InterruptedException e) {
+			// cancelled by user, so stop retrieving pages until the next query
+			nextPageOnDemand = false;
+		}
+		super.doFind(queryText);
+		getViewer().getControl().getParent().layout(true, true);
+	}
+
 	public void showSelected() {
 		contentType = ContentType.SELECTION;
 		queryMarket = null;
@@ -410,9 +469,45 @@ public class MarketplaceViewer extends CatalogViewer {
 	protected StructuredViewer doCreateViewer(Composite container) {
 		StructuredViewer viewer = super.doCreateViewer(container);
 		viewer.setSorter(null);
+		hookItemsListener(viewer.getControl());
 		return viewer;
 	}
 
+	/**
+	 * Show the items that are published to the catalog while a query is still reading its results. Refreshes are
+	 * coalesced, so that a slow UI thread refreshes once for several batches, and exclude further publishing until
+	 * they are done, since the query keeps running on another thread.
+	 */
+	private void hookItemsListener(final Control control) {
+		final Display display = control.getDisplay();
+		final MarketplaceCatalog.ItemsListener itemsListener = new MarketplaceCatalog.ItemsListener() {
+			public void itemsPublished(MarketplaceCatalog catalog) {
+				if (refreshPending) {
+					return;
+				}
+				refreshPending = true;
+				display.asyncExec(new Runnable() {
+					public void run() {
+						refreshPending = false;
+						if (!control.isDisposed()) {
+							getCatalog().runExclusive(new Runnable() {
+								public void run() {
+									refresh();
+								}
+							});
+						}
+					}
+				});
+			}
+		};
+		getCatalog().addItemsListener(itemsListener);
+		control.addDisposeListener(new DisposeListener() {
+			public void widgetDisposed(DisposeEvent e) {
+				getCatalog().removeItemsListener(itemsListener);
+			}
+		});
+	}
+
 	/**
 	 * not supported, instead usee {@link #modifySelection(CatalogItem, Operation)}
 	 */
@@ -23,6 +23,8 @@ class Messages extends NLS {
 
 	public static String BrowseCatalogItem_openUrlBrowser;
 
+	public static String BrowseCatalogItem_showMoreLink;
+
 	public static String CatalogSelectionPage_selectASolutionCatalog;
 
 	public static String CatalogSelectionPage_solutionMarketplaceCatalog;